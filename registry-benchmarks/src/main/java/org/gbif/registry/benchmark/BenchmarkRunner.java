@@ -0,0 +1,42 @@
+package org.gbif.registry.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options.
+ * <p/>
+ * Unless a result format is given, results are written as JSON to a file named after the registry version, e.g.
+ * {@code registry-benchmarks-2.113.json}, so the results of two releases can be compared with any JMH result viewer.
+ * <pre>
+ * java -jar registry-benchmarks.jar               # all benchmarks
+ * java -jar registry-benchmarks.jar Metadata -p document=eml
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmdOptions = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+
+    if (!cmdOptions.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+      if (!cmdOptions.getResult().hasValue()) {
+        options.result("registry-benchmarks-" + version() + ".json");
+      }
+    }
+
+    new Runner(options.build()).run();
+  }
+
+  private static String version() {
+    String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+    return version == null ? "dev" : version;
+  }
+}
@@ -0,0 +1,49 @@
+package org.gbif.registry.benchmark;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.doi.metadata.datacite.DataCiteMetadata;
+import org.gbif.registry.doi.DataCiteConverter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of datasets into DataCite metadata, as done whenever a dataset DOI is registered or updated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataCiteBenchmark {
+
+  @Param({"eml", "eml_large"})
+  public Fixtures.Document document;
+
+  private Dataset dataset;
+  private Organization publisher;
+
+  @Setup
+  public void setup() {
+    dataset = Fixtures.dataset(document);
+    publisher = Fixtures.publisher();
+  }
+
+  @Benchmark
+  public DataCiteMetadata convert() {
+    return DataCiteConverter.convert(dataset, publisher);
+  }
+}
@@ -0,0 +1,84 @@
+package org.gbif.registry.benchmark;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.api.model.registry.Tag;
+import org.gbif.api.vocabulary.Country;
+import org.gbif.api.vocabulary.DatasetType;
+import org.gbif.registry.metadata.parse.DatasetParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.UUID;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * The documents and entities the benchmarks run on.
+ * The metadata documents are real EML and Dublin Core documents as published to GBIF, so the benchmarks see the
+ * element structure and sizes of production data.
+ */
+public final class Fixtures {
+
+  /**
+   * The fixture metadata documents, the names are used as JMH parameter values.
+   */
+  public enum Document {
+    // a typical IPT dataset
+    eml("fixtures/eml.xml"),
+    // an occurrence download listing many constituent datasets
+    eml_large("fixtures/eml-large.xml"),
+    dc("fixtures/dc.xml");
+
+    private final String resource;
+
+    Document(String resource) {
+      this.resource = resource;
+    }
+
+    public byte[] bytes() {
+      try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(resource)) {
+        return ByteStreams.toByteArray(in);
+      } catch (IOException e) {
+        throw new IllegalStateException("Cannot read fixture " + resource, e);
+      }
+    }
+  }
+
+  private Fixtures() {
+  }
+
+  /**
+   * Parses the document into a dataset with all the registry properties set that are not part of the metadata.
+   */
+  public static Dataset dataset(Document document) {
+    Dataset d;
+    try {
+      d = DatasetParser.build(new ByteArrayInputStream(document.bytes()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot parse fixture " + document, e);
+    }
+    d.setKey(UUID.fromString("38f06820-08c5-42b2-94f6-47cc3e83a54a"));
+    d.setPublishingOrganizationKey(UUID.fromString("6d7a9d1e-0bde-4f4e-84b3-76d4e3b4d8c5"));
+    d.setInstallationKey(UUID.fromString("4c5b4b5f-b1fe-4a7b-9d5d-4c4a0c6b7f1a"));
+    d.setType(DatasetType.OCCURRENCE);
+    d.setCreated(new Date(1356998400000L));
+    d.setModified(new Date(1483228800000L));
+    d.setCreatedBy("benchmark");
+    d.setModifiedBy("benchmark");
+    Tag tag = new Tag();
+    tag.setValue("benchmark");
+    d.getTags().add(tag);
+    return d;
+  }
+
+  public static Organization publisher() {
+    Organization o = new Organization();
+    o.setKey(UUID.fromString("6d7a9d1e-0bde-4f4e-84b3-76d4e3b4d8c5"));
+    o.setTitle("Natural History Museum of Denmark");
+    o.setCountry(Country.DENMARK);
+    return o;
+  }
+}
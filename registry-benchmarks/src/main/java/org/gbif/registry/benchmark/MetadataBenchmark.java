@@ -0,0 +1,80 @@
+package org.gbif.registry.benchmark;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.registry.metadata.CitationGenerator;
+import org.gbif.registry.metadata.DublinCoreWriter;
+import org.gbif.registry.metadata.EMLWriter;
+import org.gbif.registry.metadata.parse.DatasetParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and writing of metadata documents, as done for every metadata upload, OAI-PMH record and DOI.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataBenchmark {
+
+  @Param({"eml", "eml_large", "dc"})
+  public Fixtures.Document document;
+
+  private byte[] xml;
+  private Dataset dataset;
+  private Organization publisher;
+  private EMLWriter emlWriter;
+  private DublinCoreWriter dublinCoreWriter;
+
+  @Setup
+  public void setup() {
+    xml = document.bytes();
+    dataset = Fixtures.dataset(document);
+    publisher = Fixtures.publisher();
+    emlWriter = EMLWriter.newInstance(false, true);
+    dublinCoreWriter = DublinCoreWriter.newInstance();
+  }
+
+  @Benchmark
+  public Dataset parse() throws IOException {
+    return DatasetParser.build(new ByteArrayInputStream(xml));
+  }
+
+  @Benchmark
+  public String writeEml() throws IOException {
+    StringWriter writer = new StringWriter();
+    emlWriter.writeTo(dataset, writer);
+    return writer.toString();
+  }
+
+  @Benchmark
+  public String writeDublinCore() throws IOException {
+    StringWriter writer = new StringWriter();
+    dublinCoreWriter.writeTo(publisher, dataset, Collections.<String, Object>emptyMap(), writer);
+    return writer.toString();
+  }
+
+  @Benchmark
+  public String citation() {
+    return CitationGenerator.generateCitation(dataset, publisher);
+  }
+}
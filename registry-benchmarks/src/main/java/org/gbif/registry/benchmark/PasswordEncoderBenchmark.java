@@ -0,0 +1,54 @@
+package org.gbif.registry.benchmark;
+
+import org.gbif.identity.util.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Password hashing, which runs for every basic authenticated request and login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+  private static final String PASSWORD = "correct horse battery staple";
+
+  private final PasswordEncoder encoder = new PasswordEncoder();
+  private String encoded;
+
+  @Setup
+  public void setup() {
+    encoded = encoder.encode(PASSWORD);
+  }
+
+  /**
+   * Hashing a new password with a random salt.
+   */
+  @Benchmark
+  public String encode() {
+    return encoder.encode(PASSWORD);
+  }
+
+  /**
+   * Hashing a password with the settings of a stored hash, as done when authenticating.
+   */
+  @Benchmark
+  public String verify() {
+    return encoder.encode(PASSWORD, encoded);
+  }
+}
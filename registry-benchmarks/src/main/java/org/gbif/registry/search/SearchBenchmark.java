@@ -0,0 +1,71 @@
+package org.gbif.registry.search;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.registry.benchmark.Fixtures;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building dataset index documents, as done for every dataset change and full reindex.
+ * Lives in the search package as the document converter is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+  @Param({"eml", "eml_large", "dc"})
+  public Fixtures.Document document;
+
+  private byte[] xml;
+  private Dataset dataset;
+  private Organization publisher;
+  private DatasetDocConverter converter;
+  private SAXParserFactory saxFactory;
+
+  @Setup
+  public void setup() {
+    xml = document.bytes();
+    dataset = Fixtures.dataset(document);
+    publisher = Fixtures.publisher();
+    converter = new DatasetDocConverter();
+    saxFactory = SAXParserFactory.newInstance();
+  }
+
+  /**
+   * The full index document including the full text of the metadata document.
+   */
+  @Benchmark
+  public SolrInputDocument buildDocument() {
+    return converter.build(dataset, new ByteArrayInputStream(xml), publisher, publisher);
+  }
+
+  /**
+   * Only the full text extraction of the metadata document.
+   */
+  @Benchmark
+  public String fullText() throws Exception {
+    FullTextSaxHandler handler = new FullTextSaxHandler();
+    saxFactory.newSAXParser().parse(new ByteArrayInputStream(xml), handler);
+    return handler.getFullText();
+  }
+}
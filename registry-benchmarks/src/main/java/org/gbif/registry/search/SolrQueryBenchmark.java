@@ -0,0 +1,60 @@
+package org.gbif.registry.search;
+
+import org.gbif.api.model.registry.search.DatasetSearchParameter;
+import org.gbif.api.model.registry.search.DatasetSearchRequest;
+import org.gbif.api.model.registry.search.DatasetSuggestRequest;
+import org.gbif.api.vocabulary.DatasetType;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the solr queries of dataset searches and suggestions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolrQueryBenchmark {
+
+  private final SolrQueryBuilder queryBuilder = new SolrQueryBuilder();
+  private DatasetSearchRequest searchRequest;
+  private DatasetSuggestRequest suggestRequest;
+
+  @Setup
+  public void setup() {
+    searchRequest = new DatasetSearchRequest();
+    searchRequest.setQ("bird observations");
+    searchRequest.addParameter(DatasetSearchParameter.TYPE, DatasetType.OCCURRENCE);
+    searchRequest.addParameter(DatasetSearchParameter.KEYWORD, "birds");
+    searchRequest.addFacets(DatasetSearchParameter.TYPE, DatasetSearchParameter.PUBLISHING_COUNTRY,
+                            DatasetSearchParameter.LICENSE);
+    searchRequest.setHighlight(true);
+
+    suggestRequest = new DatasetSuggestRequest();
+    suggestRequest.setQ("bird");
+  }
+
+  @Benchmark
+  public SolrQuery search() {
+    return queryBuilder.build(searchRequest);
+  }
+
+  @Benchmark
+  public SolrQuery suggest() {
+    return queryBuilder.build(suggestRequest);
+  }
+}
@@ -14,6 +14,8 @@ import org.gbif.api.vocabulary.Country;
 import org.gbif.api.vocabulary.IdentifierType;
 import org.gbif.registry.persistence.mapper.NodeMapper;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import javax.annotation.Nullable;
@@ -174,6 +176,11 @@ public class RegistryNodeMockMapper implements NodeMapper {
     return null;
   }
 
+  @Override
+  public List<KeyTitleResult> titles(@Param("keys") Collection<UUID> keys) {
+    return null;
+  }
+
   @Override
   public void create(Node entity) {
     created.add(entity);
@@ -194,6 +201,12 @@ public class RegistryNodeMockMapper implements NodeMapper {
     return nodes;
   }
 
+  @Override
+  public List<Node> listAfter(@Nullable @Param("afterCreated") Timestamp afterCreated, @Nullable @Param("afterKey") UUID afterKey,
+                              @Param("limit") int limit) {
+    return nodes;
+  }
+
   @Override
   public List<Node> search(@Nullable @Param("query") String query, @Nullable @Param("page") Pageable page) {
     return null;
@@ -204,6 +217,11 @@ public class RegistryNodeMockMapper implements NodeMapper {
     return 0;
   }
 
+  @Override
+  public Long estimateCount() {
+    return null;
+  }
+
   @Override
   public int count(@Nullable @Param("query") String query) {
     return 0;
@@ -32,10 +32,14 @@ import org.gbif.registry.metadata.contact.ContactAdapter;
 
 import java.net.URI;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -87,6 +91,20 @@ public class DataCiteConverter {
   protected static final String ENGLISH = Language.ENGLISH.getIso3LetterCode();
   private static final String DWCA_FORMAT = "Darwin Core Archive";
 
+  // limits of the constituent datasets included in download metadata, keeping it small for downloads of many datasets
+  @VisibleForTesting
+  static final int MAX_RELATED_IDENTIFIERS = 5000;
+  @VisibleForTesting
+  static final int MAX_DESCRIBED_DATASETS = 100;
+
+  private static final Comparator<DatasetOccurrenceDownloadUsage> BY_NUMBER_RECORDS =
+    new Comparator<DatasetOccurrenceDownloadUsage>() {
+      @Override
+      public int compare(DatasetOccurrenceDownloadUsage u1, DatasetOccurrenceDownloadUsage u2) {
+        return Long.compare(u1.getNumberRecords(), u2.getNumberRecords());
+      }
+    };
+
   private DataCiteConverter() {
     //DO nothing
   }
@@ -277,8 +295,12 @@ public class DataCiteConverter {
 
   /**
    * Convert a download and its dataset usages into a datacite metadata instance.
+   * <p/>
+   * The usages are only iterated once and never held in memory all together: at most
+   * {@link #MAX_RELATED_IDENTIFIERS} related DOIs are added and only the {@link #MAX_DESCRIBED_DATASETS} largest
+   * datasets are listed in the description, the remaining ones are summarized in a single line.
    */
-  public static DataCiteMetadata convert(Download d, GbifUser creator, List<DatasetOccurrenceDownloadUsage> usedDatasets,
+  public static DataCiteMetadata convert(Download d, GbifUser creator, Iterable<DatasetOccurrenceDownloadUsage> usedDatasets,
                                          TitleLookup titleLookup) {
     Preconditions.checkNotNull(d.getDoi(), "Download DOI required to build valid DOI metadata");
     Preconditions.checkNotNull(d.getCreated(), "Download created date required to build valid DOI metadata");
@@ -318,20 +340,45 @@ public class DataCiteConverter {
                     d.getTotalRecords(), getFilterQuery(d, titleLookup)))
             .addContent(String.format("The dataset includes %s records from %s constituent datasets:",
                     d.getTotalRecords(), d.getNumberDatasets()));
-    if (!usedDatasets.isEmpty()) {
+
+    Iterator<DatasetOccurrenceDownloadUsage> iter = usedDatasets.iterator();
+    if (iter.hasNext()) {
       final DataCiteMetadata.RelatedIdentifiers.Builder<?> relBuilder = b.withRelatedIdentifiers();
-      for (DatasetOccurrenceDownloadUsage du : usedDatasets) {
-        if (du.getDatasetDOI() != null) {
+      int relatedIdentifiers = 0;
+      // the largest datasets with a title, smallest first so the head can be evicted
+      PriorityQueue<DatasetOccurrenceDownloadUsage> described =
+        new PriorityQueue<DatasetOccurrenceDownloadUsage>(MAX_DESCRIBED_DATASETS + 1, BY_NUMBER_RECORDS);
+      long otherDatasets = 0;
+      long otherRecords = 0;
+      while (iter.hasNext()) {
+        DatasetOccurrenceDownloadUsage du = iter.next();
+        if (du.getDatasetDOI() != null && relatedIdentifiers < MAX_RELATED_IDENTIFIERS) {
           relBuilder.addRelatedIdentifier()
                   .withRelationType(RelationType.REFERENCES)
                   .withValue(du.getDatasetDOI().getDoiName())
                   .withRelatedIdentifierType(RelatedIdentifierType.DOI)
                   .end();
+          relatedIdentifiers++;
         }
         if (!Strings.isNullOrEmpty(du.getDatasetTitle())) {
-          db.addContent("\n " + du.getNumberRecords() + " records from " + du.getDatasetTitle() + ".");
+          described.add(du);
+          if (described.size() > MAX_DESCRIBED_DATASETS) {
+            DatasetOccurrenceDownloadUsage evicted = described.poll();
+            otherDatasets++;
+            otherRecords += evicted.getNumberRecords();
+          }
         }
       }
+
+      List<DatasetOccurrenceDownloadUsage> largest = Lists.newArrayList(described);
+      Collections.sort(largest, Collections.reverseOrder(BY_NUMBER_RECORDS));
+      for (DatasetOccurrenceDownloadUsage du : largest) {
+        db.addContent("\n " + du.getNumberRecords() + " records from " + du.getDatasetTitle() + ".");
+      }
+      if (otherDatasets > 0) {
+        db.addContent(String.format("\n %s records from %s other datasets, please see %s for the full list.",
+                otherRecords, otherDatasets, d.getDoi().getUrl()));
+      }
       db.addContent(LICENSE_INFO);
     }
 
@@ -169,6 +169,56 @@ public class DataCiteConverterTest {
     assertTrue(xml.contains(String.valueOf(du2.getNumberRecords())));
   }
 
+  @Test
+  public void testConvertDownloadOfManyDatasets() throws Exception {
+    int datasets = DataCiteConverter.MAX_RELATED_IDENTIFIERS + 10;
+    List<DatasetOccurrenceDownloadUsage> usages = Lists.newArrayList();
+    for (int i = 1; i <= datasets; i++) {
+      DatasetOccurrenceDownloadUsage du = new DatasetOccurrenceDownloadUsage();
+      du.setDatasetKey(UUID.randomUUID());
+      du.setDatasetTitle("dataset #" + i);
+      du.setDatasetDOI(new DOI("10.1234/" + i));
+      du.setNumberRecords(i);
+      usages.add(du);
+    }
+
+    Download download = new Download();
+    download.setCreated(new Date());
+    download.setDoi(new DOI("10.1234/5678"));
+    download.setKey("1");
+    download.setModified(new Date());
+    download.setNumberDatasets((long) datasets);
+    download.setSize(100);
+    download.setStatus(Download.Status.SUCCEEDED);
+    download.setTotalRecords(10);
+    PredicateDownloadRequest downloadRequest = new PredicateDownloadRequest();
+    downloadRequest.setCreator("dev@gbif.org");
+    downloadRequest.setPredicate(new EqualsPredicate(OccurrenceSearchParameter.TAXON_KEY, "3"));
+    downloadRequest.setFormat(DownloadFormat.DWCA);
+    download.setRequest(downloadRequest);
+
+    GbifUser user = new GbifUser();
+    user.setUserName("peta");
+    user.setFirstName("Pete");
+    user.setEmail("Doherty");
+
+    TitleLookup tl = mock(TitleLookup.class);
+    when(tl.getSpeciesName(anyString())).thenReturn("Abies alba Mill.");
+
+    DataCiteMetadata metadata = DataCiteConverter.convert(download, user, usages, tl);
+    assertEquals(DataCiteConverter.MAX_RELATED_IDENTIFIERS,
+                 metadata.getRelatedIdentifiers().getRelatedIdentifier().size());
+
+    List<Object> description = metadata.getDescriptions().getDescription().get(0).getContent();
+    // the largest datasets come first
+    assertEquals("\n " + datasets + " records from dataset #" + datasets + ".", description.get(2));
+    int described = DataCiteConverter.MAX_DESCRIBED_DATASETS;
+    int others = datasets - described;
+    long otherRecords = (long) others * (others + 1) / 2;
+    assertTrue(((String) description.get(2 + described)).startsWith(
+      "\n " + otherRecords + " records from " + others + " other datasets"));
+  }
+
   @Test
   public void testDatasetLicense() throws Exception {
     Organization publisher = new Organization();
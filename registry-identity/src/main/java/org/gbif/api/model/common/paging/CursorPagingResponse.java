@@ -0,0 +1,36 @@
+package org.gbif.api.model.common.paging;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A page of a cursor based listing, shared by the registry web services and their client.
+ * The offset is always 0 and the count is only given if requested.
+ * <p/>
+ * The next page is requested with the {@link #getNextCursor() nextCursor}, which is null on the last page.
+ */
+public class CursorPagingResponse<T> extends PagingResponse<T> {
+
+  private String nextCursor;
+
+  /**
+   * Only used for json deserialization
+   */
+  public CursorPagingResponse() {
+  }
+
+  public CursorPagingResponse(int limit, @Nullable Long count, List<T> results, @Nullable String nextCursor) {
+    super(0L, limit, count, results);
+    this.nextCursor = nextCursor;
+    setEndOfRecords(nextCursor == null);
+  }
+
+  @Nullable
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+}
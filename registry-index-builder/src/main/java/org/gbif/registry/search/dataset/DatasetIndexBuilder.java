@@ -27,6 +27,9 @@ import static org.gbif.registry.search.guice.RegistrySearchModule.SOLR_DATASET_P
 
 /**
  * A builder that will clear and build a new dataset index by paging over the given service.
+ * <p/>
+ * With {@value DatasetIndexRebuilder#REBUILD_PROP} set the index is instead built into a new collection, which the
+ * metrics updaters complete and the last step of the workflow swaps in, see {@link DatasetIndexRebuilder}.
  */
 public class DatasetIndexBuilder {
 
@@ -78,6 +81,12 @@ public class DatasetIndexBuilder {
       // read properties and check args
       Injector inj = registryInjector(props);
       SolrConfig solr = SolrConfig.fromProperties(props, SOLR_DATASET_PREFIX);
+      if (DatasetIndexRebuilder.isEnabled(props)) {
+        DatasetIndexRebuilder.create(inj, props).build();
+        inj.getInstance(DatasetIndexService.class).closeAndAwaitTermination();
+        LOG.info("Rebuilding completed successfully.");
+        return;
+      }
       DatasetIndexBuilder idxBuilder = new DatasetIndexBuilder(inj.getInstance(DatasetService.class),
                                                                inj.getInstance(DatasetIndexService.class));
       LOG.info("Building new solr index for collection {} on {} and idField {}", solr.getCollection(),
@@ -0,0 +1,417 @@
+package org.gbif.registry.search.dataset;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.service.registry.DatasetService;
+import org.gbif.common.search.solr.SolrConfig;
+import org.gbif.registry.persistence.mapper.DatasetMapper;
+import org.gbif.registry.search.DatasetIndexService;
+import org.gbif.registry.search.WorkflowUtils;
+import org.gbif.registry.ws.resources.DatasetResource;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.Injector;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.response.CollectionAdminResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.gbif.registry.search.guice.RegistrySearchModule.INDEXING_THREADS_PROP;
+import static org.gbif.registry.search.guice.RegistrySearchModule.SOLR_DATASET_PREFIX;
+
+/**
+ * Rebuilds the dataset index into a new SolrCloud collection and swaps it in atomically once it is complete.
+ * <p/>
+ * The configured dataset collection is used as an alias pointing to the collection currently searched. The rebuild
+ * runs in two steps of the workflow, so the metrics updaters can complete the new collection in between:
+ * <ol>
+ * <li>{@link #build()} creates a new collection named after the alias and the current time, reads the datasets in
+ * ranges of their keys in parallel, adds their documents in bulk and stages the collection as the alias with the
+ * {@value #STAGING_SUFFIX} suffix, which the metrics updaters write to</li>
+ * <li>{@link #swap()} replays the datasets changed since the build started, which were indexed into the previous
+ * collection, points the alias to the new collection and deletes the collections previously aliased</li>
+ * </ol>
+ * If the build fails the new collection is deleted again and searches keep using the previous one.
+ */
+public class DatasetIndexRebuilder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetIndexRebuilder.class);
+
+  public static final String CONFIG_NAME_PROP = SOLR_DATASET_PREFIX + "configName";
+  public static final String COLLECTION_OPTS_PROP = "solr.opts";
+  public static final String REBUILD_PROP = "solr.dataset.rebuild";
+  public static final String STAGING_SUFFIX = "_rebuild";
+
+  private static final int PAGE_SIZE = 500;
+  // margin for the clock difference to the database when replaying the changes made during the rebuild
+  private static final long CHANGES_MARGIN_MSECS = TimeUnit.MINUTES.toMillis(5);
+  // the collection name records when the build started, in UTC as the steps may run on different machines
+  private static final String STARTED_FORMAT = "yyyyMMdd_HHmmss";
+
+  private final DatasetMapper datasetMapper;
+  private final DatasetResource datasetResource;
+  private final DatasetIndexService indexService;
+  private final CloudSolrClient solrClient;
+  private final String alias;
+  private final String configName;
+  private final Map<String, String> collectionOpts;
+  private final int partitions;
+
+  public DatasetIndexRebuilder(DatasetMapper datasetMapper, DatasetResource datasetResource,
+                               DatasetIndexService indexService, CloudSolrClient solrClient, String alias,
+                               String configName, Map<String, String> collectionOpts, int partitions) {
+    Preconditions.checkArgument(partitions > 0, "At least one partition is required");
+    this.datasetMapper = datasetMapper;
+    this.datasetResource = datasetResource;
+    this.indexService = indexService;
+    this.solrClient = solrClient;
+    this.alias = alias;
+    this.configName = configName;
+    this.collectionOpts = collectionOpts;
+    this.partitions = partitions;
+  }
+
+  /**
+   * Creates a rebuilder for the dataset index configured in the properties, which has to be a SolrCloud collection.
+   */
+  public static DatasetIndexRebuilder create(Injector inj, Properties props) {
+    SolrConfig solr = SolrConfig.fromProperties(props, SOLR_DATASET_PREFIX);
+    Preconditions.checkArgument("CLOUD".equalsIgnoreCase(props.getProperty(SOLR_DATASET_PREFIX + "type")),
+                                "Rebuilding the index requires a SolrCloud dataset collection");
+    CloudSolrClient client = new CloudSolrClient(solr.getServerHome());
+    client.connect();
+    String opts = Strings.nullToEmpty(props.getProperty(COLLECTION_OPTS_PROP)).trim();
+    return new DatasetIndexRebuilder(inj.getInstance(DatasetMapper.class),
+                                     (DatasetResource) inj.getInstance(DatasetService.class),
+                                     inj.getInstance(DatasetIndexService.class),
+                                     client,
+                                     solr.getCollection(),
+                                     props.getProperty(CONFIG_NAME_PROP, solr.getCollection()),
+                                     opts.isEmpty() ? ImmutableMap.<String, String>of()
+                                       : Splitter.on('&').withKeyValueSeparator('=').split(opts),
+                                     Integer.parseInt(props.getProperty(INDEXING_THREADS_PROP, "4").trim()));
+  }
+
+  /**
+   * @return true if the workflow rebuilds the index into a new collection instead of updating the aliased one
+   */
+  public static boolean isEnabled(Properties props) {
+    return Boolean.parseBoolean(props.getProperty(REBUILD_PROP, "false").trim());
+  }
+
+  /**
+   * The dataset index the steps of the workflow write to: the staged collection when rebuilding, otherwise the
+   * configured one.
+   */
+  public static SolrConfig datasetSolr(Properties props) {
+    if (!isEnabled(props)) {
+      return SolrConfig.fromProperties(props, SOLR_DATASET_PREFIX);
+    }
+    Properties staged = new Properties();
+    staged.putAll(props);
+    staged.setProperty(SOLR_DATASET_PREFIX + "collection",
+                       props.getProperty(SOLR_DATASET_PREFIX + "collection") + STAGING_SUFFIX);
+    return SolrConfig.fromProperties(staged, SOLR_DATASET_PREFIX);
+  }
+
+  /**
+   * Builds a new collection and stages it, leaving the alias searched untouched.
+   */
+  public void build() throws Exception {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    String collection = collectionName(alias, new Date());
+    Preconditions.checkState(!solrClient.getZkStateReader().getClusterState().hasCollection(alias),
+                             "%s is a collection, please delete it or rename it so it can become an alias", alias);
+    // left behind by a build that was never swapped in
+    Set<String> abandoned = Sets.difference(aliasedCollections(stagingAlias()), aliasedCollections(alias));
+
+    LOG.info("Rebuilding dataset index into new collection {}", collection);
+    createCollection(collection);
+    try {
+      int indexed = indexAll(collection);
+      solrClient.commit(collection);
+      LOG.info("Indexed {} datasets into collection {} in {} secs", indexed, collection,
+               stopwatch.elapsed(TimeUnit.SECONDS));
+      pointAlias(stagingAlias(), collection);
+    } catch (Exception e) {
+      LOG.error("Failed to build collection {}, deleting it again", collection, e);
+      deleteCollection(collection);
+      throw e;
+    }
+
+    for (String old : abandoned) {
+      deleteCollection(old);
+    }
+    LOG.info("Staged collection {} as {}, it is searched once swapped in", collection, stagingAlias());
+  }
+
+  /**
+   * Swaps the staged collection in and deletes the collections previously searched.
+   */
+  public void swap() throws Exception {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    Set<String> staged = aliasedCollections(stagingAlias());
+    Preconditions.checkState(staged.size() == 1, "Expected one collection staged as %s but found %s",
+                             stagingAlias(), staged);
+    String collection = staged.iterator().next();
+    Set<String> previous = aliasedCollections(alias);
+
+    // changes made since the build started went to the previous collection, replay them before swapping so searches
+    // don't go back in time, and once more afterwards for the changes made while replaying
+    Date replayed = new Date();
+    int changed = replay(collection, startedOf(alias, collection));
+    pointAlias(alias, collection);
+    changed += replay(collection, replayed);
+    LOG.info("Replayed {} datasets changed during the rebuild", changed);
+
+    deleteAlias(stagingAlias());
+    for (String old : previous) {
+      if (!old.equals(collection)) {
+        deleteCollection(old);
+      }
+    }
+    LOG.info("Swapped in collection {} in {} secs", collection, stopwatch.elapsed(TimeUnit.SECONDS));
+  }
+
+  /**
+   * Reindexes the datasets changed since the given time, including those of changed organizations and installations.
+   */
+  private int replay(String collection, Date since) throws Exception {
+    int changed = indexRange(collection, null, null, new Date(since.getTime() - CHANGES_MARGIN_MSECS));
+    solrClient.commit(collection);
+    return changed;
+  }
+
+  /**
+   * Indexes all datasets, reading the key ranges in parallel.
+   *
+   * @return the number of datasets indexed
+   */
+  private int indexAll(final String collection) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(partitions, new NamedThreadFactory("dataset-index-rebuild"));
+    try {
+      List<Future<Integer>> futures = Lists.newArrayList();
+      for (final KeyRange range : KeyRange.partition(partitions)) {
+        futures.add(pool.submit(() -> indexRange(collection, range.from, range.to, null)));
+      }
+      int indexed = 0;
+      for (Future<Integer> f : futures) {
+        // fails the rebuild on the first failed partition
+        indexed += f.get();
+      }
+      return indexed;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Pages through the datasets of a key range in key order and writes them in bulk to the collection.
+   *
+   * @param changedFrom if given, only the datasets changed since or whose organization or installation changed since,
+   *                    removing the deleted ones
+   * @return the number of datasets written
+   */
+  private int indexRange(String collection, @Nullable UUID from, @Nullable UUID to, @Nullable Date changedFrom)
+    throws Exception {
+    int failed = 0;
+    int written = 0;
+    UUID after = null;
+    List<Dataset> page;
+    do {
+      page = datasetMapper.listByKeyRange(from, to, after, changedFrom, PAGE_SIZE);
+      List<SolrInputDocument> docs = Lists.newArrayListWithCapacity(page.size());
+      List<String> deletes = Lists.newArrayList();
+      for (Dataset d : page) {
+        if (d.getDeleted() != null) {
+          deletes.add(d.getKey().toString());
+          continue;
+        }
+        try {
+          docs.add(indexService.toDocument(datasetResource.augmentWithMetadata(d)));
+        } catch (Exception e) {
+          // as with incremental updates, a dataset that cannot be converted must not fail the whole index
+          LOG.error("Unable to build solr document for dataset {}", d.getKey(), e);
+          failed++;
+        }
+      }
+      if (!docs.isEmpty()) {
+        solrClient.add(collection, docs);
+      }
+      if (!deletes.isEmpty()) {
+        solrClient.deleteById(collection, deletes);
+      }
+      written += docs.size() + deletes.size();
+      if (!page.isEmpty()) {
+        after = page.get(page.size() - 1).getKey();
+      }
+    } while (page.size() == PAGE_SIZE);
+
+    if (failed > 0) {
+      LOG.warn("{} datasets of key range {} - {} are missing in collection {}", failed, from, to, collection);
+    }
+    return written;
+  }
+
+  private String stagingAlias() {
+    return alias + STAGING_SUFFIX;
+  }
+
+  private Set<String> aliasedCollections(String aliasName) {
+    String aliased = solrClient.getZkStateReader().getAliases().getCollectionAlias(aliasName);
+    return aliased == null ? Sets.<String>newHashSet()
+      : Sets.newHashSet(Splitter.on(',').trimResults().omitEmptyStrings().split(aliased));
+  }
+
+  private void createCollection(String collection) throws Exception {
+    CollectionAdminRequest.Create create = new CollectionAdminRequest.Create();
+    create.setCollectionName(collection);
+    create.setConfigName(configName);
+    create.setNumShards(intOpt("numShards"));
+    create.setReplicationFactor(intOpt("replicationFactor"));
+    create.setMaxShardsPerNode(intOpt("maxShardsPerNode"));
+    check(create.process(solrClient), "create collection " + collection);
+  }
+
+  private void pointAlias(String aliasName, String collection) throws Exception {
+    CollectionAdminRequest.CreateAlias createAlias = new CollectionAdminRequest.CreateAlias();
+    createAlias.setAliasName(aliasName);
+    createAlias.setAliasedCollections(collection);
+    check(createAlias.process(solrClient), "point alias " + aliasName + " to " + collection);
+    LOG.info("Alias {} now points to collection {}", aliasName, collection);
+  }
+
+  private void deleteAlias(String aliasName) {
+    try {
+      CollectionAdminRequest.DeleteAlias delete = new CollectionAdminRequest.DeleteAlias();
+      delete.setAliasName(aliasName);
+      check(delete.process(solrClient), "delete alias " + aliasName);
+    } catch (Exception e) {
+      // the next build points it to its own collection
+      LOG.warn("Failed to delete alias {}", aliasName, e);
+    }
+  }
+
+  private void deleteCollection(String collection) {
+    try {
+      CollectionAdminRequest.Delete delete = new CollectionAdminRequest.Delete();
+      delete.setCollectionName(collection);
+      check(delete.process(solrClient), "delete collection " + collection);
+      LOG.info("Deleted collection {}", collection);
+    } catch (Exception e) {
+      // leaves an unused collection behind, which does not affect searches
+      LOG.error("Failed to delete collection {}, please delete it manually", collection, e);
+    }
+  }
+
+  private int intOpt(String name) {
+    String value = collectionOpts.get(name);
+    return value == null ? 1 : Integer.parseInt(value.trim());
+  }
+
+  @VisibleForTesting
+  static String collectionName(String alias, Date started) {
+    return alias + "_" + startedFormat().format(started);
+  }
+
+  @VisibleForTesting
+  static Date startedOf(String alias, String collection) {
+    Preconditions.checkArgument(collection.startsWith(alias + "_"), "%s is not a collection of %s", collection, alias);
+    try {
+      return startedFormat().parse(collection.substring(alias.length() + 1));
+    } catch (ParseException e) {
+      throw new IllegalArgumentException(collection + " is not named after the start of its build", e);
+    }
+  }
+
+  private static DateFormat startedFormat() {
+    DateFormat format = new SimpleDateFormat(STARTED_FORMAT);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format;
+  }
+
+  private static void check(CollectionAdminResponse response, String action) {
+    if (!response.isSuccess()) {
+      throw new IllegalStateException("Failed to " + action + ": " + response.getErrorMessages());
+    }
+  }
+
+  /**
+   * The last step of the workflow, swapping in the staged collection if the index is rebuilt.
+   */
+  public static void main(String[] args) throws IOException {
+    Properties props = WorkflowUtils.loadProperties(args);
+    if (isEnabled(props)) {
+      try {
+        Injector inj = DatasetIndexBuilder.registryInjector(props);
+        create(inj, props).swap();
+        inj.getInstance(DatasetIndexService.class).closeAndAwaitTermination();
+        LOG.info("Swapping completed successfully.");
+      } catch (Exception e) {
+        LOG.error("Failed to swap in the rebuilt dataset index", e);
+        System.exit(1);
+      }
+    } else {
+      LOG.info("The dataset index was updated in place, nothing to swap");
+    }
+    System.exit(0);
+  }
+
+  /**
+   * A range of dataset keys, with null bounds for the beginning and end of all keys.
+   */
+  @VisibleForTesting
+  static class KeyRange {
+
+    @Nullable
+    final UUID from;
+    @Nullable
+    final UUID to;
+
+    private KeyRange(@Nullable UUID from, @Nullable UUID to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * Splits all keys into equally sized ranges. The bounds are placed on the leading 32 bits, which are compared
+     * first by the uuid ordering of the database and are uniformly distributed for random uuids.
+     */
+    static List<KeyRange> partition(int count) {
+      List<KeyRange> ranges = Lists.newArrayListWithCapacity(count);
+      UUID from = null;
+      for (int i = 1; i <= count; i++) {
+        UUID to = i == count ? null : new UUID(((1L << 32) * i / count) << 32, 0);
+        ranges.add(new KeyRange(from, to));
+        from = to;
+      }
+      return ranges;
+    }
+  }
+}
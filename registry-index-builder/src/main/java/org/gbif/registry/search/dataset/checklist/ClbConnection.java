@@ -1,34 +1,46 @@
 package org.gbif.registry.search.dataset.checklist;
 
+import org.gbif.utils.file.properties.PropertiesUtil;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 /**
- * A configuration for the checklist bank database providing JDBC connections from Properties.
+ * A configuration for the checklist bank database providing pooled JDBC connections from Properties.
+ * All properties prefixed with {@value #PROPERTY_PREFIX} configure the Hikari pool, e.g. dataSourceClassName,
+ * dataSource.serverName or maximumPoolSize.
  */
-@SuppressWarnings("PublicField")
-public class ClbConnection {
+public class ClbConnection implements AutoCloseable {
 
-  private static final String PROPERTY_PREFIX = "checklistbank.db.dataSource.";
+  private static final String PROPERTY_PREFIX = "checklistbank.db.";
 
   private final Properties props;
+  private HikariDataSource dataSource;
 
   public ClbConnection(Properties props) {
     this.props = props;
   }
 
   /**
-   * @return a new simple postgres jdbc connection
+   * @return a connection from the pool, which is created on first use
    */
-  public Connection connect() throws SQLException {
-    String url = "jdbc:postgresql://" + p("serverName") + "/" + p("databaseName");
-    return DriverManager.getConnection(url, p("user"), p("password"));
+  public synchronized Connection connect() throws SQLException {
+    if (dataSource == null) {
+      dataSource = new HikariDataSource(new HikariConfig(PropertiesUtil.filterProperties(props, PROPERTY_PREFIX)));
+    }
+    return dataSource.getConnection();
   }
 
-  private String p(String name) {
-    return props.getProperty(PROPERTY_PREFIX+name, "");
+  @Override
+  public synchronized void close() {
+    if (dataSource != null) {
+      dataSource.close();
+      dataSource = null;
+    }
   }
 
 }
@@ -2,45 +2,74 @@ package org.gbif.registry.search.dataset.checklist;
 
 import org.gbif.common.search.solr.SolrConfig;
 import org.gbif.registry.search.WorkflowUtils;
+import org.gbif.registry.search.dataset.DatasetIndexRebuilder;
 
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
-import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static org.gbif.registry.search.guice.RegistrySearchModule.SOLR_DATASET_PREFIX;
+import static org.gbif.registry.search.guice.RegistrySearchModule.INDEXING_COMMIT_WITHIN_PROP;
 
 
 /**
- * A builder that will clear and build a new dataset index by paging over the given service.
+ * Updates the taxon keys and record counts of all checklists in the dataset index.
+ * <p/>
+ * The nub keys of each checklist are streamed from ChecklistBank {@value #FETCH_SIZE_PROP} rows at a time and written
+ * as atomic updates in batches of {@value #BATCH_SIZE_PROP} documents using commitWithin.
  */
 public class DatasetIndexChecklistUpdater {
 
+  public static final String FETCH_SIZE_PROP = "checklistbank.fetchSize";
+  public static final String BATCH_SIZE_PROP = "solr.checklist.batchSize";
+
   private static final Logger LOG = LoggerFactory.getLogger(DatasetIndexChecklistUpdater.class);
   private static final String SQL = "SELECT dataset_key, array_agg(nub_fk) as keys " +
                                     "FROM nub_rel " +
                                     "GROUP BY dataset_key";
   private final ClbConnection clb;
   private final SolrConfig solrConfig;
+  private final int fetchSize;
+  private final int batchSize;
+  private final int commitWithinMsecs;
 
   public DatasetIndexChecklistUpdater(ClbConnection clb, SolrConfig solr) {
+    this(clb, solr, 10, 100, 60000);
+  }
+
+  /**
+   * @param fetchSize the number of checklists read from the database at a time, each row holds all its nub keys
+   * @param batchSize the number of documents sent to solr in one request
+   * @param commitWithinMsecs the time after which solr commits the updates
+   */
+  public DatasetIndexChecklistUpdater(ClbConnection clb, SolrConfig solr, int fetchSize, int batchSize,
+                                      int commitWithinMsecs) {
+    Preconditions.checkArgument(fetchSize > 0 && batchSize > 0, "Fetch and batch size need to be positive");
     this.clb = clb;
     solrConfig = solr;
+    this.fetchSize = fetchSize;
+    this.batchSize = batchSize;
+    this.commitWithinMsecs = commitWithinMsecs;
   }
 
   /**
    * Pages over all datasets and adds them to SOLR.
+   * The connection used is returned to the pool, which is left open for its creator to close.
    */
   public void build() throws Exception {
     Stopwatch stopwatch = Stopwatch.createStarted();
@@ -48,31 +77,36 @@ public class DatasetIndexChecklistUpdater {
          Connection conn = clb.connect()
     ) {
       LOG.info("Updating all checklists in dataset index");
+      UpdateBatch batch = new UpdateBatch(solr, solrConfig.getCollection(), batchSize, commitWithinMsecs);
 
       // use streaming cursor for large result sets
       conn.setAutoCommit(false);
-      Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-      st.setFetchSize(2);
-
-      ResultSet rs = st.executeQuery(SQL);
-      while (rs.next()) {
-        try {
-          Integer[] keys = (Integer[])rs.getArray("keys").getArray();
-
-          SolrInputDocument doc = new SolrInputDocument();
-          doc.addField("key", rs.getString("dataset_key"));
-          doc.addField("taxon_key", atomicUpdate(keys));
-          doc.addField("record_count", atomicUpdate(keys.length));
-
-          solr.add( doc );
-        } catch (Exception e) {
-          Throwables.propagate(e);
+      try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+        st.setFetchSize(fetchSize);
+
+        try (ResultSet rs = st.executeQuery(SQL)) {
+          while (rs.next()) {
+            Integer[] keys = (Integer[]) rs.getArray("keys").getArray();
+
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.addField("key", rs.getString("dataset_key"));
+            doc.addField("taxon_key", atomicUpdate(keys));
+            doc.addField("record_count", atomicUpdate(keys.length));
+
+            if (batch.add(doc, keys.length)) {
+              long secs = Math.max(stopwatch.elapsed(TimeUnit.SECONDS), 1);
+              LOG.info("Updated {} checklists with {} taxon keys, {} checklists/s and {} keys/s", batch.documents,
+                       batch.values, batch.documents / secs, batch.values / secs);
+            }
+          }
         }
       }
-      rs.close();
+      conn.commit();
+      batch.flush();
 
       solr.commit(solrConfig.getCollection());
-      LOG.info("Finished updating all checklists in dataset index in {} secs", stopwatch.elapsed(TimeUnit.SECONDS));
+      LOG.info("Finished updating {} checklists with {} taxon keys in dataset index in {} secs", batch.documents,
+               batch.values, stopwatch.elapsed(TimeUnit.SECONDS));
 
     } catch (Exception e) {
       LOG.error("Failed to index taxon keys for dataset index", e);
@@ -88,13 +122,60 @@ public class DatasetIndexChecklistUpdater {
     return atomic;
   }
 
-  public static void run (Properties props) {
-    try {
-      // read properties and check args
-      SolrConfig solr = SolrConfig.fromProperties(props, SOLR_DATASET_PREFIX);
-      ClbConnection clb = new ClbConnection(props);
+  /**
+   * Collects documents and sends them to solr once the batch is full, counting all documents and values sent.
+   */
+  @VisibleForTesting
+  static class UpdateBatch {
+
+    private final SolrClient solr;
+    private final String collection;
+    private final int size;
+    private final int commitWithinMsecs;
+    private final List<SolrInputDocument> docs;
+    long documents;
+    long values;
+
+    UpdateBatch(SolrClient solr, String collection, int size, int commitWithinMsecs) {
+      this.solr = solr;
+      this.collection = collection;
+      this.size = size;
+      this.commitWithinMsecs = commitWithinMsecs;
+      docs = Lists.newArrayListWithCapacity(size);
+    }
 
-      DatasetIndexChecklistUpdater idxBuilder = new DatasetIndexChecklistUpdater(clb, solr);
+    /**
+     * @param values the number of values in the document, for counting only
+     * @return true if the batch was sent
+     */
+    boolean add(SolrInputDocument doc, int values) throws IOException, SolrServerException {
+      docs.add(doc);
+      this.values += values;
+      if (docs.size() >= size) {
+        flush();
+        return true;
+      }
+      return false;
+    }
+
+    void flush() throws IOException, SolrServerException {
+      if (!docs.isEmpty()) {
+        solr.add(collection, docs, commitWithinMsecs);
+        documents += docs.size();
+        docs.clear();
+      }
+    }
+  }
+
+  public static void run (Properties props) {
+    // read properties and check args
+    try (ClbConnection clb = new ClbConnection(props)) {
+      SolrConfig solr = DatasetIndexRebuilder.datasetSolr(props);
+
+      DatasetIndexChecklistUpdater idxBuilder = new DatasetIndexChecklistUpdater(clb, solr,
+        Integer.parseInt(props.getProperty(FETCH_SIZE_PROP, "10").trim()),
+        Integer.parseInt(props.getProperty(BATCH_SIZE_PROP, "100").trim()),
+        Integer.parseInt(props.getProperty(INDEXING_COMMIT_WITHIN_PROP, "60000").trim()));
       LOG.info("Updating checklists in dataset index {} on {}", solr.getCollection(), solr.getServerHome());
       idxBuilder.build();
       LOG.info("Checklist indexing completed successfully.");
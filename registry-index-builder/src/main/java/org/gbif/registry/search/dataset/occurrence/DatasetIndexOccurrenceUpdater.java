@@ -7,10 +7,22 @@ import org.gbif.api.service.registry.DatasetService;
 import org.gbif.api.vocabulary.DatasetType;
 import org.gbif.common.search.solr.SolrConfig;
 import org.gbif.registry.search.WorkflowUtils;
+import org.gbif.registry.search.dataset.DatasetIndexRebuilder;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import com.google.inject.Injector;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.common.SolrInputDocument;
@@ -19,28 +31,53 @@ import org.slf4j.LoggerFactory;
 
 import static org.gbif.registry.search.dataset.DatasetIndexBuilder.registryInjector;
 import static org.gbif.registry.search.dataset.checklist.DatasetIndexChecklistUpdater.atomicUpdate;
-import static org.gbif.registry.search.guice.RegistrySearchModule.SOLR_DATASET_PREFIX;
-
 
+/**
+ * Updates the occurrence metrics of all occurrence datasets in the dataset index.
+ * <p/>
+ * The record counts and distinct taxon keys, years and countries of {@value #BATCH_SIZE_PROP} datasets are read with a
+ * single facet request and written as one batch of atomic updates. {@value #THREADS_PROP} batches run concurrently.
+ */
 public class DatasetIndexOccurrenceUpdater {
   private static final String SOLR_OCCURRENCE_PREFIX = "solr.occurrence.";
+  public static final String THREADS_PROP = SOLR_OCCURRENCE_PREFIX + "facet.threads";
+  public static final String BATCH_SIZE_PROP = SOLR_OCCURRENCE_PREFIX + "facet.datasets";
   private static final Logger LOG = LoggerFactory.getLogger(DatasetIndexOccurrenceUpdater.class);
   private final int PAGE_SIZE = 100;
 
   private final OccSearchClient occ;
   private final SolrConfig datasetSolr;
   private final DatasetService datasetService;
+  private final int threads;
+  private final int batchSize;
 
   public DatasetIndexOccurrenceUpdater(OccSearchClient occ, SolrConfig datasetSolr, DatasetService datasetService) {
+    this(occ, datasetSolr, datasetService, 4, 25);
+  }
+
+  /**
+   * @param threads the number of facet requests running concurrently
+   * @param batchSize the number of datasets faceted per request
+   */
+  public DatasetIndexOccurrenceUpdater(OccSearchClient occ, SolrConfig datasetSolr, DatasetService datasetService,
+                                       int threads, int batchSize) {
+    Preconditions.checkArgument(threads > 0 && batchSize > 0, "Threads and batch size need to be positive");
     this.occ = occ;
     this.datasetSolr = datasetSolr;
     this.datasetService = datasetService;
+    this.threads = threads;
+    this.batchSize = batchSize;
   }
 
   public void run() {
-    LOG.info("Updating occurrence datasets with taxon keys");
+    LOG.info("Updating occurrence datasets with taxon keys using {} threads with {} datasets per request",
+             threads, batchSize);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    ExecutorService pool = Executors.newFixedThreadPool(threads, new NamedThreadFactory("occurrence-facets"));
     try (SolrClient solr = datasetSolr.buildSolr()
     ) {
+      List<Future<Integer>> batches = Lists.newArrayList();
+      List<UUID> batch = Lists.newArrayList();
       PagingRequest page = new PagingRequest(0, PAGE_SIZE);
       PagingResponse<Dataset> response;
       do {
@@ -48,58 +85,77 @@ public class DatasetIndexOccurrenceUpdater {
         // TODO we need to index all types with occurrences ultimately
         response = datasetService.listByType(DatasetType.OCCURRENCE, page);
         for (Dataset d : response.getResults()) {
-          SolrInputDocument doc = new SolrInputDocument();
-          doc.addField("key", d.getKey().toString());
-
-          OccSearchClient.FacetResult taxKeys = occ.taxonKeys(d.getKey());
-          doc.addField("taxon_key", atomicUpdate(taxKeys.values));
-
-          OccSearchClient.FacetResult years = occ.years(d.getKey());
-          doc.addField("year", atomicUpdate(years.values));
-
-          OccSearchClient.FacetResult countries = occ.countries(d.getKey());
-          doc.addField("country", atomicUpdate(countries.values));
-
-          doc.addField("record_count", atomicUpdate(taxKeys.records));
-          solr.add( doc );
-
-          LOG.debug("Indexed {} dataset {} with {} records, {} taxa, {} countries and {} years: {}",
-              d.getType(),
-              d.getKey(),
-              taxKeys.records,
-              taxKeys.values.size(),
-              countries.values.size(),
-              years.values.size(),
-              d.getTitle()
-          );
+          batch.add(d.getKey());
+          if (batch.size() == batchSize) {
+            batches.add(submit(pool, solr, batch));
+            batch = Lists.newArrayList();
+          }
         }
         page.nextPage();
 
       } while (!response.isEndOfRecords());
+      if (!batch.isEmpty()) {
+        batches.add(submit(pool, solr, batch));
+      }
+
+      int updated = 0;
+      int failed = 0;
+      for (Future<Integer> f : batches) {
+        try {
+          updated += f.get();
+        } catch (Exception e) {
+          // the datasets of a failed batch keep their previous metrics
+          LOG.error("Failed to update a batch of occurrence datasets", e);
+          failed++;
+        }
+      }
 
       solr.commit(datasetSolr.getCollection());
-
-      //Optimizing Solr since all the
-      solr.optimize(datasetSolr.getCollection());
-      LOG.info("Finished updating Dataset index with occurrence taxon keys");
+      LOG.info("Finished updating {} datasets in Dataset index with occurrence taxon keys in {} secs, {} batches failed",
+               updated, stopwatch.elapsed(TimeUnit.SECONDS), failed);
 
     } catch (Exception e) {
       LOG.error("Failed to index occurrence taxon keys", e);
+    } finally {
+      pool.shutdownNow();
     }
 
   }
 
+  private Future<Integer> submit(ExecutorService pool, final SolrClient solr, final List<UUID> datasetKeys) {
+    return pool.submit(() -> {
+      List<SolrInputDocument> docs = Lists.newArrayListWithCapacity(datasetKeys.size());
+      for (Map.Entry<UUID, OccSearchClient.FacetResult> facets : occ.facets(datasetKeys).entrySet()) {
+        OccSearchClient.FacetResult f = facets.getValue();
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("key", facets.getKey().toString());
+        doc.addField("taxon_key", atomicUpdate(f.taxonKeys));
+        doc.addField("year", atomicUpdate(f.years));
+        doc.addField("country", atomicUpdate(f.countries));
+        doc.addField("record_count", atomicUpdate(f.records));
+        docs.add(doc);
+
+        LOG.debug("Indexed dataset {} with {} records, {} taxa, {} countries and {} years",
+                  facets.getKey(), f.records, f.taxonKeys.size(), f.countries.size(), f.years.size());
+      }
+      solr.add(docs);
+      return docs.size();
+    });
+  }
+
   public static void run (Properties props) {
     try {
       Injector registryInjector = registryInjector(props);
       DatasetService datasetService = registryInjector.getInstance(DatasetService.class);
 
-      SolrConfig datasetSolr = SolrConfig.fromProperties(props, SOLR_DATASET_PREFIX);
+      SolrConfig datasetSolr = DatasetIndexRebuilder.datasetSolr(props);
 
       SolrConfig occSolr = SolrConfig.fromProperties(props, SOLR_OCCURRENCE_PREFIX);
       OccSearchClient occ = new OccSearchClient(occSolr);
 
-      DatasetIndexOccurrenceUpdater updater = new DatasetIndexOccurrenceUpdater(occ, datasetSolr, datasetService);
+      DatasetIndexOccurrenceUpdater updater = new DatasetIndexOccurrenceUpdater(occ, datasetSolr, datasetService,
+        Integer.parseInt(props.getProperty(THREADS_PROP, "4").trim()),
+        Integer.parseInt(props.getProperty(BATCH_SIZE_PROP, "25").trim()));
       updater.run();
 
     } catch (Exception e) {
@@ -6,19 +6,25 @@ import org.gbif.common.search.SearchException;
 import org.gbif.common.search.solr.SolrConfig;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import javax.annotation.Nullable;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.util.NamedList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,10 +36,43 @@ import org.slf4j.LoggerFactory;
 public class OccSearchClient implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(OccSearchClient.class);
 
-  private final String FIELD_DATASET_KEY = "dataset_key";
-  private final String FIELD_TAXON_KEY = "taxon_key";
-  private final String FIELD_YEAR= "year";
-  private final String FIELD_COUNTRY= "country";
+  private static final String FIELD_DATASET_KEY = "dataset_key";
+  private static final String FIELD_TAXON_KEY = "taxon_key";
+  private static final String FIELD_YEAR= "year";
+  private static final String FIELD_COUNTRY= "country";
+  private static final String DATASETS_FACET = "datasets";
+
+  /**
+   * Facets all values of the taxon, year and country fields per dataset using the JSON Facet API.
+   */
+  private static final String JSON_FACET = "{" + DATASETS_FACET + ":{type:terms,field:" + FIELD_DATASET_KEY + ",limit:-1,"
+                                           + "facet:{"
+                                           + valuesFacet(FIELD_TAXON_KEY) + ","
+                                           + valuesFacet(FIELD_YEAR) + ","
+                                           + valuesFacet(FIELD_COUNTRY)
+                                           + "}}}";
+
+  private static final Function<String, Integer> INTEGER = new Function<String, Integer>() {
+    @Override
+    public Integer apply(@Nullable String value) {
+      return Integer.valueOf(value);
+    }
+  };
+
+  private static final Function<String, Integer> COUNTRY = new Function<String, Integer>() {
+    @Override
+    // ISO 2 letter codes as input from occ solr index
+    public Integer apply(@Nullable String iso) {
+      Country c = Country.fromIsoCode(iso);
+      if (c == null) {
+        LOG.warn("Unknown country ISO code found: {}", iso);
+        return Country.UNKNOWN.ordinal();
+      } else {
+        return c.ordinal();
+      }
+    }
+  };
+
   private final SolrClient solr;
 
   /**
@@ -44,27 +83,46 @@ public class OccSearchClient implements AutoCloseable {
     solr = occSolr.buildSolr();
   }
 
+  public static class FacetResult {
+    public final long records;
+    public final List<Integer> taxonKeys;
+    public final List<Integer> years;
+    public final List<Integer> countries;
+
+    public FacetResult(long records, List<Integer> taxonKeys, List<Integer> years, List<Integer> countries) {
+      this.records = records;
+      this.taxonKeys = taxonKeys;
+      this.years = years;
+      this.countries = countries;
+    }
+  }
+
+  private static final FacetResult NO_OCCURRENCES = new FacetResult(0, Collections.<Integer>emptyList(),
+    Collections.<Integer>emptyList(), Collections.<Integer>emptyList());
+
   /**
+   * Counts the records and collects all distinct taxon keys, years and countries of many datasets with a single
+   * request.
    *  Example query:
-   *  http://prodsolr05-vh.gbif.org:8983/solr/occurrence_b/select?wt=json&rows=0&facet=true&facet.field=taxon_key&facet.sort=index&facet.limit=-1&facet.mincount=1&q=dataset_key:821cc27a-e3bb-4bc5-ac34-89ada245069d
+   *  http://prodsolr05-vh.gbif.org:8983/solr/occurrence_b/select?wt=json&rows=0&q=dataset_key:(821cc27a-e3bb-4bc5-ac34-89ada245069d)&json.facet={datasets:{type:terms,field:dataset_key,limit:-1,facet:{taxon_key:{type:terms,field:taxon_key,limit:-1,sort:'index asc'}}}}
+   *
+   * @return the facets of every requested dataset, with no values for datasets without occurrences
    */
-  private FacetResult facet(UUID datasetKey, String facetField, Function<String, Integer> solrValueTransformer) {
+  public Map<UUID, FacetResult> facets(Collection<UUID> datasetKeys) {
     SolrQuery query = new SolrQuery();
-    query.setQuery(FIELD_DATASET_KEY+":"+datasetKey.toString());
-    query.addFacetField(facetField);
-    query.setFacetLimit(-1);
-    query.setFacetSort("index");
-    query.setFacetMinCount(1);
+    query.setQuery(FIELD_DATASET_KEY + ":(" + Joiner.on(" OR ").join(datasetKeys) + ")");
     query.setRows(0);
+    query.set("json.facet", JSON_FACET);
 
     try {
       QueryResponse resp = solr.query(query);
-      List<Integer> keys = Lists.newArrayList();
-      for (FacetField.Count count : resp.getFacetField(facetField).getValues()) {
-        keys.add(solrValueTransformer.apply(count.getName()));
+      Map<UUID, FacetResult> results = parseFacets((NamedList<?>) resp.getResponse().get("facets"));
+      for (UUID key : datasetKeys) {
+        if (!results.containsKey(key)) {
+          results.put(key, NO_OCCURRENCES);
+        }
       }
-
-      return new FacetResult(resp.getResults().getNumFound(), keys);
+      return results;
 
     } catch (SolrServerException e) {
       if (e.getRootCause() instanceof IllegalArgumentException) {
@@ -81,48 +139,45 @@ public class OccSearchClient implements AutoCloseable {
     }
   }
 
-  public static class FacetResult {
-    public final long records;
-    public final List<Integer> values;
-
-    public FacetResult(long records, List<Integer> values) {
-      this.records = records;
-      this.values = values;
+  /**
+   * Reads the dataset buckets of the JSON facet response.
+   */
+  @VisibleForTesting
+  static Map<UUID, FacetResult> parseFacets(@Nullable NamedList<?> facets) {
+    Map<UUID, FacetResult> results = Maps.newHashMap();
+    // without any matching record the response only contains the count
+    NamedList<?> datasets = facets == null ? null : (NamedList<?>) facets.get(DATASETS_FACET);
+    if (datasets != null) {
+      for (NamedList<?> bucket : buckets(datasets)) {
+        UUID key = UUID.fromString(bucket.get("val").toString());
+        results.put(key, new FacetResult(((Number) bucket.get("count")).longValue(),
+                                         values(bucket, FIELD_TAXON_KEY, INTEGER),
+                                         values(bucket, FIELD_YEAR, INTEGER),
+                                         values(bucket, FIELD_COUNTRY, COUNTRY)));
+      }
     }
+    return results;
   }
 
-  public FacetResult taxonKeys(UUID datasetKey) {
-    return facet(datasetKey, FIELD_TAXON_KEY, new Function<String, Integer>() {
-      @Override
-      public Integer apply(@Nullable String taxonKey) {
-        return Integer.valueOf(taxonKey);
+  private static List<Integer> values(NamedList<?> bucket, String field, Function<String, Integer> solrValueTransformer) {
+    List<Integer> values = Lists.newArrayList();
+    NamedList<?> facet = (NamedList<?>) bucket.get(field);
+    if (facet != null) {
+      for (NamedList<?> value : buckets(facet)) {
+        values.add(solrValueTransformer.apply(value.get("val").toString()));
       }
-    });
+    }
+    return values;
   }
 
-  public FacetResult years(UUID datasetKey) {
-    return facet(datasetKey, FIELD_YEAR, new Function<String, Integer>() {
-      @Override
-      public Integer apply(@Nullable String year) {
-        return Integer.valueOf(year);
-      }
-    });
+  @SuppressWarnings("unchecked")
+  private static List<NamedList<?>> buckets(NamedList<?> facet) {
+    List<NamedList<?>> buckets = (List<NamedList<?>>) facet.get("buckets");
+    return buckets == null ? Collections.<NamedList<?>>emptyList() : buckets;
   }
 
-  public FacetResult countries(UUID datasetKey) {
-    return facet(datasetKey, FIELD_COUNTRY, new Function<String, Integer>() {
-      @Override
-      // ISO 2 letter codes as input from occ solr index
-      public Integer apply(@Nullable String iso) {
-        Country c = Country.fromIsoCode(iso);
-        if (c == null) {
-          LOG.warn("Unknown country ISO code found: {}", iso);
-          return Country.UNKNOWN.ordinal();
-        } else {
-          return c.ordinal();
-        }
-      }
-    });
+  private static String valuesFacet(String field) {
+    return field + ":{type:terms,field:" + field + ",limit:-1,sort:'index asc'}";
   }
 
   @Override
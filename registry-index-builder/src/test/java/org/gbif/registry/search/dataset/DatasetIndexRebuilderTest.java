@@ -0,0 +1,49 @@
+package org.gbif.registry.search.dataset;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DatasetIndexRebuilderTest {
+
+  @Test
+  public void testPartition() {
+    List<DatasetIndexRebuilder.KeyRange> ranges = DatasetIndexRebuilder.KeyRange.partition(4);
+    assertEquals(4, ranges.size());
+    // all keys are covered without gaps
+    assertNull(ranges.get(0).from);
+    assertNull(ranges.get(3).to);
+    for (int i = 1; i < ranges.size(); i++) {
+      assertEquals(ranges.get(i - 1).to, ranges.get(i).from);
+    }
+    assertEquals(UUID.fromString("40000000-0000-0000-0000-000000000000"), ranges.get(1).from);
+    assertEquals(UUID.fromString("80000000-0000-0000-0000-000000000000"), ranges.get(2).from);
+    assertEquals(UUID.fromString("c0000000-0000-0000-0000-000000000000"), ranges.get(3).from);
+  }
+
+  @Test
+  public void testStartedOf() {
+    Date started = new Date(1450000000000L);
+    String collection = DatasetIndexRebuilder.collectionName("dataset", started);
+    assertEquals("dataset_20151213_094640", collection);
+    assertEquals(started, DatasetIndexRebuilder.startedOf("dataset", collection));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStartedOfOtherCollection() {
+    DatasetIndexRebuilder.startedOf("dataset", "dataset_2018_09_21");
+  }
+
+  @Test
+  public void testSinglePartition() {
+    List<DatasetIndexRebuilder.KeyRange> ranges = DatasetIndexRebuilder.KeyRange.partition(1);
+    assertEquals(1, ranges.size());
+    assertNull(ranges.get(0).from);
+    assertNull(ranges.get(0).to);
+  }
+}
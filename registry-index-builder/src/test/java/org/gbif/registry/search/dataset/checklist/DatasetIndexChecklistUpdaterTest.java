@@ -0,0 +1,59 @@
+package org.gbif.registry.search.dataset.checklist;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DatasetIndexChecklistUpdaterTest {
+
+  @Test
+  public void testUpdateBatch() throws Exception {
+    RecordingSolrClient solr = new RecordingSolrClient();
+    DatasetIndexChecklistUpdater.UpdateBatch batch =
+      new DatasetIndexChecklistUpdater.UpdateBatch(solr, "dataset", 2, 1000);
+
+    assertFalse(batch.add(doc("a"), 3));
+    assertTrue(batch.add(doc("b"), 4));
+    assertFalse(batch.add(doc("c"), 5));
+    batch.flush();
+    batch.flush();
+
+    assertEquals(2, solr.requests.size());
+    assertEquals(2, solr.requests.get(0).getDocuments().size());
+    assertEquals(1, solr.requests.get(1).getDocuments().size());
+    assertEquals(1000, solr.requests.get(0).getCommitWithin());
+    assertEquals(3, batch.documents);
+    assertEquals(12, batch.values);
+  }
+
+  private static SolrInputDocument doc(String key) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField("key", key);
+    return doc;
+  }
+
+  private static class RecordingSolrClient extends SolrClient {
+
+    private final List<UpdateRequest> requests = Lists.newArrayList();
+
+    @Override
+    public NamedList<Object> request(SolrRequest request, String collection) {
+      requests.add((UpdateRequest) request);
+      return new NamedList<>();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.gbif.registry.search.dataset.occurrence;
+
+import org.gbif.api.vocabulary.Country;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OccSearchClientTest {
+
+  @Test
+  public void testParseFacets() {
+    UUID key1 = UUID.randomUUID();
+    UUID key2 = UUID.randomUUID();
+
+    NamedList<Object> datasets = new SimpleOrderedMap<>();
+    datasets.add("buckets", Lists.newArrayList(
+      datasetBucket(key1, 12, facet(1, 212, 6), facet(1999, 2000), facet("DK", "SE")),
+      datasetBucket(key2, 3, facet(5), null, null)));
+    NamedList<Object> facets = new SimpleOrderedMap<>();
+    facets.add("count", 15);
+    facets.add("datasets", datasets);
+
+    Map<UUID, OccSearchClient.FacetResult> results = OccSearchClient.parseFacets(facets);
+    assertEquals(2, results.size());
+
+    OccSearchClient.FacetResult r1 = results.get(key1);
+    assertEquals(12, r1.records);
+    assertEquals(Lists.newArrayList(1, 212, 6), r1.taxonKeys);
+    assertEquals(Lists.newArrayList(1999, 2000), r1.years);
+    assertEquals(Lists.newArrayList(Country.DENMARK.ordinal(), Country.SWEDEN.ordinal()), r1.countries);
+
+    // missing facets have no values
+    OccSearchClient.FacetResult r2 = results.get(key2);
+    assertEquals(3, r2.records);
+    assertEquals(Lists.newArrayList(5), r2.taxonKeys);
+    assertTrue(r2.years.isEmpty());
+    assertTrue(r2.countries.isEmpty());
+  }
+
+  @Test
+  public void testParseNoMatches() {
+    NamedList<Object> facets = new SimpleOrderedMap<>();
+    facets.add("count", 0);
+    assertTrue(OccSearchClient.parseFacets(facets).isEmpty());
+  }
+
+  private static NamedList<Object> datasetBucket(UUID key, long count, NamedList<Object> taxa, NamedList<Object> years,
+                                                 NamedList<Object> countries) {
+    NamedList<Object> bucket = new SimpleOrderedMap<>();
+    bucket.add("val", key.toString());
+    bucket.add("count", count);
+    if (taxa != null) {
+      bucket.add("taxon_key", taxa);
+    }
+    if (years != null) {
+      bucket.add("year", years);
+    }
+    if (countries != null) {
+      bucket.add("country", countries);
+    }
+    return bucket;
+  }
+
+  private static NamedList<Object> facet(Object... values) {
+    List<NamedList<Object>> buckets = Lists.newArrayList();
+    for (Object value : values) {
+      NamedList<Object> bucket = new SimpleOrderedMap<>();
+      bucket.add("val", value);
+      bucket.add("count", 1);
+      buckets.add(bucket);
+    }
+    NamedList<Object> facet = new SimpleOrderedMap<>();
+    facet.add("buckets", buckets);
+    return facet;
+  }
+}
@@ -12,16 +12,20 @@ import org.gbif.registry.metasync.api.MetadataProtocolHandler;
 import org.gbif.registry.metasync.api.MetadataSynchroniser;
 import org.gbif.registry.metasync.api.SyncResult;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Throwables;
@@ -99,22 +103,7 @@ public class MetadataSynchroniserImpl implements MetadataSynchroniser {
     int count = 0;
     do {
       results = installationService.list(page);
-
-      // skip installations that don't serve any datasets!
-      Iterator<Installation> iter = results.getResults().iterator();
-      while (iter.hasNext()) {
-        Installation i = iter.next();
-        if (!i.isDisabled() && i.getDeleted() != null) {
-          PagingResponse<Dataset> datasets = installationService.getHostedDatasets(i.getKey(), new PagingRequest(0, 1));
-          if (datasets.getResults().isEmpty()) {
-            LOG.warn("Excluding installation [key={}] because it serves 0 datasets!", i.getKey());
-            iter.remove();
-          }
-        } else {
-          LOG.warn("Excluding disabled/deleted installation [key={}]!", i.getKey());
-          iter.remove();
-        }
-      }
+      excludeUnsynchronisable(results.getResults());
 
       for (final Installation installation : results.getResults()) {
         completionService.submit(new Callable<SyncResult>() {
@@ -159,6 +148,41 @@ public class MetadataSynchroniserImpl implements MetadataSynchroniser {
     return syncResults;
   }
 
+  @Override
+  public List<SyncResult> synchroniseAllInstallationsAsync(int maxConcurrent) {
+    checkArgument(maxConcurrent > 0, "maxConcurrent has to be greater than 0");
+    // every Installation holds a permit until its synchronisation completes
+    Semaphore permits = new Semaphore(maxConcurrent);
+    List<SyncResult> syncResults = Collections.synchronizedList(Lists.<SyncResult>newArrayList());
+
+    PagingResponse<Installation> results;
+    PagingRequest page = new PagingRequest();
+    try {
+      do {
+        results = installationService.list(page);
+        excludeUnsynchronisable(results.getResults());
+
+        for (Installation installation : results.getResults()) {
+          permits.acquire();
+          synchroniseInstallationAsync(installation).whenComplete((syncResult, e) -> {
+            syncResults.add(syncResult);
+            permits.release();
+          });
+        }
+        page.nextPage();
+      } while (!results.isEndOfRecords());
+
+      // Wait for all to finish
+      permits.acquire(maxConcurrent);
+    } catch (InterruptedException ignored) {
+      Thread.currentThread().interrupt();
+    }
+
+    synchronized (syncResults) {
+      return Lists.newArrayList(syncResults);
+    }
+  }
+
   public void registerProtocolHandler(MetadataProtocolHandler handler) {
     protocolHandlers.add(handler);
   }
@@ -178,6 +202,56 @@ public class MetadataSynchroniserImpl implements MetadataSynchroniser {
     }
   }
 
+  /**
+   * Starts the synchronisation of an Installation listed for synchronisation, the returned future never fails.
+   */
+  private CompletableFuture<SyncResult> synchroniseInstallationAsync(Installation listed) {
+    try {
+      Installation installation = validateInstallation(listed.getKey());
+      List<Dataset> hostedDatasets = getHostedDatasets(listed.getKey());
+
+      for (MetadataProtocolHandler protocolHandler : protocolHandlers) {
+        if (protocolHandler.canHandle(installation)) {
+          LOG.info("Syncing Installation [{}] of type [{}]", installation.getKey(), installation.getType());
+          return protocolHandler.syncInstallationAsync(installation, hostedDatasets)
+            .handle((syncResult, e) -> e == null ? syncResult : new SyncResult(installation, toMetadataException(e)));
+        }
+      }
+
+      throw new IllegalArgumentException("Installation of type [" + installation.getType() + "] not supported");
+    } catch (Exception e) {
+      return CompletableFuture.completedFuture(
+        new SyncResult(listed, new MetadataException(e, ErrorCode.OTHER_ERROR)));
+    }
+  }
+
+  private static MetadataException toMetadataException(Throwable e) {
+    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    return cause instanceof MetadataException
+      ? (MetadataException) cause
+      : new MetadataException(cause, ErrorCode.OTHER_ERROR);
+  }
+
+  /**
+   * Removes the Installations that are disabled, deleted or don't serve any datasets.
+   */
+  private void excludeUnsynchronisable(List<Installation> installations) {
+    Iterator<Installation> iter = installations.iterator();
+    while (iter.hasNext()) {
+      Installation i = iter.next();
+      if (!i.isDisabled() && i.getDeleted() == null) {
+        PagingResponse<Dataset> datasets = installationService.getHostedDatasets(i.getKey(), new PagingRequest(0, 1));
+        if (datasets.getResults().isEmpty()) {
+          LOG.warn("Excluding installation [key={}] because it serves 0 datasets!", i.getKey());
+          iter.remove();
+        }
+      } else {
+        LOG.warn("Excluding disabled/deleted installation [key={}]!", i.getKey());
+        iter.remove();
+      }
+    }
+  }
+
   /**
    * Does some checks whether we can synchronise this Installation or not. They are not exhaustive as some things can
    * only be determined by the protocol handlers.
@@ -21,17 +21,23 @@ import org.gbif.registry.metasync.protocols.tapir.TapirMetadataSynchroniser;
 import org.gbif.registry.metasync.resulthandler.DebugHandler;
 import org.gbif.registry.metasync.resulthandler.RegistryUpdater;
 import org.gbif.registry.metasync.util.HttpClientFactory;
+import org.gbif.registry.metasync.util.RequestLimiter;
 import org.gbif.registry.ws.client.guice.RegistryWsClientModule;
 import org.gbif.ws.client.guice.SingleUserAuthModule;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Scopes;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.bridge.SLF4JBridgeHandler;
@@ -39,8 +45,15 @@ import org.slf4j.bridge.SLF4JBridgeHandler;
 public final class Runner {
 
   private static final Logger LOG = LoggerFactory.getLogger(Runner.class);
-
-  public static void main(String[] args) {
+  private static final int IO_THREADS = 4;
+  // the limits can be overridden with system properties, e.g. -Dmetasync.maxConcurrentInstallations=100
+  private static final String MAX_CONCURRENT_INSTALLATIONS_PROPERTY = "metasync.maxConcurrentInstallations";
+  private static final int MAX_CONCURRENT_INSTALLATIONS = 1000;
+  // every request in flight holds a buffered response of up to 32 MB until it is parsed
+  private static final String MAX_REQUESTS_IN_FLIGHT_PROPERTY = "metasync.maxRequestsInFlight";
+  private static final int MAX_REQUESTS_IN_FLIGHT = 100;
+
+  public static void main(String[] args) throws IOException {
     SLF4JBridgeHandler.removeHandlersForRootLogger();
     SLF4JBridgeHandler.install();
 
@@ -62,13 +75,33 @@ public final class Runner {
     MetadataSynchroniserImpl synchroniser = injector.getInstance(MetadataSynchroniserImpl.class);
 
 
-    synchroniser.registerProtocolHandler(new DigirMetadataSynchroniser(clientFactory.provideHttpClient()));
-    synchroniser.registerProtocolHandler(new TapirMetadataSynchroniser(clientFactory.provideHttpClient()));
-    synchroniser.registerProtocolHandler(new BiocaseMetadataSynchroniser(clientFactory.provideHttpClient()));
+    int maxConcurrentInstallations = Integer.getInteger(MAX_CONCURRENT_INSTALLATIONS_PROPERTY,
+                                                        MAX_CONCURRENT_INSTALLATIONS);
+    int maxRequestsInFlight = Integer.getInteger(MAX_REQUESTS_IN_FLIGHT_PROPERTY, MAX_REQUESTS_IN_FLIGHT);
+    LOG.info("Syncing up to {} installations with up to {} requests in flight", maxConcurrentInstallations,
+             maxRequestsInFlight);
+
+    // responses are received by a few I/O threads and parsed on as many threads as there are processors
+    CloseableHttpAsyncClient asyncClient = clientFactory.provideHttpAsyncClient(IO_THREADS);
+    ExecutorService parseExecutor = newParseExecutor(maxRequestsInFlight);
+    RequestLimiter requestLimiter = new RequestLimiter(maxRequestsInFlight);
+
+    synchroniser.registerProtocolHandler(
+      new DigirMetadataSynchroniser(clientFactory.provideHttpClient(), asyncClient, parseExecutor, requestLimiter));
+    synchroniser.registerProtocolHandler(
+      new TapirMetadataSynchroniser(clientFactory.provideHttpClient(), asyncClient, parseExecutor, requestLimiter));
+    synchroniser.registerProtocolHandler(
+      new BiocaseMetadataSynchroniser(clientFactory.provideHttpClient(), asyncClient, parseExecutor, requestLimiter));
 
     DatasetService datasetService = injector.getInstance(DatasetService.class);
 
-    List<SyncResult> syncResults = synchroniser.synchroniseAllInstallations(100);
+    List<SyncResult> syncResults;
+    try {
+      syncResults = synchroniser.synchroniseAllInstallationsAsync(maxConcurrentInstallations);
+    } finally {
+      asyncClient.close();
+      parseExecutor.shutdown();
+    }
     LOG.info("Done syncing. Processing results");
     DebugHandler.processResults(syncResults);
 
@@ -77,6 +110,17 @@ public final class Runner {
     updater.saveSyncResultsToRegistry(syncResults);
   }
 
+  /**
+   * The requests keep their permit until parsed, so no more responses than requests in flight can be waiting. Should
+   * the queue be full anyway the I/O thread parses the response itself, which stops it from receiving more.
+   */
+  private static ExecutorService newParseExecutor(int maxRequestsInFlight) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                  new ArrayBlockingQueue<Runnable>(maxRequestsInFlight),
+                                  new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
   private Runner() {
     throw new UnsupportedOperationException("Can't initialize class");
   }
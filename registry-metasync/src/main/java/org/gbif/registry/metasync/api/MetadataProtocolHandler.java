@@ -20,6 +20,7 @@ import org.gbif.api.model.registry.Endpoint;
 import org.gbif.api.model.registry.Installation;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface to be implemented to support a new protocol for Metadata requests.
@@ -41,6 +42,24 @@ public interface MetadataProtocolHandler {
   // TODO: Document if return can be null
   SyncResult syncInstallation(Installation installation, List<Dataset> datasets) throws MetadataException;
 
+  /**
+   * Does metadata synchronisation against the passed in Installation without waiting for the Installation to respond,
+   * if this handler supports it. Handlers which don't support it synchronise on the calling thread.
+   *
+   * @param installation to synchronise against
+   * @param datasets     all the datasets currently hosted by this Installation
+   * @return the result, failing with a {@link MetadataException} if the synchronisation fails
+   */
+  default CompletableFuture<SyncResult> syncInstallationAsync(Installation installation, List<Dataset> datasets) {
+    CompletableFuture<SyncResult> result = new CompletableFuture<>();
+    try {
+      result.complete(syncInstallation(installation, datasets));
+    } catch (MetadataException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
   /**
    * Retrieves the dataset count for a dataset at an endpoint.
    */
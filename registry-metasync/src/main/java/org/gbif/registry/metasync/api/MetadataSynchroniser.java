@@ -39,6 +39,15 @@ public interface MetadataSynchroniser {
    */
   List<SyncResult> synchroniseAllInstallations(int parallel);
 
+  /**
+   * Synchronises all registered Installations ignoring any failures, like {@link #synchroniseAllInstallations(int)},
+   * but without a thread for each Installation being synchronised. Protocol handlers with an asynchronous HTTP client
+   * don't block any thread while waiting for an Installation to respond.
+   *
+   * @param maxConcurrent how many Installations to synchronise at the same time
+   */
+  List<SyncResult> synchroniseAllInstallationsAsync(int maxConcurrent);
+
   /**
    * Retrieve a count of records held in this dataset.
    *
@@ -18,45 +18,91 @@ import org.gbif.common.parsers.LicenseParser;
 import org.gbif.registry.metasync.api.ErrorCode;
 import org.gbif.registry.metasync.api.MetadataException;
 import org.gbif.registry.metasync.api.MetadataProtocolHandler;
+import org.gbif.registry.metasync.util.BufferingResponseConsumer;
+import org.gbif.registry.metasync.util.RequestLimiter;
 import org.gbif.registry.metasync.util.converter.DateTimeConverter;
 import org.gbif.registry.metasync.util.converter.LanguageConverter;
 import org.gbif.registry.metasync.util.converter.PeriodConverter;
 import org.gbif.registry.metasync.util.converter.UriConverter;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.beanutils.ConvertUtils;
 import org.apache.commons.digester3.Digester;
 import org.apache.commons.digester3.annotations.FromAnnotationsRuleModule;
 import org.apache.commons.digester3.binder.DigesterLoader;
+import org.apache.http.HttpException;
 import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
 import org.apache.http.util.EntityUtils;
 import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.xml.sax.SAXException;
 
 import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 
 /**
  * This class is used as a base for all protocols and provides common methods to be used by all protocols.
+ * <p/>
+ * Protocols chain their requests with {@link #doHttpRequestAsync(URI, Digester)}. Given an asynchronous HTTP client
+ * the requests don't block any thread while waiting for the endpoint, otherwise they are made with the blocking client
+ * on the calling thread and the returned futures are already completed.
+ * <p/>
+ * The asynchronous requests of all handlers sharing a {@link RequestLimiter} are limited by it, and the requests to a
+ * single Installation by {@link #newInstallationLimiter()}. As a request keeps its permit until its response is parsed
+ * this also bounds the buffered responses waiting to be parsed.
  */
 public abstract class BaseProtocolHandler implements MetadataProtocolHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(BaseProtocolHandler.class);
+  // the largest response read by the asynchronous client, it is held in memory until parsed
+  private static final int MAX_RESPONSE_BYTES = 32 * 1024 * 1024;
+  // requests in flight to the endpoints of a single Installation
+  private static final int MAX_REQUESTS_PER_INSTALLATION = 4;
+
   private final HttpClient httpClient;
+  private final HttpAsyncClient asyncClient;
+  private final Executor parseExecutor;
+  private final RequestLimiter requestLimiter;
   private final LicenseParser licenseParser;
 
   protected BaseProtocolHandler(HttpClient httpClient) {
+    this(httpClient, null, MoreExecutors.directExecutor(), new RequestLimiter(1));
+  }
+
+  /**
+   * @param asyncClient    started client to make requests with, the blocking client is used if null
+   * @param parseExecutor  executor to parse the responses of the asynchronous client on, keeping the I/O threads free
+   * @param requestLimiter limits the requests in flight, usually shared by all handlers
+   */
+  protected BaseProtocolHandler(HttpClient httpClient, @Nullable HttpAsyncClient asyncClient, Executor parseExecutor,
+                                RequestLimiter requestLimiter) {
     this.httpClient = httpClient;
+    this.asyncClient = asyncClient;
+    this.parseExecutor = parseExecutor;
+    this.requestLimiter = requestLimiter;
     this.licenseParser = LicenseParser.getInstance();
   }
 
@@ -111,18 +157,8 @@ public abstract class BaseProtocolHandler implements MetadataProtocolHandler {
     }
 
     try {
-      // Everything but HTTP status 200 is an error
-      if (response.getStatusLine().getStatusCode() != 200) {
-        LOG.debug("Received HTTP code[{}] cause[{}] for request: {}", response.getStatusLine().getStatusCode(),
-          response.getStatusLine().getReasonPhrase(), uri);
-        String cause = String.format("Received HTTP code[%d], phrase[%s]", response.getStatusLine().getStatusCode(),
-          response.getStatusLine().getReasonPhrase());
-        throw new MetadataException(cause, ErrorCode.HTTP_ERROR);
-      }
-
-      return digester.parse(response.getEntity().getContent());
-    } catch (SAXException e) {
-      throw new MetadataException(e, ErrorCode.PROTOCOL_ERROR);
+      checkStatus(uri, response.getStatusLine());
+      return parse(response.getEntity().getContent(), digester);
     } catch (IOException e) {
       throw new MetadataException(e, ErrorCode.IO_EXCEPTION);
     } finally {
@@ -134,6 +170,159 @@ public abstract class BaseProtocolHandler implements MetadataProtocolHandler {
     }
   }
 
+  /**
+   * Makes a HTTP request to the provided {@link URI} without waiting for the response and uses the {@link Digester} to
+   * parse the response once received.
+   *
+   * @param uri to issue request against
+   * @param digester to parse response with
+   * @param <T> type of Object to return
+   * @return the parsed response, failing with a {@link MetadataException} in case anything goes wrong during the
+   *         request, mapped to the same {@link ErrorCode}s as {@link #doHttpRequest(URI, Digester)}
+   */
+  protected <T> CompletableFuture<T> doHttpRequestAsync(final URI uri, final Digester digester) {
+    if (asyncClient == null) {
+      final CompletableFuture<T> result = new CompletableFuture<>();
+      try {
+        result.complete(this.<T>doHttpRequest(uri, digester));
+      } catch (MetadataException e) {
+        result.completeExceptionally(e);
+      }
+      return result;
+    }
+
+    LOG.info("Issuing asynchronous request: {}", uri);
+    // the request might only be started on another thread
+    final Map<String, String> mdc = MDC.getCopyOfContextMap();
+    return requestLimiter.submit(() -> this.<T>executeAsync(uri, digester, mdc));
+  }
+
+  /**
+   * Like {@link #doHttpRequestAsync(URI, Digester)}, additionally limited by the given limiter of an Installation.
+   */
+  protected <T> CompletableFuture<T> doHttpRequestAsync(final URI uri, final Digester digester,
+                                                        RequestLimiter installationLimiter) {
+    if (asyncClient == null) {
+      return doHttpRequestAsync(uri, digester);
+    }
+
+    LOG.info("Issuing asynchronous request: {}", uri);
+    final Map<String, String> mdc = MDC.getCopyOfContextMap();
+    return installationLimiter.submit(() -> requestLimiter.submit(() -> this.<T>executeAsync(uri, digester, mdc)));
+  }
+
+  /**
+   * @return a new limiter for the requests to the endpoints of a single Installation
+   */
+  protected static RequestLimiter newInstallationLimiter() {
+    return new RequestLimiter(MAX_REQUESTS_PER_INSTALLATION);
+  }
+
+  private <T> CompletableFuture<T> executeAsync(final URI uri, final Digester digester,
+                                                @Nullable final Map<String, String> mdc) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    asyncClient.execute(HttpAsyncMethods.createGet(uri), new BufferingResponseConsumer(MAX_RESPONSE_BYTES),
+      new FutureCallback<HttpResponse>() {
+
+        @Override
+        public void completed(final HttpResponse response) {
+          try {
+            parseExecutor.execute(() -> {
+              if (mdc != null) {
+                MDC.setContextMap(mdc);
+              }
+              try {
+                checkStatus(uri, response.getStatusLine());
+                result.complete(parse(response.getEntity().getContent(), digester));
+              } catch (MetadataException e) {
+                result.completeExceptionally(e);
+              } catch (IOException e) {
+                result.completeExceptionally(new MetadataException(e, ErrorCode.IO_EXCEPTION));
+              } catch (RuntimeException e) {
+                result.completeExceptionally(new MetadataException(e, ErrorCode.OTHER_ERROR));
+              } finally {
+                MDC.clear();
+              }
+            });
+          } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new MetadataException(e, ErrorCode.OTHER_ERROR));
+          }
+        }
+
+        @Override
+        public void failed(Exception e) {
+          if (e instanceof HttpException || e instanceof ClientProtocolException) {
+            result.completeExceptionally(new MetadataException(e, ErrorCode.HTTP_ERROR));
+          } else if (e instanceof IOException) {
+            result.completeExceptionally(new MetadataException(e, ErrorCode.IO_EXCEPTION));
+          } else {
+            result.completeExceptionally(new MetadataException(e, ErrorCode.OTHER_ERROR));
+          }
+        }
+
+        @Override
+        public void cancelled() {
+          result.completeExceptionally(new MetadataException("Request cancelled: " + uri, ErrorCode.OTHER_ERROR));
+        }
+      });
+    return result;
+  }
+
+  /**
+   * Everything but HTTP status 200 is an error.
+   */
+  private static void checkStatus(URI uri, StatusLine status) throws MetadataException {
+    if (status.getStatusCode() != 200) {
+      LOG.debug("Received HTTP code[{}] cause[{}] for request: {}", status.getStatusCode(), status.getReasonPhrase(),
+        uri);
+      String cause = String.format("Received HTTP code[%d], phrase[%s]", status.getStatusCode(),
+        status.getReasonPhrase());
+      throw new MetadataException(cause, ErrorCode.HTTP_ERROR);
+    }
+  }
+
+  private static <T> T parse(InputStream content, Digester digester) throws MetadataException {
+    try {
+      return digester.parse(content);
+    } catch (SAXException e) {
+      throw new MetadataException(e, ErrorCode.PROTOCOL_ERROR);
+    } catch (IOException e) {
+      throw new MetadataException(e, ErrorCode.IO_EXCEPTION);
+    }
+  }
+
+  /**
+   * Waits for a future of this handler, rethrowing the {@link MetadataException} it failed with.
+   */
+  protected static <T> T join(CompletableFuture<T> future) throws MetadataException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof MetadataException) {
+        throw (MetadataException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new MetadataException(cause, ErrorCode.OTHER_ERROR);
+    }
+  }
+
+  /**
+   * @return a future completed once all futures are, failing if any of them fails
+   */
+  protected static <T> CompletableFuture<List<T>> allOf(final List<CompletableFuture<T>> futures) {
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+      .thenApply(ignored -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+  }
+
+  protected static <T> CompletableFuture<T> failedFuture(Throwable e) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(e);
+    return future;
+  }
+
   /**
    * Returns a new Digester which is configured with the annotation rules from the passed in class.
    */
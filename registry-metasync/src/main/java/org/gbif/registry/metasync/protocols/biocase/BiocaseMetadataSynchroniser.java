@@ -40,6 +40,7 @@ import org.gbif.registry.metasync.protocols.biocase.model.abcd12.SimpleAbcd12Met
 import org.gbif.registry.metasync.protocols.biocase.model.abcd206.SimpleAbcd206Metadata;
 import org.gbif.registry.metasync.protocols.biocase.model.capabilities.Capabilities;
 import org.gbif.registry.metasync.util.Constants;
+import org.gbif.registry.metasync.util.RequestLimiter;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -47,12 +48,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -68,7 +72,9 @@ import static com.google.common.base.Preconditions.checkArgument;
  * BioCASe synchronisation happens in the following steps:
  * <ul>
  * <li>For all endpoints of an Installation make a {@code capabilities} request, followed by a dataset inventory
- * request, then a metadata and count (to get the number of records) request for each dataset</li>
+ * request, then a metadata and count (to get the number of records) request for each dataset. When using an
+ * asynchronous client the endpoints, and the datasets of an endpoint, are requested concurrently up to a limit per
+ * Installation</li>
  * <li>The type of inventory request depends on the capabilities. Newer version of BioCASe (3.4 and greater) support a
  * separate inventory request.</li>
  * </ul>
@@ -82,6 +88,11 @@ public class BiocaseMetadataSynchroniser extends BaseProtocolHandler {
     super(httpClient);
   }
 
+  public BiocaseMetadataSynchroniser(HttpClient httpClient, @Nullable HttpAsyncClient asyncClient,
+                                     Executor parseExecutor, RequestLimiter requestLimiter) {
+    super(httpClient, asyncClient, parseExecutor, requestLimiter);
+  }
+
   @Override
   public boolean canHandle(Installation installation) {
     return installation.getType() == InstallationType.BIOCASE_INSTALLATION;
@@ -89,58 +100,104 @@ public class BiocaseMetadataSynchroniser extends BaseProtocolHandler {
 
   @Override
   public SyncResult syncInstallation(Installation installation, List<Dataset> datasets) throws MetadataException {
+    return join(syncInstallationAsync(installation, datasets));
+  }
+
+  @Override
+  public CompletableFuture<SyncResult> syncInstallationAsync(Installation installation, List<Dataset> datasets) {
     try (MDC.MDCCloseable mdc1 = MDC.putCloseable("installationKey", installation.getKey().toString())) {
       checkArgument(installation.getType() == InstallationType.BIOCASE_INSTALLATION,
           "Only supports BioCASe Installations");
 
-      List<Dataset> added = Lists.newArrayList();
-      List<Dataset> deleted = Lists.newArrayList();
-      Map<Dataset, Dataset> updated = Maps.newHashMap();
-
+      // the requests for the datasets of all endpoints are queued at once
+      RequestLimiter installationLimiter = newInstallationLimiter();
+      List<CompletableFuture<Map<String, Dataset>>> endpointDatasets = Lists.newArrayList();
       for (Endpoint endpoint : installation.getEndpoints()) {
         try (MDC.MDCCloseable mdc2 = MDC.putCloseable("endpointKey", endpoint.getKey().toString())) {
           LOG.info("Starting synchronization of endpoint: {}", endpoint.getUrl());
+          endpointDatasets.add(syncEndpoint(endpoint, installationLimiter));
+        }
+      }
 
-          Capabilities capabilities = getCapabilities(endpoint);
-          if (capabilities.getPreferredSchema() == null) {
-            throw new MetadataException("No preferred schema", ErrorCode.PROTOCOL_ERROR);
-          }
-          Map<String,InventoryDataset> datasetInventory = getDatasetInventory(capabilities, endpoint);
-          for (String datasetTitle : datasetInventory.keySet()) {
-            Dataset newDataset;
-
-            if (capabilities.getPreferredSchema().equals(Constants.ABCD_12_SCHEMA)) {
-              SimpleAbcd12Metadata metadata = get12Metadata(endpoint, datasetTitle, capabilities);
-              newDataset = convertToDataset(metadata, endpoint, capabilities);
-            } else {
-              SimpleAbcd206Metadata metadata = get206Metadata(endpoint, datasetTitle, capabilities);
-              newDataset = convertToDataset(metadata, endpoint, capabilities, datasetInventory.get(datasetTitle));
-            }
+      return allOf(endpointDatasets).thenApply(results -> {
+        List<Dataset> added = Lists.newArrayList();
+        List<Dataset> deleted = Lists.newArrayList();
+        Map<Dataset, Dataset> updated = Maps.newHashMap();
 
-            Long count = getDatasetCount(endpoint, datasetTitle, capabilities);
-            if (count != null && count > 0) {
-              newDataset.addMachineTag(MachineTag.newInstance(TagName.DECLARED_COUNT, String.valueOf(count)));
-            }
-
-            Dataset existingDataset = findDataset(datasetTitle, datasets);
+        for (Map<String, Dataset> newDatasets : results) {
+          for (Map.Entry<String, Dataset> newDataset : newDatasets.entrySet()) {
+            Dataset existingDataset = findDataset(newDataset.getKey(), datasets);
             if (existingDataset == null) {
-              added.add(newDataset);
+              added.add(newDataset.getValue());
             } else {
-              updated.put(existingDataset, newDataset);
+              updated.put(existingDataset, newDataset.getValue());
             }
           }
         }
-      }
 
-      // All Datasets that weren't updated must have been deleted
-      for (Dataset dataset : datasets) {
-        if (!updated.containsKey(dataset)) {
-          deleted.add(dataset);
+        // All Datasets that weren't updated must have been deleted
+        for (Dataset dataset : datasets) {
+          if (!updated.containsKey(dataset)) {
+            deleted.add(dataset);
+          }
         }
+
+        return new SyncResult(updated, added, deleted, installation);
+      });
+    }
+  }
+
+  /**
+   * Requests the capabilities and inventory of the Endpoint followed by the metadata and count of each of its
+   * Datasets.
+   *
+   * @return the Datasets of the Endpoint by their title
+   */
+  private CompletableFuture<Map<String, Dataset>> syncEndpoint(Endpoint endpoint, RequestLimiter installationLimiter) {
+    return getCapabilities(endpoint, installationLimiter).thenCompose(capabilities -> {
+      if (capabilities.getPreferredSchema() == null) {
+        return failedFuture(new MetadataException("No preferred schema", ErrorCode.PROTOCOL_ERROR));
       }
+      return getDatasetInventory(capabilities, endpoint, installationLimiter).thenCompose(datasetInventory -> {
+        Map<String, CompletableFuture<Dataset>> datasets = Maps.newLinkedHashMap();
+        for (Map.Entry<String, InventoryDataset> inventoryDataset : datasetInventory.entrySet()) {
+          datasets.put(inventoryDataset.getKey(), syncDataset(endpoint, inventoryDataset.getKey(), capabilities,
+                                                              inventoryDataset.getValue(), installationLimiter));
+        }
+        return allOf(Lists.newArrayList(datasets.values())).thenApply(ignored -> {
+          Map<String, Dataset> newDatasets = Maps.newLinkedHashMap();
+          for (Map.Entry<String, CompletableFuture<Dataset>> dataset : datasets.entrySet()) {
+            newDatasets.put(dataset.getKey(), dataset.getValue().join());
+          }
+          return newDatasets;
+        });
+      });
+    });
+  }
 
-      return new SyncResult(updated, added, deleted, installation);
+  /**
+   * Requests the metadata and the count of a single Dataset.
+   */
+  private CompletableFuture<Dataset> syncDataset(
+    Endpoint endpoint, String datasetTitle, Capabilities capabilities, @Nullable InventoryDataset inventoryDataset,
+    RequestLimiter installationLimiter
+  ) {
+    CompletableFuture<Dataset> newDataset;
+    if (capabilities.getPreferredSchema().equals(Constants.ABCD_12_SCHEMA)) {
+      newDataset = get12Metadata(endpoint, datasetTitle, capabilities, installationLimiter)
+        .thenApply(metadata -> convertToDataset(metadata, endpoint, capabilities));
+    } else {
+      newDataset = get206Metadata(endpoint, datasetTitle, capabilities, installationLimiter)
+        .thenApply(metadata -> convertToDataset(metadata, endpoint, capabilities, inventoryDataset));
     }
+
+    CompletableFuture<Long> datasetCount = getDatasetCount(endpoint, datasetTitle, capabilities, installationLimiter);
+    return newDataset.thenCombine(datasetCount, (dataset, count) -> {
+      if (count != null && count > 0) {
+        dataset.addMachineTag(MachineTag.newInstance(TagName.DECLARED_COUNT, String.valueOf(count)));
+      }
+      return dataset;
+    });
   }
 
   /**
@@ -160,12 +217,13 @@ public class BiocaseMetadataSynchroniser extends BaseProtocolHandler {
       }
     }
 
-    Capabilities capabilities = getCapabilities(endpoint);
+    RequestLimiter installationLimiter = newInstallationLimiter();
+    Capabilities capabilities = join(getCapabilities(endpoint, installationLimiter));
     if (capabilities.getPreferredSchema() == null) {
       throw new MetadataException("No preferred schema", ErrorCode.PROTOCOL_ERROR);
     }
 
-    Long count = getDatasetCount(endpoint, dataset.getTitle(), capabilities);
+    Long count = join(getDatasetCount(endpoint, dataset.getTitle(), capabilities, installationLimiter));
 
     LOG.info("Retrieved count of {}", count);
     return count;
@@ -182,31 +240,34 @@ public class BiocaseMetadataSynchroniser extends BaseProtocolHandler {
   /**
    * Does a Capabilities request against the Endpoint.
    */
-  private Capabilities getCapabilities(Endpoint endpoint) throws MetadataException {
-    return doHttpRequest(endpoint.getUrl(), newDigester(Capabilities.class));
+  private CompletableFuture<Capabilities> getCapabilities(Endpoint endpoint, RequestLimiter installationLimiter) {
+    return doHttpRequestAsync(endpoint.getUrl(), newDigester(Capabilities.class), installationLimiter);
   }
 
   /**
    * Tries to get an inventory (list) of Datasets for this BioCASe Endpoint. Depending on the version of the
    * Installation there are two ways to do this.
    */
-  private Map<String,InventoryDataset> getDatasetInventory(Capabilities capabilities, Endpoint endpoint) throws MetadataException {
+  private CompletableFuture<Map<String,InventoryDataset>> getDatasetInventory(
+    Capabilities capabilities, Endpoint endpoint, RequestLimiter installationLimiter
+  ) {
     String version = capabilities.getVersions().get("pywrapper");
     if (checkIfSupportsNewInventory(version)) {
-      return doNewStyleInventory(endpoint);
+      return doNewStyleInventory(endpoint, installationLimiter);
     } else {
-      return doOldStyleInventory(endpoint, capabilities);
+      return doOldStyleInventory(endpoint, capabilities, installationLimiter);
     }
   }
 
   /**
    * Tries to get a count for this BioCASe Endpoint.
    */
-  private Long getDatasetCount(Endpoint endpoint, String datasetTitle, Capabilities capabilities) throws MetadataException {
+  private CompletableFuture<Long> getDatasetCount(
+    Endpoint endpoint, String datasetTitle, Capabilities capabilities, RequestLimiter installationLimiter
+  ) {
     String requestParameter = TemplateUtils.getBiocaseCountRequest(capabilities.getPreferredSchema(), datasetTitle);
-    URI uri = buildUri(endpoint.getUrl(), "request", requestParameter);
-    BiocaseCount count = doHttpRequest(uri, newDigester(BiocaseCount.class));
-    return count.getCount();
+    return doRequest(endpoint, "request", requestParameter, BiocaseCount.class, installationLimiter)
+      .thenApply(BiocaseCount::getCount);
   }
 
   /**
@@ -247,50 +308,69 @@ public class BiocaseMetadataSynchroniser extends BaseProtocolHandler {
    * Does a request against the dedicated {@code inventory} endpoint which lists all Datasets that are available as well
    * as all Archives.
    */
-  private Map<String,InventoryDataset> doNewStyleInventory(Endpoint endpoint) throws MetadataException {
-    URI uri = buildUri(endpoint.getUrl(), "inventory", "1");
-    NewDatasetInventory inventory = doHttpRequest(uri, newDigester(NewDatasetInventory.class));
-    Map<String,InventoryDataset> datasets = new HashMap<>();
-    if (inventory == null) return datasets;
-    for (InventoryDataset inventoryDataset : inventory.getDatasets()) {
-      datasets.put(inventoryDataset.getTitle(), inventoryDataset);
-    }
-    return datasets;
+  private CompletableFuture<Map<String,InventoryDataset>> doNewStyleInventory(
+    Endpoint endpoint, RequestLimiter installationLimiter
+  ) {
+    return doRequest(endpoint, "inventory", "1", NewDatasetInventory.class, installationLimiter)
+      .thenApply(inventory -> {
+        Map<String,InventoryDataset> datasets = new HashMap<>();
+        if (inventory == null) return datasets;
+        for (InventoryDataset inventoryDataset : inventory.getDatasets()) {
+          datasets.put(inventoryDataset.getTitle(), inventoryDataset);
+        }
+        return datasets;
+      });
   }
 
   /**
    * Does a search request against this Endpoint specially crafted to only find all Dataset titles.
    */
-  private Map<String,InventoryDataset> doOldStyleInventory(Endpoint endpoint, Capabilities capabilities) throws MetadataException {
+  private CompletableFuture<Map<String,InventoryDataset>> doOldStyleInventory(
+    Endpoint endpoint, Capabilities capabilities, RequestLimiter installationLimiter
+  ) {
     String requestParameter = TemplateUtils.getBiocaseInventoryRequest(capabilities.getPreferredSchema());
-    URI uri = buildUri(endpoint.getUrl(), "request", requestParameter);
-    OldDatasetInventory inventory = doHttpRequest(uri, newDigester(OldDatasetInventory.class));
-    Map<String,InventoryDataset> datasets = new HashMap<>();
-    if (inventory == null) return datasets;
-    for (String title : inventory.getDatasets()) {
-      datasets.put(title, null);
-    }
-    return datasets;
+    return doRequest(endpoint, "request", requestParameter, OldDatasetInventory.class, installationLimiter)
+      .thenApply(inventory -> {
+        Map<String,InventoryDataset> datasets = new HashMap<>();
+        if (inventory == null) return datasets;
+        for (String title : inventory.getDatasets()) {
+          datasets.put(title, null);
+        }
+        return datasets;
+      });
   }
 
   /**
    * Does a search request against this Endpoint to get all the Metadata for a single Dataset.
    */
-  private SimpleAbcd206Metadata get206Metadata(Endpoint endpoint, String dataset, Capabilities capabilities)
-    throws MetadataException {
+  private CompletableFuture<SimpleAbcd206Metadata> get206Metadata(
+    Endpoint endpoint, String dataset, Capabilities capabilities, RequestLimiter installationLimiter
+  ) {
     String requestParameter = TemplateUtils.getBiocaseMetadataRequest(capabilities.getPreferredSchema(), dataset);
-    URI uri = buildUri(endpoint.getUrl(), "request", requestParameter);
-    return doHttpRequest(uri, newDigester(SimpleAbcd206Metadata.class));
+    return doRequest(endpoint, "request", requestParameter, SimpleAbcd206Metadata.class, installationLimiter);
   }
 
   /**
    * Does a search request against this Endpoint to get all the Metadata for a single Dataset.
    */
-  private SimpleAbcd12Metadata get12Metadata(Endpoint endpoint, String dataset, Capabilities capabilities)
-    throws MetadataException {
+  private CompletableFuture<SimpleAbcd12Metadata> get12Metadata(
+    Endpoint endpoint, String dataset, Capabilities capabilities, RequestLimiter installationLimiter
+  ) {
     String requestParameter = TemplateUtils.getBiocaseMetadataRequest(capabilities.getPreferredSchema(), dataset);
-    URI uri = buildUri(endpoint.getUrl(), "request", requestParameter);
-    return doHttpRequest(uri, newDigester(SimpleAbcd12Metadata.class));
+    return doRequest(endpoint, "request", requestParameter, SimpleAbcd12Metadata.class, installationLimiter);
+  }
+
+  /**
+   * Does a request with the given parameter against this Endpoint.
+   */
+  private <T> CompletableFuture<T> doRequest(
+    Endpoint endpoint, String parameter, String value, Class<T> type, RequestLimiter installationLimiter
+  ) {
+    try {
+      return doHttpRequestAsync(buildUri(endpoint.getUrl(), parameter, value), newDigester(type), installationLimiter);
+    } catch (MetadataException e) {
+      return failedFuture(e);
+    }
   }
 
   private Dataset convertToDataset(
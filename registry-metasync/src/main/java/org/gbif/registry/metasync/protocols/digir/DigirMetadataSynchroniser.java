@@ -36,14 +36,19 @@ import org.gbif.registry.metasync.protocols.digir.model.DigirContact;
 import org.gbif.registry.metasync.protocols.digir.model.DigirMetadata;
 import org.gbif.registry.metasync.protocols.digir.model.DigirResource;
 import org.gbif.registry.metasync.util.Constants;
+import org.gbif.registry.metasync.util.RequestLimiter;
 
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.http.client.HttpClient;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,6 +72,11 @@ public class DigirMetadataSynchroniser extends BaseProtocolHandler {
     super(httpClient);
   }
 
+  public DigirMetadataSynchroniser(HttpClient httpClient, @Nullable HttpAsyncClient asyncClient,
+                                   Executor parseExecutor, RequestLimiter requestLimiter) {
+    super(httpClient, asyncClient, parseExecutor, requestLimiter);
+  }
+
   @Override
   public boolean canHandle(Installation installation) {
     return installation.getType() == InstallationType.DIGIR_INSTALLATION;
@@ -74,19 +84,25 @@ public class DigirMetadataSynchroniser extends BaseProtocolHandler {
 
   @Override
   public SyncResult syncInstallation(Installation installation, List<Dataset> datasets) throws MetadataException {
+    return join(syncInstallationAsync(installation, datasets));
+  }
+
+  @Override
+  public CompletableFuture<SyncResult> syncInstallationAsync(Installation installation, List<Dataset> datasets) {
     checkArgument(installation.getType() == InstallationType.DIGIR_INSTALLATION, "Only supports DiGIR Installations");
 
     if (installation.getEndpoints().size() != 1) {
-      throw new MetadataException("A DiGIR Installation should only ever have one Endpoint, this one has ["
-                                  + installation.getEndpoints().size()
-                                  + "]", ErrorCode.OTHER_ERROR);
+      return failedFuture(new MetadataException("A DiGIR Installation should only ever have one Endpoint, "
+                                                + "this one has [" + installation.getEndpoints().size() + "]",
+                                                ErrorCode.OTHER_ERROR));
     }
     Endpoint endpoint = installation.getEndpoints().get(0);
 
-    DigirMetadata metadata = getDigirMetadata(endpoint);
-    updateInstallation(metadata, installation);
-    updateInstallationEndpoint(metadata, endpoint);
-    return mapToDatasets(metadata, datasets, endpoint.getUrl(), installation);
+    return getDigirMetadata(endpoint).thenApply(metadata -> {
+      updateInstallation(metadata, installation);
+      updateInstallationEndpoint(metadata, endpoint);
+      return mapToDatasets(metadata, datasets, endpoint.getUrl(), installation);
+    });
   }
 
   /**
@@ -95,7 +111,7 @@ public class DigirMetadataSynchroniser extends BaseProtocolHandler {
   @Override
   public Long getDatasetCount(Dataset dataset, Endpoint endpoint) throws MetadataException {
     try {
-      DigirMetadata metadata = getDigirMetadata(endpoint);
+      DigirMetadata metadata = join(getDigirMetadata(endpoint));
 
       String code = MachineTagUtils.firstTag(dataset, TagName.DIGIR_CODE).getValue();
 
@@ -113,8 +129,8 @@ public class DigirMetadataSynchroniser extends BaseProtocolHandler {
     }
   }
 
-  private DigirMetadata getDigirMetadata(Endpoint endpoint) throws MetadataException {
-    return doHttpRequest(endpoint.getUrl(), newDigester(DigirMetadata.class));
+  private CompletableFuture<DigirMetadata> getDigirMetadata(Endpoint endpoint) {
+    return doHttpRequestAsync(endpoint.getUrl(), newDigester(DigirMetadata.class));
   }
 
   /**
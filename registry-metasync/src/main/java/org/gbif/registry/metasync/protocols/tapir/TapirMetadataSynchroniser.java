@@ -37,11 +37,15 @@ import org.gbif.registry.metasync.protocols.tapir.model.metadata.TapirContact;
 import org.gbif.registry.metasync.protocols.tapir.model.metadata.TapirMetadata;
 import org.gbif.registry.metasync.protocols.tapir.model.metadata.TapirRelatedEntity;
 import org.gbif.registry.metasync.protocols.tapir.model.search.TapirSearch;
+import org.gbif.registry.metasync.util.RequestLimiter;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import javax.annotation.Nullable;
 
 import com.google.common.collect.LinkedListMultimap;
@@ -49,6 +53,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,7 +69,8 @@ import static com.google.common.base.Preconditions.checkArgument;
  * The process is as follows:
  * <p/>
  * <ol>
- * <li>For every Endpoint do a {@code capabilities} as well as a {@code metadata} request</li>
+ * <li>For every Endpoint do a {@code capabilities} as well as a {@code metadata} request, the Endpoints are requested
+ * concurrently, up to a limit per Installation, when using an asynchronous client</li>
  * <li>Convert the data into a {@link Dataset} object</li>
  * <li>When we have all new {@code Dataset} objects try to map them to existing ones using the
  * {@code local id} (which is the last part of the URL)</li>
@@ -104,6 +110,11 @@ public class TapirMetadataSynchroniser extends BaseProtocolHandler {
     super(httpClient);
   }
 
+  public TapirMetadataSynchroniser(HttpClient httpClient, @Nullable HttpAsyncClient asyncClient,
+                                   Executor parseExecutor, RequestLimiter requestLimiter) {
+    super(httpClient, asyncClient, parseExecutor, requestLimiter);
+  }
+
   @Override
   public boolean canHandle(Installation installation) {
     return installation.getType() == InstallationType.TAPIR_INSTALLATION;
@@ -111,53 +122,87 @@ public class TapirMetadataSynchroniser extends BaseProtocolHandler {
 
   @Override
   public SyncResult syncInstallation(Installation installation, List<Dataset> datasets) throws MetadataException {
-    checkArgument(installation.getType() == InstallationType.TAPIR_INSTALLATION, "Only supports TAPIR Installations");
-
-    List<Dataset> added = Lists.newArrayList();
-    List<Dataset> deleted = Lists.newArrayList();
-    Map<Dataset, Dataset> updated = Maps.newHashMap();
+    return join(syncInstallationAsync(installation, datasets));
+  }
 
-    // This metadata will be used to update the Installation itself
-    TapirMetadata updaterMetadata = null;
+  @Override
+  public CompletableFuture<SyncResult> syncInstallationAsync(Installation installation, List<Dataset> datasets) {
+    checkArgument(installation.getType() == InstallationType.TAPIR_INSTALLATION, "Only supports TAPIR Installations");
 
+    RequestLimiter installationLimiter = newInstallationLimiter();
+    List<CompletableFuture<EndpointDataset>> endpointDatasets = Lists.newArrayList();
     for (Endpoint endpoint : installation.getEndpoints()) {
-      String localId = getLocalId(endpoint);
-
-      Capabilities capabilities = getCapabilities(endpoint);
-      if (capabilities == null) {
-        throw new MetadataException("Did not receive a valid Capabilities response for [" + endpoint.getKey() + "]",
-                                    ErrorCode.PROTOCOL_ERROR);
+      try {
+        endpointDatasets.add(syncEndpoint(endpoint, installationLimiter));
+      } catch (MetadataException e) {
+        return failedFuture(e);
       }
+    }
 
-      TapirMetadata metadata = getTapirMetadata(endpoint);
+    return allOf(endpointDatasets).thenApply(results -> {
+      List<Dataset> added = Lists.newArrayList();
+      List<Dataset> deleted = Lists.newArrayList();
+      Map<Dataset, Dataset> updated = Maps.newHashMap();
 
-      updateInstallationEndpoint(metadata, endpoint);
+      // This metadata will be used to update the Installation itself
+      TapirMetadata updaterMetadata = null;
 
-      String outputModelTemplate = getPreferredOutputModelTemplate(capabilities.getSchemas());
-      URI searchRequestUrl = buildSearchRequestUrl(endpoint, outputModelTemplate);
-      TapirSearch search = getTapirSearch(searchRequestUrl);
+      for (EndpointDataset result : results) {
+        Dataset existingDataset;
+        try {
+          existingDataset = findDataset(result.localId, datasets);
+        } catch (MetadataException e) {
+          throw new CompletionException(e);
+        }
+        if (existingDataset == null) {
+          added.add(result.dataset);
+        } else {
+          updated.put(existingDataset, result.dataset);
+        }
 
-      Dataset newDataset = convertToDataset(capabilities, metadata, search);
-      Dataset existingDataset = findDataset(localId, datasets);
-      if (existingDataset == null) {
-        added.add(newDataset);
-      } else {
-        updated.put(existingDataset, newDataset);
+        updaterMetadata = result.metadata;
       }
 
-      updaterMetadata = metadata;
-    }
-
-    // All Datasets that weren't updated must have been deleted
-    for (Dataset dataset : datasets) {
-      if (!updated.containsKey(dataset)) {
-        deleted.add(dataset);
+      // All Datasets that weren't updated must have been deleted
+      for (Dataset dataset : datasets) {
+        if (!updated.containsKey(dataset)) {
+          deleted.add(dataset);
+        }
       }
-    }
 
-    updateInstallation(installation, updaterMetadata);
+      updateInstallation(installation, updaterMetadata);
 
-    return new SyncResult(updated, added, deleted, installation);
+      return new SyncResult(updated, added, deleted, installation);
+    });
+  }
+
+  /**
+   * Requests the capabilities and metadata of the Endpoint, followed by a search request for the number of records
+   * once the capabilities are known, and converts them into a Dataset.
+   */
+  private CompletableFuture<EndpointDataset> syncEndpoint(Endpoint endpoint, RequestLimiter installationLimiter)
+    throws MetadataException {
+    String localId = getLocalId(endpoint);
+
+    CompletableFuture<Capabilities> capabilities = getCapabilities(endpoint, installationLimiter);
+    CompletableFuture<TapirMetadata> metadata = getTapirMetadata(endpoint, installationLimiter);
+    CompletableFuture<TapirSearch> search = capabilities.thenCompose(c -> {
+      if (c == null) {
+        return failedFuture(new MetadataException("Did not receive a valid Capabilities response for ["
+                                                  + endpoint.getKey() + "]", ErrorCode.PROTOCOL_ERROR));
+      }
+      try {
+        String outputModelTemplate = getPreferredOutputModelTemplate(c.getSchemas());
+        return getTapirSearch(buildSearchRequestUrl(endpoint, outputModelTemplate), installationLimiter);
+      } catch (MetadataException e) {
+        return failedFuture(e);
+      }
+    });
+
+    return search.thenCombine(metadata, (s, m) -> {
+      updateInstallationEndpoint(m, endpoint);
+      return new EndpointDataset(localId, m, convertToDataset(capabilities.join(), m, s));
+    });
   }
 
   /**
@@ -188,22 +233,22 @@ public class TapirMetadataSynchroniser extends BaseProtocolHandler {
   /**
    * Does a Capabilities request against the TAPIR Endpoint.
    */
-  private Capabilities getCapabilities(Endpoint endpoint) throws MetadataException {
+  private CompletableFuture<Capabilities> getCapabilities(Endpoint endpoint, RequestLimiter installationLimiter) {
     URI uri;
     try {
       uri = new URIBuilder(endpoint.getUrl()).addParameter("op", "capabilities").build();
     } catch (URISyntaxException e) {
-      throw new MetadataException(e, ErrorCode.OTHER_ERROR);
+      return failedFuture(new MetadataException(e, ErrorCode.OTHER_ERROR));
     }
 
-    return doHttpRequest(uri, newDigester(Capabilities.class));
+    return doHttpRequestAsync(uri, newDigester(Capabilities.class), installationLimiter);
   }
 
   /**
    * Does a Metadata request against the TAPIR Endpoint.
    */
-  private TapirMetadata getTapirMetadata(Endpoint endpoint) throws MetadataException {
-    return doHttpRequest(endpoint.getUrl(), newDigester(TapirMetadata.class));
+  private CompletableFuture<TapirMetadata> getTapirMetadata(Endpoint endpoint, RequestLimiter installationLimiter) {
+    return doHttpRequestAsync(endpoint.getUrl(), newDigester(TapirMetadata.class), installationLimiter);
   }
 
   /**
@@ -211,12 +256,11 @@ public class TapirMetadataSynchroniser extends BaseProtocolHandler {
    *
    * @param request request URI to search request used to retrieve number of records
    *
-   * @return TapirSearch, or null if the response could not be parsed into a TapirSearch
-   *
-   * @throws MetadataException in case anything goes wrong during the request
+   * @return TapirSearch, or null if the response could not be parsed into a TapirSearch, failing with a
+   *         MetadataException in case anything goes wrong during the request
    */
-  private TapirSearch getTapirSearch(URI request) throws MetadataException {
-    return doHttpRequest(request, newDigester(TapirSearch.class));
+  private CompletableFuture<TapirSearch> getTapirSearch(URI request, RequestLimiter installationLimiter) {
+    return doHttpRequestAsync(request, newDigester(TapirSearch.class), installationLimiter);
   }
 
   /**
@@ -405,4 +449,20 @@ public class TapirMetadataSynchroniser extends BaseProtocolHandler {
     }
     throw new MetadataException("No namespace found matching a DwC or ABCD output model", ErrorCode.PROTOCOL_ERROR);
   }
+
+  /**
+   * The Dataset converted from a single Endpoint.
+   */
+  private static class EndpointDataset {
+
+    private final String localId;
+    private final TapirMetadata metadata;
+    private final Dataset dataset;
+
+    private EndpointDataset(String localId, TapirMetadata metadata, Dataset dataset) {
+      this.localId = localId;
+      this.metadata = metadata;
+      this.dataset = dataset;
+    }
+  }
 }
@@ -0,0 +1,78 @@
+package org.gbif.registry.metasync.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.http.ContentTooLongException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Reads a response of the asynchronous HTTP client into memory so it can be parsed on a different thread than the I/O
+ * thread which received it.
+ * <p/>
+ * Responses larger than the given limit fail with a {@link ContentTooLongException}, which bounds the memory used by
+ * a request to an endpoint that keeps on sending.
+ */
+public class BufferingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+  private static final int CHUNK_SIZE = 8 * 1024;
+
+  private final int maxBytes;
+  private HttpResponse response;
+  private ByteArrayOutputStream content;
+  private ByteBuffer chunk;
+
+  public BufferingResponseConsumer(int maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  protected void onResponseReceived(HttpResponse response) {
+    this.response = response;
+  }
+
+  @Override
+  protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+    long length = entity.getContentLength();
+    if (length > maxBytes) {
+      throw new ContentTooLongException("Response of " + length + " bytes exceeds the limit of " + maxBytes);
+    }
+    content = new ByteArrayOutputStream(length < 0 ? CHUNK_SIZE : (int) length);
+    chunk = ByteBuffer.allocate(CHUNK_SIZE);
+  }
+
+  @Override
+  protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+    int read;
+    while ((read = decoder.read(chunk)) > 0) {
+      if (content.size() + read > maxBytes) {
+        throw new ContentTooLongException("Response exceeds the limit of " + maxBytes + " bytes");
+      }
+      content.write(chunk.array(), 0, read);
+      chunk.clear();
+    }
+  }
+
+  @Override
+  protected HttpResponse buildResult(HttpContext context) {
+    if (content != null) {
+      response.setEntity(new ByteArrayEntity(content.toByteArray()));
+    }
+    return response;
+  }
+
+  @Override
+  protected void releaseResources() {
+    response = null;
+    content = null;
+    chunk = null;
+  }
+}
@@ -12,6 +12,9 @@ import org.apache.http.conn.ssl.SSLContexts;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
 
 import javax.net.ssl.SSLContext;
 import java.util.concurrent.TimeUnit;
@@ -25,6 +28,8 @@ public class HttpClientFactory {
 
   private static final int MAX_TOTAL_CONNECTIONS = 200;
   private static final int MAX_CONNECTIONS_PER_HOST = 20;
+  // idle connections of the asynchronous client don't hold a thread, so many more slow endpoints can be open at once
+  private static final int MAX_TOTAL_ASYNC_CONNECTIONS = 2000;
 
   private final HttpClientConnectionManager connectionManager;
 
@@ -44,20 +49,47 @@ public class HttpClientFactory {
   }
 
   public HttpClient provideHttpClient() {
-    RequestConfig defaultRequestConfig = RequestConfig.custom()
+    CloseableHttpClient httpClient = HttpClients.custom()
+        .setUserAgent("GBIF-Registry")
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(defaultRequestConfig())
+        .build();
+
+    return httpClient;
+  }
+
+  /**
+   * Builds and starts a new non-blocking client, which handles all its connections with the given number of I/O
+   * threads. Requests beyond the connection limits wait for a connection without holding a thread.
+   * <p/>
+   * The client has to be closed once done.
+   */
+  public CloseableHttpAsyncClient provideHttpAsyncClient(int ioThreads) {
+    IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+        .setIoThreadCount(ioThreads)
         .setConnectTimeout(timeout)
-        .setSocketTimeout(timeout)
+        .setSoTimeout(timeout)
         .build();
 
-    CloseableHttpClient httpClient = HttpClients.custom()
+    CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
         .setUserAgent("GBIF-Registry")
-        .setConnectionManager(connectionManager)
-        .setDefaultRequestConfig(defaultRequestConfig)
+        .setDefaultIOReactorConfig(ioReactorConfig)
+        .setDefaultRequestConfig(defaultRequestConfig())
+        .setMaxConnTotal(MAX_TOTAL_ASYNC_CONNECTIONS)
+        .setMaxConnPerRoute(MAX_CONNECTIONS_PER_HOST)
         .build();
+    httpClient.start();
 
     return httpClient;
   }
 
+  private RequestConfig defaultRequestConfig() {
+    return RequestConfig.custom()
+        .setConnectTimeout(timeout)
+        .setSocketTimeout(timeout)
+        .build();
+  }
+
   private HttpClientConnectionManager setupConnectionManager() {
     SSLContext sslcontext = SSLContexts.createSystemDefault();
 
@@ -0,0 +1,99 @@
+package org.gbif.registry.metasync.util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits the number of asynchronous requests in flight without blocking a thread: requests beyond the limit are
+ * queued and only started once an earlier request completed.
+ * <p/>
+ * A request holds its permit until its future completes, which includes parsing the response, so the number of
+ * responses held in memory is bounded by the limit as well.
+ */
+public class RequestLimiter {
+
+  private final int maxInFlight;
+  private final Queue<Runnable> waiting = new ArrayDeque<>();
+  private int inFlight;
+
+  public RequestLimiter(int maxInFlight) {
+    checkArgument(maxInFlight > 0, "maxInFlight has to be greater than 0");
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Starts the request now if the limit allows, otherwise once a permit is released.
+   *
+   * @param request starts the request, called at most once
+   * @return completes with the future of the request
+   */
+  public <T> CompletableFuture<T> submit(final Supplier<CompletableFuture<T>> request) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    Runnable start = () -> {
+      CompletableFuture<T> future;
+      try {
+        future = request.get();
+      } catch (RuntimeException e) {
+        future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+      }
+      future.whenComplete((value, e) -> {
+        // released before the dependent stages run, so their requests can reuse the permit
+        release();
+        if (e == null) {
+          result.complete(value);
+        } else {
+          result.completeExceptionally(e);
+        }
+      });
+    };
+
+    boolean startNow;
+    synchronized (this) {
+      startNow = inFlight < maxInFlight;
+      if (startNow) {
+        inFlight++;
+      } else {
+        waiting.add(start);
+      }
+    }
+    if (startNow) {
+      start.run();
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of requests started but not completed yet
+   */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return the number of requests waiting for a permit
+   */
+  public synchronized int getWaiting() {
+    return waiting.size();
+  }
+
+  /**
+   * Hands the permit over to the next waiting request, if any.
+   */
+  private void release() {
+    Runnable next;
+    synchronized (this) {
+      next = waiting.poll();
+      if (next == null) {
+        inFlight--;
+      }
+    }
+    if (next != null) {
+      next.run();
+    }
+  }
+}
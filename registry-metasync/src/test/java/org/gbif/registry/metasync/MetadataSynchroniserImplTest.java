@@ -0,0 +1,157 @@
+package org.gbif.registry.metasync;
+
+import org.gbif.api.model.common.paging.Pageable;
+import org.gbif.api.model.common.paging.PagingResponse;
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Endpoint;
+import org.gbif.api.model.registry.Installation;
+import org.gbif.api.service.registry.InstallationService;
+import org.gbif.api.vocabulary.InstallationType;
+import org.gbif.registry.metasync.api.ErrorCode;
+import org.gbif.registry.metasync.api.MetadataException;
+import org.gbif.registry.metasync.api.MetadataProtocolHandler;
+import org.gbif.registry.metasync.api.SyncResult;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetadataSynchroniserImplTest {
+
+  private static final int INSTALLATIONS = 20;
+
+  @Mock
+  private InstallationService installationService;
+  private MetadataSynchroniserImpl synchroniser;
+  private DelayedHandler handler;
+  private final Map<UUID, Installation> installations = Maps.newLinkedHashMap();
+
+  @Before
+  public void setup() {
+    for (int i = 0; i < INSTALLATIONS; i++) {
+      Installation installation = new Installation();
+      installation.setKey(UUID.randomUUID());
+      installation.setType(InstallationType.TAPIR_INSTALLATION);
+      Endpoint endpoint = new Endpoint();
+      endpoint.setUrl(URI.create("http://localhost/" + i));
+      installation.addEndpoint(endpoint);
+      installations.put(installation.getKey(), installation);
+      when(installationService.get(installation.getKey())).thenReturn(installation);
+    }
+    // a deleted installation is never synchronised
+    Installation deleted = new Installation();
+    deleted.setKey(UUID.randomUUID());
+    deleted.setDeleted(new Date());
+
+    PagingResponse<Installation> page =
+      new PagingResponse<>(0, 100, (long) INSTALLATIONS + 1, Lists.newArrayList(installations.values()));
+    page.getResults().add(deleted);
+    page.setEndOfRecords(true);
+    when(installationService.list(any(Pageable.class))).thenReturn(page);
+
+    PagingResponse<Dataset> hosted = new PagingResponse<>(0, 1, 1L, Lists.newArrayList(new Dataset()));
+    hosted.setEndOfRecords(true);
+    when(installationService.getHostedDatasets(any(UUID.class), any(Pageable.class))).thenReturn(hosted);
+
+    // the first installation fails
+    handler = new DelayedHandler(Lists.newArrayList(installations.keySet()).get(0));
+    synchroniser = new MetadataSynchroniserImpl(installationService);
+    synchroniser.registerProtocolHandler(handler);
+  }
+
+  @After
+  public void tearDown() {
+    handler.io.shutdownNow();
+  }
+
+  @Test
+  public void testSynchroniseAllInstallationsAsync() {
+    List<SyncResult> results = synchroniser.synchroniseAllInstallationsAsync(3);
+
+    assertThat(results).hasSize(INSTALLATIONS);
+    assertThat(handler.maxInFlight.get()).isGreaterThan(0).isLessThanOrEqualTo(3);
+    int failed = 0;
+    for (SyncResult result : results) {
+      assertThat(installations).containsKey(result.installation.getKey());
+      if (result.exception != null) {
+        failed++;
+        assertThat(result.exception.getErrorCode()).isEqualTo(ErrorCode.IO_EXCEPTION);
+      } else {
+        assertThat(result.addedDatasets).hasSize(1);
+      }
+    }
+    assertThat(failed).isEqualTo(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSynchroniseAllInstallationsAsyncInvalid() {
+    synchroniser.synchroniseAllInstallationsAsync(0);
+  }
+
+  /**
+   * Completes every synchronisation a little later on another thread, recording how many were in flight at most.
+   */
+  private static class DelayedHandler implements MetadataProtocolHandler {
+
+    private final UUID failing;
+    private final ScheduledExecutorService io = Executors.newScheduledThreadPool(4);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private DelayedHandler(UUID failing) {
+      this.failing = failing;
+    }
+
+    @Override
+    public boolean canHandle(Installation installation) {
+      return true;
+    }
+
+    @Override
+    public SyncResult syncInstallation(Installation installation, List<Dataset> datasets) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<SyncResult> syncInstallationAsync(Installation installation, List<Dataset> datasets) {
+      CompletableFuture<SyncResult> result = new CompletableFuture<>();
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      io.schedule(() -> {
+        inFlight.decrementAndGet();
+        if (installation.getKey().equals(failing)) {
+          result.completeExceptionally(new MetadataException("Endpoint is down", ErrorCode.IO_EXCEPTION));
+        } else {
+          result.complete(new SyncResult(Maps.<Dataset, Dataset>newHashMap(), Lists.newArrayList(new Dataset()),
+                                         Lists.<Dataset>newArrayList(), installation));
+        }
+      }, 5, TimeUnit.MILLISECONDS);
+      return result;
+    }
+
+    @Override
+    public Long getDatasetCount(Dataset dataset, Endpoint endpoint) {
+      return null;
+    }
+  }
+}
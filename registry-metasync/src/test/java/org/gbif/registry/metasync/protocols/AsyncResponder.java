@@ -0,0 +1,95 @@
+package org.gbif.registry.metasync.protocols;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.google.common.io.Resources;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Answers the requests of a mocked {@link HttpAsyncClient} with test resources after a short delay on separate I/O
+ * threads, recording how many requests were in flight at most.
+ */
+public class AsyncResponder implements Answer<Void>, AutoCloseable {
+
+  private static final long DELAY_MSECS = 5;
+
+  private final Function<URI, String> resources;
+  private final ScheduledExecutorService io = Executors.newScheduledThreadPool(4);
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  private AsyncResponder(Function<URI, String> resources) {
+    this.resources = resources;
+  }
+
+  /**
+   * @param resources the name of the test resource to respond to a request with
+   */
+  public static AsyncResponder respond(HttpAsyncClient asyncClient, Function<URI, String> resources) {
+    AsyncResponder responder = new AsyncResponder(resources);
+    doAnswer(responder).when(asyncClient).execute(any(HttpAsyncRequestProducer.class),
+                                                  any(HttpAsyncResponseConsumer.class), any(FutureCallback.class));
+    return responder;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Void answer(InvocationOnMock invocation) throws Throwable {
+    URI uri = ((HttpUriRequest) ((HttpAsyncRequestProducer) invocation.getArguments()[0]).generateRequest()).getURI();
+    final FutureCallback<HttpResponse> callback = (FutureCallback<HttpResponse>) invocation.getArguments()[2];
+    final String resource = resources.apply(uri);
+
+    requests.incrementAndGet();
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    io.schedule(() -> {
+      // answered, though the request keeps its permit until the response is parsed
+      inFlight.decrementAndGet();
+      try {
+        callback.completed(prepareResponse(resource));
+      } catch (IOException e) {
+        callback.failed(e);
+      }
+    }, DELAY_MSECS, TimeUnit.MILLISECONDS);
+    return null;
+  }
+
+  public int getRequests() {
+    return requests.get();
+  }
+
+  public int getMaxInFlight() {
+    return maxInFlight.get();
+  }
+
+  @Override
+  public void close() {
+    io.shutdownNow();
+  }
+
+  private static HttpResponse prepareResponse(String fileName) throws IOException {
+    HttpResponse response = new BasicHttpResponse(new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), 200, ""));
+    response.setEntity(new ByteArrayEntity(Resources.toByteArray(Resources.getResource(fileName))));
+    return response;
+  }
+}
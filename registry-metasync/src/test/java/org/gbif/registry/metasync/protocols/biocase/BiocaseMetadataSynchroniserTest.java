@@ -23,11 +23,16 @@ import org.gbif.api.vocabulary.EndpointType;
 import org.gbif.api.vocabulary.InstallationType;
 import org.gbif.api.vocabulary.License;
 import org.gbif.registry.metasync.api.SyncResult;
+import org.gbif.registry.metasync.protocols.AsyncResponder;
+import org.gbif.registry.metasync.util.RequestLimiter;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.google.common.collect.Lists;
 import com.google.common.io.Resources;
@@ -38,6 +43,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -46,6 +52,8 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -53,6 +61,8 @@ public class BiocaseMetadataSynchroniserTest {
 
   @Mock
   private HttpClient client;
+  @Mock
+  private HttpAsyncClient asyncClient;
   private BiocaseMetadataSynchroniser synchroniser;
   private Installation installation;
 
@@ -263,6 +273,76 @@ public class BiocaseMetadataSynchroniserTest {
     assertThat(syncResult.existingDatasets.get(dataset).getTitle()).isEqualTo("Pontaurus");
   }
 
+  /**
+   * The endpoints, and the datasets of an endpoint, are requested concurrently up to the limit per Installation.
+   */
+  @Test
+  public void testAddedDatasetsAsync() throws Exception {
+    Endpoint endpoint = new Endpoint();
+    endpoint.setKey(2);
+    endpoint.setUrl(URI.create("http://localhost/2"));
+    installation.addEndpoint(endpoint);
+
+    ExecutorService parseExecutor = Executors.newFixedThreadPool(2);
+    try (AsyncResponder responder = AsyncResponder.respond(asyncClient, BiocaseMetadataSynchroniserTest::abcd12)) {
+      BiocaseMetadataSynchroniser async =
+        new BiocaseMetadataSynchroniser(client, asyncClient, parseExecutor, new RequestLimiter(100));
+      SyncResult syncResult = async.syncInstallationAsync(installation, new ArrayList<Dataset>()).join();
+
+      assertThat(syncResult.exception).isNull();
+      assertThat(syncResult.deletedDatasets).isEmpty();
+      assertThat(syncResult.existingDatasets).isEmpty();
+      assertThat(syncResult.addedDatasets).hasSize(8);
+      // capabilities, inventory and the metadata and count of 4 datasets for every endpoint
+      assertThat(responder.getRequests()).isEqualTo(20);
+      assertThat(responder.getMaxInFlight()).isGreaterThan(0).isLessThanOrEqualTo(4);
+      verify(client, never()).execute(any(HttpGet.class));
+    } finally {
+      parseExecutor.shutdown();
+    }
+  }
+
+  /**
+   * The requests to all Installations are limited by the limiter shared by the handlers.
+   */
+  @Test
+  public void testRequestLimitAsync() throws Exception {
+    Installation other = new Installation();
+    other.setKey(UUID.randomUUID());
+    other.setType(InstallationType.BIOCASE_INSTALLATION);
+    Endpoint endpoint = new Endpoint();
+    endpoint.setKey(2);
+    endpoint.setUrl(URI.create("http://localhost/2"));
+    other.addEndpoint(endpoint);
+
+    ExecutorService parseExecutor = Executors.newFixedThreadPool(2);
+    try (AsyncResponder responder = AsyncResponder.respond(asyncClient, BiocaseMetadataSynchroniserTest::abcd12)) {
+      RequestLimiter requestLimiter = new RequestLimiter(2);
+      BiocaseMetadataSynchroniser async =
+        new BiocaseMetadataSynchroniser(client, asyncClient, parseExecutor, requestLimiter);
+      CompletableFuture<SyncResult> first = async.syncInstallationAsync(installation, new ArrayList<Dataset>());
+      CompletableFuture<SyncResult> second = async.syncInstallationAsync(other, new ArrayList<Dataset>());
+
+      assertThat(first.join().addedDatasets).hasSize(4);
+      assertThat(second.join().addedDatasets).hasSize(4);
+      assertThat(responder.getRequests()).isEqualTo(20);
+      assertThat(responder.getMaxInFlight()).isGreaterThan(0).isLessThanOrEqualTo(2);
+      assertThat(requestLimiter.getInFlight()).isEqualTo(0);
+    } finally {
+      parseExecutor.shutdown();
+    }
+  }
+
+  /**
+   * Responds like an endpoint that supports the old style inventory and ABCD 1.2 with 4 datasets.
+   */
+  private static String abcd12(URI uri) {
+    if (uri.getQuery() == null) {
+      return "biocase/capabilities3.xml";
+    }
+    return uri.getQuery().contains("<type>scan</type>") ? "biocase/inventory3.xml" : "biocase/dataset3.xml";
+  }
+
   /**
    * Prepares a {@link HttpResponse} with the given response status and the content of the file.
    */
@@ -22,31 +22,51 @@ import org.gbif.api.model.registry.MachineTag;
 import org.gbif.api.vocabulary.EndpointType;
 import org.gbif.api.vocabulary.InstallationType;
 import org.gbif.api.vocabulary.TagName;
+import org.gbif.registry.metasync.api.ErrorCode;
+import org.gbif.registry.metasync.api.MetadataException;
 import org.gbif.registry.metasync.api.SyncResult;
+import org.gbif.registry.metasync.util.RequestLimiter;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -54,6 +74,8 @@ public class DigirMetadataSynchroniserTest {
 
   @Mock
   private HttpClient client;
+  @Mock
+  private HttpAsyncClient asyncClient;
   private DigirMetadataSynchroniser synchroniser;
   private Installation installation;
 
@@ -160,6 +182,72 @@ public class DigirMetadataSynchroniserTest {
     assertThat(synchroniser.determineEndpointType(schemas)).isEqualTo(EndpointType.DIGIR_MANIS);
   }
 
+  /**
+   * Responses of the asynchronous client are parsed on the parse executor, not on the thread that received them.
+   */
+  @Test
+  public void testAddedDatasetsAsync() throws Exception {
+    final HttpResponse response = prepareResponse(200, "digir/test1.xml");
+    final CountDownLatch started = new CountDownLatch(1);
+    respondAsync(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        final FutureCallback<HttpResponse> callback = (FutureCallback<HttpResponse>) invocation.getArguments()[2];
+        new Thread(() -> {
+          Uninterruptibles.awaitUninterruptibly(started);
+          callback.completed(response);
+        }, "io").start();
+        return null;
+      }
+    });
+
+    ExecutorService parseExecutor = Executors.newSingleThreadExecutor();
+    try {
+      DigirMetadataSynchroniser async = new DigirMetadataSynchroniser(client, asyncClient, parseExecutor,
+                                                                      new RequestLimiter(1));
+      CompletableFuture<String> parseThread = new CompletableFuture<>();
+      parseExecutor.execute(() -> parseThread.complete(Thread.currentThread().getName()));
+
+      CompletableFuture<String> completingThread = new CompletableFuture<>();
+      CompletableFuture<SyncResult> future = async.syncInstallationAsync(installation, new ArrayList<Dataset>());
+      future.whenComplete((result, e) -> completingThread.complete(Thread.currentThread().getName()));
+      started.countDown();
+
+      SyncResult syncResult = future.join();
+      assertThat(syncResult.addedDatasets).hasSize(8);
+      assertThat(completingThread.join()).isEqualTo(parseThread.join());
+      verify(client, never()).execute(any(HttpGet.class));
+    } finally {
+      parseExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailedAsync() throws Exception {
+    respondAsync(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((FutureCallback<?>) invocation.getArguments()[2]).failed(new SocketTimeoutException());
+        return null;
+      }
+    });
+
+    DigirMetadataSynchroniser async = new DigirMetadataSynchroniser(client, asyncClient, Runnable::run,
+                                                                    new RequestLimiter(1));
+    try {
+      async.syncInstallationAsync(installation, new ArrayList<Dataset>()).join();
+      fail();
+    } catch (CompletionException e) {
+      assertThat(e.getCause()).isInstanceOf(MetadataException.class);
+      assertThat(((MetadataException) e.getCause()).getErrorCode()).isEqualTo(ErrorCode.IO_EXCEPTION);
+    }
+  }
+
+  private void respondAsync(Answer<Void> answer) {
+    doAnswer(answer).when(asyncClient).execute(any(HttpAsyncRequestProducer.class),
+                                               any(HttpAsyncResponseConsumer.class), any(FutureCallback.class));
+  }
+
   public HttpResponse prepareResponse(int responseStatus, String fileName) throws IOException {
     HttpResponse response =
       new BasicHttpResponse(new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), responseStatus, ""));
@@ -10,20 +10,26 @@ import org.gbif.api.vocabulary.InstallationType;
 import org.gbif.api.vocabulary.License;
 import org.gbif.api.vocabulary.TagName;
 import org.gbif.registry.metasync.api.SyncResult;
+import org.gbif.registry.metasync.protocols.AsyncResponder;
 import org.gbif.registry.metasync.protocols.HttpGetMatcher;
+import org.gbif.registry.metasync.util.RequestLimiter;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.google.common.collect.Lists;
 import com.google.common.io.Resources;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -31,7 +37,10 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -39,6 +48,8 @@ public class TapirMetadataSynchroniserTest {
 
   @Mock
   private HttpClient client;
+  @Mock
+  private HttpAsyncClient asyncClient;
   private TapirMetadataSynchroniser synchroniser;
   private Installation installation;
 
@@ -171,6 +182,43 @@ public class TapirMetadataSynchroniserTest {
       .getTitle()).isEqualTo("Natural History Museum Rotterdam");
   }
 
+  /**
+   * The Endpoints of an Installation are requested concurrently, up to the limit per Installation.
+   */
+  @Test
+  public void testAddedDatasetsAsync() throws Exception {
+    installation.getEndpoints().clear();
+    for (int i = 1; i <= 6; i++) {
+      Endpoint endpoint = new Endpoint();
+      endpoint.setUrl(URI.create("http://localhost/nmr" + i));
+      installation.addEndpoint(endpoint);
+    }
+
+    ExecutorService parseExecutor = Executors.newFixedThreadPool(2);
+    try (AsyncResponder responder = AsyncResponder.respond(asyncClient, uri -> {
+      if (uri.getQuery() == null) {
+        return "tapir/metadata1.xml";
+      }
+      return uri.getQuery().startsWith("op=capabilities") ? "tapir/capabilities1.xml" : "tapir/search1.xml";
+    })) {
+      TapirMetadataSynchroniser async =
+        new TapirMetadataSynchroniser(client, asyncClient, parseExecutor, new RequestLimiter(100));
+      SyncResult syncResult = async.syncInstallationAsync(installation, new ArrayList<Dataset>()).join();
+
+      assertThat(syncResult.deletedDatasets).isEmpty();
+      assertThat(syncResult.existingDatasets).isEmpty();
+      assertThat(syncResult.addedDatasets).hasSize(6);
+      assertThat(MachineTagUtils.firstTag(syncResult.addedDatasets.get(0), TagName.DECLARED_COUNT).getValue())
+        .isEqualTo("167348");
+      // capabilities, metadata and search of every endpoint
+      assertThat(responder.getRequests()).isEqualTo(18);
+      assertThat(responder.getMaxInFlight()).isGreaterThan(0).isLessThanOrEqualTo(4);
+      verify(client, never()).execute(any(HttpGet.class));
+    } finally {
+      parseExecutor.shutdown();
+    }
+  }
+
   public HttpResponse prepareResponse(int responseStatus, String fileName) throws IOException {
     HttpResponse response =
       new BasicHttpResponse(new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), responseStatus, ""));
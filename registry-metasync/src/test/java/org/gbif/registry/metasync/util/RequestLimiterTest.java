@@ -0,0 +1,71 @@
+package org.gbif.registry.metasync.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class RequestLimiterTest {
+
+  @Test
+  public void testQueuedBeyondLimit() {
+    RequestLimiter limiter = new RequestLimiter(2);
+    List<CompletableFuture<Integer>> requests = Lists.newArrayList();
+    List<CompletableFuture<Integer>> results = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      CompletableFuture<Integer> request = new CompletableFuture<>();
+      requests.add(request);
+      results.add(limiter.submit(() -> request));
+    }
+    assertThat(limiter.getInFlight()).isEqualTo(2);
+    assertThat(limiter.getWaiting()).isEqualTo(3);
+
+    // completing a request starts the next one
+    requests.get(1).complete(1);
+    assertThat(results.get(1).join()).isEqualTo(1);
+    assertThat(limiter.getInFlight()).isEqualTo(2);
+    assertThat(limiter.getWaiting()).isEqualTo(2);
+
+    for (int i = 0; i < requests.size(); i++) {
+      requests.get(i).complete(i);
+    }
+    for (int i = 0; i < results.size(); i++) {
+      assertThat(results.get(i).join()).isEqualTo(i);
+    }
+    assertThat(limiter.getInFlight()).isEqualTo(0);
+    assertThat(limiter.getWaiting()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFailedRequestReleasesPermit() {
+    RequestLimiter limiter = new RequestLimiter(1);
+    CompletableFuture<Integer> failed = limiter.submit(() -> {
+      throw new IllegalStateException("Not started");
+    });
+    try {
+      failed.join();
+      fail();
+    } catch (CompletionException e) {
+      assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+
+    assertThat(limiter.submit(() -> CompletableFuture.completedFuture(1)).join()).isEqualTo(1);
+    assertThat(limiter.getInFlight()).isEqualTo(0);
+  }
+
+  /**
+   * The permit is released before the dependent stages run, so a chained request doesn't wait for itself.
+   */
+  @Test
+  public void testChainedRequests() {
+    RequestLimiter limiter = new RequestLimiter(1);
+    CompletableFuture<Integer> chained = limiter.submit(() -> CompletableFuture.completedFuture(1))
+      .thenCompose(first -> limiter.submit(() -> CompletableFuture.completedFuture(first + 1)));
+    assertThat(chained.join()).isEqualTo(2);
+  }
+}
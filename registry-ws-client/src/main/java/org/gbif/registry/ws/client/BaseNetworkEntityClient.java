@@ -1,5 +1,6 @@
 package org.gbif.registry.ws.client;
 
+import org.gbif.api.model.common.paging.CursorPagingResponse;
 import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.model.common.paging.PagingResponse;
 import org.gbif.api.model.registry.Comment;
@@ -27,21 +28,27 @@ import javax.validation.constraints.NotNull;
 import javax.ws.rs.core.MediaType;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.filter.ClientFilter;
+import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.JavaType;
 
 public class BaseNetworkEntityClient<T extends NetworkEntity> extends BaseWsGetClient<T, UUID>
   implements NetworkEntityService<T> {
 
   private final GenericType<PagingResponse<T>> pagingType;
   private final ObjectMapper mapper = new ObjectMapper();
+  private final JavaType cursorPagingType;
 
   public BaseNetworkEntityClient(Class<T> resourceClass, WebResource resource, @Nullable ClientFilter authFilter,
     GenericType<PagingResponse<T>> pagingType) {
     super(resourceClass, resource, authFilter);
     this.pagingType = pagingType;
+    mapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    this.cursorPagingType = mapper.getTypeFactory().constructParametricType(CursorPagingResponse.class, resourceClass);
   }
 
   @Override
@@ -59,6 +66,27 @@ public class BaseNetworkEntityClient<T extends NetworkEntity> extends BaseWsGetC
     return get(pagingType, null, null, page);
   }
 
+  /**
+   * Lists all entities with cursor based paging, which unlike offset paging stays fast for pages far into the list.
+   *
+   * @param cursor the next cursor of the previous page or null for the first page
+   * @param limit the page size
+   * @param count true to also count all entities, which is expensive
+   */
+  public CursorPagingResponse<T> listAfter(@Nullable String cursor, int limit, boolean count) {
+    String json = getResource()
+      .queryParam("cursor", Strings.nullToEmpty(cursor))
+      .queryParam("limit", String.valueOf(limit))
+      .queryParam("count", String.valueOf(count))
+      .accept(MediaType.APPLICATION_JSON)
+      .get(String.class);
+    try {
+      return mapper.readValue(json, cursorPagingType);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read cursor paging response", e);
+    }
+  }
+
   @Override
   public void update(T entity) {
     put(entity, entity.getKey().toString());
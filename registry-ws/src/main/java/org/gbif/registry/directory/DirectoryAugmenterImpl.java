@@ -11,38 +11,111 @@ import org.gbif.api.service.directory.ParticipantService;
 import org.gbif.api.service.directory.PersonService;
 import org.gbif.api.vocabulary.ContactType;
 
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
 import java.net.URI;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Timer;
+import com.yammer.metrics.core.TimerContext;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.gbif.registry.directory.DirectoryRegistryMapping.findParticipantID;
 
+/**
+ * Augments registry nodes with the participant, nodes and people of the directory.
+ * <p/>
+ * The directory is read from a snapshot which is refreshed in the background every few minutes, so augmenting nodes
+ * makes no remote calls. Requests keep being served from the previous snapshot while a refresh runs or if it fails.
+ * Until the first snapshot is loaded the directory services are called for each node.
+ */
 @Singleton
 public class DirectoryAugmenterImpl implements Augmenter {
 
+  public static final String REFRESH_MINUTES_PROP = "directory.snapshot.refreshMinutes";
+
   private static Logger LOG = LoggerFactory.getLogger(DirectoryAugmenterImpl.class);
 
   private ParticipantService participantService;
   private NodeService nodeService;
   private PersonService personService;
+  private volatile DirectorySnapshot snapshot;
+  private final ScheduledExecutorService scheduler;
 
+  private final Timer refreshTimer = Metrics.newTimer(DirectoryAugmenterImpl.class, "snapshot-refresh",
+                                                      TimeUnit.MILLISECONDS, TimeUnit.SECONDS);
+  private final Counter refreshFailures = Metrics.newCounter(DirectoryAugmenterImpl.class, "snapshot-refresh-failures");
+  private final Counter liveLookups = Metrics.newCounter(DirectoryAugmenterImpl.class, "live-lookups");
+
+  /**
+   * @param refreshMinutes the minutes between snapshot refreshes, 0 to always call the directory services
+   */
   @Inject
-  public DirectoryAugmenterImpl(ParticipantService participantService, NodeService nodeService, PersonService personService) {
+  public DirectoryAugmenterImpl(ParticipantService participantService, NodeService nodeService,
+                                PersonService personService, @Named(REFRESH_MINUTES_PROP) int refreshMinutes) {
     this.participantService = participantService;
     this.nodeService = nodeService;
     this.personService = personService;
-  }
+    if (refreshMinutes > 0) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("directory-snapshot"));
+      scheduler.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          refresh();
+        }
+      }, 0, refreshMinutes, TimeUnit.MINUTES);
+    } else {
+      scheduler = null;
+    }
 
+    Metrics.newGauge(DirectoryAugmenterImpl.class, "snapshot-age-seconds", new Gauge<Long>() {
+      @Override
+      public Long value() {
+        DirectorySnapshot current = snapshot;
+        return current == null ? -1 : TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - current.getCreated());
+      }
+    });
+  }
 
+  /**
+   * Loads a new snapshot of the directory, keeping the current one if the directory cannot be read.
+   *
+   * @return true if the snapshot was replaced
+   */
+  public boolean refresh() {
+    TimerContext context = refreshTimer.time();
+    try {
+      DirectorySnapshot loaded = DirectorySnapshot.load(participantService, nodeService, personService);
+      snapshot = loaded;
+      LOG.info("Loaded directory snapshot with {} participants, {} nodes and {} people", loaded.participants(),
+               loaded.nodes(), loaded.people());
+      return true;
+    } catch (Exception e) {
+      refreshFailures.inc();
+      LOG.warn("Failed to refresh the directory snapshot, keeping the {}", snapshot == null ? "direct lookups"
+        : "snapshot of " + new Date(snapshot.getCreated()), e);
+      return false;
+    } finally {
+      context.stop();
+    }
+  }
 
   @Override
   public Node augment(Node registryNode) {
@@ -50,13 +123,18 @@ public class DirectoryAugmenterImpl implements Augmenter {
       try {
         Integer participantID = findParticipantID(registryNode);
         if (participantID != null) {
-          Participant participant = participantService.get(participantID);
+          DirectorySnapshot directory = snapshot;
+          if (directory == null) {
+            liveLookups.inc();
+          }
+          Participant participant = directory != null ? directory.participant(participantID)
+            : participantService.get(participantID);
           if (participant != null) {
             List<Contact> contacts = Lists.newArrayList();
             // update node with Directory info if it exists
-            List<org.gbif.api.model.directory.Node> participantNodes = getParticipantNodes(participant);
+            List<org.gbif.api.model.directory.Node> participantNodes = getParticipantNodes(directory, participant);
             registryNode.setParticipantTitle(participant.getName());
-            contacts.addAll(getContactsForParticipant(participant));
+            contacts.addAll(getContactsForParticipant(directory, participant));
 
             registryNode.setAbbreviation(participant.getAbbreviatedName());
             registryNode.setDescription(participant.getComments());
@@ -64,7 +142,7 @@ public class DirectoryAugmenterImpl implements Augmenter {
               registryNode.setParticipantSince(getParticipantSinceYear(participant.getMembershipStart()));
             }
             if(!participantNodes.isEmpty()){
-              contacts.addAll(getContactsForNode(participantNodes));
+              contacts.addAll(getContactsForNode(directory, participantNodes));
               registryNode.setAddress(getNodesAddresses(participantNodes));
               registryNode.setHomepage(Lists.newArrayList(getWebUrls(participant, participantNodes)));
               registryNode.setEmail(getEmails(participantNodes));
@@ -84,6 +162,25 @@ public class DirectoryAugmenterImpl implements Augmenter {
     return registryNode;
   }
 
+  /**
+   * Stops refreshing the snapshot, called by the servlet listener when the webapp shuts down.
+   */
+  public void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Nullable
+  private org.gbif.api.model.directory.Node getNode(@Nullable DirectorySnapshot directory, Integer id) {
+    return directory != null ? directory.node(id) : nodeService.get(id);
+  }
+
+  @Nullable
+  private Person getPerson(@Nullable DirectorySnapshot directory, Integer id) {
+    return directory != null ? directory.person(id) : personService.get(id);
+  }
+
   /**
    * Gets the year part of the membershipStart field.
    */
@@ -98,11 +195,15 @@ public class DirectoryAugmenterImpl implements Augmenter {
   /**
    * Gets all the nodes associated to a participant.
    */
-  private List<org.gbif.api.model.directory.Node> getParticipantNodes(Participant participant){
+  private List<org.gbif.api.model.directory.Node> getParticipantNodes(@Nullable DirectorySnapshot directory,
+                                                                      Participant participant){
     List<org.gbif.api.model.directory.Node> nodes = Lists.newArrayList();
     if(participant.getNodes() != null){
       for(org.gbif.api.model.directory.Node node : participant.getNodes()) {
-        nodes.add(nodeService.get(node.getId()));
+        org.gbif.api.model.directory.Node directoryNode = getNode(directory, node.getId());
+        if (directoryNode != null) {
+          nodes.add(directoryNode);
+        }
       }
     }
     return nodes;
@@ -174,14 +275,17 @@ public class DirectoryAugmenterImpl implements Augmenter {
   /**
    * Transforms the persons associated to a participant into a list of contacts.
    */
-  private List<Contact> getContactsForParticipant(Participant participant){
+  private List<Contact> getContactsForParticipant(@Nullable DirectorySnapshot directory, Participant participant){
     List<Contact> contacts = Lists.newArrayList();
     if(participant.getPeople() != null){
       Person person;
       Contact contact;
       ContactType contactType;
       for(ParticipantPerson participantPerson : participant.getPeople()) {
-        person = personService.get(participantPerson.getPersonId());
+        person = getPerson(directory, participantPerson.getPersonId());
+        if (person == null) {
+          continue;
+        }
         contactType = null;
         if( participantPerson.getRole() != null) {
           contactType = DirectoryRegistryMapping.PARTICIPANT_ROLE_TO_CONTACT_TYPE.get(participantPerson.getRole());
@@ -197,7 +301,8 @@ public class DirectoryAugmenterImpl implements Augmenter {
    * Transforms the persons associated to a node(s) into a list of contacts.
    * @param directoryNodes it theory it should never be more than one
    */
-  private List<Contact> getContactsForNode(List<org.gbif.api.model.directory.Node> directoryNodes){
+  private List<Contact> getContactsForNode(@Nullable DirectorySnapshot directory,
+                                           List<org.gbif.api.model.directory.Node> directoryNodes){
     List<Contact> contacts = Lists.newArrayList();
     if(directoryNodes != null){
       Person person;
@@ -206,7 +311,10 @@ public class DirectoryAugmenterImpl implements Augmenter {
       for(org.gbif.api.model.directory.Node currentNode : directoryNodes) {
         if(currentNode.getPeople() != null && !currentNode.getPeople().isEmpty()) {
           for (NodePerson nodePerson : currentNode.getPeople()) {
-            person = personService.get(nodePerson.getPersonId());
+            person = getPerson(directory, nodePerson.getPersonId());
+            if (person == null) {
+              continue;
+            }
             contactType = null;
             if (nodePerson.getRole() != null) {
               contactType = DirectoryRegistryMapping.NODE_ROLE_TO_CONTACT_TYPE.get(nodePerson.getRole());
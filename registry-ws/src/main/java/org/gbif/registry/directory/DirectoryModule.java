@@ -21,6 +21,7 @@ import java.util.Properties;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Scopes;
+import com.google.inject.name.Names;
 
 /**
  * Sets up the module to access the GBIF directory API.
@@ -35,6 +36,8 @@ public class DirectoryModule extends AbstractModule {
   @Override
   protected void configure() {
     install(new DirectoryWsClientModule(properties));
+    bindConstant().annotatedWith(Names.named(DirectoryAugmenterImpl.REFRESH_MINUTES_PROP))
+      .to(Integer.parseInt(properties.getProperty(DirectoryAugmenterImpl.REFRESH_MINUTES_PROP, "10").trim()));
     bind(Augmenter.class).to(DirectoryAugmenterImpl.class).in(Scopes.SINGLETON);
   }
 
@@ -0,0 +1,155 @@
+package org.gbif.registry.directory;
+
+import org.gbif.api.model.common.paging.PagingRequest;
+import org.gbif.api.model.common.paging.PagingResponse;
+import org.gbif.api.model.directory.Node;
+import org.gbif.api.model.directory.NodePerson;
+import org.gbif.api.model.directory.Participant;
+import org.gbif.api.model.directory.ParticipantPerson;
+import org.gbif.api.model.directory.Person;
+import org.gbif.api.service.directory.NodeService;
+import org.gbif.api.service.directory.ParticipantService;
+import org.gbif.api.service.directory.PersonService;
+
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * An immutable copy of the participants, nodes and people of the directory, indexed by their ids.
+ * <p/>
+ * Participants are listed in pages and read in full, as only single participants and nodes carry their people.
+ * People are listed in pages and kept as listed.
+ */
+class DirectorySnapshot {
+
+  private static final int PAGE_SIZE = 1000;
+
+  private final Map<Integer, Participant> participants;
+  private final Map<Integer, Node> nodes;
+  private final Map<Integer, Person> people;
+  private final long created = System.currentTimeMillis();
+
+  DirectorySnapshot(Map<Integer, Participant> participants, Map<Integer, Node> nodes, Map<Integer, Person> people) {
+    this.participants = ImmutableMap.copyOf(participants);
+    this.nodes = ImmutableMap.copyOf(nodes);
+    this.people = ImmutableMap.copyOf(people);
+  }
+
+  /**
+   * Reads the whole directory, failing if any of the services fails.
+   */
+  static DirectorySnapshot load(ParticipantService participantService, NodeService nodeService,
+                                PersonService personService) {
+    Map<Integer, Participant> participants = Maps.newHashMap();
+    Map<Integer, Node> nodes = Maps.newHashMap();
+    Map<Integer, Person> people = Maps.newHashMap();
+
+    PagingRequest page = new PagingRequest(0, PAGE_SIZE);
+    PagingResponse<Person> personResponse;
+    do {
+      personResponse = personService.list(null, page);
+      for (Person person : personResponse.getResults()) {
+        people.put(person.getId(), person);
+      }
+      page.nextPage();
+    } while (!isLastPage(personResponse));
+
+    page = new PagingRequest(0, PAGE_SIZE);
+    PagingResponse<Participant> participantResponse;
+    do {
+      participantResponse = participantService.list(null, page);
+      for (Participant listed : participantResponse.getResults()) {
+        Participant participant = participantService.get(listed.getId());
+        if (participant == null) {
+          continue;
+        }
+        participants.put(participant.getId(), participant);
+        addMissingPeople(participant, people, personService);
+        if (participant.getNodes() != null) {
+          for (Node participantNode : participant.getNodes()) {
+            if (!nodes.containsKey(participantNode.getId())) {
+              Node node = nodeService.get(participantNode.getId());
+              if (node != null) {
+                nodes.put(node.getId(), node);
+                addMissingPeople(node, people, personService);
+              }
+            }
+          }
+        }
+      }
+      page.nextPage();
+    } while (!isLastPage(participantResponse));
+
+    return new DirectorySnapshot(participants, nodes, people);
+  }
+
+  /**
+   * Reads people added after the people were listed.
+   */
+  private static void addMissingPeople(Participant participant, Map<Integer, Person> people,
+                                       PersonService personService) {
+    if (participant.getPeople() != null) {
+      for (ParticipantPerson participantPerson : participant.getPeople()) {
+        addMissingPerson(participantPerson.getPersonId(), people, personService);
+      }
+    }
+  }
+
+  private static void addMissingPeople(Node node, Map<Integer, Person> people, PersonService personService) {
+    if (node.getPeople() != null) {
+      for (NodePerson nodePerson : node.getPeople()) {
+        addMissingPerson(nodePerson.getPersonId(), people, personService);
+      }
+    }
+  }
+
+  private static void addMissingPerson(Integer id, Map<Integer, Person> people, PersonService personService) {
+    if (id != null && !people.containsKey(id)) {
+      Person person = personService.get(id);
+      if (person != null) {
+        people.put(id, person);
+      }
+    }
+  }
+
+  private static boolean isLastPage(PagingResponse<?> response) {
+    return response.getResults().isEmpty() || Boolean.TRUE.equals(response.isEndOfRecords());
+  }
+
+  @Nullable
+  Participant participant(Integer id) {
+    return participants.get(id);
+  }
+
+  @Nullable
+  Node node(Integer id) {
+    return nodes.get(id);
+  }
+
+  @Nullable
+  Person person(Integer id) {
+    return people.get(id);
+  }
+
+  int participants() {
+    return participants.size();
+  }
+
+  int nodes() {
+    return nodes.size();
+  }
+
+  int people() {
+    return people.size();
+  }
+
+  /**
+   * @return the time the snapshot was taken in milliseconds since the epoch
+   */
+  long getCreated() {
+    return created;
+  }
+}
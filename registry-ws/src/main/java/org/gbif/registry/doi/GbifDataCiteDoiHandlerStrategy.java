@@ -3,12 +3,10 @@ package org.gbif.registry.doi;
 import org.gbif.api.model.common.DOI;
 import org.gbif.api.model.common.GbifUser;
 import org.gbif.api.model.common.User;
-import org.gbif.api.model.common.paging.PagingRequest;
 import org.gbif.api.model.occurrence.Download;
 import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.model.registry.DatasetOccurrenceDownloadUsage;
 import org.gbif.api.model.registry.Organization;
-import org.gbif.api.service.registry.OccurrenceDownloadService;
 import org.gbif.doi.metadata.datacite.DataCiteMetadata;
 import org.gbif.doi.metadata.datacite.RelatedIdentifierType;
 import org.gbif.doi.metadata.datacite.RelationType;
@@ -16,15 +14,17 @@ import org.gbif.doi.service.InvalidMetadataException;
 import org.gbif.occurrence.query.TitleLookup;
 import org.gbif.registry.doi.generator.DoiGenerator;
 import org.gbif.registry.doi.handler.DataCiteDoiHandlerStrategy;
+import org.gbif.registry.persistence.mapper.DatasetOccurrenceDownloadMapper;
 import org.gbif.registry.persistence.mapper.OrganizationMapper;
 
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
+import com.google.common.collect.AbstractIterator;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import org.slf4j.Logger;
@@ -50,7 +50,7 @@ public class GbifDataCiteDoiHandlerStrategy implements DataCiteDoiHandlerStrateg
 
   private final DoiGenerator doiGenerator;
   private final OrganizationMapper organizationMapper;
-  private final OccurrenceDownloadService occurrenceDownloadService;
+  private final DatasetOccurrenceDownloadMapper datasetOccurrenceDownloadMapper;
   private final TitleLookup titleLookup;
 
   // Used to exclude constituents of selected datasets (e.g. GBIF Backbone Taxonomy)
@@ -58,12 +58,12 @@ public class GbifDataCiteDoiHandlerStrategy implements DataCiteDoiHandlerStrateg
 
   @Inject
   public GbifDataCiteDoiHandlerStrategy(DoiGenerator doiGenerator, OrganizationMapper organizationMapper,
-                                        OccurrenceDownloadService occurrenceDownloadService,
+                                        DatasetOccurrenceDownloadMapper datasetOccurrenceDownloadMapper,
                                         TitleLookup titleLookup,
                                         @Named("parentDatasetExcludeList") List<UUID> parentDatasetExcludeList) {
     this.doiGenerator = doiGenerator;
     this.organizationMapper = organizationMapper;
-    this.occurrenceDownloadService = occurrenceDownloadService;
+    this.datasetOccurrenceDownloadMapper = datasetOccurrenceDownloadMapper;
     this.titleLookup = titleLookup;
     this.parentDatasetExcludeList = parentDatasetExcludeList;
   }
@@ -75,17 +75,40 @@ public class GbifDataCiteDoiHandlerStrategy implements DataCiteDoiHandlerStrateg
 
   @Override
   public DataCiteMetadata buildMetadata(Download download, GbifUser user) {
-    List<DatasetOccurrenceDownloadUsage> response = null;
-    List<DatasetOccurrenceDownloadUsage> usages = Lists.newArrayList();
-    PagingRequest pagingRequest = new PagingRequest(0, USAGES_PAGE_SIZE);
-
-    while (response == null || !response.isEmpty()) {
-      response = occurrenceDownloadService.listDatasetUsages(download.getKey(), pagingRequest).getResults();
-      usages.addAll(response);
-      pagingRequest.nextPage();
-    }
+    return DataCiteConverter.convert(download, user, datasetUsages(download.getKey()), titleLookup);
+  }
 
-    return DataCiteConverter.convert(download, user, usages, titleLookup);
+  /**
+   * Iterates over the dataset usages of a download, reading them page by page only while being iterated.
+   * Pages continue after the last dataset key of the previous one, so reading them does not get slower with the number
+   * of datasets used.
+   */
+  private Iterable<DatasetOccurrenceDownloadUsage> datasetUsages(final String downloadKey) {
+    return new Iterable<DatasetOccurrenceDownloadUsage>() {
+      @Override
+      public Iterator<DatasetOccurrenceDownloadUsage> iterator() {
+        return new AbstractIterator<DatasetOccurrenceDownloadUsage>() {
+          private Iterator<DatasetOccurrenceDownloadUsage> page;
+          private DatasetOccurrenceDownloadUsage last;
+          private boolean lastPage;
+
+          @Override
+          protected DatasetOccurrenceDownloadUsage computeNext() {
+            if (page == null || (!page.hasNext() && !lastPage)) {
+              List<DatasetOccurrenceDownloadUsage> usages = datasetOccurrenceDownloadMapper
+                .listByDownloadAfter(downloadKey, last == null ? null : last.getDatasetKey(), USAGES_PAGE_SIZE);
+              lastPage = usages.size() < USAGES_PAGE_SIZE;
+              page = usages.iterator();
+            }
+            if (!page.hasNext()) {
+              return endOfData();
+            }
+            last = page.next();
+            return last;
+          }
+        };
+      }
+    };
   }
 
   @Override
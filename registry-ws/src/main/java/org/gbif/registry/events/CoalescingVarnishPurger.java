@@ -0,0 +1,196 @@
+package org.gbif.registry.events;
+
+import org.gbif.utils.concurrent.NamedThreadFactory;
+import org.gbif.varnish.VarnishPurger;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Timer;
+import com.yammer.metrics.core.TimerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects varnish PURGE paths and BAN regular expressions over a short time window and sends them in one go.
+ * Duplicates within a window are dropped and the bans are merged into few combined regular expressions, so a bulk
+ * update of many datasets results in a handful of bans only.
+ * <p/>
+ * A window of zero disables the coalescing and sends every request immediately.
+ */
+public class CoalescingVarnishPurger implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CoalescingVarnishPurger.class);
+  private static final Joiner OR_JOINER = Joiner.on("|");
+  // flush early if that many distinct requests are pending
+  private static final int MAX_PENDING = 10000;
+  // keep merged ban headers at a size varnish happily accepts
+  @VisibleForTesting
+  static final int MAX_BAN_LENGTH = 4000;
+
+  private final VarnishPurger purger;
+  private final ScheduledExecutorService scheduler;
+  private Set<String> purges = Sets.newLinkedHashSet();
+  private Set<String> bans = Sets.newLinkedHashSet();
+
+  private final Timer flushLatency = Metrics.newTimer(CoalescingVarnishPurger.class, "flush-latency",
+                                                      TimeUnit.MILLISECONDS, TimeUnit.SECONDS);
+  private final Counter requested = Metrics.newCounter(CoalescingVarnishPurger.class, "requested");
+  private final Counter sent = Metrics.newCounter(CoalescingVarnishPurger.class, "sent");
+
+  public CoalescingVarnishPurger(VarnishPurger purger, long windowMsecs) {
+    this.purger = purger;
+    if (windowMsecs > 0) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("varnish-purger"));
+      scheduler.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            flush();
+          } catch (Exception e) {
+            LOG.error("Failed to flush varnish purges", e);
+          }
+        }
+      }, windowMsecs, windowMsecs, TimeUnit.MILLISECONDS);
+    } else {
+      scheduler = null;
+    }
+
+    Metrics.newGauge(CoalescingVarnishPurger.class, "queue-depth", new Gauge<Integer>() {
+      @Override
+      public Integer value() {
+        return pending();
+      }
+    });
+  }
+
+  /**
+   * Queues a PURGE of a single resource path.
+   */
+  public void purge(String path) {
+    requested.inc();
+    if (scheduler == null) {
+      sent.inc();
+      purger.purge(path);
+      return;
+    }
+    synchronized (this) {
+      purges.add(path);
+    }
+    flushIfFull();
+  }
+
+  /**
+   * Queues a BAN of all resources matching the regular expression.
+   */
+  public void ban(String regex) {
+    requested.inc();
+    if (scheduler == null) {
+      sent.inc();
+      purger.ban(regex);
+      return;
+    }
+    synchronized (this) {
+      bans.add(regex);
+    }
+    flushIfFull();
+  }
+
+  public String anyKey(Set<UUID> keys) {
+    return purger.anyKey(keys);
+  }
+
+  private synchronized int pending() {
+    return purges.size() + bans.size();
+  }
+
+  private void flushIfFull() {
+    if (pending() >= MAX_PENDING) {
+      scheduler.execute(new Runnable() {
+        @Override
+        public void run() {
+          flush();
+        }
+      });
+    }
+  }
+
+  /**
+   * Sends all pending purges and the merged bans to varnish.
+   */
+  void flush() {
+    Set<String> purgesToSend;
+    Set<String> bansToSend;
+    synchronized (this) {
+      if (purges.isEmpty() && bans.isEmpty()) {
+        return;
+      }
+      purgesToSend = purges;
+      bansToSend = bans;
+      purges = Sets.newLinkedHashSet();
+      bans = Sets.newLinkedHashSet();
+    }
+
+    TimerContext ctx = flushLatency.time();
+    try {
+      for (String path : purgesToSend) {
+        purger.purge(path);
+        sent.inc();
+      }
+      List<String> merged = mergeBans(bansToSend);
+      for (String regex : merged) {
+        purger.ban(regex);
+        sent.inc();
+      }
+      LOG.debug("Flushed {} purges and {} bans merged into {}", purgesToSend.size(), bansToSend.size(), merged.size());
+    } finally {
+      ctx.stop();
+    }
+  }
+
+  /**
+   * Merges ban regular expressions into alternations, keeping each of them below {@link #MAX_BAN_LENGTH}.
+   */
+  @VisibleForTesting
+  static List<String> mergeBans(Iterable<String> regexes) {
+    List<String> merged = Lists.newArrayList();
+    List<String> group = Lists.newArrayList();
+    int length = 0;
+    for (String regex : regexes) {
+      if (!group.isEmpty() && length + regex.length() + 1 > MAX_BAN_LENGTH) {
+        merged.add(alternation(group));
+        group.clear();
+        length = 0;
+      }
+      group.add(regex);
+      length += regex.length() + 1;
+    }
+    if (!group.isEmpty()) {
+      merged.add(alternation(group));
+    }
+    return merged;
+  }
+
+  private static String alternation(List<String> regexes) {
+    return regexes.size() == 1 ? regexes.get(0) : "(" + OR_JOINER.join(regexes) + ")";
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      flush();
+    }
+  }
+}
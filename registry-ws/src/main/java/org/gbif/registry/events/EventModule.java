@@ -16,11 +16,20 @@
 package org.gbif.registry.events;
 
 import org.gbif.common.messaging.guice.PostalServiceModule;
+import org.gbif.registry.events.outbox.OutboxEventBus;
+import org.gbif.registry.events.outbox.OutboxEventDispatcher;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.SubscriberExceptionHandler;
 import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,12 +37,37 @@ import org.slf4j.LoggerFactory;
  * One can either extend and bind listeners in this class, or bind them in other modules.
  * Note that you MUST start the listener. Often the easiest way of doing this is simply to bind it as an eager singleton
  * in guice.
+ * <p/>
+ * The way events are dispatched to the listeners is configured with registry.events.dispatch:
+ * <ul>
+ *   <li>sync: listeners are called on the thread posting the event (default)</li>
+ *   <li>async: listeners are called by a bounded pool of worker threads</li>
+ *   <li>outbox: events are written to the event_outbox table within the transaction of the change and delivered by
+ *   a bounded pool of worker threads once committed, see {@link OutboxEventDispatcher}</li>
+ * </ul>
+ * In the async mode a failing listener is retried on its own, see {@link RetryingSubscriberExceptionHandler}. In the
+ * outbox mode the event stays in the outbox until all listeners handled it.
  */
 public class EventModule extends AbstractModule {
   private static final Logger LOG = LoggerFactory.getLogger(EventModule.class);
   public static final String MESSAGING_ENABLED_PROPERTY = "registry.postalservice.enabled";
   public static final String EMBARGO_SECONDS_PROPERTY = "registry.postalservice.embargoSeconds";
-  private final EventBus eventBus = new EventBus();
+  public static final String DISPATCH_MODE_PROPERTY = "registry.events.dispatch";
+  public static final String EVENT_THREADS_PROPERTY = "registry.events.threads";
+  public static final String EVENT_QUEUE_SIZE_PROPERTY = "registry.events.queueSize";
+  public static final String SUBSCRIBER_RETRIES_PROPERTY = "registry.events.subscriberRetries";
+  public static final String OUTBOX_POLL_INTERVAL_PROPERTY = "registry.events.outbox.pollIntervalMsecs";
+  public static final String OUTBOX_BATCH_SIZE_PROPERTY = "registry.events.outbox.batchSize";
+  public static final String OUTBOX_MAX_ATTEMPTS_PROPERTY = "registry.events.outbox.maxAttempts";
+  public static final String OUTBOX_RETENTION_DAYS_PROPERTY = "registry.events.outbox.retentionDays";
+
+  /**
+   * The supported ways of dispatching events to the listeners.
+   */
+  public enum DispatchMode {
+    SYNC, ASYNC, OUTBOX
+  }
+
   private final Properties properties;
 
   public EventModule(Properties properties) {
@@ -47,10 +81,48 @@ public class EventModule extends AbstractModule {
 
   @Override
   protected void configure() {
-    bind(EventBus.class).toInstance(eventBus);
+    DispatchMode mode = DispatchMode.valueOf(properties.getProperty(DISPATCH_MODE_PROPERTY, "sync").trim().toUpperCase());
+    int threads = intProperty(EVENT_THREADS_PROPERTY, 4);
+
+    switch (mode) {
+      case ASYNC:
+        // bounded queue, the posting thread runs the listeners itself when the queue is full
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(intProperty(EVENT_QUEUE_SIZE_PROPERTY, 1000)),
+          new NamedThreadFactory("event-dispatcher"), new ThreadPoolExecutor.CallerRunsPolicy());
+        bind(EventBus.class).toInstance(new AsyncEventBus(executor, newExceptionHandler()));
+        break;
+
+      case OUTBOX:
+        bind(SubscriberExceptionHandler.class).toInstance(newExceptionHandler());
+        bindNamedInt(EVENT_THREADS_PROPERTY, threads);
+        bindNamedInt(OUTBOX_POLL_INTERVAL_PROPERTY, intProperty(OUTBOX_POLL_INTERVAL_PROPERTY, 500));
+        bindNamedInt(OUTBOX_BATCH_SIZE_PROPERTY, intProperty(OUTBOX_BATCH_SIZE_PROPERTY, 100));
+        bindNamedInt(OUTBOX_MAX_ATTEMPTS_PROPERTY, intProperty(OUTBOX_MAX_ATTEMPTS_PROPERTY, 10));
+        bindNamedInt(OUTBOX_RETENTION_DAYS_PROPERTY, intProperty(OUTBOX_RETENTION_DAYS_PROPERTY, 7));
+        bind(EventBus.class).to(OutboxEventBus.class);
+        bind(OutboxEventDispatcher.class).asEagerSingleton();
+        break;
+
+      default:
+        bind(EventBus.class).toInstance(new EventBus());
+    }
+    LOG.info("Registry events are dispatched in {} mode", mode);
     bindEventListeners();
   }
 
+  private SubscriberExceptionHandler newExceptionHandler() {
+    return new RetryingSubscriberExceptionHandler(intProperty(SUBSCRIBER_RETRIES_PROPERTY, 3));
+  }
+
+  private int intProperty(String property, int defaultValue) {
+    return Integer.valueOf(properties.getProperty(property, String.valueOf(defaultValue)).trim());
+  }
+
+  private void bindNamedInt(String name, int value) {
+    bind(Integer.class).annotatedWith(Names.named(name)).toInstance(value);
+  }
+
   /**
    * Bind Event listeners here as eager Singletons.
    */
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.events;
+
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.eventbus.SubscriberExceptionContext;
+import com.google.common.eventbus.SubscriberExceptionHandler;
+import com.yammer.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An event bus exception handler that retries the failed subscriber only, using an exponential backoff.
+ * Other subscribers of the same event are not affected by the retries.
+ * Retries and final failures are counted per subscriber class.
+ */
+public class RetryingSubscriberExceptionHandler implements SubscriberExceptionHandler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RetryingSubscriberExceptionHandler.class);
+  private static final long INITIAL_BACKOFF_MSECS = 1000;
+
+  private final int maxRetries;
+  private final ScheduledExecutorService scheduler =
+    Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("event-subscriber-retry"));
+
+  public RetryingSubscriberExceptionHandler(int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  @Override
+  public void handleException(Throwable exception, SubscriberExceptionContext context) {
+    LOG.warn("Subscriber {} failed to handle event {}", context.getSubscriber().getClass().getSimpleName(),
+             context.getEvent().getClass().getSimpleName(), exception);
+    scheduleRetry(context, 1);
+  }
+
+  private void scheduleRetry(final SubscriberExceptionContext context, final int attempt) {
+    final Class<?> subscriberClass = context.getSubscriber().getClass();
+    if (attempt > maxRetries) {
+      Metrics.newCounter(subscriberClass, "failures").inc();
+      LOG.error("Giving up delivering event {} to subscriber {} after {} retries",
+                context.getEvent().getClass().getSimpleName(), subscriberClass.getSimpleName(), maxRetries);
+      return;
+    }
+
+    Metrics.newCounter(subscriberClass, "retries").inc();
+    long delay = INITIAL_BACKOFF_MSECS << (attempt - 1);
+    scheduler.schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          context.getSubscriberMethod().invoke(context.getSubscriber(), context.getEvent());
+        } catch (InvocationTargetException e) {
+          LOG.warn("Retry {} of subscriber {} failed", attempt, subscriberClass.getSimpleName(), e.getCause());
+          scheduleRetry(context, attempt + 1);
+        } catch (IllegalAccessException e) {
+          LOG.error("Cannot invoke subscriber {}", subscriberClass.getSimpleName(), e);
+        }
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+}
@@ -17,9 +17,7 @@ import org.gbif.api.service.registry.OrganizationService;
 import org.gbif.registry.events.collections.CreateCollectionEntityEvent;
 import org.gbif.registry.events.collections.DeleteCollectionEntityEvent;
 import org.gbif.registry.events.collections.UpdateCollectionEntityEvent;
-import org.gbif.varnish.VarnishPurger;
 
-import java.net.URI;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -30,7 +28,6 @@ import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +88,7 @@ import org.slf4j.LoggerFactory;
  *   <li>/network/{any UUID}/constituents BAN</li>
  * </ul>
  *
+ * <p>Purges and bans are not sent immediately but coalesced over a short window by {@link CoalescingVarnishPurger}.</p>
  */
 @Singleton
 public class VarnishPurgeListener {
@@ -101,11 +99,11 @@ public class VarnishPurgeListener {
   private final InstitutionService institutionService;
   private final CollectionService collectionService;
   private final PersonService personService;
-  private final VarnishPurger purger;
+  private final CoalescingVarnishPurger purger;
   private static final Joiner PATH_JOINER = Joiner.on("/").skipNulls();
 
   @Inject
-  public VarnishPurgeListener(CloseableHttpClient client, EventBus eventBus, URI apiBaseUrl,
+  public VarnishPurgeListener(CoalescingVarnishPurger purger, EventBus eventBus,
                               OrganizationService organizationService,InstallationService installationService,
                               DatasetService datasetService, InstitutionService institutionService,
                               CollectionService collectionService, PersonService personService) {
@@ -115,9 +113,8 @@ public class VarnishPurgeListener {
     this.institutionService = institutionService;
     this.collectionService = collectionService;
     this.personService = personService;
+    this.purger = purger;
     eventBus.register(this);
-
-    purger = new VarnishPurger(client, apiBaseUrl);
   }
 
   @Subscribe
@@ -259,7 +256,7 @@ public class VarnishPurgeListener {
       Organization o = organizationService.get(orgKey);
       nodekeys.add(o.getEndorsingNodeKey());
     }
-    purger.ban(String.format("%node/%s/organization", purger.anyKey(nodekeys)));
+    purger.ban(String.format("node/%s/installation", purger.anyKey(nodekeys)));
   }
 
   private void cascadePersonChange(Person ... persons) {
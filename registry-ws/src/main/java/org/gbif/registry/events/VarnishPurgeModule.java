@@ -7,6 +7,7 @@ import org.gbif.registry.ws.resources.collections.CollectionResource;
 import org.gbif.registry.ws.resources.collections.InstitutionResource;
 import org.gbif.registry.ws.resources.collections.PersonResource;
 import org.gbif.utils.HttpUtil;
+import org.gbif.varnish.VarnishPurger;
 
 import java.net.URI;
 import java.util.Properties;
@@ -25,10 +26,12 @@ import org.slf4j.LoggerFactory;
 public class VarnishPurgeModule extends PrivateModule {
 
   public static final String API_CACHE_PURGE_URL_PROPERTY = "api.cache.purge.url";
+  public static final String PURGE_WINDOW_PROPERTY = "purging.windowMsecs";
 
   private static final Logger LOG = LoggerFactory.getLogger(VarnishPurgeModule.class);
   private static final int DEFAULT_HTTP_TIMEOUT_MSECS = 2000;
   private final int httpThreads;
+  private final int purgeWindowMsecs;
   private final URI apiRoot;
 
   public VarnishPurgeModule(Properties properties) {
@@ -42,6 +45,7 @@ public class VarnishPurgeModule extends PrivateModule {
         apiRoot = null;
       }
       httpThreads = Integer.valueOf(properties.getProperty("purging.threads", "100").trim());
+      purgeWindowMsecs = Integer.valueOf(properties.getProperty(PURGE_WINDOW_PROPERTY, "1000").trim());
     } catch (RuntimeException e) {
       LOG.error("Failed to initialize varnish purger because of invalid properties", e.getMessage());
       throw e;
@@ -55,14 +59,20 @@ public class VarnishPurgeModule extends PrivateModule {
       return;
     }
     if (httpThreads > 0) {
+      CloseableHttpClient client =
+        HttpUtil.newMultithreadedClient(DEFAULT_HTTP_TIMEOUT_MSECS, httpThreads, httpThreads);
       bind(URI.class).toInstance(apiRoot);
-      bind(CloseableHttpClient.class).toInstance(HttpUtil.newMultithreadedClient(
-        DEFAULT_HTTP_TIMEOUT_MSECS, httpThreads, httpThreads));
+      bind(CloseableHttpClient.class).toInstance(client);
+      bind(CoalescingVarnishPurger.class).toInstance(
+        new CoalescingVarnishPurger(new VarnishPurger(client, apiRoot), purgeWindowMsecs));
+      // exposed to be flushed and closed when the webapp shuts down
+      expose(CoalescingVarnishPurger.class);
       bind(VarnishPurgeListener.class).asEagerSingleton();
       bind(InstitutionService.class).to(InstitutionResource.class).in(Scopes.SINGLETON);
       bind(CollectionService.class).to(CollectionResource.class).in(Scopes.SINGLETON);
       bind(PersonService.class).to(PersonResource.class).in(Scopes.SINGLETON);
-      LOG.info("Varnish purging enabled with {} threads and API {}", httpThreads, apiRoot);
+      LOG.info("Varnish purging enabled with {} threads, a {} ms coalescing window and API {}", httpThreads,
+               purgeWindowMsecs, apiRoot);
     } else {
       LOG.warn("No varnish purging configured. Please set purging.threads greater than zero if you want it");
     }
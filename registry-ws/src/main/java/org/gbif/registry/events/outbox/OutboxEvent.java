@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.events.outbox;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.google.common.base.Objects;
+
+/**
+ * A registry change event as persisted in the event_outbox table.
+ * The entities of the event are kept as their JSON representation.
+ */
+public class OutboxEvent {
+
+  /**
+   * The kinds of events that can be persisted in the outbox.
+   */
+  public enum Type {
+    CREATE,
+    UPDATE,
+    DELETE,
+    CHANGED_COMPONENT,
+    CREATE_COLLECTION_ENTITY,
+    UPDATE_COLLECTION_ENTITY,
+    DELETE_COLLECTION_ENTITY
+  }
+
+  private Long key;
+  private Type eventType;
+  private String objectClass;
+  private String componentClass;
+  private UUID entityKey;
+  private String newObject;
+  private String oldObject;
+  private int attempts;
+  private String deliveredTo;
+  private Date created;
+
+  public Long getKey() {
+    return key;
+  }
+
+  public void setKey(Long key) {
+    this.key = key;
+  }
+
+  public Type getEventType() {
+    return eventType;
+  }
+
+  public void setEventType(Type eventType) {
+    this.eventType = eventType;
+  }
+
+  public String getObjectClass() {
+    return objectClass;
+  }
+
+  public void setObjectClass(String objectClass) {
+    this.objectClass = objectClass;
+  }
+
+  public String getComponentClass() {
+    return componentClass;
+  }
+
+  public void setComponentClass(String componentClass) {
+    this.componentClass = componentClass;
+  }
+
+  public UUID getEntityKey() {
+    return entityKey;
+  }
+
+  public void setEntityKey(UUID entityKey) {
+    this.entityKey = entityKey;
+  }
+
+  public String getNewObject() {
+    return newObject;
+  }
+
+  public void setNewObject(String newObject) {
+    this.newObject = newObject;
+  }
+
+  public String getOldObject() {
+    return oldObject;
+  }
+
+  public void setOldObject(String oldObject) {
+    this.oldObject = oldObject;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  /**
+   * @return the comma separated names of the subscribers that already handled the event, null if none did
+   */
+  public String getDeliveredTo() {
+    return deliveredTo;
+  }
+
+  public void setDeliveredTo(String deliveredTo) {
+    this.deliveredTo = deliveredTo;
+  }
+
+  public Date getCreated() {
+    return created;
+  }
+
+  public void setCreated(Date created) {
+    this.created = created;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("key", key)
+      .add("eventType", eventType)
+      .add("objectClass", objectClass)
+      .add("entityKey", entityKey)
+      .add("attempts", attempts)
+      .toString();
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.events.outbox;
+
+import org.gbif.registry.persistence.mapper.EventOutboxMapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.SubscriberExceptionContext;
+import com.google.common.eventbus.SubscriberExceptionHandler;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An event bus that writes registry change events into the event_outbox table instead of dispatching them directly.
+ * As events are posted from within the transaction changing the entity, the outbox entry is committed or rolled back
+ * together with the change itself.
+ * The {@link OutboxEventDispatcher} delivers the committed events to the registered subscribers.
+ * <p/>
+ * Events the outbox does not know about are dispatched synchronously as with a plain {@link EventBus}.
+ * <p/>
+ * Subscribers failing to handle a delivered outbox event are not retried in memory, instead the delivery fails so the
+ * event stays in the outbox and is delivered again, but only to the subscribers that failed. Subscribers are told
+ * apart by their class name, and a subscriber can still receive the same event twice if the node crashes during a
+ * delivery.
+ */
+@Singleton
+public class OutboxEventBus extends EventBus {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OutboxEventBus.class);
+
+  private final EventOutboxMapper mapper;
+  private final DeliveryExceptionHandler exceptionHandler;
+  private final OutboxEventCodec codec = new OutboxEventCodec();
+  // every subscriber is also registered on its own bus, so an outbox event can be delivered to a single subscriber
+  private final Map<String, EventBus> subscribers = Maps.newLinkedHashMap();
+
+  @Inject
+  public OutboxEventBus(EventOutboxMapper mapper, SubscriberExceptionHandler exceptionHandler) {
+    this(mapper, new DeliveryExceptionHandler(exceptionHandler));
+  }
+
+  private OutboxEventBus(EventOutboxMapper mapper, DeliveryExceptionHandler exceptionHandler) {
+    super(exceptionHandler);
+    this.mapper = mapper;
+    this.exceptionHandler = exceptionHandler;
+  }
+
+  @Override
+  public void post(Object event) {
+    OutboxEvent entry;
+    try {
+      entry = codec.encode(event);
+    } catch (IOException e) {
+      // fail the surrounding transaction rather than silently losing the event
+      throw new IllegalStateException("Cannot serialize event " + event.getClass().getSimpleName(), e);
+    }
+
+    if (entry == null) {
+      super.post(event);
+    } else {
+      LOG.debug("Storing {} in the event outbox", entry);
+      mapper.create(entry);
+    }
+  }
+
+  @Override
+  public void register(Object object) {
+    super.register(object);
+    synchronized (subscribers) {
+      String name = subscriberName(object);
+      EventBus bus = subscribers.get(name);
+      if (bus == null) {
+        bus = new EventBus(exceptionHandler);
+        subscribers.put(name, bus);
+      }
+      bus.register(object);
+    }
+  }
+
+  @Override
+  public void unregister(Object object) {
+    super.unregister(object);
+    synchronized (subscribers) {
+      EventBus bus = subscribers.get(subscriberName(object));
+      if (bus != null) {
+        bus.unregister(object);
+      }
+    }
+  }
+
+  /**
+   * Dispatches the event on the calling thread to all registered subscribers that did not handle it yet.
+   *
+   * @param deliveredTo the names of the subscribers that already handled the event, to which the subscribers handling
+   *                    it now are added
+   *
+   * @throws SubscriberFailedException if any of the subscribers failed to handle the event
+   */
+  void deliver(Object event, Set<String> deliveredTo) throws SubscriberFailedException {
+    Map<String, EventBus> pending;
+    synchronized (subscribers) {
+      pending = Maps.newLinkedHashMap(subscribers);
+    }
+    pending.keySet().removeAll(deliveredTo);
+
+    List<Throwable> failures = Lists.newArrayList();
+    exceptionHandler.delivering.set(failures);
+    try {
+      for (Map.Entry<String, EventBus> subscriber : pending.entrySet()) {
+        int failed = failures.size();
+        subscriber.getValue().post(event);
+        if (failures.size() == failed) {
+          deliveredTo.add(subscriber.getKey());
+        }
+      }
+    } finally {
+      exceptionHandler.delivering.remove();
+    }
+
+    if (!failures.isEmpty()) {
+      SubscriberFailedException e = new SubscriberFailedException(
+        failures.size() + " subscribers failed to handle " + event.getClass().getSimpleName(), failures.get(0));
+      for (Throwable failure : failures.subList(1, failures.size())) {
+        e.addSuppressed(failure);
+      }
+      throw e;
+    }
+  }
+
+  OutboxEventCodec getCodec() {
+    return codec;
+  }
+
+  private static String subscriberName(Object subscriber) {
+    return subscriber.getClass().getName();
+  }
+
+  /**
+   * Collects the subscriber failures of the outbox delivery running on the current thread, other failures are passed
+   * on to the configured handler.
+   */
+  private static class DeliveryExceptionHandler implements SubscriberExceptionHandler {
+
+    private final SubscriberExceptionHandler delegate;
+    private final ThreadLocal<List<Throwable>> delivering = new ThreadLocal<List<Throwable>>();
+
+    private DeliveryExceptionHandler(SubscriberExceptionHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void handleException(Throwable exception, SubscriberExceptionContext context) {
+      List<Throwable> failures = delivering.get();
+      if (failures == null) {
+        delegate.handleException(exception, context);
+      } else {
+        LOG.warn("Subscriber {} failed to handle outbox event {}", context.getSubscriber().getClass().getSimpleName(),
+                 context.getEvent().getClass().getSimpleName(), exception);
+        failures.add(exception);
+      }
+    }
+  }
+
+  /**
+   * Thrown when subscribers failed to handle a delivered outbox event.
+   */
+  static class SubscriberFailedException extends Exception {
+
+    SubscriberFailedException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+}
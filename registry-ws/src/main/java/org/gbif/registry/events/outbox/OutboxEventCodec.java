@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.events.outbox;
+
+import org.gbif.api.model.collections.CollectionEntity;
+import org.gbif.api.model.registry.NetworkEntity;
+import org.gbif.registry.events.ChangedComponentEvent;
+import org.gbif.registry.events.CreateEvent;
+import org.gbif.registry.events.DeleteEvent;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.events.collections.CreateCollectionEntityEvent;
+import org.gbif.registry.events.collections.DeleteCollectionEntityEvent;
+import org.gbif.registry.events.collections.UpdateCollectionEntityEvent;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Converts the registry change events into {@link OutboxEvent} rows and back.
+ * Entities are serialized with Jackson, the same way they are exposed through the webservices.
+ */
+public class OutboxEventCodec {
+
+  private final ObjectMapper objectMapper =
+    new ObjectMapper().configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  /**
+   * @return the outbox representation of the event or null if the event is not supported by the outbox
+   */
+  @Nullable
+  public OutboxEvent encode(Object event) throws IOException {
+    OutboxEvent e = new OutboxEvent();
+    if (event instanceof CreateEvent) {
+      CreateEvent<?> ce = (CreateEvent<?>) event;
+      e.setEventType(OutboxEvent.Type.CREATE);
+      e.setObjectClass(ce.getObjectClass().getName());
+      e.setEntityKey(ce.getNewObject().getKey());
+      e.setNewObject(toJson(ce.getNewObject()));
+
+    } else if (event instanceof UpdateEvent) {
+      UpdateEvent<?> ue = (UpdateEvent<?>) event;
+      e.setEventType(OutboxEvent.Type.UPDATE);
+      e.setObjectClass(ue.getObjectClass().getName());
+      e.setEntityKey(ue.getOldObject().getKey());
+      e.setNewObject(toJson(ue.getNewObject()));
+      e.setOldObject(toJson(ue.getOldObject()));
+
+    } else if (event instanceof DeleteEvent) {
+      DeleteEvent<?> de = (DeleteEvent<?>) event;
+      e.setEventType(OutboxEvent.Type.DELETE);
+      e.setObjectClass(de.getObjectClass().getName());
+      e.setEntityKey(de.getOldObject().getKey());
+      e.setOldObject(toJson(de.getOldObject()));
+
+    } else if (event instanceof ChangedComponentEvent) {
+      ChangedComponentEvent cce = (ChangedComponentEvent) event;
+      e.setEventType(OutboxEvent.Type.CHANGED_COMPONENT);
+      e.setObjectClass(cce.getTargetClass().getName());
+      e.setComponentClass(cce.getComponentClass().getName());
+      e.setEntityKey(cce.getTargetEntityKey());
+
+    } else if (event instanceof CreateCollectionEntityEvent) {
+      CreateCollectionEntityEvent<?> ce = (CreateCollectionEntityEvent<?>) event;
+      e.setEventType(OutboxEvent.Type.CREATE_COLLECTION_ENTITY);
+      e.setObjectClass(ce.getObjectClass().getName());
+      e.setEntityKey(ce.getNewObject().getKey());
+      e.setNewObject(toJson(ce.getNewObject()));
+
+    } else if (event instanceof UpdateCollectionEntityEvent) {
+      UpdateCollectionEntityEvent<?> ue = (UpdateCollectionEntityEvent<?>) event;
+      e.setEventType(OutboxEvent.Type.UPDATE_COLLECTION_ENTITY);
+      e.setObjectClass(ue.getObjectClass().getName());
+      e.setEntityKey(ue.getOldObject().getKey());
+      e.setNewObject(toJson(ue.getNewObject()));
+      e.setOldObject(toJson(ue.getOldObject()));
+
+    } else if (event instanceof DeleteCollectionEntityEvent) {
+      DeleteCollectionEntityEvent<?> de = (DeleteCollectionEntityEvent<?>) event;
+      e.setEventType(OutboxEvent.Type.DELETE_COLLECTION_ENTITY);
+      e.setObjectClass(de.getObjectClass().getName());
+      e.setEntityKey(de.getOldObject().getKey());
+      e.setOldObject(toJson(de.getOldObject()));
+
+    } else {
+      return null;
+    }
+    return e;
+  }
+
+  /**
+   * Rebuilds the original event from its outbox representation.
+   */
+  @SuppressWarnings("unchecked")
+  public Object decode(OutboxEvent e) throws IOException, ClassNotFoundException {
+    Class cl = Class.forName(e.getObjectClass());
+    switch (e.getEventType()) {
+      case CREATE:
+        return CreateEvent.newInstance((NetworkEntity) fromJson(e.getNewObject(), cl), cl);
+      case UPDATE:
+        return UpdateEvent.newInstance((NetworkEntity) fromJson(e.getNewObject(), cl),
+                                       (NetworkEntity) fromJson(e.getOldObject(), cl), cl);
+      case DELETE:
+        return DeleteEvent.newInstance((NetworkEntity) fromJson(e.getOldObject(), cl), cl);
+      case CHANGED_COMPONENT:
+        return ChangedComponentEvent.newInstance(e.getEntityKey(), cl, Class.forName(e.getComponentClass()));
+      case CREATE_COLLECTION_ENTITY:
+        return CreateCollectionEntityEvent.newInstance((CollectionEntity) fromJson(e.getNewObject(), cl), cl);
+      case UPDATE_COLLECTION_ENTITY:
+        return UpdateCollectionEntityEvent.newInstance((CollectionEntity) fromJson(e.getNewObject(), cl),
+                                                       (CollectionEntity) fromJson(e.getOldObject(), cl), cl);
+      case DELETE_COLLECTION_ENTITY:
+        return DeleteCollectionEntityEvent.newInstance((CollectionEntity) fromJson(e.getOldObject(), cl), cl);
+      default:
+        throw new IllegalArgumentException("Unsupported outbox event type " + e.getEventType());
+    }
+  }
+
+  private String toJson(Object entity) throws IOException {
+    return entity == null ? null : objectMapper.writeValueAsString(entity);
+  }
+
+  private Object fromJson(String json, Class<?> cl) throws IOException {
+    return json == null ? null : objectMapper.readValue(json, cl);
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.events.outbox;
+
+import org.gbif.registry.persistence.mapper.EventOutboxMapper;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.gbif.registry.events.EventModule.EVENT_THREADS_PROPERTY;
+import static org.gbif.registry.events.EventModule.OUTBOX_BATCH_SIZE_PROPERTY;
+import static org.gbif.registry.events.EventModule.OUTBOX_MAX_ATTEMPTS_PROPERTY;
+import static org.gbif.registry.events.EventModule.OUTBOX_POLL_INTERVAL_PROPERTY;
+import static org.gbif.registry.events.EventModule.OUTBOX_RETENTION_DAYS_PROPERTY;
+
+/**
+ * Polls the event outbox for committed events and delivers them to the event bus subscribers using a bounded pool of
+ * worker threads.
+ * <p/>
+ * Events are only claimed once the earlier events of their entity are delivered, and are partitioned over the workers
+ * by their entity key, so all events of the same entity are delivered in the order they were written. The next batch
+ * is only claimed once the current one has been handled, so the workers are never flooded.
+ * Events are claimed with a lease, so an event claimed by a node that crashed is delivered again once the lease expired.
+ * An event is only marked delivered once all subscribers handled it, otherwise it is delivered again with a backoff to
+ * the subscribers that failed. Once the maximum number of attempts is reached the event is dead lettered: it stays in
+ * the outbox for inspection, but no longer counts as pending nor holds back the later events of its entity.
+ */
+@Singleton
+public class OutboxEventDispatcher implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OutboxEventDispatcher.class);
+  // the time a claimed event is reserved for this node
+  private static final int LEASE_SECONDS = 300;
+  private static final int MAX_ERROR_LENGTH = 1000;
+  private static final Joiner SUBSCRIBER_JOINER = Joiner.on(',');
+  private static final Splitter SUBSCRIBER_SPLITTER = Splitter.on(',').omitEmptyStrings();
+
+  private final EventOutboxMapper mapper;
+  private final OutboxEventBus eventBus;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final int retentionDays;
+  private final ExecutorService[] workers;
+  private final ScheduledExecutorService scheduler =
+    Executors.newScheduledThreadPool(2, new NamedThreadFactory("event-outbox-poller"));
+
+  private final Timer deliveryLag = Metrics.newTimer(OutboxEventDispatcher.class, "delivery-lag",
+                                                     TimeUnit.MILLISECONDS, TimeUnit.SECONDS);
+  private final Counter delivered = Metrics.newCounter(OutboxEventDispatcher.class, "delivered");
+  private final Counter failed = Metrics.newCounter(OutboxEventDispatcher.class, "failed");
+  private final Counter deadLettered = Metrics.newCounter(OutboxEventDispatcher.class, "dead-lettered");
+  private volatile int pending;
+
+  @Inject
+  public OutboxEventDispatcher(EventOutboxMapper mapper, OutboxEventBus eventBus,
+                               @Named(EVENT_THREADS_PROPERTY) int threads,
+                               @Named(OUTBOX_POLL_INTERVAL_PROPERTY) int pollIntervalMsecs,
+                               @Named(OUTBOX_BATCH_SIZE_PROPERTY) int batchSize,
+                               @Named(OUTBOX_MAX_ATTEMPTS_PROPERTY) int maxAttempts,
+                               @Named(OUTBOX_RETENTION_DAYS_PROPERTY) int retentionDays) {
+    Preconditions.checkArgument(threads > 0, "event dispatching needs at least one thread");
+    Preconditions.checkArgument(batchSize > 0, "batch size needs to be positive");
+    this.mapper = mapper;
+    this.eventBus = eventBus;
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.retentionDays = retentionDays;
+
+    workers = new ExecutorService[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = Executors.newSingleThreadExecutor(new NamedThreadFactory("event-outbox-worker-" + i));
+    }
+
+    Metrics.newGauge(OutboxEventDispatcher.class, "pending", new Gauge<Integer>() {
+      @Override
+      public Integer value() {
+        return pending;
+      }
+    });
+
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          poll();
+        } catch (Exception e) {
+          LOG.error("Failed to poll the event outbox", e);
+        }
+      }
+    }, pollIntervalMsecs, pollIntervalMsecs, TimeUnit.MILLISECONDS);
+
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          int deleted = mapper.deleteDelivered(OutboxEventDispatcher.this.retentionDays);
+          LOG.info("Removed {} delivered events from the event outbox", deleted);
+        } catch (Exception e) {
+          LOG.error("Failed to clean the event outbox", e);
+        }
+      }
+    }, 1, 24, TimeUnit.HOURS);
+    LOG.info("Event outbox dispatching enabled with {} threads, polling every {} ms", threads, pollIntervalMsecs);
+  }
+
+  /**
+   * Claims and delivers pending events until the outbox is drained.
+   */
+  void poll() throws Exception {
+    int abandoned = mapper.deadLetterAbandoned(maxAttempts);
+    if (abandoned > 0) {
+      deadLettered.inc(abandoned);
+      LOG.error("Dead lettered {} outbox events whose last delivery attempt was abandoned", abandoned);
+    }
+
+    int claimed;
+    do {
+      UUID claimToken = UUID.randomUUID();
+      claimed = mapper.claim(claimToken, batchSize, LEASE_SECONDS, maxAttempts);
+      if (claimed > 0) {
+        deliver(mapper.listClaimed(claimToken));
+      }
+      pending = mapper.countPending();
+    } while (claimed >= batchSize);
+  }
+
+  private void deliver(List<OutboxEvent> events) throws Exception {
+    List<Future<?>> futures = Lists.newArrayListWithCapacity(events.size());
+    for (final OutboxEvent e : events) {
+      int partition = (e.getEntityKey().hashCode() & Integer.MAX_VALUE) % workers.length;
+      futures.add(workers[partition].submit(new Runnable() {
+        @Override
+        public void run() {
+          deliver(e);
+        }
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+  }
+
+  private void deliver(OutboxEvent e) {
+    Set<String> deliveredTo = Sets.newLinkedHashSet();
+    if (e.getDeliveredTo() != null) {
+      Iterables.addAll(deliveredTo, SUBSCRIBER_SPLITTER.split(e.getDeliveredTo()));
+    }
+    try {
+      eventBus.deliver(eventBus.getCodec().decode(e), deliveredTo);
+      mapper.markDelivered(e.getKey());
+      delivered.inc();
+      deliveryLag.update(System.currentTimeMillis() - e.getCreated().getTime(), TimeUnit.MILLISECONDS);
+    } catch (Exception ex) {
+      failed.inc();
+      String error = Throwables.getStackTraceAsString(ex);
+      mapper.markFailed(e.getKey(), error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH)),
+                        deliveredTo.isEmpty() ? null : SUBSCRIBER_JOINER.join(deliveredTo), maxAttempts);
+      if (e.getAttempts() >= maxAttempts) {
+        deadLettered.inc();
+        LOG.error("Dead lettered outbox event {} after {} attempts", e, e.getAttempts(), ex);
+      } else {
+        LOG.warn("Failed to deliver outbox event {} on attempt {}", e, e.getAttempts(), ex);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    LOG.info("Shutting down event outbox dispatching");
+    scheduler.shutdown();
+    for (ExecutorService worker : workers) {
+      worker.shutdown();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package org.gbif.registry.oaipmh;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * A resumption token pointing to the last dataset of a page by its (created, key) position, together with the
+ * arguments of the original request.
+ * <p/>
+ * Unlike the offset based tokens of XOAI, resuming from such a token is an index range scan regardless of how many
+ * pages have been harvested before.
+ * The created date keeps its sub millisecond precision, as the database stores microseconds and the position must
+ * match exactly.
+ */
+public class KeysetResumptionToken {
+
+  // distinguishes keyset tokens from the offset tokens issued by XOAI
+  private static final String PREFIX = "k";
+  private static final char SEPARATOR = '|';
+  private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+  private final Timestamp created;
+  private final UUID key;
+  private final long cursor;
+  private final String metadataPrefix;
+  private final String set;
+  private final Date from;
+  private final Date until;
+
+  public KeysetResumptionToken(Date created, UUID key, long cursor, String metadataPrefix, @Nullable String set,
+                               @Nullable Date from, @Nullable Date until) {
+    this.created = toTimestamp(Preconditions.checkNotNull(created, "created is required"));
+    this.key = Preconditions.checkNotNull(key, "key is required");
+    this.cursor = cursor;
+    this.metadataPrefix = Preconditions.checkNotNull(metadataPrefix, "metadataPrefix is required");
+    this.set = set;
+    this.from = from;
+    this.until = until;
+  }
+
+  /**
+   * @return true if the token was issued as a keyset token, it might still be malformed though
+   */
+  public static boolean isKeysetToken(@Nullable String token) {
+    return token != null && token.startsWith(PREFIX);
+  }
+
+  /**
+   * Parses a token previously created by {@link #format()}.
+   *
+   * @throws IllegalArgumentException if the token is malformed
+   */
+  public static KeysetResumptionToken parse(String token) {
+    Preconditions.checkArgument(isKeysetToken(token), "Not a keyset resumption token");
+    List<String> parts;
+    try {
+      String decoded = new String(ENCODING.decode(token.substring(PREFIX.length())), StandardCharsets.UTF_8);
+      parts = Splitter.on(SEPARATOR).splitToList(decoded);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Resumption token is not encoded correctly", e);
+    }
+    Preconditions.checkArgument(parts.size() == 8, "Resumption token has an unexpected number of fields");
+
+    try {
+      Timestamp created = new Timestamp(Long.parseLong(parts.get(0)));
+      created.setNanos(Integer.parseInt(parts.get(1)));
+      return new KeysetResumptionToken(created, UUID.fromString(parts.get(2)), Long.parseLong(parts.get(3)),
+                                       Strings.emptyToNull(parts.get(4)), Strings.emptyToNull(parts.get(5)),
+                                       toDate(parts.get(6)), toDate(parts.get(7)));
+    } catch (NullPointerException e) {
+      throw new IllegalArgumentException("Resumption token is incomplete", e);
+    }
+  }
+
+  /**
+   * @return the opaque token handed out to the harvester
+   */
+  public String format() {
+    String value = Joiner.on(SEPARATOR).join(created.getTime(), created.getNanos(), key, cursor, metadataPrefix,
+                                             Strings.nullToEmpty(set), fromDate(from), fromDate(until));
+    return PREFIX + ENCODING.encode(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Created date of the last dataset returned, including the nanoseconds.
+   */
+  public Timestamp getCreated() {
+    return created;
+  }
+
+  /**
+   * Key of the last dataset returned.
+   */
+  public UUID getKey() {
+    return key;
+  }
+
+  /**
+   * Number of records returned in all previous pages.
+   */
+  public long getCursor() {
+    return cursor;
+  }
+
+  public String getMetadataPrefix() {
+    return metadataPrefix;
+  }
+
+  @Nullable
+  public String getSet() {
+    return set;
+  }
+
+  @Nullable
+  public Date getFrom() {
+    return from;
+  }
+
+  @Nullable
+  public Date getUntil() {
+    return until;
+  }
+
+  private static Timestamp toTimestamp(Date date) {
+    // DatasetMapper.listWithFilterAfter reads created as java.sql.Timestamp, a plain Date only has milliseconds
+    return date instanceof Timestamp ? (Timestamp) date : new Timestamp(date.getTime());
+  }
+
+  private static String fromDate(@Nullable Date date) {
+    return date == null ? "" : String.valueOf(date.getTime());
+  }
+
+  @Nullable
+  private static Date toDate(String value) {
+    return value.isEmpty() ? null : new Date(Long.parseLong(value));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    KeysetResumptionToken that = (KeysetResumptionToken) o;
+    return cursor == that.cursor
+           && Objects.equal(created, that.created)
+           && Objects.equal(key, that.key)
+           && Objects.equal(metadataPrefix, that.metadataPrefix)
+           && Objects.equal(set, that.set)
+           && Objects.equal(from, that.from)
+           && Objects.equal(until, that.until);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(created, key, cursor, metadataPrefix, set, from, until);
+  }
+}
@@ -14,8 +14,10 @@ package org.gbif.registry.oaipmh;
 
 import org.gbif.api.exception.ServiceUnavailableException;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.Date;
 import javax.annotation.Nullable;
@@ -23,6 +25,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.StreamingOutput;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
@@ -35,11 +38,11 @@ import com.lyncode.xml.exceptions.XmlWriteException;
 import org.dspace.xoai.dataprovider.DataProvider;
 import org.dspace.xoai.dataprovider.builder.OAIRequestParametersBuilder;
 import org.dspace.xoai.dataprovider.exceptions.BadArgumentException;
+import org.dspace.xoai.dataprovider.exceptions.BadResumptionToken;
 import org.dspace.xoai.dataprovider.handlers.ErrorHandler;
 import org.dspace.xoai.dataprovider.model.Context;
 import org.dspace.xoai.dataprovider.model.MetadataFormat;
 import org.dspace.xoai.dataprovider.parameters.OAIRequest;
-import org.dspace.xoai.dataprovider.repository.ItemRepository;
 import org.dspace.xoai.dataprovider.repository.Repository;
 import org.dspace.xoai.dataprovider.repository.RepositoryConfiguration;
 import org.dspace.xoai.dataprovider.repository.SetRepository;
@@ -50,6 +53,8 @@ import org.dspace.xoai.services.impl.SimpleResumptionTokenFormat;
 import org.dspace.xoai.services.impl.UTCDateProvider;
 import org.dspace.xoai.xml.XmlWritable;
 import org.dspace.xoai.xml.XmlWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static org.dspace.xoai.dataprovider.parameters.OAIRequest.Parameter.Identifier;
 import static org.dspace.xoai.dataprovider.parameters.OAIRequest.Parameter.MetadataPrefix;
@@ -58,38 +63,41 @@ import static org.dspace.xoai.dataprovider.parameters.OAIRequest.Parameter.Verb;
 
 /**
  * An OAI-PMH endpoint, using the XOAI library.
+ * ListRecords and ListIdentifiers are served by the {@link StreamingListHandler} using keyset resumption tokens, all
+ * other verbs and the offset resumption tokens issued before are handled by XOAI.
+ * All responses are streamed to the client.
  */
 @Path("oai-pmh/registry")
 @Singleton
 public class OaipmhEndpoint {
 
+  private static final Logger LOG = LoggerFactory.getLogger(OaipmhEndpoint.class);
+  private static final byte[] XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n".getBytes(StandardCharsets.UTF_8);
+
   private static final TransformerFactory factory = TransformerFactory.newInstance();
 
   private static final DateProvider dateProvider = new UTCDateProvider();
   private static final ErrorHandler errorsHandler = new ErrorHandler();
 
+  /**
+   * Compiles the XSLT once and returns a transformer that is safe to be used by concurrent requests.
+   */
   public Transformer xsltTransformer(String xsltFile) {
-    try {
-      /*
-       * TODO: "An object of this class [Transformer] may not be used in multiple threads running concurrently!"
-       * Instead, XOAI should accept an immutable Templates object, and call .newTransformer() to get a Transformer.
-       * See https://xalan.apache.org/xalan-j/usagepatterns.html#multithreading
-       */
-      InputStream stream = this.getClass().getClassLoader().getResourceAsStream("org/gbif/registry/oaipmh/"+xsltFile);
-      return factory.newTransformer(new StreamSource(stream));
-    } catch (TransformerConfigurationException e) {
+    try (InputStream stream = this.getClass().getClassLoader().getResourceAsStream("org/gbif/registry/oaipmh/"+xsltFile)) {
+      return new TemplatesTransformer(factory.newTemplates(new StreamSource(stream)));
+    } catch (TransformerConfigurationException | IOException e) {
       throw new RuntimeException("Unable to read XSLT transform "+xsltFile, e);
     }
   }
 
   private final MetadataFormat OAIDC_METADATA_FORMAT = new MetadataFormat()
-          .withPrefix("oai_dc")
+          .withPrefix(OaipmhItemRepository.METADATA_PREFIX_OAI_DC)
           .withNamespace("http://www.openarchives.org/OAI/2.0/oai_dc/")
           .withSchemaLocation("http://www.openarchives.org/OAI/2.0/oai_dc.xsd")
           .withTransformer(xsltTransformer("dc.xslt"));
 
   private final MetadataFormat EML_METADATA_FORMAT = new MetadataFormat()
-          .withPrefix("eml")
+          .withPrefix(OaipmhItemRepository.METADATA_PREFIX_EML)
           .withNamespace("eml://ecoinformatics.org/eml-2.1.1")
           .withSchemaLocation("http://rs.gbif.org/schema/eml-gbif-profile/1.0.2/eml.xsd")
           .withTransformer(xsltTransformer("eml.xslt"));
@@ -99,11 +107,14 @@ public class OaipmhEndpoint {
           .withMetadataFormat(EML_METADATA_FORMAT);
 
   private Repository repository;
+  private OaipmhItemRepository itemRepository;
   private DataProvider dataProvider;
+  private StreamingListHandler streamingListHandler;
 
   @Inject
-  public OaipmhEndpoint(RepositoryConfiguration repositoryConfiguration, ItemRepository itemRepository, SetRepository setRepository) {
+  public OaipmhEndpoint(RepositoryConfiguration repositoryConfiguration, OaipmhItemRepository itemRepository, SetRepository setRepository) {
 
+    this.itemRepository = itemRepository;
     this.repository = new Repository()
             .withItemRepository(itemRepository)
             .withSetRepository(setRepository)
@@ -111,11 +122,12 @@ public class OaipmhEndpoint {
             .withConfiguration(repositoryConfiguration);
 
     this.dataProvider = new DataProvider(context, repository);
+    this.streamingListHandler = new StreamingListHandler(repositoryConfiguration, itemRepository, setRepository);
   }
 
   @GET
   @Produces("application/xml;charset=UTF-8")
-  public InputStream oaipmh(
+  public StreamingOutput oaipmh(
           @QueryParam("verb") String verb,
           @Nullable @QueryParam("identifier") String identifier,
           @Nullable @QueryParam("metadataPrefix") String metadataPrefix,
@@ -151,17 +163,41 @@ public class OaipmhEndpoint {
             .withSet(set)
             .withResumptionToken(resumptionToken);
 
+    OAIPMH streamed = streamingListHandler.handle(verb, metadataPrefix, set, fromDate, untilDate, resumptionToken);
+    if (streamed != null) {
+      return write(streamed);
+    }
     return handleOAIRequest(reqBuilder.build());
   }
 
-  private InputStream handleOAIRequest(OAIRequest request) {
+  private StreamingOutput handleOAIRequest(OAIRequest request) {
+    // items are rendered in the requested format only
+    itemRepository.setRequestedMetadataPrefix(requestedMetadataPrefix(request));
     try {
-      OAIPMH oaipmh = dataProvider.handle(request);
-      return new ByteArrayInputStream(write(oaipmh).getBytes("UTF-8"));
+      return write(dataProvider.handle(request));
 
     } catch (Exception e) {
       throw new ServiceUnavailableException("OAI Failed to serialize dataset", e);
+    } finally {
+      itemRepository.setRequestedMetadataPrefix(null);
+    }
+  }
+
+  /**
+   * @return the metadata prefix of the request, which is part of the resumption token for resumed lists
+   */
+  @Nullable
+  private String requestedMetadataPrefix(OAIRequest request) {
+    String token = request.get(ResumptionToken);
+    if (token != null) {
+      try {
+        return repository.getResumptionTokenFormatter().parse(token).getMetadataPrefix();
+      } catch (BadResumptionToken e) {
+        // XOAI will report the bad token
+        return null;
+      }
     }
+    return request.get(MetadataPrefix);
   }
 
   /**
@@ -171,7 +207,7 @@ public class OaipmhEndpoint {
    * @param errorMessage textual message to report
    * @return
    */
-  private InputStream handleOAIRequestBadArgument(OAIRequest requestParameters, String errorMessage) {
+  private StreamingOutput handleOAIRequestBadArgument(OAIRequest requestParameters, String errorMessage) {
 
     Request request = new Request(repository.getConfiguration().getBaseUrl())
             .withVerbType(requestParameters.get(Verb))
@@ -179,27 +215,32 @@ public class OaipmhEndpoint {
             .withIdentifier(requestParameters.get(Identifier))
             .withMetadataPrefix(requestParameters.get(MetadataPrefix));
 
-    try {
-      OAIPMH errorResponse = new OAIPMH()
-              .withRequest(request)
-              .withResponseDate(dateProvider.now())
-              .withError(errorsHandler.handle(new BadArgumentException(errorMessage)));
-      return new ByteArrayInputStream(write(errorResponse).getBytes("UTF-8"));
-
-    } catch (Exception e) {
-      throw new ServiceUnavailableException("OAI Failed to serialize dataset", e);
-    }
+    OAIPMH errorResponse = new OAIPMH()
+            .withRequest(request)
+            .withResponseDate(dateProvider.now())
+            .withError(errorsHandler.handle(new BadArgumentException(errorMessage)));
+    return write(errorResponse);
   }
 
-  protected String write(final XmlWritable handle) throws XMLStreamException, XmlWriteException {
-    return new StringBuilder()
-            .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
-            .append(XmlWriter.toString(new XmlWritable() {
-              @Override
-              public void write(XmlWriter writer) throws XmlWriteException {
-                writer.write(handle);
-              }
-            }))
-            .toString();
+  /**
+   * Writes the response directly to the servlet output once Jersey asks for it.
+   * Failures at that point cannot be turned into an error response anymore, as parts of the document have been sent.
+   */
+  protected StreamingOutput write(final XmlWritable handle) {
+    return new StreamingOutput() {
+      @Override
+      public void write(OutputStream output) throws IOException {
+        output.write(XML_HEADER);
+        try {
+          XmlWriter writer = new XmlWriter(output);
+          writer.write(handle);
+          writer.flush();
+          writer.close();
+        } catch (XMLStreamException | XmlWriteException e) {
+          LOG.error("OAI-PMH response could not be written", e);
+          throw new IOException("OAI Failed to serialize dataset", e);
+        }
+      }
+    };
   }
 }
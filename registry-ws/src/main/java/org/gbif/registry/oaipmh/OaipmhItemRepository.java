@@ -16,20 +16,26 @@ import org.gbif.registry.metrics.OccurrenceMetricsClient;
 import org.gbif.registry.persistence.mapper.DatasetMapper;
 import org.gbif.registry.persistence.mapper.OrganizationMapper;
 import org.gbif.registry.ws.resources.DatasetResource;
+import org.gbif.registry.ws.resources.RenderedMetadataCache;
+import org.gbif.registry.ws.util.PrerenderedResponse;
 import org.gbif.ws.util.ExtraMediaTypes;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import javax.inject.Singleton;
 import javax.validation.constraints.NotNull;
+import javax.ws.rs.core.MediaType;
 
 import com.beust.jcommander.internal.Maps;
+import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -58,6 +64,11 @@ public class OaipmhItemRepository implements ItemRepository {
 
   private static final Logger LOG = LoggerFactory.getLogger(OaipmhItemRepository.class);
 
+  public static final String METADATA_PREFIX_OAI_DC = "oai_dc";
+  public static final String METADATA_PREFIX_EML = "eml";
+
+  private static final ThreadLocal<String> REQUESTED_METADATA_PREFIX = new ThreadLocal<>();
+
   private final LoadingCache<UUID, Organization> ORGANIZATION_CACHE =
           CacheBuilder.newBuilder()
                   .maximumSize(1000)
@@ -72,10 +83,13 @@ public class OaipmhItemRepository implements ItemRepository {
 
   private final EMLWriter emlWriter;
   private final DublinCoreWriter dublinCoreWriter;
+  private final RenderedMetadataCache renderedMetadataCache;
 
   @Inject
-  public OaipmhItemRepository(DatasetResource datasetResource, DatasetMapper datasetMapper, OrganizationMapper organizationMapper, OccurrenceMetricsClient occurenceMetricsClient ) {
+  public OaipmhItemRepository(DatasetResource datasetResource, DatasetMapper datasetMapper, OrganizationMapper organizationMapper, OccurrenceMetricsClient occurenceMetricsClient,
+                              RenderedMetadataCache renderedMetadataCache) {
     this.datasetResource = datasetResource;
+    this.renderedMetadataCache = renderedMetadataCache;
     this.datasetMapper = datasetMapper;
     this.organizationMapper = organizationMapper;
     this.occurenceMetricsClient = occurenceMetricsClient;
@@ -327,21 +341,65 @@ public class OaipmhItemRepository implements ItemRepository {
   }
 
   /**
-   * Build a {@OaipmhItem} instance from a {@link Dataset} and the {@link Set} it belongs to.
+   * Sets the metadata format requested from XOAI on the current thread.
+   * The XOAI library doesn't provide us with the metadata type (EML / OAI DC) when asking for items, see
+   * https://github.com/DSpace/xoai/issues/31, so the endpoint announces it before handing the request over to XOAI.
+   *
+   * @param metadataPrefix the requested prefix or null to clear it once the request is handled
+   */
+  public void setRequestedMetadataPrefix(@Nullable String metadataPrefix) {
+    if (metadataPrefix == null) {
+      REQUESTED_METADATA_PREFIX.remove();
+    } else {
+      REQUESTED_METADATA_PREFIX.set(metadataPrefix);
+    }
+  }
+
+  /**
+   * Build a {@OaipmhItem} instance from an augmented {@link Dataset} with the metadata in the format requested from
+   * XOAI, which is Dublin Core if none was announced.
    *
    * @param dataset
    * @return
    * @throws IOException
    */
   private OaipmhItem toOaipmhItem(Dataset dataset) throws IOException {
+    String metadataPrefix = REQUESTED_METADATA_PREFIX.get();
+    return render(dataset, metadataPrefix == null ? METADATA_PREFIX_OAI_DC : metadataPrefix);
+  }
 
-    Organization organization = null;
-    try {
-      organization = ORGANIZATION_CACHE.get(dataset.getPublishingOrganizationKey());
-    } catch (ExecutionException e) {
-      LOG.error("Error while loading Organization from cache fro dataset {}", dataset, e);
-    }
-    List<Set> sets = getSets(organization, dataset);
+  /**
+   * Builds the {@link OaipmhItem} of a listed dataset with the metadata in the requested format.
+   *
+   * @param dataset dataset as returned by {@link #listDatasetsAfter}, it is augmented with its metadata document here
+   * @param metadataPrefix {@link #METADATA_PREFIX_OAI_DC} or {@link #METADATA_PREFIX_EML}
+   */
+  public OaipmhItem toOaipmhItem(Dataset dataset, String metadataPrefix) throws IOException {
+    return render(datasetResource.augmentWithMetadata(dataset), metadataPrefix);
+  }
+
+  /**
+   * Renders the metadata of an augmented dataset in the requested format only, or takes it from the cache.
+   */
+  private OaipmhItem render(Dataset dataset, String metadataPrefix) throws IOException {
+    Organization organization = getOrganization(dataset);
+
+    boolean eml = METADATA_PREFIX_EML.equals(metadataPrefix);
+    PrerenderedResponse xml = renderedMetadataCache.get(dataset.getKey(),
+      eml ? RenderedMetadataCache.Format.OAI_EML : RenderedMetadataCache.Format.OAI_DC, () -> {
+        StringWriter writer = new StringWriter();
+        if (eml) {
+          emlWriter.writeTo(dataset, writer);
+        } else {
+          writeDublinCore(organization, dataset, writer);
+        }
+        return PrerenderedResponse.of(writer.toString().getBytes(Charsets.UTF_8), MediaType.APPLICATION_XML_TYPE,
+                                      dataset.getModified());
+      });
+    return new OaipmhItem(dataset, xml.asString(), getSets(organization, dataset));
+  }
+
+  private void writeDublinCore(Organization organization, Dataset dataset, Writer xml) throws IOException {
     Map<String, Object> additionalProperties = Maps.newHashMap();
     additionalProperties.put(DublinCoreWriter.ADDITIONAL_PROPERTY_DC_FORMAT, ExtraMediaTypes.APPLICATION_DWCA);
 
@@ -358,36 +416,23 @@ public class OaipmhItemRepository implements ItemRepository {
     } catch (ClientHandlerException ex) {
       LOG.warn("Unable to get occurrence count from cubeService for dataset {}. Omitting count.", dataset.getKey(), ex);
     }
-
-    /**
-     * The XOAI library doesn't provide us with the metadata type (EML / OAI DC), so both must be produced.
-     * An XSLT transform pulls out the one that's required.
-     * This is ugly, so see https://github.com/DSpace/xoai/issues/31
-     */
-    StringWriter xml = new StringWriter();
-
-    xml.write("<root>");
-
-    xml.write("<oaidc>\n");
     dublinCoreWriter.writeTo(organization, dataset, additionalProperties, xml);
-    xml.write("</oaidc>\n");
-
-    xml.write("<eml>\n");
-    emlWriter.writeTo(dataset, xml);
-    xml.write("</eml>\n");
+  }
 
-    xml.write("</root>\n");
-    return new OaipmhItem(dataset, xml.toString(), sets);
+  /**
+   * Builds the {@link OaipmhItem} of a dataset without any metadata content, as used for ListIdentifiers.
+   */
+  public OaipmhItem toOaipmhItemIdentifier(Dataset dataset) {
+    return new OaipmhItem(dataset, getSets(getOrganization(dataset), dataset));
   }
 
-  private OaipmhItem toOaipmhItemIdentifier(Dataset dataset) {
-    Organization organization = null;
+  private Organization getOrganization(Dataset dataset) {
     try {
-      organization = ORGANIZATION_CACHE.get(dataset.getPublishingOrganizationKey());
+      return ORGANIZATION_CACHE.get(dataset.getPublishingOrganizationKey());
     } catch (ExecutionException e) {
       LOG.error("Error while loading Organization from cache fro dataset {}", dataset, e);
     }
-    return new OaipmhItem(dataset, getSets(organization, dataset));
+    return null;
   }
 
   /**
@@ -425,36 +470,54 @@ public class OaipmhItemRepository implements ItemRepository {
    * @return list of matching {@link Dataset}. Never null.
    */
   private List<Dataset> getDatasetListFromFilters(int offset, int length, String set, Date from, Date until) {
+    SetFilter filter = new SetFilter(set);
+    return datasetMapper.listWithFilter(filter.country, filter.datasetType, filter.installationKey,
+            from, until, new PagingRequest(offset, length));
+  }
 
-    Optional<OaipmhSetRepository.SetIdentification> setIdentification = OaipmhSetRepository.parseSetName(set);
-
-    List<Dataset> datasetList;
-    if(setIdentification.isPresent()){
-      Country country = null;
-      UUID installationKey = null;
-      DatasetType datasetType = null;
-
-      String subSet = setIdentification.get().getSubSet();
-      switch (setIdentification.get().getSetType()) {
-        case COUNTRY:
-          country = Country.fromIsoCode(subSet);
-          break;
-        case INSTALLATION:
-          installationKey = UUID.fromString(subSet);
-          break;
-        case DATASET_TYPE:
-          datasetType = DatasetType.fromString(subSet);
-          break;
-      }
+  /**
+   * Get a list of {@link Dataset} based on filter(s), continuing after the position of a keyset resumption token.
+   * The datasets are not augmented with their metadata documents yet.
+   *
+   * @param position last dataset seen or null to start with the first dataset
+   * @param limit maximum number of datasets to return
+   * @param set set name in the form of set:subset, already validated by the caller
+   * @param from from date (inclusive) or null
+   * @param until until date (exclusive) or null
+   * @return list of matching {@link Dataset}. Never null.
+   */
+  public List<Dataset> listDatasetsAfter(@Nullable KeysetResumptionToken position, int limit, @Nullable String set,
+                                         @Nullable Date from, @Nullable Date until) {
+    SetFilter filter = new SetFilter(set);
+    return datasetMapper.listWithFilterAfter(filter.country, filter.datasetType, filter.installationKey, from, until,
+            position == null ? null : position.getCreated(), position == null ? null : position.getKey(), limit);
+  }
 
-      datasetList = datasetMapper.listWithFilter(country, datasetType, installationKey,
-              from, until, new PagingRequest(offset, length));
-    }
-    else {
-      datasetList = datasetMapper.listWithFilter(null, null, null, from, until, new PagingRequest(offset, length));
+  /**
+   * The dataset filter of an OAI-PMH set, all properties are null for no or unknown sets.
+   */
+  private static class SetFilter {
+    private Country country;
+    private UUID installationKey;
+    private DatasetType datasetType;
+
+    private SetFilter(@Nullable String set) {
+      Optional<OaipmhSetRepository.SetIdentification> setIdentification = OaipmhSetRepository.parseSetName(set);
+      if (setIdentification.isPresent()) {
+        String subSet = setIdentification.get().getSubSet();
+        switch (setIdentification.get().getSetType()) {
+          case COUNTRY:
+            country = Country.fromIsoCode(subSet);
+            break;
+          case INSTALLATION:
+            installationKey = UUID.fromString(subSet);
+            break;
+          case DATASET_TYPE:
+            datasetType = DatasetType.fromString(subSet);
+            break;
+        }
+      }
     }
-
-    return datasetList;
   }
 
 }
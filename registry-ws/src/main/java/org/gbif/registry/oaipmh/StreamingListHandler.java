@@ -0,0 +1,197 @@
+package org.gbif.registry.oaipmh;
+
+import org.gbif.api.model.registry.Dataset;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLStreamException;
+
+import com.google.common.collect.ImmutableSet;
+import com.lyncode.xml.exceptions.XmlWriteException;
+import org.dspace.xoai.dataprovider.exceptions.NoMatchesException;
+import org.dspace.xoai.dataprovider.handlers.ErrorHandler;
+import org.dspace.xoai.dataprovider.model.Set;
+import org.dspace.xoai.dataprovider.repository.RepositoryConfiguration;
+import org.dspace.xoai.dataprovider.repository.SetRepository;
+import org.dspace.xoai.model.oaipmh.Header;
+import org.dspace.xoai.model.oaipmh.OAIPMH;
+import org.dspace.xoai.model.oaipmh.Record;
+import org.dspace.xoai.model.oaipmh.Request;
+import org.dspace.xoai.model.oaipmh.Verb;
+import org.dspace.xoai.services.api.DateProvider;
+import org.dspace.xoai.services.impl.UTCDateProvider;
+import org.dspace.xoai.xml.XmlWriter;
+
+/**
+ * Handles ListRecords and ListIdentifiers requests without going through XOAI, so that the records of a page are
+ * rendered and written one by one while the response is streamed, instead of building the whole page in memory first.
+ * <p/>
+ * Pages are read with keyset pagination and continued with {@link KeysetResumptionToken}s, making every page an index
+ * range scan. Requests this handler cannot answer (unknown formats or sets, offset tokens issued by XOAI, malformed
+ * tokens) are left to XOAI, which produces the appropriate OAI-PMH errors.
+ */
+class StreamingListHandler {
+
+  private static final DateProvider dateProvider = new UTCDateProvider();
+  private static final ErrorHandler errorsHandler = new ErrorHandler();
+
+  private static final java.util.Set<String> METADATA_PREFIXES =
+    ImmutableSet.of(OaipmhItemRepository.METADATA_PREFIX_OAI_DC, OaipmhItemRepository.METADATA_PREFIX_EML);
+
+  private final RepositoryConfiguration configuration;
+  private final OaipmhItemRepository itemRepository;
+  private final SetRepository setRepository;
+
+  StreamingListHandler(RepositoryConfiguration configuration, OaipmhItemRepository itemRepository,
+                       SetRepository setRepository) {
+    this.configuration = configuration;
+    this.itemRepository = itemRepository;
+    this.setRepository = setRepository;
+  }
+
+  /**
+   * Prepares the response of a list request. Only the first page of datasets is read here, their metadata is
+   * rendered while the response is written.
+   *
+   * @return the response or null if the request should be handled by XOAI
+   */
+  @Nullable
+  OAIPMH handle(@Nullable String verb, @Nullable String metadataPrefix, @Nullable String set, @Nullable Date from,
+                @Nullable Date until, @Nullable String resumptionToken) {
+    Verb.Type verbType;
+    if (Verb.Type.ListRecords.displayName().equals(verb)) {
+      verbType = Verb.Type.ListRecords;
+    } else if (Verb.Type.ListIdentifiers.displayName().equals(verb)) {
+      verbType = Verb.Type.ListIdentifiers;
+    } else {
+      return null;
+    }
+
+    KeysetResumptionToken position = null;
+    if (resumptionToken != null) {
+      // the resumption token is an exclusive argument
+      if (!KeysetResumptionToken.isKeysetToken(resumptionToken) || metadataPrefix != null || set != null
+          || from != null || until != null) {
+        return null;
+      }
+      try {
+        position = KeysetResumptionToken.parse(resumptionToken);
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+      metadataPrefix = position.getMetadataPrefix();
+      set = position.getSet();
+      from = position.getFrom();
+      until = position.getUntil();
+    }
+    if (!METADATA_PREFIXES.contains(metadataPrefix) || (set != null && !setRepository.exists(set))) {
+      return null;
+    }
+
+    Request request = new Request(configuration.getBaseUrl())
+      .withVerbType(verbType)
+      .withResumptionToken(resumptionToken)
+      .withMetadataPrefix(resumptionToken == null ? metadataPrefix : null)
+      .withSet(resumptionToken == null ? set : null)
+      .withFrom(resumptionToken == null ? from : null)
+      .withUntil(resumptionToken == null ? until : null);
+    OAIPMH response = new OAIPMH()
+      .withRequest(request)
+      .withResponseDate(dateProvider.now());
+
+    int pageSize = verbType == Verb.Type.ListRecords ? configuration.getMaxListRecords()
+      : configuration.getMaxListIdentifiers();
+    // ask for one more to determine if there are more results
+    List<Dataset> datasets = itemRepository.listDatasetsAfter(position, pageSize + 1, set, from, until);
+    if (datasets.isEmpty()) {
+      return response.withError(errorsHandler.handle(new NoMatchesException()));
+    }
+
+    // the number of records returned before this page
+    long cursor = position == null ? 0 : position.getCursor();
+    KeysetResumptionToken next = null;
+    if (datasets.size() > pageSize) {
+      datasets = datasets.subList(0, pageSize);
+      Dataset last = datasets.get(pageSize - 1);
+      next = new KeysetResumptionToken(last.getCreated(), last.getKey(), cursor + pageSize, metadataPrefix, set, from,
+                                       until);
+    }
+    return response.withVerb(new StreamingList(verbType, metadataPrefix, datasets, cursor, next,
+                                               resumptionToken != null));
+  }
+
+  /**
+   * The verb element of a list response, rendering the records only when being written.
+   */
+  private class StreamingList implements Verb {
+
+    private final Type type;
+    private final String metadataPrefix;
+    private final List<Dataset> datasets;
+    private final long cursor;
+    private final KeysetResumptionToken next;
+    private final boolean resumed;
+
+    private StreamingList(Type type, String metadataPrefix, List<Dataset> datasets, long cursor,
+                          @Nullable KeysetResumptionToken next, boolean resumed) {
+      this.type = type;
+      this.metadataPrefix = metadataPrefix;
+      this.datasets = datasets;
+      this.cursor = cursor;
+      this.next = next;
+      this.resumed = resumed;
+    }
+
+    @Override
+    public Type getType() {
+      return type;
+    }
+
+    @Override
+    public void write(XmlWriter writer) throws XmlWriteException {
+      try {
+        for (Dataset dataset : datasets) {
+          if (type == Type.ListRecords) {
+            OaipmhItem item = itemRepository.toOaipmhItem(dataset, metadataPrefix);
+            writer.writeElement("record", new Record().withHeader(header(item)).withMetadata(item.getMetadata()));
+          } else {
+            writer.writeElement("header", header(itemRepository.toOaipmhItemIdentifier(dataset)));
+          }
+          // hand the record over to the client right away
+          writer.flush();
+        }
+        writeResumptionToken(writer);
+      } catch (IOException | XMLStreamException e) {
+        throw new XmlWriteException(e);
+      }
+    }
+
+    /**
+     * Writes the token of the next page. The last page of a resumed list gets an empty token, as required by the
+     * protocol.
+     */
+    private void writeResumptionToken(XmlWriter writer) throws XMLStreamException {
+      if (next == null && !resumed) {
+        return;
+      }
+      writer.writeStartElement("resumptionToken");
+      writer.writeAttribute("cursor", String.valueOf(cursor));
+      if (next != null) {
+        writer.writeCharacters(next.format());
+      }
+      writer.writeEndElement();
+    }
+
+    private Header header(OaipmhItem item) {
+      Header header = new Header()
+        .withIdentifier(item.getIdentifier())
+        .withDatestamp(item.getDatestamp());
+      for (Set set : item.getSets()) {
+        header.withSetSpec(set.getSpec());
+      }
+      return header;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.gbif.registry.oaipmh;
+
+import java.util.Properties;
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+
+/**
+ * A {@link Transformer} that can be shared between threads, as XOAI expects one transformer per metadata format.
+ * <p/>
+ * Transformers must not be used concurrently, see https://xalan.apache.org/xalan-j/usagepatterns.html#multithreading.
+ * This one delegates to a transformer per thread, all created from the same precompiled, thread-safe
+ * {@link Templates}, so the stylesheet is only parsed once.
+ * Settings like parameters or output properties only apply to the transformer of the calling thread.
+ */
+class TemplatesTransformer extends Transformer {
+
+  private final ThreadLocal<Transformer> transformer;
+
+  TemplatesTransformer(final Templates templates) {
+    this.transformer = new ThreadLocal<Transformer>() {
+      @Override
+      protected Transformer initialValue() {
+        try {
+          return templates.newTransformer();
+        } catch (TransformerConfigurationException e) {
+          throw new IllegalStateException("Unable to create transformer from compiled XSLT", e);
+        }
+      }
+    };
+  }
+
+  @Override
+  public void transform(Source xmlSource, Result outputTarget) throws TransformerException {
+    transformer.get().transform(xmlSource, outputTarget);
+  }
+
+  @Override
+  public void reset() {
+    transformer.get().reset();
+  }
+
+  @Override
+  public void setParameter(String name, Object value) {
+    transformer.get().setParameter(name, value);
+  }
+
+  @Override
+  public Object getParameter(String name) {
+    return transformer.get().getParameter(name);
+  }
+
+  @Override
+  public void clearParameters() {
+    transformer.get().clearParameters();
+  }
+
+  @Override
+  public void setURIResolver(URIResolver resolver) {
+    transformer.get().setURIResolver(resolver);
+  }
+
+  @Override
+  public URIResolver getURIResolver() {
+    return transformer.get().getURIResolver();
+  }
+
+  @Override
+  public void setOutputProperties(Properties oformat) {
+    transformer.get().setOutputProperties(oformat);
+  }
+
+  @Override
+  public Properties getOutputProperties() {
+    return transformer.get().getOutputProperties();
+  }
+
+  @Override
+  public void setOutputProperty(String name, String value) {
+    transformer.get().setOutputProperty(name, value);
+  }
+
+  @Override
+  public String getOutputProperty(String name) {
+    return transformer.get().getOutputProperty(name);
+  }
+
+  @Override
+  public void setErrorListener(ErrorListener listener) {
+    transformer.get().setErrorListener(listener);
+  }
+
+  @Override
+  public ErrorListener getErrorListener() {
+    return transformer.get().getErrorListener();
+  }
+}
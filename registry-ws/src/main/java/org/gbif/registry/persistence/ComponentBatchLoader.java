@@ -0,0 +1,166 @@
+package org.gbif.registry.persistence;
+
+import org.gbif.api.model.collections.Collection;
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Installation;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.registry.persistence.mapper.DatasetMapper;
+import org.gbif.registry.persistence.mapper.InstallationMapper;
+import org.gbif.registry.persistence.mapper.OrganizationMapper;
+import org.gbif.registry.persistence.mapper.collections.CollectionMapper;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Loads the sub resources (contacts, endpoints, tags etc.) of the entities returned by list and search queries in
+ * batches.
+ * <p/>
+ * These queries use result maps without nested selects, so they only fetch the primary rows. Afterwards every
+ * component type is loaded with a single {@code WHERE key = ANY(?)} query for all entities of the page and attached in
+ * memory, turning the 7 queries per row of the nested selects into 7 queries per page.
+ * <p/>
+ * The queries are named after the component, e.g. {@code listContactsByKeys}, live in the namespace of the entity
+ * mapper and return {@link KeyedComponent}s.
+ */
+@Intercepts(@Signature(type = Executor.class, method = "query",
+  args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}))
+public class ComponentBatchLoader implements Interceptor {
+
+  // the statements whose results are completed, keyed by their id
+  private static final Map<String, EntityComponents<?>> STATEMENTS = Maps.newHashMap();
+
+  static {
+    register(new EntityComponents<>(DatasetMapper.class, Dataset::getKey)
+               .count("countConstituentsByKeys", Dataset::setNumConstituents)
+               .list("listContactsByKeys", Dataset::setContacts)
+               .list("listEndpointsByKeys", Dataset::setEndpoints)
+               .list("listMachineTagsByKeys", Dataset::setMachineTags)
+               .list("listTagsByKeys", Dataset::setTags)
+               .list("listIdentifiersByKeys", Dataset::setIdentifiers)
+               .list("listCommentsByKeys", Dataset::setComments),
+             "list", "listAfter", "search", "listWithFilter", "listWithFilterAfter", "listByKeyRange");
+
+    register(new EntityComponents<>(OrganizationMapper.class, Organization::getKey)
+               .count("countPublishedDatasetsByKeys", Organization::setNumPublishedDatasets)
+               .list("listContactsByKeys", Organization::setContacts)
+               .list("listEndpointsByKeys", Organization::setEndpoints)
+               .list("listMachineTagsByKeys", Organization::setMachineTags)
+               .list("listTagsByKeys", Organization::setTags)
+               .list("listIdentifiersByKeys", Organization::setIdentifiers)
+               .list("listCommentsByKeys", Organization::setComments),
+             "list", "listAfter", "search");
+
+    register(new EntityComponents<>(InstallationMapper.class, Installation::getKey)
+               .list("listContactsByKeys", Installation::setContacts)
+               .list("listEndpointsByKeys", Installation::setEndpoints)
+               .list("listMachineTagsByKeys", Installation::setMachineTags)
+               .list("listTagsByKeys", Installation::setTags)
+               .list("listCommentsByKeys", Installation::setComments),
+             "list", "listAfter", "search");
+
+    register(new EntityComponents<>(CollectionMapper.class, Collection::getKey)
+               .list("listContactsByKeys", Collection::setContacts)
+               .list("listTagsByKeys", Collection::setTags)
+               .list("listIdentifiersByKeys", Collection::setIdentifiers),
+             "list");
+  }
+
+  private static void register(EntityComponents<?> components, String... statements) {
+    for (String statement : statements) {
+      STATEMENTS.put(components.namespace + "." + statement, components);
+    }
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Object result = invocation.proceed();
+    MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+    EntityComponents<?> components = STATEMENTS.get(statement.getId());
+    if (components != null && result instanceof List && !((List<?>) result).isEmpty()) {
+      components.load((List<?>) result, (Executor) invocation.getTarget(), statement.getConfiguration());
+    }
+    return result;
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // nothing to configure
+  }
+
+  /**
+   * The component queries of one entity type and how to attach their results.
+   */
+  private static class EntityComponents<T> {
+
+    private final String namespace;
+    private final Function<T, UUID> key;
+    private final Map<String, BiConsumer<T, List<Object>>> components = Maps.newLinkedHashMap();
+
+    private EntityComponents(Class<?> mapper, Function<T, UUID> key) {
+      this.namespace = mapper.getName();
+      this.key = key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C> EntityComponents<T> list(String statement, BiConsumer<T, List<C>> setter) {
+      components.put(statement, (entity, values) -> setter.accept(entity, (List<C>) values));
+      return this;
+    }
+
+    private EntityComponents<T> count(String statement, ObjIntConsumer<T> setter) {
+      components.put(statement,
+                     (entity, values) -> setter.accept(entity, values.isEmpty() ? 0 : ((Number) values.get(0)).intValue()));
+      return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(List<?> results, Executor executor, Configuration configuration) throws SQLException {
+      List<T> entities = (List<T>) results;
+      List<UUID> keys = Lists.newArrayListWithCapacity(entities.size());
+      for (T entity : entities) {
+        keys.add(key.apply(entity));
+      }
+      Map<String, Object> params = ImmutableMap.<String, Object>of("keys", keys);
+
+      for (Map.Entry<String, BiConsumer<T, List<Object>>> component : components.entrySet()) {
+        List<KeyedComponent<Object>> rows = executor.query(configuration.getMappedStatement(namespace + "." + component.getKey()),
+                                                           params, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        ListMultimap<UUID, Object> byTarget = ArrayListMultimap.create();
+        for (KeyedComponent<Object> row : rows) {
+          byTarget.put(row.getTargetKey(), row.getComponent());
+        }
+        for (T entity : entities) {
+          component.getValue().accept(entity, Lists.newArrayList(byTarget.get(key.apply(entity))));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package org.gbif.registry.persistence;
+
+import org.gbif.registry.persistence.mapper.DatasetOccurrenceDownloadMapper;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.inject.Inject;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Meter;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the dataset usages of large downloads by streaming them into a temporary staging table with
+ * PostgreSQL COPY and merging them into dataset_occurrence_download with a single statement.
+ * <p/>
+ * Existing usages of the download are overwritten with ON CONFLICT, which requires PostgreSQL 9.5 or later, so a failed
+ * request can simply be retried. The copy joins a transaction already started on the current thread, otherwise it runs
+ * in its own.
+ */
+public class DatasetUsageCopier {
+
+  // downloads with more dataset usages than this are copied, smaller ones are stored with a single insert
+  public static final String THRESHOLD_PROPERTY = "registry.downloadUsages.copyThreshold";
+
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetUsageCopier.class);
+  private static final String COPY_SQL = "COPY dataset_usage_staging (dataset_key, number_records) FROM STDIN";
+  // bytes written to the server at a time
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final SqlSessionManager sessionManager;
+  private final DatasetOccurrenceDownloadMapper mapper;
+  private final Meter copied = Metrics.newMeter(DatasetUsageCopier.class, "copied", "usages", TimeUnit.SECONDS);
+
+  @Inject
+  public DatasetUsageCopier(SqlSessionManager sessionManager, DatasetOccurrenceDownloadMapper mapper) {
+    this.sessionManager = sessionManager;
+    this.mapper = mapper;
+  }
+
+  /**
+   * @return the number of usages stored, skipping unknown datasets
+   */
+  public int copy(String downloadKey, Map<UUID, Long> usages) {
+    boolean ownSession = !sessionManager.isManagedSessionStarted();
+    if (ownSession) {
+      sessionManager.startManagedSession(false);
+    }
+    try {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      mapper.createUsageStaging();
+      Connection connection = sessionManager.getConnection();
+      CopyIn copyIn = new CopyManager(connection.unwrap(BaseConnection.class)).copyIn(COPY_SQL);
+      try {
+        write(usages, copyIn);
+        copyIn.endCopy();
+      } finally {
+        if (copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+      }
+      int stored = mapper.mergeStagedUsages(downloadKey);
+      if (ownSession) {
+        sessionManager.commit();
+      }
+
+      copied.mark(usages.size());
+      long msecs = Math.max(stopwatch.elapsed(TimeUnit.MILLISECONDS), 1);
+      LOG.info("Stored {} of {} dataset usages of download {} in {} ms, {} usages/s", stored, usages.size(),
+               downloadKey, msecs, usages.size() * 1000L / msecs);
+      return stored;
+
+    } catch (SQLException e) {
+      throw new PersistenceException("Failed to copy dataset usages of download " + downloadKey, e);
+    } finally {
+      if (ownSession) {
+        // rolls back unless committed
+        sessionManager.close();
+      }
+    }
+  }
+
+  /**
+   * Writes the usages in the COPY text format, one tab separated row per dataset.
+   */
+  @VisibleForTesting
+  static void write(Map<UUID, Long> usages, CopyIn copyIn) throws SQLException {
+    StringBuilder rows = new StringBuilder(BUFFER_SIZE + 64);
+    for (Map.Entry<UUID, Long> usage : usages.entrySet()) {
+      rows.append(usage.getKey()).append('\t').append(usage.getValue()).append('\n');
+      if (rows.length() >= BUFFER_SIZE) {
+        flush(rows, copyIn);
+      }
+    }
+    flush(rows, copyIn);
+  }
+
+  private static void flush(StringBuilder rows, CopyIn copyIn) throws SQLException {
+    if (rows.length() > 0) {
+      byte[] bytes = rows.toString().getBytes(Charsets.UTF_8);
+      copyIn.writeToCopy(bytes, 0, bytes.length);
+      rows.setLength(0);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package org.gbif.registry.persistence;
+
+import org.gbif.registry.persistence.mapper.DownloadStatisticsMapper;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Timer;
+import com.yammer.metrics.core.TimerContext;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the monthly download statistics current by aggregating the months of downloads created or modified since the
+ * previous update, instead of recomputing all months.
+ * <p/>
+ * The time up to which downloads are aggregated is kept as a watermark in download_statistics_progress, the first
+ * update aggregates all months. Each month is replaced in its own transaction and the watermark only advances once
+ * all months are done, so an interrupted update is simply repeated. Only one registry node updates at a time.
+ */
+@Singleton
+public class DownloadStatisticsUpdater implements AutoCloseable {
+
+  public static final String INTERVAL_PROPERTY = "registry.downloadStatistics.intervalMinutes";
+
+  private static final Logger LOG = LoggerFactory.getLogger(DownloadStatisticsUpdater.class);
+  // downloads committed up to this long after they were modified are still picked up by the next update
+  @VisibleForTesting
+  static final long OVERLAP_MSECS = TimeUnit.MINUTES.toMillis(10);
+
+  private final SqlSessionManager sessionManager;
+  private final DownloadStatisticsMapper mapper;
+  private final ScheduledExecutorService scheduler;
+  private volatile Date watermark;
+
+  private final Timer updateTimer = Metrics.newTimer(DownloadStatisticsUpdater.class, "update",
+                                                     TimeUnit.MILLISECONDS, TimeUnit.SECONDS);
+  private final Counter monthsUpdated = Metrics.newCounter(DownloadStatisticsUpdater.class, "months-updated");
+
+  /**
+   * @param intervalMinutes the minutes between updates, 0 to only update when called
+   */
+  @Inject
+  public DownloadStatisticsUpdater(SqlSessionManager sessionManager, DownloadStatisticsMapper mapper,
+                                   @Named(INTERVAL_PROPERTY) int intervalMinutes) {
+    this.sessionManager = sessionManager;
+    this.mapper = mapper;
+
+    Metrics.newGauge(DownloadStatisticsUpdater.class, "age-seconds", new Gauge<Long>() {
+      @Override
+      public Long value() {
+        Date current = watermark;
+        return current == null ? -1 : TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - current.getTime());
+      }
+    });
+
+    if (intervalMinutes > 0) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("download-statistics"));
+      scheduler.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            update();
+          } catch (Exception e) {
+            LOG.error("Failed to update the download statistics", e);
+          }
+        }
+      }, 1, intervalMinutes, TimeUnit.MINUTES);
+      LOG.info("Updating the download statistics every {} minutes", intervalMinutes);
+    } else {
+      scheduler = null;
+    }
+  }
+
+  /**
+   * Aggregates the months of all downloads modified since the previous update.
+   *
+   * @return the number of months updated or -1 if another node is updating the statistics
+   */
+  public int update() {
+    TimerContext context = updateTimer.time();
+    sessionManager.startManagedSession(false);
+    try {
+      if (!mapper.tryLock()) {
+        LOG.debug("Download statistics are being updated by another node");
+        watermark = mapper.getWatermark();
+        return -1;
+      }
+      try {
+        return updateLocked();
+      } catch (RuntimeException e) {
+        sessionManager.rollback(true);
+        throw e;
+      } finally {
+        mapper.unlock();
+      }
+    } finally {
+      // the lock and unlock queries leave no changes to commit
+      sessionManager.close();
+      context.stop();
+    }
+  }
+
+  private int updateLocked() {
+    Date previous = mapper.getWatermark();
+    Date until = mapper.now();
+    Date since = previous == null ? null : new Date(previous.getTime() - OVERLAP_MSECS);
+    sessionManager.commit(true);
+
+    List<Date> months = mapper.listModifiedMonths(since, until);
+    LOG.info("Updating download statistics of {} months with downloads modified since {}", months.size(),
+             since == null ? "the beginning" : since);
+    for (Date month : months) {
+      mapper.updateDatasetStatistics(month);
+      mapper.updateUserStatistics(month);
+      sessionManager.commit(true);
+      monthsUpdated.inc();
+      LOG.debug("Updated download statistics of month {}", month);
+    }
+
+    mapper.updateProgress(until, months.size());
+    sessionManager.commit(true);
+    watermark = until;
+    return months.size();
+  }
+
+  /**
+   * @return the time up to which downloads were aggregated as last seen by this node, if any
+   */
+  @Nullable
+  public Date getWatermark() {
+    return watermark;
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
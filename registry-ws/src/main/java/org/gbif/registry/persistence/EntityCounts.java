@@ -0,0 +1,165 @@
+package org.gbif.registry.persistence;
+
+import org.gbif.registry.persistence.mapper.NetworkEntityMapper;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+
+/**
+ * Provides the total counts of paged responses according to the configured {@link Mode}.
+ * <p/>
+ * Counting all matching rows costs about as much as reading the page itself, for the full text search it means
+ * evaluating the query twice. Clients that do not need the count can skip it altogether, this class makes the
+ * remaining counts cheaper at the price of accuracy.
+ */
+public class EntityCounts {
+
+  /**
+   * How counts are determined.
+   */
+  public enum Mode {
+    /**
+     * Every count is exact and counted for each page.
+     */
+    EXACT,
+
+    /**
+     * Exact counts are cached per entity and filter for a short time, so paging through a result counts it once.
+     */
+    CACHED,
+
+    /**
+     * Unfiltered lists are estimated from the planner statistics, filtered counts are cached like {@link #CACHED}.
+     */
+    ESTIMATED
+  }
+
+  /**
+   * Counts all pages exactly, the behaviour without any configuration.
+   */
+  public static final EntityCounts EXACT = new EntityCounts(Mode.EXACT, 0);
+
+  private static final long MAX_CACHED_COUNTS = 10000;
+  private static final String ALL = "";
+
+  private final Mode mode;
+  private final Cache<CountKey, Long> counts;
+  private final Counter estimated = Metrics.newCounter(EntityCounts.class, "estimated");
+  private final Counter cached = Metrics.newCounter(EntityCounts.class, "cache-hits");
+  private final Counter counted = Metrics.newCounter(EntityCounts.class, "counted");
+
+  public EntityCounts(Mode mode, long cacheSeconds) {
+    this.mode = Preconditions.checkNotNull(mode, "mode is required");
+    Preconditions.checkArgument(mode == Mode.EXACT || cacheSeconds > 0, "Cached counts need a positive cache time");
+    this.counts = CacheBuilder.newBuilder()
+      .maximumSize(mode == Mode.EXACT ? 0 : MAX_CACHED_COUNTS)
+      .expireAfterWrite(Math.max(cacheSeconds, 1), TimeUnit.SECONDS)
+      .build();
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Counts all entities of a type that are not deleted.
+   *
+   * @param entityClass the type of entities counted by the mapper
+   */
+  public long countAll(Class<?> entityClass, NetworkEntityMapper<?> mapper) {
+    if (mode == Mode.ESTIMATED) {
+      Long estimate = mapper.estimateCount();
+      // tables that were never analyzed have no estimate
+      if (estimate != null && estimate > 0) {
+        estimated.inc();
+        return estimate;
+      }
+    }
+    return count(entityClass, ALL, () -> (long) mapper.count());
+  }
+
+  /**
+   * Counts the entities of a type matching a filter.
+   *
+   * @param entityClass the type of entities counted
+   * @param filter a signature of all filter values which, together with the entity class, identifies the count
+   * @param exact counts the matching entities exactly
+   */
+  public long count(Class<?> entityClass, String filter, Supplier<Long> exact) {
+    if (mode == Mode.EXACT) {
+      counted.inc();
+      return exact.get();
+    }
+    CountKey key = new CountKey(entityClass, filter);
+    Long count = counts.getIfPresent(key);
+    if (count != null) {
+      cached.inc();
+      return count;
+    }
+    try {
+      return counts.get(key, () -> {
+        counted.inc();
+        return exact.get();
+      });
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to count " + entityClass.getSimpleName(), e.getCause());
+    }
+  }
+
+  /**
+   * Builds the filter signature of {@link #count(Class, String, Supplier)} from all filter values in a fixed order.
+   */
+  public static String filter(@Nullable Object... values) {
+    StringBuilder sb = new StringBuilder();
+    if (values != null) {
+      for (Object value : values) {
+        if (value == null) {
+          sb.append('-');
+        } else {
+          // the length prefix keeps values containing the separator apart
+          String v = value.toString();
+          sb.append(v.length()).append(':').append(v);
+        }
+        sb.append('|');
+      }
+    }
+    return sb.toString();
+  }
+
+  private static class CountKey {
+
+    private final Class<?> entityClass;
+    private final String filter;
+
+    private CountKey(Class<?> entityClass, String filter) {
+      this.entityClass = entityClass;
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CountKey that = (CountKey) o;
+      return entityClass.equals(that.entityClass) && filter.equals(that.filter);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(entityClass, filter);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.gbif.registry.persistence;
+
+import java.util.UUID;
+
+/**
+ * A component such as a contact or tag together with the key of the entity it belongs to, as returned by the queries
+ * loading the components of many entities at once.
+ *
+ * @param <T> the component type
+ */
+public class KeyedComponent<T> {
+
+  private UUID targetKey;
+  // only used to keep the rows of one target apart when mapping
+  private Object componentKey;
+  private T component;
+
+  public UUID getTargetKey() {
+    return targetKey;
+  }
+
+  public void setTargetKey(UUID targetKey) {
+    this.targetKey = targetKey;
+  }
+
+  public Object getComponentKey() {
+    return componentKey;
+  }
+
+  public void setComponentKey(Object componentKey) {
+    this.componentKey = componentKey;
+  }
+
+  public T getComponent() {
+    return component;
+  }
+
+  public void setComponent(T component) {
+    this.component = component;
+  }
+}
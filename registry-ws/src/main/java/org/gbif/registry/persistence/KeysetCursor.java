@@ -0,0 +1,96 @@
+package org.gbif.registry.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * An opaque paging cursor pointing to the last entity of a page by its (created, key) position, which is the sort
+ * order of all entity listings.
+ * <p/>
+ * Reading the page after a cursor is an index range scan, unlike reading a page at a large offset.
+ * The created date keeps its sub millisecond precision, as the database stores microseconds and the position must
+ * match exactly.
+ */
+public class KeysetCursor {
+
+  private static final char SEPARATOR = '|';
+  private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+
+  private final Timestamp created;
+  private final UUID key;
+
+  public KeysetCursor(Date created, UUID key) {
+    Preconditions.checkNotNull(created, "created is required");
+    // the listAfter result maps read created as java.sql.Timestamp, a plain Date only has milliseconds
+    this.created = created instanceof Timestamp ? (Timestamp) created : new Timestamp(created.getTime());
+    this.key = Preconditions.checkNotNull(key, "key is required");
+  }
+
+  /**
+   * Parses a cursor previously created by {@link #format()}.
+   *
+   * @throws IllegalArgumentException if the cursor is malformed
+   */
+  public static KeysetCursor parse(String cursor) {
+    Preconditions.checkNotNull(cursor, "cursor is required");
+    List<String> parts;
+    try {
+      parts = Splitter.on(SEPARATOR).splitToList(new String(ENCODING.decode(cursor), StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Cursor is not encoded correctly", e);
+    }
+    Preconditions.checkArgument(parts.size() == 3, "Cursor has an unexpected number of fields");
+
+    Timestamp created = new Timestamp(Long.parseLong(parts.get(0)));
+    created.setNanos(Integer.parseInt(parts.get(1)));
+    return new KeysetCursor(created, UUID.fromString(parts.get(2)));
+  }
+
+  /**
+   * @return the opaque cursor handed out to clients
+   */
+  public String format() {
+    String value = Joiner.on(SEPARATOR).join(created.getTime(), created.getNanos(), key);
+    return ENCODING.encode(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Created date of the last entity returned, including the nanoseconds.
+   */
+  public Timestamp getCreated() {
+    return created;
+  }
+
+  /**
+   * Key of the last entity returned.
+   */
+  public UUID getKey() {
+    return key;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    KeysetCursor that = (KeysetCursor) o;
+    return Objects.equal(created, that.created) && Objects.equal(key, that.key);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(created, key);
+  }
+}
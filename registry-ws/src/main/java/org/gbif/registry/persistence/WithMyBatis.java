@@ -1,5 +1,6 @@
 package org.gbif.registry.persistence;
 
+import org.gbif.api.model.common.paging.CursorPagingResponse;
 import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.model.common.paging.PagingResponse;
 import org.gbif.api.model.registry.Comment;
@@ -29,6 +30,8 @@ import java.util.UUID;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import org.mybatis.guice.transactional.Transactional;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -74,10 +77,45 @@ public class WithMyBatis {
   }
 
   public static <T extends NetworkEntity> PagingResponse<T> list(NetworkEntityMapper<T> mapper, Pageable page) {
-    long total = mapper.count();
+    return list(mapper, page, Long.valueOf(mapper.count()));
+  }
+
+  /**
+   * Lists a page of entities with a count determined by the caller, e.g. estimated or cached as counting all entities
+   * is expensive for large tables.
+   *
+   * @param total the count of the response, null to leave it empty
+   */
+  public static <T extends NetworkEntity> PagingResponse<T> list(NetworkEntityMapper<T> mapper, Pageable page,
+    @Nullable Long total) {
     return new PagingResponse<T>(page.getOffset(), page.getLimit(), total, mapper.list(page));
   }
 
+  /**
+   * Lists the page of entities after a cursor. Unlike offset paging each page is an index range scan, no matter how
+   * far the listing has progressed.
+   *
+   * @param cursor the next cursor of the previous page, null or empty for the first page
+   * @param limit the page size, at least 1
+   * @param total the count of the response, null to leave it empty
+   * @throws IllegalArgumentException if the cursor is malformed or the limit is less than 1
+   */
+  public static <T extends NetworkEntity> CursorPagingResponse<T> listAfter(NetworkEntityMapper<T> mapper,
+    @Nullable String cursor, int limit, @Nullable Long total) {
+    Preconditions.checkArgument(limit > 0, "limit must be at least 1");
+    KeysetCursor position = Strings.isNullOrEmpty(cursor) ? null : KeysetCursor.parse(cursor);
+    // ask for one more to determine if there is a next page
+    List<T> results = mapper.listAfter(position == null ? null : position.getCreated(),
+      position == null ? null : position.getKey(), limit + 1);
+    String next = null;
+    if (results.size() > limit) {
+      results = Lists.newArrayList(results.subList(0, limit));
+      T last = results.get(limit - 1);
+      next = new KeysetCursor(last.getCreated(), last.getKey()).format();
+    }
+    return new CursorPagingResponse<T>(limit, total, results, next);
+  }
+
   /**
    * The simple search option of the list.
    *
@@ -88,8 +126,17 @@ public class WithMyBatis {
    */
   public static <T extends NetworkEntity> PagingResponse<T> search(NetworkEntityMapper<T> mapper, String query,
     Pageable page) {
+    return search(mapper, query, page, Long.valueOf(mapper.count(query)));
+  }
+
+  /**
+   * The simple search option of the list with a count determined by the caller.
+   *
+   * @param total the count of the response, null to leave it empty
+   */
+  public static <T extends NetworkEntity> PagingResponse<T> search(NetworkEntityMapper<T> mapper, String query,
+    Pageable page, @Nullable Long total) {
     Preconditions.checkNotNull(page, "To search you must supply a page");
-    long total = mapper.count(query);
     return new PagingResponse<T>(page.getOffset(), page.getLimit(), total, mapper.search(query, page));
   }
 
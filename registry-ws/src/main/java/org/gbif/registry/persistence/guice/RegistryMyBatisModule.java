@@ -53,13 +53,22 @@ import org.gbif.mybatis.type.UriTypeHandler;
 import org.gbif.mybatis.type.UuidTypeHandler;
 import org.gbif.registry.doi.DoiPersistenceService;
 import org.gbif.registry.doi.DoiType;
+import org.gbif.registry.events.outbox.OutboxEvent;
+import org.gbif.registry.persistence.ComponentBatchLoader;
+import org.gbif.registry.persistence.DatasetUsageCopier;
+import org.gbif.registry.persistence.DownloadStatisticsUpdater;
+import org.gbif.registry.persistence.EntityCounts;
+import org.gbif.registry.persistence.KeyedComponent;
 import org.gbif.registry.persistence.mapper.CommentMapper;
 import org.gbif.registry.persistence.mapper.ContactMapper;
+import org.gbif.registry.persistence.mapper.DatasetIndexRetryMapper;
 import org.gbif.registry.persistence.mapper.DatasetMapper;
 import org.gbif.registry.persistence.mapper.DatasetOccurrenceDownloadMapper;
 import org.gbif.registry.persistence.mapper.DatasetProcessStatusMapper;
+import org.gbif.registry.persistence.mapper.DownloadStatisticsMapper;
 import org.gbif.registry.persistence.mapper.DoiMapper;
 import org.gbif.registry.persistence.mapper.EndpointMapper;
+import org.gbif.registry.persistence.mapper.EventOutboxMapper;
 import org.gbif.registry.persistence.mapper.IdentifierMapper;
 import org.gbif.registry.persistence.mapper.InstallationMapper;
 import org.gbif.registry.persistence.mapper.MachineTagMapper;
@@ -81,6 +90,8 @@ import org.gbif.registry.persistence.mapper.handler.DisciplineArrayTypeHandler;
 import org.gbif.registry.persistence.mapper.handler.OccurrenceDownloadStatusTypeHandler;
 import org.gbif.registry.persistence.mapper.handler.PredicateTypeHandler;
 import org.gbif.registry.persistence.mapper.handler.PreservationTypeArrayTypeHandler;
+import org.gbif.registry.persistence.mapper.handler.UuidArrayTypeHandler;
+import org.gbif.registry.search.DatasetIndexRetry;
 import org.gbif.registry.surety.persistence.ChallengeCodeMapper;
 import org.gbif.registry.surety.persistence.ChallengeCodeSupportMapper;
 import org.gbif.service.guice.PrivateServiceModule;
@@ -91,6 +102,7 @@ import java.util.UUID;
 
 import com.google.inject.Scopes;
 import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
 
 /**
  * Sets up the persistence layer using the properties supplied.
@@ -116,6 +128,8 @@ public class RegistryMyBatisModule extends PrivateServiceModule {
     @Override
     protected void bindManagers() {
       failFast(true);
+      // loads the sub resources of list and search results in batches
+      addInterceptorClass(ComponentBatchLoader.class);
     }
 
     @Override
@@ -141,6 +155,9 @@ public class RegistryMyBatisModule extends PrivateServiceModule {
       addMapperClass(MetasyncHistoryMapper.class);
       addMapperClass(UserRightsMapper.class);
       addMapperClass(DoiMapper.class);
+      addMapperClass(EventOutboxMapper.class);
+      addMapperClass(DatasetIndexRetryMapper.class);
+      addMapperClass(DownloadStatisticsMapper.class);
 
       // collections
       addMapperClass(InstitutionMapper.class);
@@ -176,6 +193,9 @@ public class RegistryMyBatisModule extends PrivateServiceModule {
       addAlias("DoiData").to(DoiData.class);
       addAlias("DOI").to(DOI.class);
       addAlias("DoiType").to(DoiType.class);
+      addAlias("OutboxEvent").to(OutboxEvent.class);
+      addAlias("DatasetIndexRetry").to(DatasetIndexRetry.class);
+      addAlias("KeyedComponent").to(KeyedComponent.class);
       addAlias("Pageable").to(Pageable.class);
       addAlias("UUID").to(UUID.class);
       addAlias("Country").to(Country.class);
@@ -198,6 +218,7 @@ public class RegistryMyBatisModule extends PrivateServiceModule {
       addAlias("DisciplineArrayTypeHandler").to(DisciplineArrayTypeHandler.class);
       addAlias("CollectionContentTypeArrayTypeHandler").to(CollectionContentTypeArrayTypeHandler.class);
       addAlias("PreservationTypeArrayTypeHandler").to(PreservationTypeArrayTypeHandler.class);
+      addAlias("UuidArrayTypeHandler").to(UuidArrayTypeHandler.class);
     }
 
     @Override
@@ -213,6 +234,8 @@ public class RegistryMyBatisModule extends PrivateServiceModule {
   }
 
   private static final String PREFIX = "registry.db.";
+  private static final String COUNT_MODE_PROP = "registry.count.mode";
+  private static final String COUNT_CACHE_SECONDS_PROP = "registry.count.cacheSeconds";
   private final Properties properties;
 
   public RegistryMyBatisModule(Properties properties) {
@@ -244,12 +267,39 @@ public class RegistryMyBatisModule extends PrivateServiceModule {
     expose(MetasyncHistoryMapper.class);
     expose(UserRightsMapper.class);
     expose(DoiMapper.class);
+    expose(EventOutboxMapper.class);
+    expose(DownloadStatisticsMapper.class);
+    expose(DatasetIndexRetryMapper.class);
     expose(ChallengeCodeMapper.class);
     expose(InstitutionMapper.class);
     expose(CollectionMapper.class);
     expose(PersonMapper.class);
     expose(AddressMapper.class);
 
+    // how the totals of paged responses are counted
+    bind(EntityCounts.class).toInstance(new EntityCounts(
+      EntityCounts.Mode.valueOf(properties.getProperty(COUNT_MODE_PROP, EntityCounts.Mode.EXACT.name())),
+      Long.parseLong(properties.getProperty(COUNT_CACHE_SECONDS_PROP, "60"))));
+    expose(EntityCounts.class);
+
+    // needs the session manager of this module to reach the JDBC connection
+    bind(DatasetUsageCopier.class).in(Scopes.SINGLETON);
+    expose(DatasetUsageCopier.class);
+    bind(Integer.class).annotatedWith(Names.named(DatasetUsageCopier.THRESHOLD_PROPERTY))
+      .toInstance(Integer.parseInt(properties.getProperty(DatasetUsageCopier.THRESHOLD_PROPERTY, "5000").trim()));
+    expose(Integer.class).annotatedWith(Names.named(DatasetUsageCopier.THRESHOLD_PROPERTY));
+
+    // keeps the download statistics current if enabled
+    int statisticsInterval =
+      Integer.parseInt(properties.getProperty(DownloadStatisticsUpdater.INTERVAL_PROPERTY, "0").trim());
+    if (statisticsInterval > 0) {
+      bind(Integer.class).annotatedWith(Names.named(DownloadStatisticsUpdater.INTERVAL_PROPERTY))
+        .toInstance(statisticsInterval);
+      bind(DownloadStatisticsUpdater.class).asEagerSingleton();
+      // exposed to be closed when the webapp shuts down
+      expose(DownloadStatisticsUpdater.class);
+    }
+
     // Bind the DoiMapper as DoiPersistenceService
     bind(DoiPersistenceService.class).to(DoiMapper.class).in(Scopes.SINGLETON);
     expose(DoiPersistenceService.class);
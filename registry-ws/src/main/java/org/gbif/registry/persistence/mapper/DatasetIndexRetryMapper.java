@@ -0,0 +1,36 @@
+package org.gbif.registry.persistence.mapper;
+
+import org.gbif.api.model.common.paging.Pageable;
+import org.gbif.registry.search.DatasetIndexRetry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * Mapper that perform operations on failed dataset index operations waiting to be replayed.
+ */
+public interface DatasetIndexRetryMapper {
+
+  /**
+   * Records a failed operation for the dataset, replacing any pending one and pushing its next attempt back
+   * exponentially with the number of attempts.
+   */
+  void upsert(@Param("datasetKey") UUID datasetKey, @Param("operation") DatasetIndexRetry.Operation operation,
+    @Param("error") String error);
+
+  /**
+   * @return the operations whose next attempt is due, oldest first
+   */
+  List<DatasetIndexRetry> listDue(@Param("limit") int limit);
+
+  void delete(@Param("datasetKeys") Collection<UUID> datasetKeys);
+
+  int count();
+
+  List<DatasetIndexRetry> list(@Nullable @Param("page") Pageable page);
+
+}
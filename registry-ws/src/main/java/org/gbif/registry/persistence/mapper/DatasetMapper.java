@@ -18,6 +18,7 @@ import org.gbif.api.model.registry.Installation;
 import org.gbif.api.vocabulary.Country;
 import org.gbif.api.vocabulary.DatasetType;
 
+import java.sql.Timestamp;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -76,6 +77,36 @@ public interface DatasetMapper extends BaseNetworkEntityMapper<Dataset> {
     @Nullable @Param("installationKey") UUID installationKey,
     @Nullable @Param("dateFrom")Date from, @Nullable @Param("dateTo")Date to, @Nullable @Param("page") Pageable page);
 
+  /**
+   * Obtains the datasets matching the provided filter(s) that follow the given position in the default
+   * {@code created DESC, key} order. Unlike offset paging, every call is a range scan of the paging index, no matter
+   * how deep into the list the position is.
+   *
+   * @param afterCreated created date of the last dataset seen or null to start at the beginning of the list
+   * @param afterKey key of the last dataset seen, only used together with afterCreated
+   * @param limit maximum number of datasets to return
+   */
+  List<Dataset> listWithFilterAfter(@Nullable @Param("country") Country country,
+    @Nullable @Param("type") DatasetType type, @Nullable @Param("installationKey") UUID installationKey,
+    @Nullable @Param("dateFrom") Date from, @Nullable @Param("dateTo") Date to,
+    @Nullable @Param("afterCreated") Timestamp afterCreated, @Nullable @Param("afterKey") UUID afterKey,
+    @Param("limit") int limit);
+
+  /**
+   * Obtains the datasets with keys in the given range in key order, continuing after the given key. Ranges of keys
+   * can be read in parallel, e.g. to rebuild the search index.
+   *
+   * @param fromKey lower bound of the keys (inclusive) or null for no lower bound
+   * @param toKey upper bound of the keys (exclusive) or null for no upper bound
+   * @param afterKey key of the last dataset seen or null to start at the beginning of the range
+   * @param changedFrom if given, only datasets modified or deleted since, including the deleted ones, and the datasets
+   *                    whose publishing organization or installation was modified since as their documents include them
+   * @param limit maximum number of datasets to return
+   */
+  List<Dataset> listByKeyRange(@Nullable @Param("fromKey") UUID fromKey, @Nullable @Param("toKey") UUID toKey,
+    @Nullable @Param("afterKey") UUID afterKey, @Nullable @Param("changedFrom") Date changedFrom,
+    @Param("limit") int limit);
+
 
   /**
    * Counts all datasets from a DOI.
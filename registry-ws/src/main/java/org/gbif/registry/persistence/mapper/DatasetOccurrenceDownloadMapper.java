@@ -33,6 +33,31 @@ public interface DatasetOccurrenceDownloadMapper {
 
   List<DatasetOccurrenceDownloadUsage> listByDownload(@Param("downloadKey") String downloadKey,
                                                      @Nullable @Param("page") Pageable page);
-  
+
+  /**
+   * Lists the dataset usages of a download ordered by dataset key, continuing after the given dataset.
+   * The usages only contain the dataset properties, not the download itself.
+   *
+   * @param afterDatasetKey last dataset key of the previous page or null for the first page
+   */
+  List<DatasetOccurrenceDownloadUsage> listByDownloadAfter(@Param("downloadKey") String downloadKey,
+                                                           @Nullable @Param("afterDatasetKey") UUID afterDatasetKey,
+                                                           @Param("limit") int limit);
+
+  /**
+   * Stores the usages of the given datasets, overwriting existing usages of the download.
+   */
   void createUsages(@Param("downloadKey") String downloadKey, @Param("citationMap") Map<UUID,Long> downloadDataset);
+
+  /**
+   * Creates the temporary table dataset_usage_staging for the current connection if needed and empties it.
+   */
+  void createUsageStaging();
+
+  /**
+   * Stores the usages held in dataset_usage_staging, overwriting existing usages of the download.
+   *
+   * @return the number of usages stored
+   */
+  int mergeStagedUsages(@Param("downloadKey") String downloadKey);
 }
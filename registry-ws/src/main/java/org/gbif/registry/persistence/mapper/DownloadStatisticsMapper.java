@@ -0,0 +1,52 @@
+package org.gbif.registry.persistence.mapper;
+
+import java.util.Date;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * Mapper that maintains the monthly download statistics aggregated from the occurrence downloads.
+ * Months are the UTC months the downloads were created in.
+ */
+public interface DownloadStatisticsMapper {
+
+  /**
+   * Takes the session level lock guarding the update of the statistics, held until unlocked or the connection closes.
+   *
+   * @return false if another registry node holds the lock
+   */
+  boolean tryLock();
+
+  void unlock();
+
+  /**
+   * @return the time up to which modified downloads have been aggregated or null if nothing has been aggregated yet
+   */
+  @Nullable
+  Date getWatermark();
+
+  void updateProgress(@Param("watermark") Date watermark, @Param("months") int months);
+
+  /**
+   * @return the database time
+   */
+  Date now();
+
+  /**
+   * @param since the time after which downloads were modified or null for all downloads
+   * @return the start of the months of downloads modified in the given time range, ordered
+   */
+  List<Date> listModifiedMonths(@Nullable @Param("since") Date since, @Param("until") Date until);
+
+  /**
+   * Replaces the dataset statistics of the month starting at the given time.
+   */
+  void updateDatasetStatistics(@Param("month") Date month);
+
+  /**
+   * Replaces the user country statistics of the month starting at the given time.
+   */
+  void updateUserStatistics(@Param("month") Date month);
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.persistence.mapper;
+
+import org.gbif.registry.events.outbox.OutboxEvent;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * Mapper that perform operations on the transactional event outbox.
+ */
+public interface EventOutboxMapper {
+
+  void create(OutboxEvent event);
+
+  /**
+   * Claims up to limit pending events for the given claim token, skipping events claimed by others whose lease has
+   * not yet expired and events following an undelivered event of the same entity.
+   *
+   * @return the number of events claimed
+   */
+  int claim(@Param("claimedBy") UUID claimedBy, @Param("limit") int limit, @Param("leaseSeconds") int leaseSeconds,
+    @Param("maxAttempts") int maxAttempts);
+
+  /**
+   * @return the pending events claimed with the given claim token, ordered by their key
+   */
+  List<OutboxEvent> listClaimed(@Param("claimedBy") UUID claimedBy);
+
+  void markDelivered(@Param("key") long key);
+
+  /**
+   * Schedules the event for a retry, or dead letters it once the maximum number of attempts is reached.
+   *
+   * @param deliveredTo the comma separated names of the subscribers that handled the event so far
+   */
+  void markFailed(@Param("key") long key, @Param("error") String error, @Param("deliveredTo") String deliveredTo,
+    @Param("maxAttempts") int maxAttempts);
+
+  /**
+   * Dead letters the events that reached the maximum number of attempts but whose last claim expired without them
+   * being marked delivered or failed.
+   *
+   * @return the number of events dead lettered
+   */
+  int deadLetterAbandoned(@Param("maxAttempts") int maxAttempts);
+
+  /**
+   * @return the number of events waiting to be delivered, not counting dead lettered events
+   */
+  int countPending();
+
+  /**
+   * Removes delivered events older than the given number of days.
+   */
+  int deleteDelivered(@Param("days") int days);
+
+}
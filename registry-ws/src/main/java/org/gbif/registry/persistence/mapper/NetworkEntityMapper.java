@@ -14,8 +14,11 @@ package org.gbif.registry.persistence.mapper;
 
 import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.model.registry.NetworkEntity;
+import org.gbif.api.model.registry.search.KeyTitleResult;
 import org.gbif.api.vocabulary.IdentifierType;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import javax.annotation.Nullable;
@@ -37,6 +40,14 @@ public interface NetworkEntityMapper<T extends NetworkEntity> {
 
   String title(@Param("key") UUID key);
 
+  /**
+   * Gets the titles of many entities in a single query. Note that this does include deleted items.
+   *
+   * @param keys of the network entities
+   * @return the key and title of all existing entities, in no particular order
+   */
+  List<KeyTitleResult> titles(@Param("keys") Collection<UUID> keys);
+
   void create(T entity);
 
   void delete(@Param("key") UUID key);
@@ -45,10 +56,29 @@ public interface NetworkEntityMapper<T extends NetworkEntity> {
 
   List<T> list(@Nullable @Param("page") Pageable page);
 
+  /**
+   * Lists entities in the order of {@link #list(Pageable)}, continuing after the given position.
+   *
+   * @param afterCreated created date of the last entity seen or null to start from the beginning
+   * @param afterKey key of the last entity seen, only used together with afterCreated
+   * @param limit maximum number of entities to return
+   */
+  List<T> listAfter(@Nullable @Param("afterCreated") Timestamp afterCreated, @Nullable @Param("afterKey") UUID afterKey,
+    @Param("limit") int limit);
+
   List<T> search(@Nullable @Param("query") String query, @Nullable @Param("page") Pageable page);
 
   int count();
 
+  /**
+   * Estimates the count of all entities that are not deleted from the planner statistics, which is much cheaper than
+   * {@link #count()} for large tables.
+   *
+   * @return the estimated count, 0 or less or null if the table has not been analyzed yet
+   */
+  @Nullable
+  Long estimateCount();
+
   int count(@Nullable @Param("query") String query);
 
   long countByIdentifier(@Nullable @Param("type") IdentifierType type, @Param("identifier") String identifier);
@@ -35,6 +35,11 @@ public interface OccurrenceDownloadMapper {
 
   void create(Download entity);
 
+  /**
+   * Counts the datasets used by the download and marks it as modified, to be called after its usages changed.
+   */
+  void updateNumberDatasets(@Param("key") String key);
+
   List<Download> list(@Nullable @Param("page") Pageable page);
 
   int count();
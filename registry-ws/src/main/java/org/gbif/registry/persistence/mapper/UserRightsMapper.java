@@ -8,6 +8,13 @@ public interface UserRightsMapper {
 
   boolean keyExistsForUser(@Param("username") String username, @Param("key") UUID key);
 
+  /**
+   * Checks whether the user has editor rights on the entity or any entity owning it, i.e. the installation, publishing
+   * organization or endorsing node of a dataset, the organization or endorsing node of an installation or the
+   * endorsing node of an organization.
+   */
+  boolean keyOrOwnerExistsForUser(@Param("username") String username, @Param("key") UUID key);
+
   boolean namespaceExistsForUser(@Param("username") String username, @Param("ns") String namespace);
 
   boolean allowedToDeleteMachineTag(@Param("username") String username, @Param("key") int machineTagKey);
@@ -0,0 +1,50 @@
+package org.gbif.registry.persistence.mapper.handler;
+
+import java.sql.Array;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+/** {@link org.apache.ibatis.type.TypeHandler} for uuid arrays, e.g. to query a set of keys with {@code = ANY(?)}. */
+public class UuidArrayTypeHandler extends BaseTypeHandler<Collection<UUID>> {
+
+  @Override
+  public void setNonNullParameter(
+      PreparedStatement ps, int i, Collection<UUID> parameter, JdbcType jdbcType)
+      throws SQLException {
+    Array array = ps.getConnection().createArrayOf("uuid", parameter.toArray());
+    ps.setArray(i, array);
+  }
+
+  @Override
+  public Collection<UUID> getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    return toList(rs.getArray(columnName));
+  }
+
+  @Override
+  public Collection<UUID> getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    return toList(rs.getArray(columnIndex));
+  }
+
+  @Override
+  public Collection<UUID> getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toList(cs.getArray(columnIndex));
+  }
+
+  private List<UUID> toList(Array pgArray) throws SQLException {
+    if (pgArray == null) return new ArrayList<>();
+
+    UUID[] uuids = (UUID[]) pgArray.getArray();
+    return uuids == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(uuids));
+  }
+}
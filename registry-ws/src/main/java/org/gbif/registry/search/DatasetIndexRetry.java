@@ -0,0 +1,93 @@
+package org.gbif.registry.search;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.google.common.base.Objects;
+
+/**
+ * A dataset index operation that failed and is waiting to be replayed.
+ */
+public class DatasetIndexRetry {
+
+  /**
+   * The operation to replay for the dataset.
+   */
+  public enum Operation {
+    INDEX, DELETE
+  }
+
+  private UUID datasetKey;
+  private Operation operation;
+  private int attempts;
+  private String lastError;
+  private Date nextAttempt;
+  private Date created;
+  private Date modified;
+
+  public UUID getDatasetKey() {
+    return datasetKey;
+  }
+
+  public void setDatasetKey(UUID datasetKey) {
+    this.datasetKey = datasetKey;
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  public void setOperation(Operation operation) {
+    this.operation = operation;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+
+  public Date getNextAttempt() {
+    return nextAttempt;
+  }
+
+  public void setNextAttempt(Date nextAttempt) {
+    this.nextAttempt = nextAttempt;
+  }
+
+  public Date getCreated() {
+    return created;
+  }
+
+  public void setCreated(Date created) {
+    this.created = created;
+  }
+
+  public Date getModified() {
+    return modified;
+  }
+
+  public void setModified(Date modified) {
+    this.modified = modified;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("datasetKey", datasetKey)
+      .add("operation", operation)
+      .add("attempts", attempts)
+      .add("nextAttempt", nextAttempt)
+      .toString();
+  }
+}
@@ -8,18 +8,35 @@ import org.gbif.api.service.registry.InstallationService;
 import org.gbif.api.service.registry.NetworkEntityService;
 import org.gbif.api.service.registry.OrganizationService;
 import org.gbif.api.util.iterables.Iterables;
+import org.gbif.registry.persistence.mapper.DatasetIndexRetryMapper;
 import org.gbif.utils.concurrent.NamedThreadFactory;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -28,78 +45,293 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.sun.jersey.api.NotFoundException;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.Timer;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.gbif.registry.search.guice.RegistrySearchModule.INDEXING_BATCH_SIZE_PROP;
+import static org.gbif.registry.search.guice.RegistrySearchModule.INDEXING_COMMIT_WITHIN_PROP;
+import static org.gbif.registry.search.guice.RegistrySearchModule.INDEXING_QUEUE_SIZE_PROP;
 import static org.gbif.registry.search.guice.RegistrySearchModule.INDEXING_THREADS_PROP;
 
 
 /**
  * A service that modifies the solr index, adding, updating or removing dataset documents.
+ * <p/>
+ * Changes are not sent to solr one by one. They are queued by dataset key, so repeated updates of the same dataset
+ * within a short debounce window result in a single document, and sent in batches using commitWithin instead of
+ * explicit commits. The solr documents of a batch are built in parallel.
+ * The queue is bounded: callers adding datasets block while it is full, so a large cascade (e.g. a publisher with
+ * thousands of datasets) never queues without limit.
+ * <p/>
+ * Operations that fail are recorded in the dataset_index_retry table and replayed by a background reconciler with an
+ * exponential backoff, so a solr outage no longer leaves the index silently out of sync.
  */
 @Singleton
 public class DatasetIndexService implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(DatasetIndexService.class);
+  // how long changes are collected before a batch smaller than the batch size is sent
+  private static final long DEBOUNCE_MSECS = 200;
+  // how often due retries are replayed and how many per run
+  private static final long RETRY_INTERVAL_SECONDS = 60;
+  private static final int RETRY_BATCH_SIZE = 1000;
+  private static final int MAX_ERROR_LENGTH = 1000;
   private final SolrClient solrClient;
   private final DatasetService datasetService;
   private final InstallationService installationService;
   private final OrganizationService organizationService;
+  private final DatasetIndexRetryMapper retryMapper;
   private final GetCache<Installation> installationCache;
   private final GetCache<Organization> organizationCache;
   private final DatasetDocConverter docConverter = new DatasetDocConverter();
-  private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
-  // Executes each submitted task (agent synchronization) using one of possibly several pooled threads
-  private ThreadPoolExecutor threadPool;
+  private final int batchSize;
+  private final int queueSize;
+  private final int commitWithinMsecs;
+
+  // pending changes keyed by dataset, guarded by the lock
+  private final Object lock = new Object();
+  private final Map<UUID, Dataset> pendingAdds = new LinkedHashMap<UUID, Dataset>();
+  private final Set<UUID> pendingDeletes = new LinkedHashSet<UUID>();
+  private boolean flushing;
+  private volatile boolean closed;
+  private volatile long lastWrite;
+  private volatile int retryBacklog;
+
+  // runs the organization and installation cascades which page through the datasets to update
+  private final LinkedBlockingQueue<Runnable> triggerQueue = new LinkedBlockingQueue<Runnable>();
+  private final ThreadPoolExecutor triggerPool;
+  // builds the solr documents of a batch in parallel
+  private final ExecutorService docBuilderPool;
+  private final Thread flusher;
+  // replays failed operations, which are tracked until written successfully
+  private final ScheduledExecutorService reconciler;
+  private final Set<UUID> retrying = Collections.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
+
+  private final Timer batchTimer = Metrics.newTimer(DatasetIndexService.class, "batch-latency",
+                                                    TimeUnit.MILLISECONDS, TimeUnit.SECONDS);
+  private final Meter indexed = Metrics.newMeter(DatasetIndexService.class, "indexed", "documents", TimeUnit.SECONDS);
+  private final Counter failures = Metrics.newCounter(DatasetIndexService.class, "failures");
+  private final Counter retried = Metrics.newCounter(DatasetIndexService.class, "retried");
 
   @Inject
   public DatasetIndexService(@Named("dataset") SolrClient solrClient, @Named(INDEXING_THREADS_PROP) int maxPoolSize,
-                             DatasetService datasetService, InstallationService installationService, OrganizationService organizationService) {
+                             @Named(INDEXING_BATCH_SIZE_PROP) int batchSize,
+                             @Named(INDEXING_QUEUE_SIZE_PROP) int queueSize,
+                             @Named(INDEXING_COMMIT_WITHIN_PROP) int commitWithinMsecs,
+                             DatasetService datasetService, InstallationService installationService, OrganizationService organizationService,
+                             DatasetIndexRetryMapper retryMapper) {
     Preconditions.checkArgument(maxPoolSize>0 && maxPoolSize<100, "max pool size needs to be in the range of 1-100");
+    Preconditions.checkArgument(batchSize > 0 && queueSize >= batchSize, "queue size needs to be at least the batch size");
     this.solrClient = solrClient;
     this.datasetService = datasetService;
     this.installationService = installationService;
     this.organizationService = organizationService;
+    this.retryMapper = retryMapper;
+    this.batchSize = batchSize;
+    this.queueSize = queueSize;
+    this.commitWithinMsecs = commitWithinMsecs;
     // use a cache for repeated lookups
     this.installationCache = new GetCache<Installation>(installationService);
     this.organizationCache = new GetCache<Organization>(organizationService);
 
-    threadPool = new ThreadPoolExecutor(1, maxPoolSize, 10, TimeUnit.SECONDS, queue, new NamedThreadFactory("dataset-index-service"));
+    triggerPool = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, triggerQueue, new NamedThreadFactory("dataset-index-trigger"));
+    docBuilderPool = Executors.newFixedThreadPool(maxPoolSize, new NamedThreadFactory("dataset-index-service"));
+    flusher = new NamedThreadFactory("dataset-index-flusher").newThread(new Runnable() {
+      @Override
+      public void run() {
+        flushLoop();
+      }
+    });
+    flusher.start();
+
+    reconciler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("dataset-index-reconciler"));
+    reconciler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          replayRetries();
+        } catch (Exception e) {
+          LOG.error("Failed to replay failed dataset index operations", e);
+        }
+      }
+    }, RETRY_INTERVAL_SECONDS, RETRY_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+    Metrics.newGauge(DatasetIndexService.class, "queue-depth", new Gauge<Integer>() {
+      @Override
+      public Integer value() {
+        synchronized (lock) {
+          return pendingAdds.size() + pendingDeletes.size();
+        }
+      }
+    });
+    Metrics.newGauge(DatasetIndexService.class, "retry-backlog", new Gauge<Integer>() {
+      @Override
+      public Integer value() {
+        return retryBacklog;
+      }
+    });
   }
 
   public void add(Dataset dataset) {
     if (dataset != null) {
-      threadPool.submit(new IndexDatasetJob(dataset));
+      enqueue(dataset);
     }
   }
 
   public void add(Collection<Dataset> datasets) {
-    if (datasets != null && !datasets.isEmpty()) {
-      threadPool.submit(new IndexDatasetJob(datasets));
+    if (datasets != null) {
+      for (Dataset d : datasets) {
+        enqueue(d);
+      }
     }
   }
 
   public void delete(UUID datasetKey) {
     if (datasetKey != null) {
-      threadPool.submit(new DeleteDatasetJob(datasetKey));
+      synchronized (lock) {
+        pendingAdds.remove(datasetKey);
+        pendingDeletes.add(datasetKey);
+        lock.notifyAll();
+      }
     }
   }
 
   public void trigger(Organization org) {
     if (org != null) {
-      threadPool.submit(new IndexOrganizationJob(org));
+      triggerPool.submit(new IndexOrganizationJob(org));
     }
   }
 
   public void trigger(Installation installation) {
     if (installation != null) {
-      threadPool.submit(new IndexInstallationJob(installation));
+      triggerPool.submit(new IndexInstallationJob(installation));
+    }
+  }
+
+  /**
+   * Queues the dataset, replacing any pending version of it. Blocks while the queue is full.
+   */
+  private void enqueue(Dataset dataset) {
+    if (!flusher.isAlive()) {
+      LOG.warn("Index service is closed, ignoring update of dataset {}", dataset.getKey());
+      return;
+    }
+    synchronized (lock) {
+      try {
+        while (pendingAdds.size() >= queueSize && !pendingAdds.containsKey(dataset.getKey())) {
+          lock.wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.warn("Interrupted while waiting to index dataset {} - index is now out of sync", dataset.getKey());
+        return;
+      }
+      pendingDeletes.remove(dataset.getKey());
+      pendingAdds.put(dataset.getKey(), dataset);
+      lock.notifyAll();
+    }
+  }
+
+  private int pendingCount() {
+    return pendingAdds.size() + pendingDeletes.size();
+  }
+
+  /**
+   * Takes batches of pending changes and writes them to solr until the service is closed and all changes are written.
+   */
+  private void flushLoop() {
+    try {
+      while (true) {
+        List<Dataset> adds = Lists.newArrayList();
+        List<UUID> deletes;
+        synchronized (lock) {
+          while (pendingCount() == 0) {
+            if (closed && triggerPool.isTerminated()) {
+              return;
+            }
+            lock.wait(DEBOUNCE_MSECS);
+          }
+          // collect repeated changes of the same datasets unless a full batch is waiting already
+          long deadline = System.currentTimeMillis() + DEBOUNCE_MSECS;
+          long wait;
+          while (!closed && pendingAdds.size() < batchSize && (wait = deadline - System.currentTimeMillis()) > 0) {
+            lock.wait(wait);
+          }
+          Iterator<Dataset> iter = pendingAdds.values().iterator();
+          while (iter.hasNext() && adds.size() < batchSize) {
+            adds.add(iter.next());
+            iter.remove();
+          }
+          deletes = Lists.newArrayList(pendingDeletes);
+          pendingDeletes.clear();
+          flushing = true;
+          // wake up callers waiting for space in the queue
+          lock.notifyAll();
+        }
+
+        try {
+          write(adds, deletes);
+        } finally {
+          synchronized (lock) {
+            flushing = false;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.error("Dataset index flusher interrupted - index is now out of sync");
     }
   }
 
+  private void write(List<Dataset> datasets, List<UUID> deletes) {
+    Stopwatch watch = Stopwatch.createStarted();
+    List<UUID> written = Lists.newArrayList();
+    if (!datasets.isEmpty()) {
+      try {
+        Map<UUID, SolrInputDocument> docs = toDocs(datasets);
+        if (!docs.isEmpty()) {
+          solrClient.add(docs.values(), commitWithinMsecs);
+          indexed.mark(docs.size());
+          written.addAll(docs.keySet());
+        }
+      } catch (Exception e) {
+        LOG.error("Unable to update {} datasets - scheduled for retry", datasets.size(), e);
+        for (Dataset d : datasets) {
+          recordFailure(d.getKey(), DatasetIndexRetry.Operation.INDEX, e);
+        }
+      }
+    }
+    if (!deletes.isEmpty()) {
+      try {
+        solrClient.deleteById(Lists.transform(deletes, Functions.toStringFunction()), commitWithinMsecs);
+        written.addAll(deletes);
+      } catch (Exception e) {
+        LOG.error("Unable to delete {} datasets from SOLR - scheduled for retry", deletes.size(), e);
+        for (UUID key : deletes) {
+          recordFailure(key, DatasetIndexRetry.Operation.DELETE, e);
+        }
+      }
+    }
+    clearRetries(written);
+    lastWrite = System.currentTimeMillis();
+    batchTimer.update(watch.elapsed(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Builds the solr document of a dataset without indexing it, e.g. to write it into a new index.
+   */
+  public SolrInputDocument toDocument(Dataset dataset) {
+    return toDoc(dataset);
+  }
+
   private SolrInputDocument toDoc(Dataset d) {
       // see http://dev.gbif.org/issues/browse/REG-405 which explains why we defend against NotFoundExceptions below
 
@@ -137,20 +369,116 @@ public class DatasetIndexService implements AutoCloseable {
     );
   }
 
-  private List<SolrInputDocument> toDocs(Iterable<Dataset> datasets) {
-    List<SolrInputDocument> docs = Lists.newArrayList();
-    for (Dataset d : datasets) {
-      docs.add(toDoc(d));
+  /**
+   * Builds the documents in parallel keyed by dataset, leaving out datasets that cannot be converted.
+   * These are scheduled for a retry instead.
+   */
+  private Map<UUID, SolrInputDocument> toDocs(List<Dataset> datasets) throws InterruptedException {
+    List<Future<SolrInputDocument>> futures = Lists.newArrayListWithCapacity(datasets.size());
+    for (final Dataset d : datasets) {
+      futures.add(docBuilderPool.submit(new Callable<SolrInputDocument>() {
+        @Override
+        public SolrInputDocument call() throws Exception {
+          return toDoc(d);
+        }
+      }));
+    }
+    Map<UUID, SolrInputDocument> docs = new LinkedHashMap<UUID, SolrInputDocument>();
+    for (int i = 0; i < futures.size(); i++) {
+      UUID key = datasets.get(i).getKey();
+      try {
+        docs.put(key, futures.get(i).get());
+      } catch (ExecutionException e) {
+        LOG.error("Unable to build solr document for dataset {} - scheduled for retry", key, e.getCause());
+        recordFailure(key, DatasetIndexRetry.Operation.INDEX, e.getCause());
+      }
     }
     return docs;
   }
 
+  /**
+   * Stores a failed operation so the reconciler replays it later.
+   * If even that fails the index is out of sync until the dataset changes again or the index is rebuilt.
+   */
+  private void recordFailure(UUID datasetKey, DatasetIndexRetry.Operation operation, Throwable cause) {
+    failures.inc();
+    try {
+      String error = Throwables.getStackTraceAsString(cause);
+      retryMapper.upsert(datasetKey, operation, error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH)));
+      retrying.add(datasetKey);
+    } catch (Exception e) {
+      LOG.error("Unable to schedule {} of dataset {} for retry - index is now out of sync", operation, datasetKey, e);
+    }
+  }
+
+  /**
+   * Removes pending retries of datasets that have been written successfully since.
+   */
+  private void clearRetries(List<UUID> written) {
+    List<UUID> done = Lists.newArrayList();
+    for (UUID key : written) {
+      if (retrying.remove(key)) {
+        done.add(key);
+      }
+    }
+    if (!done.isEmpty()) {
+      try {
+        retryMapper.delete(done);
+      } catch (Exception e) {
+        // harmless, the operation will just be replayed once more
+        LOG.warn("Unable to remove {} index retries", done.size(), e);
+        retrying.addAll(done);
+      }
+    }
+  }
+
+  /**
+   * Replays the failed operations that are due with the current state of the dataset.
+   * Retries of datasets that no longer exist or are deleted become deletes.
+   */
+  @VisibleForTesting
+  void replayRetries() {
+    retryBacklog = retryMapper.count();
+    List<DatasetIndexRetry> due = retryMapper.listDue(RETRY_BATCH_SIZE);
+    if (due.isEmpty()) {
+      return;
+    }
+    LOG.info("Replaying {} failed dataset index operations", due.size());
+    for (DatasetIndexRetry r : due) {
+      UUID key = r.getDatasetKey();
+      retrying.add(key);
+      retried.inc();
+      if (r.getOperation() == DatasetIndexRetry.Operation.DELETE) {
+        delete(key);
+      } else {
+        Dataset d;
+        try {
+          d = datasetService.get(key);
+        } catch (NotFoundException e) {
+          d = null;
+        }
+        if (d == null || d.getDeleted() != null) {
+          delete(key);
+        } else {
+          add(d);
+        }
+      }
+    }
+  }
+
   /**
    * Allows an external process to observe if there are pending actions in the queue or currently running in the executor.
+   * Documents sent to solr count as pending until the commitWithin time has passed and they became visible.
    * It is only anticipated that integration tests will use this method.
    */
   public boolean isActive() {
-    return !queue.isEmpty() || threadPool.getActiveCount() > 0;
+    synchronized (lock) {
+      if (pendingCount() > 0 || flushing) {
+        return true;
+      }
+    }
+    return !triggerQueue.isEmpty() || triggerPool.getActiveCount() > 0
+           || System.currentTimeMillis() - lastWrite < commitWithinMsecs;
   }
 
   /**
@@ -158,16 +486,29 @@ public class DatasetIndexService implements AutoCloseable {
    */
   public void closeAndAwaitTermination() throws Exception {
     close();
-    if (!threadPool.awaitTermination(2, TimeUnit.HOURS)) {
+    Stopwatch watch = Stopwatch.createStarted();
+    if (!triggerPool.awaitTermination(2, TimeUnit.HOURS)) {
       LOG.error("Forcing shut down of dataset indexing thread pool after 2 hours of indexing. Dataset index is out of sync!");
-      threadPool.shutdownNow();
+      triggerPool.shutdownNow();
+    }
+    flusher.join(Math.max(1, TimeUnit.HOURS.toMillis(2) - watch.elapsed(TimeUnit.MILLISECONDS)));
+    if (flusher.isAlive()) {
+      LOG.error("Forcing shut down of dataset indexing after 2 hours of indexing. Dataset index is out of sync!");
+      flusher.interrupt();
     }
+    docBuilderPool.shutdown();
+    commit();
   }
 
   @Override
   public void close() throws Exception {
     LOG.info("Shutting down index service threadpool");
-    threadPool.shutdown();
+    triggerPool.shutdown();
+    reconciler.shutdown();
+    synchronized (lock) {
+      closed = true;
+      lock.notifyAll();
+    }
   }
 
   private void commit() throws IOException, SolrServerException {
@@ -175,51 +516,6 @@ public class DatasetIndexService implements AutoCloseable {
     solrClient.commit(false, true, true);
   }
 
-  private void addDocs(Collection<SolrInputDocument> docs) throws IOException, SolrServerException {
-    if (docs != null && !docs.isEmpty()) {
-      solrClient.add(docs);
-    }
-  }
-
-  private class IndexDatasetJob implements Runnable {
-    private final Collection<Dataset> datasets;
-
-    private IndexDatasetJob(Dataset dataset) {
-      this(Lists.<Dataset>newArrayList(dataset));
-    }
-
-    private IndexDatasetJob(Collection<Dataset> datasets) {
-      this.datasets = datasets;
-    }
-
-    @Override
-    public void run() {
-      try {
-        solrClient.add(toDocs(datasets));
-        commit();
-      } catch (Exception e) {
-        LOG.error("Unable to update {} datasets - index is now out of sync", datasets.size(), e);
-      }
-    }
-  }
-
-  private class DeleteDatasetJob implements Runnable {
-    private final UUID key;
-
-    private DeleteDatasetJob(UUID key) {
-      this.key = key;
-    }
-    @Override
-    public void run() {
-      try {
-        solrClient.deleteById(key.toString());
-        commit();
-      } catch (Exception e) {
-        LOG.error("Unable to delete dataset {} from SOLR - index is now out of sync", key, e);
-      }
-    }
-  }
-
   private class IndexOrganizationJob implements Runnable {
     private final Organization organization;
 
@@ -235,8 +531,9 @@ public class DatasetIndexService implements AutoCloseable {
       // Update published datasets for the organization
       try {
         LOG.debug("Updating published datasets for organization {}", organization.getKey());
-        Iterable<Dataset> datasets = Iterables.publishedDatasets(organization.getKey(), null, organizationService);
-        addDocs(toDocs(datasets));
+        for (Dataset d : Iterables.publishedDatasets(organization.getKey(), null, organizationService)) {
+          add(d);
+        }
       } catch (Exception e) {
         LOG.error("Unable to update published datasets for organization {} - index is now out of sync", organization.getKey(), e);
       }
@@ -244,9 +541,9 @@ public class DatasetIndexService implements AutoCloseable {
       // Update hosted datasets for the organization
       try {
         LOG.debug("Updating hosted datasets for organization {}: {}", organization.getKey(), organization.getTitle());
-        Iterable<Dataset> datasets = Iterables.hostedDatasets(organization.getKey(), null, organizationService);
-        addDocs(toDocs(datasets));
-        commit();
+        for (Dataset d : Iterables.hostedDatasets(organization.getKey(), null, organizationService)) {
+          add(d);
+        }
       } catch (Exception e) {
         LOG.error("Unable to update hosted datasets for organization {} - index is now out of sync", organization.getKey(), e);
       }
@@ -268,9 +565,9 @@ public class DatasetIndexService implements AutoCloseable {
       // Update hosted datasets for the organization
       try {
         LOG.debug("Updating hosted datasets for installation {}", installation.getKey());
-        Iterable<Dataset> datasets = Iterables.hostedDatasets(installation.getKey(), null, installationService);
-        addDocs(toDocs(datasets));
-        commit();
+        for (Dataset d : Iterables.hostedDatasets(installation.getKey(), null, installationService)) {
+          add(d);
+        }
       } catch (Exception e) {
         LOG.error("Unable to update hosted datasets for installation {} - index is now out of sync", installation.getKey(), e);
       }
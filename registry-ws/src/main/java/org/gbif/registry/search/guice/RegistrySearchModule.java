@@ -33,6 +33,9 @@ public class RegistrySearchModule extends PrivateModule {
   public static final Key<SolrClient> DATASET_KEY = Key.get(SolrClient.class, Names.named(DATASET_BINDING_NAME));
 
   public static final String INDEXING_THREADS_PROP = "solr.indexing.threads";
+  public static final String INDEXING_BATCH_SIZE_PROP = "solr.indexing.batchSize";
+  public static final String INDEXING_QUEUE_SIZE_PROP = "solr.indexing.queueSize";
+  public static final String INDEXING_COMMIT_WITHIN_PROP = "solr.indexing.commitWithinMsecs";
   public static final String SOLR_DATASET_PREFIX = "solr.dataset.";
   private static final String SOLR_PUBLISHER_PREFIX = "solr.publisher.";
   private final Properties properties;
@@ -65,8 +68,11 @@ public class RegistrySearchModule extends PrivateModule {
     expose(DATASET_KEY); // for testing
     expose(DatasetIndexService.class);
 
-    // solr indexing threads
+    // solr indexing threads and batching
     bindInt(INDEXING_THREADS_PROP, INDEXING_THREADS_PROP);
+    bindInt(INDEXING_BATCH_SIZE_PROP, INDEXING_BATCH_SIZE_PROP, 100);
+    bindInt(INDEXING_QUEUE_SIZE_PROP, INDEXING_QUEUE_SIZE_PROP, 5000);
+    bindInt(INDEXING_COMMIT_WITHIN_PROP, INDEXING_COMMIT_WITHIN_PROP, 1000);
 
     // 6 email properties:
     // use dev email?
@@ -116,4 +122,13 @@ public class RegistrySearchModule extends PrivateModule {
     }
   }
 
+  /**
+   * Map the String property "fromProperty" to and Integer named annotation "name", using the default if not present.
+   */
+  private void bindInt(String fromProperty, String name, int defaultValue) {
+    int from = Integer.valueOf(properties.getProperty(fromProperty, String.valueOf(defaultValue)).trim());
+    bind(Integer.class).annotatedWith(Names.named(name)).toInstance(from);
+    expose(Integer.class).annotatedWith(Names.named(name));
+  }
+
 }
@@ -39,4 +39,8 @@ public class EditorAuthorizationServiceStub implements EditorAuthorizationServic
   public boolean allowedToModifyInstallation(Principal user, UUID installationKey) {
     return false;
   }
+
+  @Override
+  public void editorRightsChanged(String username) {
+  }
 }
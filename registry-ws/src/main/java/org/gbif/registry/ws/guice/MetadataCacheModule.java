@@ -0,0 +1,43 @@
+package org.gbif.registry.ws.guice;
+
+import org.gbif.registry.ws.resources.RenderedMetadataCache;
+
+import java.io.File;
+import java.util.Properties;
+
+import com.google.common.base.Strings;
+import com.google.common.eventbus.EventBus;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+
+/**
+ * Configures the cache of rendered metadata documents. Without this module the cache is held in memory only using
+ * its default limits.
+ */
+public class MetadataCacheModule extends AbstractModule {
+
+  public static final String MAX_MEGABYTES_PROPERTY = "registry.metadata.cache.maxMegabytes";
+  public static final String DIR_PROPERTY = "registry.metadata.cache.dir";
+  public static final String EXPIRE_MINUTES_PROPERTY = "registry.metadata.cache.expireMinutes";
+
+  private final Properties properties;
+
+  public MetadataCacheModule(Properties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  protected void configure() {
+  }
+
+  @Provides
+  @Singleton
+  private RenderedMetadataCache provideRenderedMetadataCache(EventBus eventBus) {
+    long maxMegabytes = Long.valueOf(properties.getProperty(MAX_MEGABYTES_PROPERTY, "64").trim());
+    String dir = Strings.emptyToNull(Strings.nullToEmpty(properties.getProperty(DIR_PROPERTY)).trim());
+    long expireMinutes = Long.valueOf(properties.getProperty(EXPIRE_MINUTES_PROPERTY, "60").trim());
+    return new RenderedMetadataCache(eventBus, maxMegabytes * 1024 * 1024, dir == null ? null : new File(dir),
+                                     expireMinutes);
+  }
+}
@@ -14,12 +14,17 @@ package org.gbif.registry.ws.guice;
 
 import org.gbif.identity.inject.IdentityModule;
 import org.gbif.occurrence.query.TitleLookupModule;
+import org.gbif.registry.directory.Augmenter;
+import org.gbif.registry.directory.DirectoryAugmenterImpl;
 import org.gbif.registry.directory.DirectoryModule;
 import org.gbif.registry.doi.DoiModule;
+import org.gbif.registry.events.CoalescingVarnishPurger;
 import org.gbif.registry.events.EventModule;
 import org.gbif.registry.events.VarnishPurgeModule;
+import org.gbif.registry.events.outbox.OutboxEventDispatcher;
 import org.gbif.registry.metrics.guice.OccurrenceMetricsModule;
 import org.gbif.registry.oaipmh.guice.OaipmhModule;
+import org.gbif.registry.persistence.DownloadStatisticsUpdater;
 import org.gbif.registry.persistence.guice.RegistryMyBatisModule;
 import org.gbif.registry.search.guice.RegistrySearchModule;
 import org.gbif.registry.surety.email.EmailManagerModule;
@@ -42,10 +47,12 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import javax.servlet.ServletContextEvent;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 import com.google.inject.Module;
 import com.sun.jersey.spi.container.ContainerRequestFilter;
 import com.sun.jersey.spi.container.ContainerResponseFilter;
@@ -131,7 +138,8 @@ public class RegistryWsServletListener extends GbifServletListener {
                               new VarnishPurgeModule(properties),
                               new TitleLookupModule(true, properties.getProperty(API_URL_PROPERTY)),
                               new OccurrenceMetricsModule(getMetricsProperties(properties)),
-                              new OaipmhModule(properties));
+                              new OaipmhModule(properties),
+                              new MetadataCacheModule(properties));
   }
 
   @VisibleForTesting
@@ -139,4 +147,32 @@ public class RegistryWsServletListener extends GbifServletListener {
   protected Injector getInjector() {
     return super.getInjector();
   }
+
+  /**
+   * Stops the background threads started by the registry, which would otherwise outlive an undeployed webapp.
+   */
+  @Override
+  public void contextDestroyed(ServletContextEvent servletContextEvent) {
+    // the injector created for this context, as kept by guice-servlet
+    Injector injector = (Injector) servletContextEvent.getServletContext().getAttribute(Injector.class.getName());
+    if (injector != null) {
+      Augmenter augmenter = injector.getInstance(Augmenter.class);
+      if (augmenter instanceof DirectoryAugmenterImpl) {
+        ((DirectoryAugmenterImpl) augmenter).stop();
+      }
+      // only bound if the statistics are updated by this node
+      if (injector.getExistingBinding(Key.get(DownloadStatisticsUpdater.class)) != null) {
+        injector.getInstance(DownloadStatisticsUpdater.class).close();
+      }
+      // only bound if events are dispatched through the outbox
+      if (injector.getExistingBinding(Key.get(OutboxEventDispatcher.class)) != null) {
+        injector.getInstance(OutboxEventDispatcher.class).close();
+      }
+      // only bound if varnish purging is configured, closed last to send the purges of the events delivered above
+      if (injector.getExistingBinding(Key.get(CoalescingVarnishPurger.class)) != null) {
+        injector.getInstance(CoalescingVarnishPurger.class).close();
+      }
+    }
+    super.contextDestroyed(servletContextEvent);
+  }
 }
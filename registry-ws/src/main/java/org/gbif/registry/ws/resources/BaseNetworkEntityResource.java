@@ -12,6 +12,7 @@
  */
 package org.gbif.registry.ws.resources;
 
+import org.gbif.api.model.common.paging.CursorPagingResponse;
 import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.model.common.paging.PagingRequest;
 import org.gbif.api.model.common.paging.PagingResponse;
@@ -32,6 +33,7 @@ import org.gbif.registry.events.ChangedComponentEvent;
 import org.gbif.registry.events.CreateEvent;
 import org.gbif.registry.events.DeleteEvent;
 import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.persistence.EntityCounts;
 import org.gbif.registry.persistence.WithMyBatis;
 import org.gbif.registry.persistence.mapper.BaseNetworkEntityMapper;
 import org.gbif.registry.persistence.mapper.CommentMapper;
@@ -75,7 +77,6 @@ import javax.ws.rs.core.SecurityContext;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.collect.Maps;
 import com.google.common.eventbus.EventBus;
 import org.apache.bval.guice.Validate;
 import org.mybatis.guice.transactional.Transactional;
@@ -114,6 +115,8 @@ public class BaseNetworkEntityResource<T extends NetworkEntity> implements Netwo
   private final Class<T> objectClass;
   private final EventBus eventBus;
   private final EditorAuthorizationService userAuthService;
+  private final TitleCache<T> titleCache;
+  private final EntityCounts counts;
 
   protected BaseNetworkEntityResource(
     BaseNetworkEntityMapper<T> mapper,
@@ -125,7 +128,8 @@ public class BaseNetworkEntityResource<T extends NetworkEntity> implements Netwo
     TagMapper tagMapper,
     Class<T> objectClass,
     EventBus eventBus,
-    EditorAuthorizationService userAuthService) {
+    EditorAuthorizationService userAuthService,
+    EntityCounts counts) {
     this.mapper = mapper;
     this.commentMapper = commentMapper;
     this.machineTagMapper = machineTagMapper;
@@ -136,6 +140,8 @@ public class BaseNetworkEntityResource<T extends NetworkEntity> implements Netwo
     this.objectClass = objectClass;
     this.eventBus = eventBus;
     this.userAuthService = userAuthService;
+    this.titleCache = new TitleCache<>(mapper, objectClass, eventBus);
+    this.counts = counts;
   }
 
   /**
@@ -228,15 +234,12 @@ public class BaseNetworkEntityResource<T extends NetworkEntity> implements Netwo
   }
 
   // we do a post not get cause we expect large numbers of keys to be sent
+  // titles not yet cached are read with a single query, however many keys are sent
   @POST
   @Path("titles")
   @Override
   public Map<UUID, String> getTitles(Collection<UUID> keys) {
-    Map<UUID, String> titles = Maps.newHashMap();
-    for (UUID key : keys) {
-      titles.put(key, mapper.title(key));
-    }
-    return titles;
+    return titleCache.get(keys);
   }
 
   /**
@@ -245,16 +248,73 @@ public class BaseNetworkEntityResource<T extends NetworkEntity> implements Netwo
    */
   @Override
   public PagingResponse<T> search(String query, @Nullable Pageable page) {
+    return search(query, page, true);
+  }
+
+  /**
+   * The simple search, optionally without counting all matches.
+   */
+  protected PagingResponse<T> search(String query, @Nullable Pageable page, boolean count) {
     page = page == null ? new PagingRequest() : page;
     // trim and handle null from given input
-    String q = Strings.nullToEmpty(CharMatcher.WHITESPACE.trimFrom(query));
-    return WithMyBatis.search(mapper, q, page);
+    final String q = Strings.nullToEmpty(CharMatcher.WHITESPACE.trimFrom(query));
+    Long total = count ? counts.count(objectClass, EntityCounts.filter("q", q), () -> (long) mapper.count(q)) : null;
+    return WithMyBatis.search(mapper, q, page, total);
   }
 
   @Override
   public PagingResponse<T> list(@Nullable Pageable page) {
+    return list(page, true);
+  }
+
+  /**
+   * Lists all entities, optionally without counting them.
+   */
+  protected PagingResponse<T> list(@Nullable Pageable page, boolean count) {
+    page = page == null ? new PagingRequest() : page;
+    return WithMyBatis.list(mapper, page, count(count));
+  }
+
+  /**
+   * Lists all entities with cursor based paging, ignoring the offset of the page.
+   *
+   * @param cursor the next cursor of the previous page, empty for the first page
+   */
+  protected CursorPagingResponse<T> listAfter(String cursor, @Nullable Pageable page, boolean count) {
     page = page == null ? new PagingRequest() : page;
-    return WithMyBatis.list(mapper, page);
+    if (page.getLimit() < 1) {
+      throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                                          .entity("Invalid limit " + page.getLimit()).type(MediaType.TEXT_PLAIN).build());
+    }
+    try {
+      return WithMyBatis.listAfter(mapper, cursor, page.getLimit(), count(count));
+    } catch (IllegalArgumentException e) {
+      throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                                          .entity("Invalid cursor " + cursor).type(MediaType.TEXT_PLAIN).build());
+    }
+  }
+
+  /**
+   * @return the count of all entities as configured, null if not requested
+   */
+  @Nullable
+  private Long count(boolean count) {
+    return count ? counts.countAll(objectClass, mapper) : null;
+  }
+
+  /**
+   * Gives subclasses access to the configured counts for their filtered listings.
+   */
+  protected EntityCounts counts() {
+    return counts;
+  }
+
+  /**
+   * Lists all entities as requested on the root path (e.g. /dataset) without any filters: with cursor based paging if
+   * a cursor is given, empty for the first page, otherwise with offset paging.
+   */
+  protected PagingResponse<T> list(@Nullable String cursor, @Nullable Pageable page, boolean count) {
+    return cursor == null ? list(page, count) : listAfter(cursor, page, count);
   }
 
   @Override
@@ -0,0 +1,42 @@
+package org.gbif.registry.ws.resources;
+
+import org.gbif.api.model.common.paging.Pageable;
+import org.gbif.api.model.common.paging.PagingResponse;
+import org.gbif.registry.persistence.mapper.DatasetIndexRetryMapper;
+import org.gbif.registry.search.DatasetIndexRetry;
+import org.gbif.ws.util.ExtraMediaTypes;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import static org.gbif.registry.ws.security.UserRoles.ADMIN_ROLE;
+
+/**
+ * Exposes the backlog of failed dataset index operations waiting to be replayed to administrators.
+ */
+@Singleton
+@Path("dataset/index")
+@Produces({MediaType.APPLICATION_JSON, ExtraMediaTypes.APPLICATION_JAVASCRIPT})
+public class DatasetIndexRetryResource {
+
+  private final DatasetIndexRetryMapper retryMapper;
+
+  @Inject
+  public DatasetIndexRetryResource(DatasetIndexRetryMapper retryMapper) {
+    this.retryMapper = retryMapper;
+  }
+
+  @GET
+  @Path("retry")
+  @RolesAllowed(ADMIN_ROLE)
+  public PagingResponse<DatasetIndexRetry> listRetries(@Context Pageable page) {
+    return new PagingResponse<>(page, (long) retryMapper.count(), retryMapper.list(page));
+  }
+}
@@ -15,6 +15,7 @@ package org.gbif.registry.ws.resources;
 import org.gbif.api.exception.ServiceUnavailableException;
 import org.gbif.api.model.Constants;
 import org.gbif.api.model.common.DOI;
+import org.gbif.api.model.common.paging.CursorPagingResponse;
 import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.model.common.paging.PagingResponse;
 import org.gbif.api.model.common.search.SearchResponse;
@@ -51,6 +52,7 @@ import org.gbif.registry.doi.handler.DataCiteDoiHandlerStrategy;
 import org.gbif.registry.metadata.CitationGenerator;
 import org.gbif.registry.metadata.EMLWriter;
 import org.gbif.registry.metadata.parse.DatasetParser;
+import org.gbif.registry.persistence.EntityCounts;
 import org.gbif.registry.persistence.WithMyBatis;
 import org.gbif.registry.persistence.mapper.CommentMapper;
 import org.gbif.registry.persistence.mapper.ContactMapper;
@@ -66,6 +68,7 @@ import org.gbif.registry.persistence.mapper.TagMapper;
 import org.gbif.registry.persistence.mapper.handler.ByteArrayWrapper;
 import org.gbif.registry.ws.guice.Trim;
 import org.gbif.registry.ws.security.EditorAuthorizationService;
+import org.gbif.registry.ws.util.PrerenderedResponse;
 import org.gbif.ws.server.interceptor.NullToNotFound;
 
 import java.io.ByteArrayInputStream;
@@ -87,6 +90,7 @@ import javax.validation.constraints.NotNull;
 import javax.validation.groups.Default;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -96,6 +100,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
 import com.google.common.base.Charsets;
@@ -107,10 +112,10 @@ import com.google.common.collect.Lists;
 import com.google.common.eventbus.EventBus;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
-import com.google.common.io.Closeables;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.sun.jersey.api.NotFoundException;
+import com.sun.jersey.api.core.HttpContext;
 import org.apache.bval.guice.Validate;
 import org.mybatis.guice.transactional.Transactional;
 import org.owasp.html.HtmlPolicyBuilder;
@@ -154,6 +159,8 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
   private final DatasetProcessStatusMapper datasetProcessStatusMapper;
   private final DoiGenerator doiGenerator;
   private final DataCiteDoiHandlerStrategy doiHandlerStrategy;
+  private final ParsedMetadataCache metadataCache;
+  private final RenderedMetadataCache renderedMetadataCache;
 
   private final LoadingCache<UUID, Organization> ORGANIZATION_CACHE = CacheBuilder.newBuilder()
           .expireAfterWrite(5, TimeUnit.MINUTES)
@@ -176,9 +183,10 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
     CommentMapper commentMapper, EventBus eventBus, DatasetSearchService searchService, MetadataMapper metadataMapper,
     DatasetProcessStatusMapper datasetProcessStatusMapper, NetworkMapper networkMapper,
     EditorAuthorizationService userAuthService, OrganizationMapper organizationMapper, DoiGenerator doiGenerator,
-    DataCiteDoiHandlerStrategy doiHandlingStrategy) {
+    DataCiteDoiHandlerStrategy doiHandlingStrategy, ParsedMetadataCache metadataCache,
+    RenderedMetadataCache renderedMetadataCache, EntityCounts counts) {
     super(datasetMapper, commentMapper, contactMapper, endpointMapper, identifierMapper, machineTagMapper, tagMapper,
-      Dataset.class, eventBus, userAuthService);
+      Dataset.class, eventBus, userAuthService, counts);
     this.searchService = searchService;
     this.metadataMapper = metadataMapper;
     this.datasetMapper = datasetMapper;
@@ -190,6 +198,8 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
     this.organizationMapper = organizationMapper;
     this.doiGenerator = doiGenerator;
     this.doiHandlerStrategy = doiHandlingStrategy;
+    this.metadataCache = metadataCache;
+    this.renderedMetadataCache = renderedMetadataCache;
   }
 
   @GET
@@ -240,6 +250,8 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
     @Nullable @QueryParam("machineTagName") String name,
     @Nullable @QueryParam("machineTagValue") String value,
     @Nullable @QueryParam("q") String query,
+    @Nullable @QueryParam("cursor") String cursor,
+    @DefaultValue("true") @QueryParam("count") boolean count,
     @Nullable @Context Pageable page
   ) {
     // This is getting messy: http://dev.gbif.org/issues/browse/REG-426
@@ -254,56 +266,51 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
     } else if (namespace != null) {
       return listByMachineTag(namespace, name, value, page);
     } else if (!Strings.isNullOrEmpty(query)) {
-      return search(query, page);
+      return search(query, page, count);
     } else {
-      return list(page);
+      return list(cursor, page, count);
     }
   }
 
   @Override
   public PagingResponse<Dataset> listByCountry(Country country, DatasetType type, Pageable page) {
-    long total = datasetMapper.countWithFilter(country, type);
+    long total = counts().count(Dataset.class, EntityCounts.filter(country, type),
+      () -> (long) datasetMapper.countWithFilter(country, type));
     return pagingResponse(page, total, datasetMapper.listWithFilter(country, type, page));
   }
 
   @Override
   public PagingResponse<Dataset> listByType(DatasetType type, Pageable page) {
-    long total = datasetMapper.countWithFilter(null, type);
+    long total = counts().count(Dataset.class, EntityCounts.filter(null, type),
+      () -> (long) datasetMapper.countWithFilter(null, type));
     return pagingResponse(page, total, datasetMapper.listWithFilter(null, type, page));
   }
 
 
   @Override
-  public PagingResponse<Dataset> search(String query, @Nullable Pageable page) {
-    return augmentWithMetadata(super.search(query, page));
+  protected PagingResponse<Dataset> search(String query, @Nullable Pageable page, boolean count) {
+    return augmentWithMetadata(super.search(query, page, count));
   }
 
   @Override
-  public PagingResponse<Dataset> list(@Nullable Pageable page) {
-    return augmentWithMetadata(super.list(page));
+  protected PagingResponse<Dataset> list(@Nullable Pageable page, boolean count) {
+    return augmentWithMetadata(super.list(page, count));
+  }
+
+  @Override
+  protected CursorPagingResponse<Dataset> listAfter(String cursor, @Nullable Pageable page, boolean count) {
+    CursorPagingResponse<Dataset> response = super.listAfter(cursor, page, count);
+    augmentWithMetadata(response);
+    return response;
   }
 
   /**
    * Returns the parsed, preferred metadata document as a dataset.
+   * Parsed documents are cached, the returned dataset is a copy that can be modified.
    */
   @Nullable
   private Dataset getPreferredMetadataDataset(UUID key) {
-    List<Metadata> docs = listMetadata(key, null);
-    if (!docs.isEmpty()) {
-      InputStream stream = null;
-      try {
-        // the list is sorted by priority already, just pick the first!
-        stream = getMetadataDocument(docs.get(0).getKey());
-        return DatasetParser.build(stream);
-      } catch (IOException | IllegalArgumentException e) {
-        //Not sure if we should not propagate an Exception to return a 500 instead
-        LOG.error("Stored metadata document {} cannot be read", docs.get(0).getKey(), e);
-      } finally {
-        Closeables.closeQuietly(stream);
-      }
-    }
-
-    return null;
+    return metadataCache.get(key);
   }
 
   /**
@@ -314,12 +321,21 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
   public PagingResponse<Dataset> augmentWithMetadata(PagingResponse<Dataset> resp) {
     List<Dataset> augmented = Lists.newArrayList();
     for (Dataset d : resp.getResults()) {
-      augmented.add(merge(getPreferredMetadataDataset(d.getKey()), d));
+      augmented.add(augmentWithMetadata(d));
     }
     resp.setResults(augmented);
     return resp;
   }
 
+  /**
+   * Augments a single dataset with information from its preferred metadata document.
+   *
+   * @return the augmented dataset, which is the given instance if there is no metadata document
+   */
+  public Dataset augmentWithMetadata(Dataset dataset) {
+    return merge(getPreferredMetadataDataset(dataset.getKey()), dataset);
+  }
+
   /**
    * Augments the target dataset with all persistable properties from the supplementary dataset.
    * Typically the target would be a dataset built from rich XML metadata, and the supplementary would be the persisted
@@ -391,25 +407,41 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
     return target;
   }
 
+  @Override
+  public InputStream getMetadataDocument(UUID datasetKey) {
+    PrerenderedResponse eml = renderEml(datasetKey);
+    return eml == null ? null : eml.openStream();
+  }
+
+  /**
+   * Serves the generated EML document of the dataset with an ETag and Last-Modified header.
+   */
   @Path("{key}/document")
   @GET
   @Produces(MediaType.APPLICATION_XML)
-  @Override
-  public InputStream getMetadataDocument(@PathParam("key") UUID datasetKey) {
-    // the fully augmented dataset
-    Dataset dataset = get(datasetKey);
-    if (dataset != null) {
-      // generate new EML
-      try {
+  public Response getMetadataDocument(@PathParam("key") UUID datasetKey, @Context HttpContext context) {
+    PrerenderedResponse eml = renderEml(datasetKey);
+    return eml == null ? null : eml.respond(context);
+  }
+
+  /**
+   * Generates the EML of the fully augmented dataset, or takes it from the cache.
+   */
+  private PrerenderedResponse renderEml(UUID datasetKey) {
+    try {
+      return renderedMetadataCache.get(datasetKey, RenderedMetadataCache.Format.EML, () -> {
+        Dataset dataset = get(datasetKey);
+        if (dataset == null) {
+          return null;
+        }
         StringWriter eml = new StringWriter();
         EMLWriter.write(dataset, eml);
-        return new ByteArrayInputStream(eml.toString().getBytes("UTF-8"));
-
-      } catch (Exception e) {
-        throw new ServiceUnavailableException("Failed to serialize dataset " + datasetKey, e);
-      }
+        return PrerenderedResponse.of(eml.toString().getBytes(Charsets.UTF_8), MediaType.APPLICATION_XML_TYPE,
+                                      dataset.getModified());
+      });
+    } catch (Exception e) {
+      throw new ServiceUnavailableException("Failed to serialize dataset " + datasetKey, e);
     }
-    return null;
   }
 
   @Path("{key}/document")
@@ -481,6 +513,8 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
     }
     int metaKey = metadataMapper.create(metadata, data);
     metadata.setKey(metaKey);
+    metadataCache.invalidate(datasetKey);
+    renderedMetadataCache.invalidate(datasetKey);
 
     // check if we should update our registered base information
     if (dataset.isLockedForAutoUpdate()) {
@@ -888,7 +922,11 @@ public class DatasetResource extends BaseNetworkEntityResource<Dataset>
   @DELETE
   @Override
   public void deleteMetadata(@PathParam("key") int metadataKey) {
+    Metadata metadata = metadataMapper.get(metadataKey);
     metadataMapper.delete(metadataKey);
+    if (metadata != null) {
+      renderedMetadataCache.invalidate(metadata.getDatasetKey());
+    }
   }
 
   @GET
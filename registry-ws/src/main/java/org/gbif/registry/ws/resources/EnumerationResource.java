@@ -22,41 +22,52 @@ import org.gbif.api.vocabulary.License;
 import org.gbif.api.vocabulary.NameUsageIssue;
 import org.gbif.api.vocabulary.OccurrenceIssue;
 import org.gbif.api.vocabulary.collections.PreservationType;
+import org.gbif.registry.ws.util.PrerenderedResponse;
 import org.gbif.ws.server.interceptor.NullToNotFound;
 import org.gbif.ws.util.ExtraMediaTypes;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.stream.Stream;
-import javax.swing.plaf.BorderUIResource;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.reflect.ClassPath;
 import com.google.common.reflect.ClassPath.ClassInfo;
 import com.google.inject.Singleton;
+import com.sun.jersey.api.core.HttpContext;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 /**
  * A resource that provides a JSON serialization of all Enumerations in the GBIF API suitable for building Javascript
  * based clients. This has no Java client, since Java clients have access to the Enums directly.
  * Reflection can be used to generate the inventory of enumerations.
+ * <p/>
+ * All responses are static and rendered once on first use, so they are served with an ETag and precompressed. They are
+ * rendered with the JSON mapper of the webapp, which is configured with the mixins of the GBIF API.
  */
 @Path("enumeration")
 @Produces({MediaType.APPLICATION_JSON, ExtraMediaTypes.APPLICATION_JAVASCRIPT})
@@ -100,6 +111,8 @@ public class EnumerationResource {
       .map(Extension::name)
       .collect(collectingAndThen(toList(), Collections::unmodifiableList));
 
+  private volatile RenderedResponses responses;
+
   /**
    * An inventory of the enumerations supported.
    *
@@ -107,8 +120,8 @@ public class EnumerationResource {
    */
   @GET
   @Path("basic")
-  public Set<String> inventory() {
-    return PATH_MAPPING.keySet();
+  public Response inventory(@Context HttpContext context, @Context Providers providers) {
+    return responses(providers).inventory.respond(context);
   }
 
   // reflect over the package to find suitable enumerations
@@ -142,8 +155,8 @@ public class EnumerationResource {
    */
   @Path("country")
   @GET
-  public List<Map<String, String>> listCountries() {
-    return COUNTRIES;
+  public Response listCountries(@Context HttpContext context, @Context Providers providers) {
+    return responses(providers).countries.respond(context);
   }
 
   /**
@@ -151,8 +164,8 @@ public class EnumerationResource {
    */
   @Path("language")
   @GET
-  public List<Map<String, String>> listLanguages() {
-    return LANGUAGES;
+  public Response listLanguages(@Context HttpContext context, @Context Providers providers) {
+    return responses(providers).languages.respond(context);
   }
 
   /**
@@ -160,14 +173,14 @@ public class EnumerationResource {
    */
   @Path("license")
   @GET
-  public List<String> listLicenses() {
-    return LICENSES;
+  public Response listLicenses(@Context HttpContext context, @Context Providers providers) {
+    return responses(providers).licenses.respond(context);
   }
 
   @Path("interpretationRemark")
   @GET
-  public List<Map<String, Object>> listInterpretationRemark() {
-    return INTERPRETATION_REMARKS;
+  public Response listInterpretationRemark(@Context HttpContext context, @Context Providers providers) {
+    return responses(providers).interpretationRemarks.respond(context);
   }
 
   /**
@@ -178,8 +191,8 @@ public class EnumerationResource {
    */
   @Path("basic/Extension")
   @GET()
-  public List<String> getExtensionEnumeration() {
-    return BASIC_EXTENSIONS;
+  public Response getExtensionEnumeration(@Context HttpContext context, @Context Providers providers) {
+    return responses(providers).basicExtensions.respond(context);
   }
 
   /**
@@ -192,12 +205,29 @@ public class EnumerationResource {
   @Path("basic/{name}")
   @GET()
   @NullToNotFound
-  public Enum<?>[] getEnumeration(@PathParam("name") @NotNull String name) {
-    if (PATH_MAPPING.containsKey(name)) {
-      return PATH_MAPPING.get(name);
-    } else {
-      return null;
+  public Response getEnumeration(@PathParam("name") @NotNull String name, @Context HttpContext context,
+                                 @Context Providers providers) {
+    PrerenderedResponse response = responses(providers).enumerations.get(name);
+    return response == null ? null : response.respond(context);
+  }
+
+  /**
+   * @return the responses, rendered with the JSON mapper of the webapp on first use
+   */
+  private RenderedResponses responses(Providers providers) {
+    RenderedResponses rendered = responses;
+    if (rendered == null) {
+      synchronized (this) {
+        if (responses == null) {
+          ContextResolver<ObjectMapper> resolver =
+            providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE);
+          Preconditions.checkState(resolver != null, "No JSON mapper configured");
+          responses = new RenderedResponses(resolver.getContext(ObjectMapper.class));
+        }
+        rendered = responses;
+      }
     }
+    return rendered;
   }
 
   /**
@@ -248,4 +278,37 @@ public class EnumerationResource {
     info.put("relatedTerms", interpretationRemark.getRelatedTerms());
     return info;
   }
+
+  /**
+   * All responses of the resource, rendered once with the given mapper.
+   */
+  private static class RenderedResponses {
+    private final PrerenderedResponse inventory;
+    private final PrerenderedResponse countries;
+    private final PrerenderedResponse languages;
+    private final PrerenderedResponse licenses;
+    private final PrerenderedResponse interpretationRemarks;
+    private final PrerenderedResponse basicExtensions;
+    private final Map<String, PrerenderedResponse> enumerations;
+
+    private RenderedResponses(ObjectMapper mapper) {
+      inventory = render(mapper, PATH_MAPPING.keySet());
+      countries = render(mapper, COUNTRIES);
+      languages = render(mapper, LANGUAGES);
+      licenses = render(mapper, LICENSES);
+      interpretationRemarks = render(mapper, INTERPRETATION_REMARKS);
+      basicExtensions = render(mapper, BASIC_EXTENSIONS);
+      enumerations = PATH_MAPPING.entrySet().stream()
+        .collect(collectingAndThen(toMap(Map.Entry::getKey, e -> render(mapper, e.getValue())),
+                                   Collections::unmodifiableMap));
+    }
+
+    private static PrerenderedResponse render(ObjectMapper mapper, Object value) {
+      try {
+        return PrerenderedResponse.of(mapper, value);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to render enumeration", e);
+      }
+    }
+  }
 }
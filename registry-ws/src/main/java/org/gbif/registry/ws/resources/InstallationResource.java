@@ -16,6 +16,7 @@ import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.model.common.paging.PagingResponse;
 import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.model.registry.Installation;
+import org.gbif.api.model.registry.NetworkEntity;
 import org.gbif.api.model.registry.Organization;
 import org.gbif.api.model.registry.metasync.MetasyncHistory;
 import org.gbif.api.model.registry.search.KeyTitleResult;
@@ -25,6 +26,10 @@ import org.gbif.api.vocabulary.IdentifierType;
 import org.gbif.api.vocabulary.InstallationType;
 import org.gbif.common.messaging.api.MessagePublisher;
 import org.gbif.common.messaging.api.messages.StartMetasyncMessage;
+import org.gbif.registry.events.CreateEvent;
+import org.gbif.registry.events.DeleteEvent;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.persistence.EntityCounts;
 import org.gbif.registry.persistence.mapper.CommentMapper;
 import org.gbif.registry.persistence.mapper.ContactMapper;
 import org.gbif.registry.persistence.mapper.DatasetMapper;
@@ -37,32 +42,41 @@ import org.gbif.registry.persistence.mapper.OrganizationMapper;
 import org.gbif.registry.persistence.mapper.TagMapper;
 import org.gbif.registry.ws.guice.Trim;
 import org.gbif.registry.ws.security.EditorAuthorizationService;
+import org.gbif.registry.ws.util.PrerenderedResponse;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.sun.jersey.api.core.HttpContext;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.mybatis.guice.transactional.Transactional;
@@ -86,7 +100,10 @@ public class InstallationResource extends BaseNetworkEntityResource<Installation
   private final InstallationMapper installationMapper;
   private final OrganizationMapper organizationMapper;
   private final MetasyncHistoryMapper metasyncHistoryMapper;
-
+  // the rendered GeoJSON per installation type, dropped on changes and expiring for changes made by other instances
+  private final LoadingCache<InstallationType, PrerenderedResponse> locations = CacheBuilder.newBuilder()
+    .expireAfterWrite(10, TimeUnit.MINUTES)
+    .build(CacheLoader.from(type -> PrerenderedResponse.ofJson(renderOrganizationsAsGeoJSON(type))));
 
   /**
    * The messagePublisher can be optional, and optional is not supported in constructor injection.
@@ -107,7 +124,8 @@ public class InstallationResource extends BaseNetworkEntityResource<Installation
     OrganizationMapper organizationMapper,
     MetasyncHistoryMapper metasyncHistoryMapper,
     EventBus eventBus,
-    EditorAuthorizationService userAuthService) {
+    EditorAuthorizationService userAuthService,
+    EntityCounts counts) {
     super(installationMapper,
       commentMapper,
       contactMapper,
@@ -117,11 +135,13 @@ public class InstallationResource extends BaseNetworkEntityResource<Installation
       tagMapper,
       Installation.class,
       eventBus,
-      userAuthService);
+      userAuthService,
+      counts);
     this.datasetMapper = datasetMapper;
     this.installationMapper = installationMapper;
     this.organizationMapper = organizationMapper;
     this.metasyncHistoryMapper = metasyncHistoryMapper;
+    eventBus.register(new LocationsInvalidator());
   }
 
 
@@ -138,6 +158,8 @@ public class InstallationResource extends BaseNetworkEntityResource<Installation
     @Nullable @QueryParam("machineTagName") String name,
     @Nullable @QueryParam("machineTagValue") String value,
     @Nullable @QueryParam("q") String query,
+    @Nullable @QueryParam("cursor") String cursor,
+    @DefaultValue("true") @QueryParam("count") boolean count,
     @Nullable @Context Pageable page) {
     // This is getting messy: http://dev.gbif.org/issues/browse/REG-426
     if (identifierType != null && identifier != null) {
@@ -147,9 +169,9 @@ public class InstallationResource extends BaseNetworkEntityResource<Installation
     } else if (namespace != null) {
       return listByMachineTag(namespace, name, value, page);
     } else if (Strings.isNullOrEmpty(query)) {
-      return list(page);
+      return list(cursor, page, count);
     } else {
-      return search(query, page);
+      return search(query, page, count);
     }
   }
 
@@ -202,10 +224,15 @@ public class InstallationResource extends BaseNetworkEntityResource<Installation
    * This is a REST only (e.g. not part of the Java API) method that allows you to get the locations of installations as
    * GeoJSON. This method exists primarily to produce the content for the "locations of organizations hosting an IPT".
    * The response holds the distinct organizations running the installations of the specified type.
+   * It is rendered once until organizations or installations change and served with an ETag.
    */
   @GET
   @Path("location/{type}")
-  public String organizationsAsGeoJSON(@PathParam("type") InstallationType type) {
+  public Response organizationsAsGeoJSON(@PathParam("type") InstallationType type, @Context HttpContext context) {
+    return locations.getUnchecked(type).respond(context);
+  }
+
+  private String renderOrganizationsAsGeoJSON(InstallationType type) {
     List<Organization> orgs = organizationMapper.hostingInstallationsOf(type, true);
 
     // to increment the count on duplicates
@@ -245,6 +272,33 @@ public class InstallationResource extends BaseNetworkEntityResource<Installation
     return featureCollection.toString();
   }
 
+  /**
+   * Drops the rendered locations when an installation or organization changes.
+   */
+  private class LocationsInvalidator {
+
+    @Subscribe
+    public <T extends NetworkEntity> void created(CreateEvent<T> event) {
+      invalidate(event.getObjectClass());
+    }
+
+    @Subscribe
+    public <T extends NetworkEntity> void updated(UpdateEvent<T> event) {
+      invalidate(event.getObjectClass());
+    }
+
+    @Subscribe
+    public <T extends NetworkEntity> void deleted(DeleteEvent<T> event) {
+      invalidate(event.getObjectClass());
+    }
+
+    private void invalidate(Class<?> objectClass) {
+      if (Installation.class.equals(objectClass) || Organization.class.equals(objectClass)) {
+        locations.invalidateAll();
+      }
+    }
+  }
+
   @POST
   @Path("{installationKey}/metasync")
   @Trim
@@ -18,6 +18,7 @@ import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.model.registry.Network;
 import org.gbif.api.service.registry.NetworkService;
 import org.gbif.api.vocabulary.IdentifierType;
+import org.gbif.registry.persistence.EntityCounts;
 import org.gbif.registry.persistence.mapper.CommentMapper;
 import org.gbif.registry.persistence.mapper.ContactMapper;
 import org.gbif.registry.persistence.mapper.DatasetMapper;
@@ -32,6 +33,7 @@ import java.util.UUID;
 import javax.annotation.Nullable;
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -67,7 +69,8 @@ public class NetworkResource extends BaseNetworkEntityResource<Network> implemen
     CommentMapper commentMapper,
     DatasetMapper datasetMapper,
     EventBus eventBus,
-    EditorAuthorizationService userAuthService) {
+    EditorAuthorizationService userAuthService,
+    EntityCounts counts) {
     super(networkMapper,
       commentMapper,
       contactMapper,
@@ -77,7 +80,8 @@ public class NetworkResource extends BaseNetworkEntityResource<Network> implemen
       tagMapper,
       Network.class,
       eventBus,
-      userAuthService);
+      userAuthService,
+      counts);
     this.datasetMapper = datasetMapper;
     this.networkMapper = networkMapper;
   }
@@ -96,6 +100,8 @@ public class NetworkResource extends BaseNetworkEntityResource<Network> implemen
     @Nullable @QueryParam("machineTagName") String name,
     @Nullable @QueryParam("machineTagValue") String value,
     @Nullable @QueryParam("q") String query,
+    @Nullable @QueryParam("cursor") String cursor,
+    @DefaultValue("true") @QueryParam("count") boolean count,
     @Nullable @Context Pageable page
   ) {
     // This is getting messy: http://dev.gbif.org/issues/browse/REG-426
@@ -106,9 +112,9 @@ public class NetworkResource extends BaseNetworkEntityResource<Network> implemen
     } else if (namespace != null) {
       return listByMachineTag(namespace, name, value, page);
     } else if (Strings.isNullOrEmpty(query)) {
-      return list(page);
+      return list(cursor, page, count);
     } else {
-      return search(query, page);
+      return search(query, page, count);
     }
   }
 
@@ -12,6 +12,7 @@
  */
 package org.gbif.registry.ws.resources;
 
+import org.gbif.api.model.common.paging.CursorPagingResponse;
 import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.model.common.paging.PagingResponse;
 import org.gbif.api.model.registry.Contact;
@@ -24,6 +25,7 @@ import org.gbif.api.service.registry.NodeService;
 import org.gbif.api.vocabulary.Country;
 import org.gbif.api.vocabulary.IdentifierType;
 import org.gbif.registry.directory.Augmenter;
+import org.gbif.registry.persistence.EntityCounts;
 import org.gbif.registry.persistence.mapper.CommentMapper;
 import org.gbif.registry.persistence.mapper.ContactMapper;
 import org.gbif.registry.persistence.mapper.DatasetMapper;
@@ -45,6 +47,7 @@ import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -82,9 +85,10 @@ public class NodeResource extends BaseNetworkEntityResource<Node> implements Nod
     InstallationMapper installationMapper,
     EventBus eventBus,
     Augmenter nodeAugmenter,
-    EditorAuthorizationService userAuthService) {
+    EditorAuthorizationService userAuthService,
+    EntityCounts counts) {
     super(nodeMapper, commentMapper, contactMapper, endpointMapper, identifierMapper, machineTagMapper, tagMapper,
-      Node.class, eventBus, userAuthService);
+      Node.class, eventBus, userAuthService, counts);
     this.nodeMapper = nodeMapper;
     this.organizationMapper = organizationMapper;
     this.nodeAugmenter = nodeAugmenter;
@@ -115,6 +119,8 @@ public class NodeResource extends BaseNetworkEntityResource<Node> implements Nod
     @Nullable @QueryParam("machineTagName") String name,
     @Nullable @QueryParam("machineTagValue") String value,
     @Nullable @QueryParam("q") String query,
+    @Nullable @QueryParam("cursor") String cursor,
+    @DefaultValue("true") @QueryParam("count") boolean count,
     @Nullable @Context Pageable page
   ) {
     // This is getting messy: http://dev.gbif.org/issues/browse/REG-426
@@ -125,9 +131,9 @@ public class NodeResource extends BaseNetworkEntityResource<Node> implements Nod
     } else if (namespace != null) {
       return listByMachineTag(namespace, name, value, page);
     } else if (Strings.isNullOrEmpty(query)) {
-      return list(page);
+      return list(cursor, page, count);
     } else {
-      return search(query, page);
+      return search(query, page, count);
     }
   }
 
@@ -142,13 +148,20 @@ public class NodeResource extends BaseNetworkEntityResource<Node> implements Nod
   }
 
   @Override
-  public PagingResponse<Node> search(String query, @Nullable Pageable page) {
-    return decorateResponse(super.search(query, page));
+  protected PagingResponse<Node> search(String query, @Nullable Pageable page, boolean count) {
+    return decorateResponse(super.search(query, page, count));
   }
 
   @Override
-  public PagingResponse<Node> list(@Nullable Pageable page) {
-    return decorateResponse(super.list(page));
+  protected PagingResponse<Node> list(@Nullable Pageable page, boolean count) {
+    return decorateResponse(super.list(page, count));
+  }
+
+  @Override
+  protected CursorPagingResponse<Node> listAfter(String cursor, @Nullable Pageable page, boolean count) {
+    CursorPagingResponse<Node> response = super.listAfter(cursor, page, count);
+    decorateResponse(response);
+    return response;
   }
 
   @Override
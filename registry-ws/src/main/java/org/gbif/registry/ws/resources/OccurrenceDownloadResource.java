@@ -14,6 +14,7 @@ import org.gbif.api.vocabulary.Country;
 import org.gbif.api.vocabulary.License;
 import org.gbif.registry.doi.generator.DoiGenerator;
 import org.gbif.registry.doi.handler.DataCiteDoiHandlerStrategy;
+import org.gbif.registry.persistence.DatasetUsageCopier;
 import org.gbif.registry.persistence.mapper.DatasetOccurrenceDownloadMapper;
 import org.gbif.registry.persistence.mapper.OccurrenceDownloadMapper;
 import org.gbif.registry.ws.guice.Trim;
@@ -24,12 +25,10 @@ import org.gbif.ws.util.ExtraMediaTypes;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
@@ -48,7 +47,6 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.SecurityContext;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Iterators;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
@@ -71,12 +69,12 @@ public class OccurrenceDownloadResource implements OccurrenceDownloadService {
 
   private final OccurrenceDownloadMapper occurrenceDownloadMapper;
   private final DatasetOccurrenceDownloadMapper datasetOccurrenceDownloadMapper;
+  private final DatasetUsageCopier datasetUsageCopier;
   private final IdentityAccessService identityService;
   private final DataCiteDoiHandlerStrategy doiHandlingStrategy;
   private final DoiGenerator doiGenerator;
-
-  //Page size to iterate over dataset usages
-  private static final int BATCH_SIZE = 5_000;
+  //Usages stored with a single insert, larger downloads are copied in bulk
+  private final int copyThreshold;
 
   // This Guice injection is only used for testing purpose
   @Inject(optional = true)
@@ -87,10 +85,14 @@ public class OccurrenceDownloadResource implements OccurrenceDownloadService {
   @Inject
   public OccurrenceDownloadResource(OccurrenceDownloadMapper occurrenceDownloadMapper,
                                     DatasetOccurrenceDownloadMapper datasetOccurrenceDownloadMapper,
+                                    DatasetUsageCopier datasetUsageCopier,
+                                    @Named(DatasetUsageCopier.THRESHOLD_PROPERTY) int copyThreshold,
                                     DoiGenerator doiGenerator, DataCiteDoiHandlerStrategy doiHandlingStrategy,
                                     IdentityAccessService identityService) {
     this.occurrenceDownloadMapper = occurrenceDownloadMapper;
     this.datasetOccurrenceDownloadMapper = datasetOccurrenceDownloadMapper;
+    this.datasetUsageCopier = datasetUsageCopier;
+    this.copyThreshold = copyThreshold;
     this.doiHandlingStrategy = doiHandlingStrategy;
     this.doiGenerator = doiGenerator;
     this.identityService = identityService;
@@ -184,8 +186,16 @@ public class OccurrenceDownloadResource implements OccurrenceDownloadService {
   @RolesAllowed(ADMIN_ROLE)
   @Override
   public void createUsages(@NotNull @PathParam("key") String downloadKey, @Valid @NotNull Map<UUID,Long> datasetCitations) {
-    Iterators.partition(datasetCitations.entrySet().iterator(), BATCH_SIZE)
-    .forEachRemaining(batch -> datasetOccurrenceDownloadMapper.createUsages(downloadKey, batch.stream().collect(Collectors.toMap(Entry::getKey, Entry::getValue))));
+    if (datasetCitations.isEmpty()) {
+      return;
+    }
+    if (datasetCitations.size() <= copyThreshold) {
+      datasetOccurrenceDownloadMapper.createUsages(downloadKey, datasetCitations);
+    } else {
+      datasetUsageCopier.copy(downloadKey, datasetCitations);
+    }
+    // also marks the download as modified for the download statistics
+    occurrenceDownloadMapper.updateNumberDatasets(downloadKey);
   }
 
   @GET
@@ -24,6 +24,7 @@ import org.gbif.api.model.registry.search.KeyTitleResult;
 import org.gbif.api.service.registry.OrganizationService;
 import org.gbif.api.vocabulary.Country;
 import org.gbif.api.vocabulary.IdentifierType;
+import org.gbif.registry.persistence.EntityCounts;
 import org.gbif.registry.persistence.mapper.CommentMapper;
 import org.gbif.registry.persistence.mapper.ContactMapper;
 import org.gbif.registry.persistence.mapper.DatasetMapper;
@@ -47,6 +48,7 @@ import javax.annotation.Nullable;
 import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -106,7 +108,8 @@ public class OrganizationResource extends BaseNetworkEntityResource<Organization
     InstallationMapper installationMapper,
     OrganizationEndorsementService<UUID> organizationEndorsementService,
     EventBus eventBus,
-    EditorAuthorizationService userAuthService) {
+    EditorAuthorizationService userAuthService,
+    EntityCounts counts) {
     super(organizationMapper,
       commentMapper,
       contactMapper,
@@ -116,7 +119,8 @@ public class OrganizationResource extends BaseNetworkEntityResource<Organization
       tagMapper,
       Organization.class,
       eventBus,
-      userAuthService);
+      userAuthService,
+      counts);
 
     this.datasetMapper = datasetMapper;
     this.organizationMapper = organizationMapper;
@@ -202,7 +206,7 @@ public class OrganizationResource extends BaseNetworkEntityResource<Organization
   }
 
   public PagingResponse<Organization> search(String query, @Nullable Pageable page) {
-    return list(null, null, null, null, null, null, null, query, page);
+    return list(null, null, null, null, null, null, null, query, null, true, page);
   }
 
   /**
@@ -220,6 +224,8 @@ public class OrganizationResource extends BaseNetworkEntityResource<Organization
     @Nullable @QueryParam("machineTagName") String name,
     @Nullable @QueryParam("machineTagValue") String value,
     @Nullable @QueryParam("q") String query,
+    @Nullable @QueryParam("cursor") String cursor,
+    @DefaultValue("true") @QueryParam("count") boolean count,
     @Nullable @Context Pageable page
   ) {
 
@@ -237,11 +243,12 @@ public class OrganizationResource extends BaseNetworkEntityResource<Organization
 
     // short circuited list all
     if (country == null && isEndorsed == null && Strings.isNullOrEmpty(query)) {
-      return list(page);
+      return list(cursor, page, count);
     }
 
     // This uses to Organization Mapper overloaded option of search which will scope (AND) the query, country and endorsement.
-    long total = organizationMapper.count(query, country, isEndorsed);
+    Long total = count ? counts().count(Organization.class, EntityCounts.filter(query, country, isEndorsed),
+      () -> (long) organizationMapper.count(query, country, isEndorsed)) : null;
     page = page == null ? new PagingRequest() : page;
     return new PagingResponse<>(page.getOffset(), page.getLimit(), total,
                                             organizationMapper.search(query, country, isEndorsed, page));
@@ -0,0 +1,217 @@
+package org.gbif.registry.ws.resources;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Metadata;
+import org.gbif.api.model.registry.NetworkEntity;
+import org.gbif.registry.events.DeleteEvent;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.metadata.parse.DatasetParser;
+import org.gbif.registry.persistence.mapper.MetadataMapper;
+import org.gbif.registry.persistence.mapper.handler.ByteArrayWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import com.yammer.metrics.core.Gauge;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the datasets parsed from the preferred metadata document of a dataset, so the EML or Dublin Core of unchanged
+ * documents is not parsed again for every read.
+ * <p/>
+ * Entries are keyed by the metadata key and its modification date, so a newly stored document is never served from a
+ * stale entry. The cache is bounded by the size of the parsed documents and entries of a dataset are also dropped when
+ * the dataset is updated or deleted.
+ * Datasets are cached in their JSON form, the same as exposed through the webservices, so callers always get their
+ * own deep copy of the parsed dataset, which they are free to modify.
+ */
+@Singleton
+public class ParsedMetadataCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParsedMetadataCache.class);
+  // the summed size of the cached source documents
+  private static final long MAX_WEIGHT_BYTES = 64 * 1024 * 1024;
+  private static final ObjectMapper MAPPER =
+    new ObjectMapper().configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private final MetadataMapper metadataMapper;
+  private final Cache<Key, Entry> cache;
+  private final Counter hits = Metrics.newCounter(ParsedMetadataCache.class, "hits");
+  private final Counter misses = Metrics.newCounter(ParsedMetadataCache.class, "misses");
+
+  @Inject
+  public ParsedMetadataCache(MetadataMapper metadataMapper, EventBus eventBus) {
+    this(metadataMapper, eventBus, MAX_WEIGHT_BYTES);
+  }
+
+  @VisibleForTesting
+  ParsedMetadataCache(MetadataMapper metadataMapper, EventBus eventBus, long maxWeightBytes) {
+    this.metadataMapper = metadataMapper;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxWeightBytes)
+      .weigher(new Weigher<Key, Entry>() {
+        @Override
+        public int weigh(Key key, Entry entry) {
+          return entry.size;
+        }
+      })
+      .expireAfterAccess(1, TimeUnit.DAYS)
+      .build();
+    eventBus.register(this);
+
+    Metrics.newGauge(ParsedMetadataCache.class, "size", new Gauge<Long>() {
+      @Override
+      public Long value() {
+        return cache.size();
+      }
+    });
+  }
+
+  /**
+   * Returns the parsed, preferred metadata document of the dataset.
+   *
+   * @return a copy of the parsed dataset or null if there is no readable metadata document
+   */
+  @Nullable
+  public Dataset get(UUID datasetKey) {
+    List<Metadata> docs = metadataMapper.list(datasetKey, null);
+    if (docs.isEmpty()) {
+      return null;
+    }
+    // the list is sorted by priority already, just pick the first!
+    final Metadata preferred = docs.get(0);
+    Key key = new Key(datasetKey, preferred.getKey(), preferred.getModified());
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null) {
+      misses.inc();
+      try {
+        entry = cache.get(key, () -> parse(preferred.getKey()));
+      } catch (ExecutionException e) {
+        // parse() handles all failures itself
+        throw new IllegalStateException(e.getCause());
+      }
+    } else {
+      hits.inc();
+    }
+    return entry.json == null ? null : copy(entry.json);
+  }
+
+  /**
+   * Drops all cached documents of the dataset.
+   */
+  public void invalidate(UUID datasetKey) {
+    cache.asMap().keySet().removeIf(k -> k.datasetKey.equals(datasetKey));
+  }
+
+  @Subscribe
+  public final <T extends NetworkEntity> void updated(UpdateEvent<T> event) {
+    if (event.getObjectClass().equals(Dataset.class)) {
+      invalidate(event.getNewObject().getKey());
+    }
+  }
+
+  @Subscribe
+  public final <T extends NetworkEntity> void deleted(DeleteEvent<T> event) {
+    if (event.getObjectClass().equals(Dataset.class)) {
+      invalidate(event.getOldObject().getKey());
+    }
+  }
+
+  /**
+   * Parses the document. Unreadable documents are cached as well, so they are not parsed over and over again.
+   */
+  private Entry parse(int metadataKey) {
+    ByteArrayWrapper document = metadataMapper.getDocument(metadataKey);
+    if (document == null || document.getData() == null) {
+      return new Entry(null, 0);
+    }
+    byte[] data = document.getData();
+    try (InputStream stream = new ByteArrayInputStream(data)) {
+      return new Entry(MAPPER.writeValueAsBytes(DatasetParser.build(stream)), data.length);
+    } catch (Exception e) {
+      //Not sure if we should not propagate an Exception to return a 500 instead
+      LOG.error("Stored metadata document {} cannot be read", metadataKey, e);
+      return new Entry(null, 0);
+    }
+  }
+
+  /**
+   * Reads a new instance of the cached dataset, sharing no objects with other callers.
+   */
+  private static Dataset copy(byte[] json) {
+    try {
+      return MAPPER.readValue(json, Dataset.class);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot read cached dataset", e);
+    }
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  private static class Key {
+    private final UUID datasetKey;
+    private final int metadataKey;
+    private final Date modified;
+
+    private Key(UUID datasetKey, int metadataKey, Date modified) {
+      this.datasetKey = datasetKey;
+      this.metadataKey = metadataKey;
+      this.modified = modified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return metadataKey == that.metadataKey && Objects.equals(datasetKey, that.datasetKey)
+             && Objects.equals(modified, that.modified);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(datasetKey, metadataKey, modified);
+    }
+  }
+
+  private static class Entry {
+    // the parsed dataset as JSON
+    @Nullable
+    private final byte[] json;
+    private final int size;
+
+    private Entry(@Nullable byte[] json, int size) {
+      this.json = json;
+      // weigh the entry by its source document, but never with 0 so empty entries also count
+      this.size = Math.max(size, 1);
+    }
+  }
+}
@@ -0,0 +1,327 @@
+package org.gbif.registry.ws.resources;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.NetworkEntity;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.registry.events.ChangedComponentEvent;
+import org.gbif.registry.events.DeleteEvent;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.ws.util.PrerenderedResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the metadata documents rendered for datasets, such as the EML of the dataset document endpoint and the
+ * EML and Dublin Core served by OAI-PMH, so they are not rendered through Freemarker for every request.
+ * <p/>
+ * The cache is bounded by the size of the documents held in memory. Optionally documents are also written to a
+ * directory, which keeps documents evicted from memory. Only the files written by the cache are ever removed from the
+ * directory, but it should not be shared with other applications. A dataset's documents are dropped when the dataset,
+ * its components such as contacts or its metadata documents change, and all documents are dropped when an organization
+ * changes as it is part of the generated citation. Documents expire to pick up changes made by other instances.
+ */
+@Singleton
+public class RenderedMetadataCache {
+
+  /**
+   * The formats a dataset can be rendered in.
+   */
+  public enum Format {
+    EML,
+    OAI_EML,
+    OAI_DC
+  }
+
+  /**
+   * Renders a document.
+   */
+  public interface Renderer {
+
+    /**
+     * @return the rendered document, last modified when its dataset was, or null if there is none, which is not cached
+     */
+    @Nullable
+    PrerenderedResponse render() throws IOException;
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(RenderedMetadataCache.class);
+  private static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+  private static final long DEFAULT_EXPIRE_MINUTES = 60;
+  // the documents and the temporary files written by the cache, see file(Key) and writeFile
+  private static final Pattern FILE_PATTERN = Pattern.compile(
+    "[0-9a-f-]{36}(-(" + Joiner.on('|').join(Format.values()).toLowerCase() + ")\\.xml|\\d*\\.tmp)");
+  // marks a document without a last modified date in its file
+  private static final long UNKNOWN_MODIFIED = -1;
+
+  private final Cache<Key, PrerenderedResponse> cache;
+  @Nullable
+  private final File dir;
+  private final long expireMsecs;
+  // increased by every invalidation, so documents rendered concurrently from outdated data are not stored
+  private long generation;
+  // guards the generation, so no document can be stored after an invalidation that started later than its rendering
+  private final Object lock = new Object();
+  private final Counter hits = Metrics.newCounter(RenderedMetadataCache.class, "hits");
+  private final Counter diskHits = Metrics.newCounter(RenderedMetadataCache.class, "disk-hits");
+  private final Counter misses = Metrics.newCounter(RenderedMetadataCache.class, "misses");
+
+  /**
+   * A cache held in memory only with the default limits.
+   */
+  @Inject
+  public RenderedMetadataCache(EventBus eventBus) {
+    this(eventBus, DEFAULT_MAX_BYTES, null, DEFAULT_EXPIRE_MINUTES);
+  }
+
+  /**
+   * @param maxBytes the summed size of all documents held in memory
+   * @param dir an optional directory to also keep documents in, the documents of a previous run are removed on startup
+   * @param expireMinutes the time after which documents are rendered again
+   */
+  public RenderedMetadataCache(EventBus eventBus, long maxBytes, @Nullable File dir, long expireMinutes) {
+    Preconditions.checkArgument(expireMinutes > 0, "Documents need to expire");
+    this.expireMsecs = TimeUnit.MINUTES.toMillis(expireMinutes);
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxBytes)
+      .weigher(new Weigher<Key, PrerenderedResponse>() {
+        @Override
+        public int weigh(Key key, PrerenderedResponse document) {
+          return document.size();
+        }
+      })
+      .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+      .build();
+    this.dir = dir;
+    if (dir != null) {
+      // documents left by a previous run may have missed invalidations
+      clearDir();
+      dir.mkdirs();
+      LOG.info("Keeping rendered metadata documents in {}", dir.getAbsolutePath());
+    }
+    eventBus.register(this);
+  }
+
+  /**
+   * Gets the rendered document from the cache, rendering and caching it if needed.
+   *
+   * @return the document or null if the renderer returned none
+   */
+  @Nullable
+  public PrerenderedResponse get(UUID datasetKey, Format format, Renderer renderer) throws IOException {
+    Key key = new Key(datasetKey, format);
+    PrerenderedResponse document = cache.getIfPresent(key);
+    if (document != null) {
+      hits.inc();
+      return document;
+    }
+
+    long gen = generation();
+    document = readFile(key);
+    if (document != null) {
+      diskHits.inc();
+    } else {
+      misses.inc();
+      document = renderer.render();
+      if (document == null) {
+        return null;
+      }
+      writeFile(key, document, gen);
+    }
+    synchronized (lock) {
+      if (generation == gen) {
+        cache.put(key, document);
+      }
+    }
+    return document;
+  }
+
+  /**
+   * Drops all documents of the dataset.
+   */
+  public void invalidate(UUID datasetKey) {
+    synchronized (lock) {
+      generation++;
+      for (Format format : Format.values()) {
+        Key key = new Key(datasetKey, format);
+        cache.invalidate(key);
+        if (dir != null) {
+          file(key).delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops all documents.
+   */
+  public void invalidateAll() {
+    synchronized (lock) {
+      generation++;
+      cache.invalidateAll();
+      clearDir();
+    }
+  }
+
+  @Subscribe
+  public final <T extends NetworkEntity> void updated(UpdateEvent<T> event) {
+    invalidate(event.getObjectClass(), event.getNewObject().getKey());
+  }
+
+  @Subscribe
+  public final <T extends NetworkEntity> void deleted(DeleteEvent<T> event) {
+    invalidate(event.getObjectClass(), event.getOldObject().getKey());
+  }
+
+  @Subscribe
+  public final void componentChange(ChangedComponentEvent event) {
+    // contacts, identifiers, tags etc of the dataset are all part of the documents
+    if (Dataset.class.equals(event.getTargetClass())) {
+      invalidate(event.getTargetEntityKey());
+    }
+  }
+
+  private void invalidate(Class<?> objectClass, UUID key) {
+    if (Dataset.class.equals(objectClass)) {
+      invalidate(key);
+    } else if (Organization.class.equals(objectClass)) {
+      invalidateAll();
+    }
+  }
+
+  private long generation() {
+    synchronized (lock) {
+      return generation;
+    }
+  }
+
+  /**
+   * Reads a document written by {@link #writeFile}, which starts with its last modified date. The time the file was
+   * written decides when it expires.
+   */
+  @Nullable
+  private PrerenderedResponse readFile(Key key) {
+    if (dir == null) {
+      return null;
+    }
+    File file = file(key);
+    long written = file.lastModified();
+    if (written == 0 || written + expireMsecs < System.currentTimeMillis()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      long modified = in.readLong();
+      return PrerenderedResponse.of(ByteStreams.toByteArray(in), MediaType.APPLICATION_XML_TYPE,
+                                    modified == UNKNOWN_MODIFIED ? null : new Date(modified));
+    } catch (IOException e) {
+      // deleted concurrently, render again
+      LOG.debug("Cannot read rendered document {}", file, e);
+      return null;
+    }
+  }
+
+  private void writeFile(Key key, PrerenderedResponse document, long gen) {
+    if (dir == null) {
+      return;
+    }
+    try {
+      File tmp = File.createTempFile(key.datasetKey.toString(), ".tmp", dir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeLong(document.getLastModified() == null ? UNKNOWN_MODIFIED : document.getLastModified().getTime());
+        ByteStreams.copy(document.openStream(), out);
+      }
+      // only keep the file if the dataset was not changed while rendering
+      synchronized (lock) {
+        if (generation == gen) {
+          Files.move(tmp.toPath(), file(key).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                     StandardCopyOption.ATOMIC_MOVE);
+          return;
+        }
+      }
+      tmp.delete();
+    } catch (IOException e) {
+      LOG.warn("Cannot write rendered document of dataset {} to {}", key.datasetKey, dir, e);
+    }
+  }
+
+  /**
+   * Deletes the documents and temporary files written by the cache, leaving any other file in the directory.
+   */
+  private void clearDir() {
+    File[] files = dir == null ? null : dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        if (FILE_PATTERN.matcher(f.getName()).matches()) {
+          f.delete();
+        }
+      }
+    }
+  }
+
+  private File file(Key key) {
+    return new File(dir, key.datasetKey + "-" + key.format.name().toLowerCase() + ".xml");
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  private static class Key {
+    private final UUID datasetKey;
+    private final Format format;
+
+    private Key(UUID datasetKey, Format format) {
+      this.datasetKey = datasetKey;
+      this.format = format;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return datasetKey.equals(that.datasetKey) && format == that.format;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(datasetKey, format);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package org.gbif.registry.ws.resources;
+
+import org.gbif.api.model.registry.NetworkEntity;
+import org.gbif.api.model.registry.search.KeyTitleResult;
+import org.gbif.registry.events.DeleteEvent;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.persistence.mapper.NetworkEntityMapper;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
+
+/**
+ * Caches the titles of one type of network entity, so the titles of many keys are resolved from memory and all
+ * remaining keys are read with a single query.
+ * <p/>
+ * The cache is bounded and the title of an entity is dropped when it is updated or deleted. Titles changed by other
+ * registry instances expire with the cache.
+ *
+ * @param <T> the type of network entity
+ */
+public class TitleCache<T extends NetworkEntity> {
+
+  private static final long MAX_CACHED_TITLES = 100000;
+  private static final long TITLE_CACHE_HOURS = 1;
+
+  private final NetworkEntityMapper<T> mapper;
+  private final Class<T> objectClass;
+  private final Cache<UUID, String> titles;
+  private final Counter hits;
+  private final Counter misses;
+
+  public TitleCache(NetworkEntityMapper<T> mapper, Class<T> objectClass, EventBus eventBus) {
+    this.mapper = mapper;
+    this.objectClass = objectClass;
+    this.titles = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_TITLES)
+      .expireAfterWrite(TITLE_CACHE_HOURS, TimeUnit.HOURS)
+      .build();
+    hits = Metrics.newCounter(TitleCache.class, objectClass.getSimpleName().toLowerCase() + "-title-hits");
+    misses = Metrics.newCounter(TitleCache.class, objectClass.getSimpleName().toLowerCase() + "-title-misses");
+    eventBus.register(this);
+  }
+
+  /**
+   * Resolves the titles of all keys.
+   *
+   * @return the titles by key, with a null title for keys of unknown entities
+   */
+  public Map<UUID, String> get(Collection<UUID> keys) {
+    Set<UUID> requested = Sets.newHashSet(Iterables.filter(keys, Predicates.notNull()));
+    Map<UUID, String> result = Maps.newHashMap(titles.getAllPresent(requested));
+    hits.inc(result.size());
+
+    Set<UUID> missing = Sets.difference(requested, result.keySet()).immutableCopy();
+    if (!missing.isEmpty()) {
+      misses.inc(missing.size());
+      for (KeyTitleResult found : mapper.titles(missing)) {
+        result.put(found.getKey(), found.getTitle());
+        // titles are never null in the database, but the cache does not accept them anyway
+        if (found.getTitle() != null) {
+          titles.put(found.getKey(), found.getTitle());
+        }
+      }
+      for (UUID key : missing) {
+        if (!result.containsKey(key)) {
+          result.put(key, null);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Subscribe
+  public final <E extends NetworkEntity> void updated(UpdateEvent<E> event) {
+    if (event.getObjectClass().equals(objectClass)) {
+      titles.invalidate(event.getNewObject().getKey());
+    }
+  }
+
+  @Subscribe
+  public final <E extends NetworkEntity> void deleted(DeleteEvent<E> event) {
+    if (event.getObjectClass().equals(objectClass)) {
+      titles.invalidate(event.getOldObject().getKey());
+    }
+  }
+
+  @VisibleForTesting
+  long size() {
+    return titles.size();
+  }
+}
@@ -14,8 +14,10 @@ import org.gbif.registry.ws.model.AuthenticationDataParameters;
 import org.gbif.registry.ws.model.UserAdminView;
 import org.gbif.registry.ws.model.UserCreation;
 import org.gbif.registry.ws.model.UserUpdate;
+import org.gbif.registry.ws.security.EditorAuthorizationService;
 import org.gbif.registry.ws.security.SecurityContextCheck;
 import org.gbif.registry.ws.security.UserUpdateRulesManager;
+import org.gbif.registry.ws.security.jwt.JwtAuthenticator;
 import org.gbif.registry.ws.util.ResponseUtils;
 import org.gbif.utils.AnnotationUtils;
 import org.gbif.ws.response.GbifResponseStatus;
@@ -89,17 +91,25 @@ public class UserManagementResource {
 
   private final IdentityService identityService;
   private final List<String> appKeyWhitelist;
+  private final JwtAuthenticator jwtAuthenticator;
+  private final EditorAuthorizationService editorAuthorizationService;
 
   /**
    * {@link UserManagementResource} main constructor.
    * @param identityService
    * @param appKeyWhitelist list of authorized appkeys. Used to determine if user impersonation can be trusted.
+   * @param jwtAuthenticator to drop the cached users of JWT tokens once users change
+   * @param editorAuthorizationService to drop the cached authorizations once editor rights change
    */
   @Inject
   public UserManagementResource(IdentityService identityService,
-                                @Named(APPKEYS_WHITELIST) List<String> appKeyWhitelist) {
+                                @Named(APPKEYS_WHITELIST) List<String> appKeyWhitelist,
+                                JwtAuthenticator jwtAuthenticator,
+                                EditorAuthorizationService editorAuthorizationService) {
     this.identityService = identityService;
     this.appKeyWhitelist = appKeyWhitelist;
+    this.jwtAuthenticator = jwtAuthenticator;
+    this.editorAuthorizationService = editorAuthorizationService;
   }
 
   @GET
@@ -202,6 +212,7 @@ public class UserManagementResource {
       if(result.containsError()) {
         response = buildResponse(GbifResponseStatus.UNPROCESSABLE_ENTITY.getStatus(), result);
       }
+      jwtAuthenticator.invalidate(username);
     }
     return response;
   }
@@ -247,6 +258,8 @@ public class UserManagementResource {
   @Path("/{userKey}")
   public Response delete(@PathParam("userKey") int userKey) {
     identityService.delete(userKey);
+    // only the key is known here, deletions are rare
+    jwtAuthenticator.invalidateAll();
     return Response.noContent().build();
   }
 
@@ -387,6 +400,7 @@ public class UserManagementResource {
       return buildResponse(Response.Status.CONFLICT);
     } else {
       identityService.addEditorRight(username, key);
+      editorAuthorizationService.editorRightsChanged(username);
       return Response.ok(key).build();
     }
   }
@@ -410,6 +424,7 @@ public class UserManagementResource {
       return buildResponse(Response.Status.NOT_FOUND);
     } else {
       identityService.deleteEditorRight(username, key);
+      editorAuthorizationService.editorRightsChanged(username);
       return Response.noContent().build();
     }
   }
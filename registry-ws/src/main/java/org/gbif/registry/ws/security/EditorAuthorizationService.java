@@ -30,4 +30,10 @@ public interface EditorAuthorizationService {
   boolean allowedToModifyOrganization(Principal user, UUID orgKey);
 
   boolean allowedToModifyInstallation(Principal user, UUID installationKey);
+
+  /**
+   * Drops the authorization decisions of the user, to be called after its editor rights have been changed.
+   * @param username the name of the user
+   */
+  void editorRightsChanged(String username);
 }
@@ -2,31 +2,54 @@ package org.gbif.registry.ws.security;
 
 import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.model.registry.Installation;
+import org.gbif.api.model.registry.NetworkEntity;
 import org.gbif.api.model.registry.Organization;
-import org.gbif.api.service.registry.DatasetService;
-import org.gbif.api.service.registry.InstallationService;
-import org.gbif.api.service.registry.OrganizationService;
+import org.gbif.registry.events.DeleteEvent;
+import org.gbif.registry.events.UpdateEvent;
 import org.gbif.registry.persistence.mapper.UserRightsMapper;
 
 import java.security.Principal;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
 
+/**
+ * Authorizes editors based on their editor rights.
+ * <p>
+ * Rights on an entity are inherited down the ownership graph: node editors may modify the endorsed organizations,
+ * organization editors their installations and published datasets, installation editors the hosted datasets.
+ * The graph of an entity is resolved together with the rights of the user in a single query and the decisions are
+ * cached per user and entity for a short time. Cached decisions are dropped when the editor rights of a user change or
+ * when an entity moves within the ownership graph, decisions changed by other registry instances expire with the
+ * cache.
+ */
 public class EditorAuthorizationServiceImpl implements EditorAuthorizationService {
 
-  private UserRightsMapper userRightsMapper;
-  private DatasetService datasetService;
-  private InstallationService installationService;
-  private OrganizationService organizationService;
+  private static final long MAX_CACHED_DECISIONS = 10000;
+  private static final long DECISION_CACHE_MINUTES = 1;
+
+  private final UserRightsMapper userRightsMapper;
+  private final Cache<Decision, Boolean> decisions;
+  private final Counter hits = Metrics.newCounter(EditorAuthorizationServiceImpl.class, "decision-cache-hits");
+  private final Counter misses = Metrics.newCounter(EditorAuthorizationServiceImpl.class, "decision-cache-misses");
 
   @Inject
-  public EditorAuthorizationServiceImpl(DatasetService datasetService, InstallationService installationService,
-                                        OrganizationService organizationService, UserRightsMapper userRightsMapper) {
-    this.datasetService = datasetService;
-    this.installationService = installationService;
-    this.organizationService = organizationService;
+  public EditorAuthorizationServiceImpl(UserRightsMapper userRightsMapper, EventBus eventBus) {
     this.userRightsMapper = userRightsMapper;
+    this.decisions = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_DECISIONS)
+      .expireAfterWrite(DECISION_CACHE_MINUTES, TimeUnit.MINUTES)
+      .build();
+    eventBus.register(this);
   }
 
   @Override
@@ -55,44 +78,102 @@ public class EditorAuthorizationServiceImpl implements EditorAuthorizationServic
 
   @Override
   public boolean allowedToModifyDataset(Principal user, UUID datasetKey) {
-    if (user == null) {
+    return allowedByOwnership(user, datasetKey);
+  }
+
+  @Override
+  public boolean allowedToModifyOrganization(Principal user, UUID orgKey) {
+    return allowedByOwnership(user, orgKey);
+  }
+
+  @Override
+  public boolean allowedToModifyInstallation(Principal user, UUID installationKey) {
+    return allowedByOwnership(user, installationKey);
+  }
+
+  @Override
+  public void editorRightsChanged(String username) {
+    decisions.asMap().keySet().removeIf(d -> d.username.equals(username));
+  }
+
+  /**
+   * Drops all decisions when an entity moves within the ownership graph, as this affects the entities below it too.
+   * Other updates, e.g. of the dataset metadata, keep the cached decisions.
+   */
+  @Subscribe
+  public final <T extends NetworkEntity> void updated(UpdateEvent<T> event) {
+    if (ownerChanged(event.getOldObject(), event.getNewObject())) {
+      decisions.invalidateAll();
+    }
+  }
+
+  @Subscribe
+  public final <T extends NetworkEntity> void deleted(DeleteEvent<T> event) {
+    UUID key = event.getOldObject().getKey();
+    decisions.asMap().keySet().removeIf(d -> d.entityKey.equals(key));
+  }
+
+  private boolean allowedByOwnership(Principal user, UUID key) {
+    if (user == null || key == null) {
       return false;
     }
-    if (allowedToModifyEntity(user, datasetKey)) {
-      return true;
+    Decision decision = new Decision(user.getName(), key);
+    Boolean allowed = decisions.getIfPresent(decision);
+    if (allowed != null) {
+      hits.inc();
+      return allowed;
     }
-    Dataset d = datasetService.get(datasetKey);
-    // try installation rights
-    if (allowedToModifyInstallation(user, d.getInstallationKey())) {
-      return true;
+    misses.inc();
+    try {
+      return decisions.get(decision, () -> userRightsMapper.keyOrOwnerExistsForUser(user.getName(), key));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to read editor rights of " + user.getName(), e.getCause());
     }
-    // try higher organization or node rights
-    return d == null ? false : allowedToModifyOrganization(user, d.getPublishingOrganizationKey());
   }
 
-  @Override
-  public boolean allowedToModifyOrganization(Principal user, UUID orgKey) {
-    if (user == null) {
-      return false;
+  private static boolean ownerChanged(NetworkEntity oldEntity, NetworkEntity newEntity) {
+    if (oldEntity instanceof Dataset) {
+      Dataset o = (Dataset) oldEntity;
+      Dataset n = (Dataset) newEntity;
+      return !Objects.equals(o.getInstallationKey(), n.getInstallationKey())
+             || !Objects.equals(o.getPublishingOrganizationKey(), n.getPublishingOrganizationKey());
     }
-    if (allowedToModifyEntity(user, orgKey)) {
-      return true;
+    if (oldEntity instanceof Installation) {
+      return !Objects.equals(((Installation) oldEntity).getOrganizationKey(),
+                             ((Installation) newEntity).getOrganizationKey());
     }
-    // try endorsing node
-    Organization o = organizationService.get(orgKey);
-    return o == null ? false : allowedToModifyEntity(user, o.getEndorsingNodeKey());
+    if (oldEntity instanceof Organization) {
+      return !Objects.equals(((Organization) oldEntity).getEndorsingNodeKey(),
+                             ((Organization) newEntity).getEndorsingNodeKey());
+    }
+    return false;
   }
 
-  @Override
-  public boolean allowedToModifyInstallation(Principal user, UUID installationKey) {
-    if (user == null) {
-      return false;
+  private static class Decision {
+
+    private final String username;
+    private final UUID entityKey;
+
+    private Decision(String username, UUID entityKey) {
+      this.username = username;
+      this.entityKey = entityKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Decision that = (Decision) o;
+      return username.equals(that.username) && entityKey.equals(that.entityKey);
     }
-    if (allowedToModifyEntity(user, installationKey)) {
-      return true;
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(username, entityKey);
     }
-    // try higher organization or node rights
-    Installation inst = installationService.get(installationKey);
-    return inst == null ? false : allowedToModifyOrganization(user, inst.getOrganizationKey());
   }
 }
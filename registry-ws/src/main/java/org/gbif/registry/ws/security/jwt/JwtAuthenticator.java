@@ -4,28 +4,59 @@ import org.gbif.api.model.common.GbifUser;
 import org.gbif.api.service.common.IdentityService;
 import org.gbif.registry.ws.security.jwt.JwtConfiguration.GbifClaims;
 
+import java.util.Date;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 
 /**
  * Class that handle all the authentication coming from JWT tokens.
+ * <p>
+ * The users of valid tokens are cached for a short time per username and token, so clients sending the same token
+ * over and over do not cause a database lookup each time. The cached users of a username can be dropped with
+ * {@link #invalidate(String)} when the user changes.
  */
+@Singleton
 public class JwtAuthenticator {
 
+  private static final long MAX_CACHED_PRINCIPALS = 10000;
+
   private final JwtConfiguration jwtConfiguration;
   private final IdentityService identityService;
+  private final Cache<PrincipalKey, GbifUser> principals;
+  private final Counter hits = Metrics.newCounter(JwtAuthenticator.class, "principal-cache-hits");
+  private final Counter misses = Metrics.newCounter(JwtAuthenticator.class, "principal-cache-misses");
 
   @Inject
   public JwtAuthenticator(JwtConfiguration jwtConfiguration, IdentityService identityService) {
     this.jwtConfiguration = jwtConfiguration;
     this.identityService = identityService;
+    this.principals = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_PRINCIPALS)
+      .expireAfterWrite(jwtConfiguration.getPrincipalCacheTimeInMs(), TimeUnit.MILLISECONDS)
+      .build();
   }
 
   public GbifUser authenticate(String token) throws GbifJwtException {
+    return authenticateToken(token).getUser();
+  }
+
+  /**
+   * Validates the token and looks up its user.
+   *
+   * @return the user and the expiration of the token
+   */
+  public Authentication authenticateToken(String token) throws GbifJwtException {
     // validate and parse the token
     Claims claims;
     try {
@@ -48,8 +79,86 @@ public class JwtAuthenticator {
       .filter(v -> !v.isEmpty())
       .orElseThrow(() -> new GbifJwtException(GbifJwtException.JwtErrorCode.INVALID_TOKEN));
 
-    return Optional.ofNullable(identityService.get(username))
-      .orElseThrow(() -> new GbifJwtException(GbifJwtException.JwtErrorCode.INVALID_USERNAME));
+    // tokens issued before they had an id are told apart by their issue time
+    PrincipalKey key = new PrincipalKey(username, claims.getId() != null ? claims.getId()
+      : String.valueOf(claims.getIssuedAt() == null ? null : claims.getIssuedAt().getTime()));
+    GbifUser user = principals.getIfPresent(key);
+    if (user != null) {
+      hits.inc();
+    } else {
+      misses.inc();
+      user = Optional.ofNullable(identityService.get(username))
+        .orElseThrow(() -> new GbifJwtException(GbifJwtException.JwtErrorCode.INVALID_USERNAME));
+      principals.put(key, user);
+    }
+    return new Authentication(user, claims.getExpiration());
+  }
+
+  /**
+   * Drops the cached users of all tokens of the username, e.g. after the user or its roles have been changed.
+   */
+  public void invalidate(String username) {
+    principals.asMap().keySet().removeIf(k -> k.username.equals(username));
+  }
+
+  /**
+   * Drops all cached users.
+   */
+  public void invalidateAll() {
+    principals.invalidateAll();
+  }
+
+  /**
+   * An authenticated token.
+   */
+  public static class Authentication {
+
+    private final GbifUser user;
+    private final Date expiration;
+
+    private Authentication(GbifUser user, Date expiration) {
+      this.user = user;
+      this.expiration = expiration;
+    }
+
+    public GbifUser getUser() {
+      return user;
+    }
+
+    /**
+     * @return the expiration of the token, null if it never expires
+     */
+    public Date getExpiration() {
+      return expiration;
+    }
+  }
+
+  private static class PrincipalKey {
+
+    private final String username;
+    private final String tokenId;
+
+    private PrincipalKey(String username, String tokenId) {
+      this.username = username;
+      this.tokenId = tokenId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      PrincipalKey that = (PrincipalKey) o;
+      return username.equals(that.username) && tokenId.equals(that.tokenId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(username, tokenId);
+    }
   }
 
 }
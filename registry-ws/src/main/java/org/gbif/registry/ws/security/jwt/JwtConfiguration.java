@@ -21,22 +21,32 @@ public class JwtConfiguration {
   private static final String EXPIRY_TIME_PROP = "expiryTimeInMs";
   private static final String ISSUER_PROP = "issuer";
   private static final String SECURITY_CONTEXT_PROP = "securityContext";
+  private static final String REFRESH_THRESHOLD_PROP = "refreshThresholdInMs";
+  private static final String PRINCIPAL_CACHE_TIME_PROP = "principalCacheTimeInMs";
 
   // defaults
   private static final long DEFAULT_EXPIRY = TimeUnit.MINUTES.toMillis(30);
   private static final String DEFAULT_ISSUER = "GBIF-REGISTRY";
   private static final String DEFAULT_SECURITY_CONTEXT = "JWT";
+  private static final long DEFAULT_PRINCIPAL_CACHE_TIME = TimeUnit.MINUTES.toMillis(1);
 
   private final String signingKey;
   private final long expiryTimeInMs;
   private final String issuer;
   private final String securityContext;
+  private final long refreshThresholdInMs;
+  private final long principalCacheTimeInMs;
 
   private JwtConfiguration(Properties properties) {
     this.signingKey = properties.getProperty(SIGNING_KEY_PROP);
     this.expiryTimeInMs = Long.parseLong(properties.getProperty(EXPIRY_TIME_PROP, String.valueOf(DEFAULT_EXPIRY)));
     this.issuer = properties.getProperty(ISSUER_PROP, DEFAULT_ISSUER);
     this.securityContext = properties.getProperty(SECURITY_CONTEXT_PROP, DEFAULT_SECURITY_CONTEXT);
+    // by default tokens are reissued in the second half of their lifetime
+    this.refreshThresholdInMs =
+      Long.parseLong(properties.getProperty(REFRESH_THRESHOLD_PROP, String.valueOf(expiryTimeInMs / 2)));
+    this.principalCacheTimeInMs =
+      Long.parseLong(properties.getProperty(PRINCIPAL_CACHE_TIME_PROP, String.valueOf(DEFAULT_PRINCIPAL_CACHE_TIME)));
   }
 
   private JwtConfiguration(Builder builder) {
@@ -44,6 +54,9 @@ public class JwtConfiguration {
     this.expiryTimeInMs = builder.expiryTimeInMs;
     this.issuer = builder.issuer;
     this.securityContext = builder.securityContext;
+    this.refreshThresholdInMs =
+      builder.refreshThresholdInMs != null ? builder.refreshThresholdInMs : builder.expiryTimeInMs / 2;
+    this.principalCacheTimeInMs = builder.principalCacheTimeInMs;
   }
 
   public static JwtConfiguration from(Properties properties) {
@@ -67,6 +80,20 @@ public class JwtConfiguration {
     return securityContext;
   }
 
+  /**
+   * Tokens are only reissued when they expire within this time.
+   */
+  public long getRefreshThresholdInMs() {
+    return refreshThresholdInMs;
+  }
+
+  /**
+   * Time the user of a token is kept in memory after being loaded, 0 to always load it.
+   */
+  public long getPrincipalCacheTimeInMs() {
+    return principalCacheTimeInMs;
+  }
+
   // custom GBIF claims
   public class GbifClaims {
 
@@ -83,6 +110,8 @@ public class JwtConfiguration {
     private long expiryTimeInMs;
     private String issuer;
     private String securityContext;
+    private Long refreshThresholdInMs;
+    private long principalCacheTimeInMs;
 
     public Builder signingKey(String signingKey) {
       this.signingKey = signingKey;
@@ -104,6 +133,16 @@ public class JwtConfiguration {
       return this;
     }
 
+    public Builder refreshThresholdInMs(long refreshThresholdInMs) {
+      this.refreshThresholdInMs = refreshThresholdInMs;
+      return this;
+    }
+
+    public Builder principalCacheTimeInMs(long principalCacheTimeInMs) {
+      this.principalCacheTimeInMs = principalCacheTimeInMs;
+      return this;
+    }
+
     public JwtConfiguration build() {
       return new JwtConfiguration(this);
     }
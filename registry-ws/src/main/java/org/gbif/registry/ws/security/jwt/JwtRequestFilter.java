@@ -10,6 +10,8 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
 import com.google.inject.Inject;
+import com.yammer.metrics.Metrics;
+import com.yammer.metrics.core.Counter;
 import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerRequestFilter;
 import org.slf4j.Logger;
@@ -22,6 +24,8 @@ import static org.gbif.registry.ws.security.jwt.JwtUtils.generateJwt;
  * Filter to validate the JWT tokens.
  * <p>
  * If the token is not present this validation is skipped.
+ * A new token is only issued when the one of the request is about to expire, see
+ * {@link JwtConfiguration#getRefreshThresholdInMs()}.
  */
 public class JwtRequestFilter implements ContainerRequestFilter {
 
@@ -29,6 +33,8 @@ public class JwtRequestFilter implements ContainerRequestFilter {
 
   private final JwtConfiguration jwtConfiguration;
   private final JwtAuthenticator jwtAuthenticator;
+  private final Counter tokensIssued = Metrics.newCounter(JwtRequestFilter.class, "tokens-issued");
+  private final Counter tokensKept = Metrics.newCounter(JwtRequestFilter.class, "tokens-kept");
 
   @Inject
   public JwtRequestFilter(
@@ -50,7 +56,8 @@ public class JwtRequestFilter implements ContainerRequestFilter {
     }
 
     try {
-      GbifUser gbifUser = jwtAuthenticator.authenticate(token.get());
+      JwtAuthenticator.Authentication authentication = jwtAuthenticator.authenticateToken(token.get());
+      GbifUser gbifUser = authentication.getUser();
       LOG.debug("JWT successfully validated for user {}", gbifUser.getUserName());
 
       // set the user to the security context
@@ -79,9 +86,15 @@ public class JwtRequestFilter implements ContainerRequestFilter {
         }
       });
 
-      // refresh the token and add it to the headers
-      containerRequest.getRequestHeaders()
-        .putSingle(TOKEN_HEADER_RESPONSE, generateJwt(gbifUser.getUserName(), jwtConfiguration));
+      // refresh the token close to its expiry and add it to the headers, otherwise clients keep using theirs
+      if (authentication.getExpiration() != null && authentication.getExpiration().getTime() - System.currentTimeMillis()
+                                                    > jwtConfiguration.getRefreshThresholdInMs()) {
+        tokensKept.inc();
+      } else {
+        tokensIssued.inc();
+        containerRequest.getRequestHeaders()
+          .putSingle(TOKEN_HEADER_RESPONSE, generateJwt(gbifUser.getUserName(), jwtConfiguration));
+      }
 
     } catch (GbifJwtException e) {
       LOG.warn("JWT validation failed: {}", e.getErrorCode());
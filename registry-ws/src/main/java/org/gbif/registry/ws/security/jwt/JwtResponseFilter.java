@@ -12,7 +12,7 @@ import static org.gbif.registry.ws.security.jwt.JwtConfiguration.TOKEN_HEADER_RE
  * Filter to add the JWT token to the responses.
  * <p>
  * This filter is needed to add a newly generated token to the response. If there isn't a new token set in the request
- * nothing is added to the response.
+ * nothing is added to the response and the client is expected to keep using its current token.
  */
 public class JwtResponseFilter implements ContainerResponseFilter {
 
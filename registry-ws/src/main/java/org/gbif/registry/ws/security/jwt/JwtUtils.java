@@ -4,6 +4,7 @@ import org.gbif.registry.ws.security.jwt.JwtConfiguration.GbifClaims;
 
 import java.util.Date;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.regex.Pattern;
 import javax.ws.rs.core.HttpHeaders;
 
@@ -26,6 +27,7 @@ public class JwtUtils {
    * <li>expiration: takes the time from the {@link JwtConfiguration}</li>
    * <li>Issued time: sets the current time when the token is issued</li>
    * <li>Issuer: takes the issuer from the {@link JwtConfiguration}</li>
+   * <li>ID: a random identifier of the token</li>
    * <li>Username claim: custom claim to store the username received as a parameter</li>
    * <li>signature: signs the token using {@link SignatureAlgorithm#HS256} and the key specified in the {@link JwtConfiguration}</li>
    * </ul>
@@ -35,6 +37,7 @@ public class JwtUtils {
       .setExpiration(new Date(System.currentTimeMillis() + config.getExpiryTimeInMs()))
       .setIssuedAt(new Date(System.currentTimeMillis()))
       .setIssuer(config.getIssuer())
+      .setId(UUID.randomUUID().toString())
       .claim(GbifClaims.USERNAME, username)
       .signWith(SignatureAlgorithm.HS256, config.getSigningKey())
       .compact();
@@ -0,0 +1,178 @@
+package org.gbif.registry.ws.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hashing;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.core.HttpRequestContext;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * A response rendered once into immutable bytes, for responses that rarely change but are requested often.
+ * <p/>
+ * The response carries a strong ETag, and optionally a Last-Modified date, so conditional requests are answered with
+ * 304 Not Modified, and clients accepting gzip get bytes that were compressed once as well. JSONP requests wrap the
+ * entity for each request and are served the original value of JSON responses instead.
+ */
+public class PrerenderedResponse {
+
+  private static final String JSONP_CALLBACK = "callback";
+  private static final String GZIP = "gzip";
+  private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final Splitter PARAM_SPLITTER = Splitter.on(';').trimResults();
+
+  @Nullable
+  private final Object value;
+  private final MediaType mediaType;
+  private final byte[] data;
+  private final byte[] gzipped;
+  private final EntityTag etag;
+  private final EntityTag gzipEtag;
+  @Nullable
+  private final Date lastModified;
+
+  private PrerenderedResponse(@Nullable Object value, MediaType mediaType, byte[] data, @Nullable Date lastModified) {
+    this.value = value;
+    this.mediaType = mediaType;
+    this.data = data;
+    this.gzipped = gzip(data);
+    // HTTP dates have a precision of seconds
+    this.lastModified = lastModified == null ? null : new Date(lastModified.getTime() / 1000 * 1000);
+    String hash = Hashing.murmur3_128().hashBytes(data).toString();
+    // each encoding is a different representation and needs its own strong tag
+    etag = new EntityTag(hash);
+    gzipEtag = new EntityTag(hash + "-" + GZIP);
+  }
+
+  /**
+   * Renders a value with the given mapper.
+   */
+  public static PrerenderedResponse of(ObjectMapper mapper, Object value) throws IOException {
+    return new PrerenderedResponse(value, MediaType.APPLICATION_JSON_TYPE, mapper.writeValueAsBytes(value), null);
+  }
+
+  /**
+   * Wraps an already rendered JSON string.
+   */
+  public static PrerenderedResponse ofJson(String json) {
+    return new PrerenderedResponse(json, MediaType.APPLICATION_JSON_TYPE, json.getBytes(Charsets.UTF_8), null);
+  }
+
+  /**
+   * Wraps an already rendered document of any media type.
+   *
+   * @param lastModified the modification date sent as Last-Modified, if known
+   */
+  public static PrerenderedResponse of(byte[] data, MediaType mediaType, @Nullable Date lastModified) {
+    return new PrerenderedResponse(null, mediaType, data, lastModified);
+  }
+
+  /**
+   * Builds the response to the current request.
+   */
+  public Response respond(HttpContext context) {
+    HttpRequestContext request = context.getRequest();
+    if (value != null && request.getQueryParameters().containsKey(JSONP_CALLBACK)) {
+      return Response.ok(value).build();
+    }
+
+    boolean gzip = acceptsGzip(request.getRequestHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+    EntityTag tag = gzip ? gzipEtag : etag;
+    Response.ResponseBuilder notModified = lastModified == null ? request.evaluatePreconditions(tag)
+      : request.evaluatePreconditions(lastModified, tag);
+    Response.ResponseBuilder builder = notModified != null ? notModified
+      : Response.ok(gzip ? gzipped : data, mediaType);
+    builder.tag(tag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (lastModified != null) {
+      builder.lastModified(lastModified);
+    }
+    if (gzip && notModified == null) {
+      builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+    }
+    return builder.build();
+  }
+
+  public EntityTag getEtag() {
+    return etag;
+  }
+
+  @Nullable
+  public Date getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * @return the uncompressed bytes as a stream
+   */
+  public InputStream openStream() {
+    return new ByteArrayInputStream(data);
+  }
+
+  /**
+   * @return the uncompressed bytes decoded as UTF-8
+   */
+  public String asString() {
+    return new String(data, Charsets.UTF_8);
+  }
+
+  /**
+   * @return the number of bytes held, compressed and uncompressed
+   */
+  public int size() {
+    return data.length + gzipped.length;
+  }
+
+  /**
+   * @return true if one of the Accept-Encoding headers allows gzip, e.g. "gzip, deflate" but not "gzip;q=0"
+   */
+  static boolean acceptsGzip(@Nullable List<String> acceptEncodings) {
+    if (acceptEncodings != null) {
+      for (String header : acceptEncodings) {
+        for (String coding : LIST_SPLITTER.split(header)) {
+          List<String> params = PARAM_SPLITTER.splitToList(coding);
+          if (GZIP.equalsIgnoreCase(params.get(0)) && !excluded(params.subList(1, params.size()))) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean excluded(List<String> params) {
+    for (String param : params) {
+      if (param.startsWith("q=")) {
+        try {
+          return Double.parseDouble(param.substring(2)) <= 0;
+        } catch (NumberFormatException e) {
+          return false;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static byte[] gzip(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+    try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+      gz.write(data);
+    } catch (IOException e) {
+      // not possible writing to memory
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+}
@@ -16,6 +16,7 @@ package org.gbif.registry;
 import org.gbif.api.model.common.paging.PagingRequest;
 import org.gbif.api.model.occurrence.Download;
 import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.DatasetOccurrenceDownloadUsage;
 import org.gbif.api.model.registry.Installation;
 import org.gbif.api.model.registry.Organization;
 import org.gbif.api.service.registry.DatasetOccurrenceDownloadUsageService;
@@ -40,6 +41,7 @@ import org.gbif.registry.ws.resources.OccurrenceDownloadResource;
 import org.gbif.registry.ws.resources.OrganizationResource;
 import org.gbif.ws.client.filter.SimplePrincipalProvider;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -203,4 +205,47 @@ public class DatasetOccurrenceDownloadIT {
     assertEquals(3,occDownload2.getNumberDatasets());
   }
 
+  /**
+   * Stores usages above the copy threshold of registry-test.properties twice for the same download, so the second
+   * request overwrites the usages copied by the first one.
+   */
+  @Test
+  public void testCreateUsagesCopiedTwice() {
+    Download occurrenceDownload = OccurrenceDownloadIT.getTestInstancePredicateDownload();
+    final Dataset testDataset1 = createTestDataset();
+    final Dataset testDataset2 = createTestDataset();
+    final Dataset testDataset3 = createTestDataset();
+    final Dataset testDataset4 = createTestDataset();
+
+    occurrenceDownloadService.create(occurrenceDownload);
+
+    Map<UUID,Long> datasetCitation = new HashMap<>();
+    datasetCitation.put(testDataset1.getKey(), 1000L);
+    datasetCitation.put(testDataset2.getKey(), 10000L);
+    datasetCitation.put(testDataset3.getKey(), 100000L);
+    // unknown datasets are skipped
+    datasetCitation.put(UUID.randomUUID(), 5L);
+    occurrenceDownloadService.createUsages(occurrenceDownload.getKey(), datasetCitation);
+    assertEquals(3, occurrenceDownloadService.get(occurrenceDownload.getKey()).getNumberDatasets());
+
+    // a retried or continued request
+    datasetCitation.remove(testDataset1.getKey());
+    datasetCitation.put(testDataset2.getKey(), 20000L);
+    datasetCitation.put(testDataset4.getKey(), 7L);
+    occurrenceDownloadService.createUsages(occurrenceDownload.getKey(), datasetCitation);
+
+    assertEquals(4, occurrenceDownloadService.get(occurrenceDownload.getKey()).getNumberDatasets());
+    assertEquals(1000L, numberRecords(testDataset1));
+    assertEquals(20000L, numberRecords(testDataset2));
+    assertEquals(100000L, numberRecords(testDataset3));
+    assertEquals(7L, numberRecords(testDataset4));
+  }
+
+  private long numberRecords(Dataset dataset) {
+    List<DatasetOccurrenceDownloadUsage> usages =
+      datasetOccurrenceDownloadUsageService.listByDataset(dataset.getKey(), new PagingRequest(0, 3)).getResults();
+    assertEquals("Dataset should be used once", 1, usages.size());
+    return usages.get(0).getNumberRecords();
+  }
+
 }
@@ -1,9 +1,18 @@
 package org.gbif.registry;
 
+import org.gbif.api.vocabulary.InterpretationRemark;
+import org.gbif.api.vocabulary.NameUsageIssue;
+import org.gbif.api.vocabulary.OccurrenceIssue;
 import org.gbif.registry.grizzly.RegistryServer;
 import org.gbif.registry.guice.RegistryTestModules;
+import org.gbif.ws.mixin.Mixins;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
@@ -11,11 +20,13 @@ import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
 import com.sun.jersey.api.json.JSONConfiguration;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -57,5 +68,36 @@ public class EnumerationResourceIT {
     assertNotNull(responseContent);
     assertTrue(responseContent.size() > 0);
   }
-  
+
+  /**
+   * The rendered responses need to match the serialization with the mixins of the GBIF API, as the related terms of the
+   * interpretation remarks are serialized by a mixin.
+   */
+  @Test
+  public void testInterpretationRemarksUseMixins() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    for (Map.Entry<Class<?>, Class<?>> mixin : Mixins.getPredefinedMixins().entrySet()) {
+      mapper.getSerializationConfig().addMixInAnnotations(mixin.getKey(), mixin.getValue());
+    }
+    List<Map<String, Object>> remarks = Stream.concat(Stream.of(OccurrenceIssue.values()),
+                                                      Stream.of(NameUsageIssue.values()))
+      .filter(remark -> !remark.isDeprecated())
+      // a method reference fails on the intersection type of the two enums
+      .map(remark -> toMap(remark))
+      .collect(Collectors.toList());
+
+    String body = publicClient.resource(RegistryTestModules.WS_URL)
+      .path("enumeration/interpretationRemark")
+      .get(String.class);
+    assertEquals(mapper.valueToTree(remarks), mapper.readTree(body));
+  }
+
+  private static Map<String, Object> toMap(InterpretationRemark remark) {
+    Map<String, Object> info = new LinkedHashMap<>();
+    info.put("id", remark.getId());
+    info.put("severity", remark.getSeverity().name());
+    info.put("relatedTerms", remark.getRelatedTerms());
+    return info;
+  }
+
 }
@@ -55,6 +55,8 @@ public class DatabaseInitializer extends ExternalResource {
       connection.prepareStatement("DELETE FROM node_tag").execute();
       connection.prepareStatement("DELETE FROM node_comment").execute();
       connection.prepareStatement("DELETE FROM occurrence_download").execute();
+      connection.prepareStatement("DELETE FROM download_statistics").execute();
+      connection.prepareStatement("DELETE FROM download_user_statistics").execute();
       connection.prepareStatement("DELETE FROM organization_contact").execute();
       connection.prepareStatement("DELETE FROM organization_endpoint").execute();
       connection.prepareStatement("DELETE FROM organization_machine_tag").execute();
@@ -105,8 +107,6 @@ public class DatabaseInitializer extends ExternalResource {
        * – crawl_history
        * – dataset_network
        * – dataset_occurrence_download
-       * – download_statistics
-       * – download_user_statistics
        * – downloaded_records_statistics
        * – endpoint_machine_tag
        * – metasync_history
@@ -0,0 +1,140 @@
+package org.gbif.registry.directory;
+
+import org.gbif.api.model.common.paging.Pageable;
+import org.gbif.api.model.common.paging.PagingResponse;
+import org.gbif.api.model.directory.NodePerson;
+import org.gbif.api.model.directory.Participant;
+import org.gbif.api.model.directory.ParticipantPerson;
+import org.gbif.api.model.directory.Person;
+import org.gbif.api.model.registry.Identifier;
+import org.gbif.api.model.registry.Node;
+import org.gbif.api.service.directory.NodeService;
+import org.gbif.api.service.directory.ParticipantService;
+import org.gbif.api.service.directory.PersonService;
+import org.gbif.api.vocabulary.IdentifierType;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DirectoryAugmenterImplTest {
+
+  private ParticipantService participantService;
+  private NodeService nodeService;
+  private PersonService personService;
+  private DirectoryAugmenterImpl augmenter;
+
+  @Before
+  public void setup() {
+    participantService = mock(ParticipantService.class);
+    nodeService = mock(NodeService.class);
+    personService = mock(PersonService.class);
+
+    Person head = person(10, "Head");
+    Person staff = person(20, "Staff");
+
+    ParticipantPerson participantPerson = new ParticipantPerson();
+    participantPerson.setPersonId(head.getId());
+    org.gbif.api.model.directory.Node node = new org.gbif.api.model.directory.Node();
+    node.setId(5);
+    node.setName("GBIF Spain");
+    node.setEmail("info@gbif.es");
+    NodePerson nodePerson = new NodePerson();
+    nodePerson.setPersonId(staff.getId());
+    node.setPeople(Lists.newArrayList(nodePerson));
+
+    Participant participant = new Participant();
+    participant.setId(1);
+    participant.setName("Spain");
+    participant.setPeople(Lists.newArrayList(participantPerson));
+    org.gbif.api.model.directory.Node listedNode = new org.gbif.api.model.directory.Node();
+    listedNode.setId(node.getId());
+    participant.setNodes(Lists.newArrayList(listedNode));
+
+    when(participantService.list(anyString(), any(Pageable.class)))
+      .thenReturn(page(Lists.newArrayList(participant)));
+    when(participantService.get(1)).thenReturn(participant);
+    when(nodeService.get(5)).thenReturn(node);
+    // the staff member was added after people were listed
+    when(personService.list(anyString(), any(Pageable.class))).thenReturn(page(Lists.newArrayList(head)));
+    when(personService.get(20)).thenReturn(staff);
+
+    augmenter = new DirectoryAugmenterImpl(participantService, nodeService, personService, 0);
+  }
+
+  @Test
+  public void testAugmentFromSnapshot() {
+    assertTrue(augmenter.refresh());
+    reset(participantService, nodeService, personService);
+
+    Node node = augmenter.augment(registryNode());
+    assertEquals("Spain", node.getParticipantTitle());
+    assertEquals(Lists.newArrayList("info@gbif.es"), node.getEmail());
+    assertEquals(2, node.getContacts().size());
+    assertEquals("Head", node.getContacts().get(0).getFirstName());
+    assertEquals("Spain", node.getContacts().get(0).getOrganization());
+    assertEquals("Staff", node.getContacts().get(1).getFirstName());
+    assertEquals("GBIF Spain", node.getContacts().get(1).getOrganization());
+
+    // no remote calls while augmenting
+    verify(participantService, never()).get(anyInt());
+    verify(nodeService, never()).get(anyInt());
+    verify(personService, never()).get(anyInt());
+  }
+
+  @Test
+  public void testKeepsSnapshotOnFailure() {
+    assertTrue(augmenter.refresh());
+    when(participantService.list(anyString(), any(Pageable.class))).thenThrow(new RuntimeException("unavailable"));
+    assertFalse(augmenter.refresh());
+
+    Node node = augmenter.augment(registryNode());
+    assertEquals("Spain", node.getParticipantTitle());
+    assertEquals(2, node.getContacts().size());
+  }
+
+  @Test
+  public void testLiveLookupWithoutSnapshot() {
+    when(personService.get(10)).thenReturn(person(10, "Head"));
+
+    Node node = augmenter.augment(registryNode());
+    assertEquals("Spain", node.getParticipantTitle());
+    assertEquals(2, node.getContacts().size());
+    verify(participantService).get(1);
+  }
+
+  private static Node registryNode() {
+    Node node = new Node();
+    Identifier id = new Identifier();
+    id.setType(IdentifierType.GBIF_PARTICIPANT);
+    id.setIdentifier("1");
+    node.getIdentifiers().add(id);
+    return node;
+  }
+
+  private static Person person(int id, String firstName) {
+    Person person = new Person();
+    person.setId(id);
+    person.setFirstName(firstName);
+    person.setSurname("Doe");
+    return person;
+  }
+
+  private static <T> PagingResponse<T> page(List<T> results) {
+    return new PagingResponse<T>(0, 1000, (long) results.size(), results);
+  }
+}
@@ -0,0 +1,93 @@
+package org.gbif.registry.events;
+
+import org.gbif.varnish.VarnishPurger;
+
+import java.util.List;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class CoalescingVarnishPurgerTest {
+
+  private final VarnishPurger varnish = mock(VarnishPurger.class);
+
+  @Test
+  public void testBansWithinWindowSentOnce() {
+    CoalescingVarnishPurger purger = new CoalescingVarnishPurger(varnish, 200);
+    try {
+      purger.ban("dataset(/search|/suggest)?[^/]*$");
+      purger.ban("installation/(a|b)/dataset");
+      purger.ban("dataset(/search|/suggest)?[^/]*$");
+      purger.purge("dataset/a");
+      purger.purge("dataset/a");
+
+      // duplicates dropped and the bans merged into one once the window passed
+      verify(varnish, timeout(5000)).ban("(dataset(/search|/suggest)?[^/]*$|installation/(a|b)/dataset)");
+      verify(varnish).purge("dataset/a");
+    } finally {
+      purger.close();
+    }
+    verify(varnish).ban(anyString());
+    verify(varnish).purge(anyString());
+  }
+
+  @Test
+  public void testCloseFlushesPending() {
+    // a window that never passes during the test
+    CoalescingVarnishPurger purger = new CoalescingVarnishPurger(varnish, 600000);
+    purger.ban("network/.+/constituents");
+    purger.purge("network/a");
+    verify(varnish, never()).ban(anyString());
+    verify(varnish, never()).purge(anyString());
+
+    purger.close();
+    verify(varnish).ban("network/.+/constituents");
+    verify(varnish).purge("network/a");
+  }
+
+  @Test
+  public void testNoWindow() {
+    CoalescingVarnishPurger purger = new CoalescingVarnishPurger(varnish, 0);
+    purger.ban("network/.+/constituents");
+    verify(varnish).ban("network/.+/constituents");
+    purger.close();
+  }
+
+  @Test
+  public void testMergeSingleBan() {
+    List<String> merged = CoalescingVarnishPurger.mergeBans(ImmutableList.of("dataset(/search|/suggest)?[^/]*$"));
+    assertEquals(ImmutableList.of("dataset(/search|/suggest)?[^/]*$"), merged);
+  }
+
+  @Test
+  public void testMergeBans() {
+    List<String> merged = CoalescingVarnishPurger.mergeBans(
+      ImmutableList.of("dataset(/search|/suggest)?[^/]*$", "installation/(a|b)/dataset", "network/.+/constituents"));
+    assertEquals(1, merged.size());
+    assertEquals("(dataset(/search|/suggest)?[^/]*$|installation/(a|b)/dataset|network/.+/constituents)",
+                 merged.get(0));
+  }
+
+  @Test
+  public void testMergeBansRespectsMaxLength() {
+    List<String> regexes = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      regexes.add("organization/" + Strings.repeat(String.valueOf(i % 10), 100) + "/installation");
+    }
+    List<String> merged = CoalescingVarnishPurger.mergeBans(regexes);
+    assertTrue(merged.size() > 1);
+    for (String regex : merged) {
+      assertTrue(regex.length() <= CoalescingVarnishPurger.MAX_BAN_LENGTH + 1);
+    }
+  }
+}
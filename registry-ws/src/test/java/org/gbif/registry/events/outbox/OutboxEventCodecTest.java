@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.events.outbox;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Tag;
+import org.gbif.api.vocabulary.DatasetType;
+import org.gbif.registry.events.ChangedComponentEvent;
+import org.gbif.registry.events.CreateEvent;
+import org.gbif.registry.events.UpdateEvent;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OutboxEventCodecTest {
+
+  private final OutboxEventCodec codec = new OutboxEventCodec();
+
+  @Test
+  public void testCreateEvent() throws Exception {
+    Dataset d = dataset("Pontaurus");
+    OutboxEvent e = codec.encode(CreateEvent.newInstance(d, Dataset.class));
+    assertEquals(OutboxEvent.Type.CREATE, e.getEventType());
+    assertEquals(d.getKey(), e.getEntityKey());
+    assertNull(e.getOldObject());
+
+    Object decoded = codec.decode(e);
+    assertTrue(decoded instanceof CreateEvent);
+    CreateEvent<?> ce = (CreateEvent<?>) decoded;
+    assertEquals(Dataset.class, ce.getObjectClass());
+    assertEquals(d.getKey(), ce.getNewObject().getKey());
+    assertEquals("Pontaurus", ((Dataset) ce.getNewObject()).getTitle());
+  }
+
+  @Test
+  public void testUpdateEvent() throws Exception {
+    Dataset d1 = dataset("Pontaurus");
+    Dataset d2 = dataset("Pontaurus needs more love");
+    d2.setKey(d1.getKey());
+
+    UpdateEvent<?> ue = (UpdateEvent<?>) codec.decode(codec.encode(UpdateEvent.newInstance(d2, d1, Dataset.class)));
+    assertEquals("Pontaurus", ((Dataset) ue.getOldObject()).getTitle());
+    assertEquals("Pontaurus needs more love", ((Dataset) ue.getNewObject()).getTitle());
+  }
+
+  @Test
+  public void testChangedComponentEvent() throws Exception {
+    UUID key = UUID.randomUUID();
+    ChangedComponentEvent cce =
+      (ChangedComponentEvent) codec.decode(codec.encode(ChangedComponentEvent.newInstance(key, Dataset.class, Tag.class)));
+    assertEquals(key, cce.getTargetEntityKey());
+    assertEquals(Dataset.class, cce.getTargetClass());
+    assertEquals(Tag.class, cce.getComponentClass());
+  }
+
+  @Test
+  public void testUnsupportedEvent() throws Exception {
+    assertNull(codec.encode("not a registry event"));
+  }
+
+  private static Dataset dataset(String title) {
+    Dataset d = new Dataset();
+    d.setKey(UUID.randomUUID());
+    d.setTitle(title);
+    d.setType(DatasetType.OCCURRENCE);
+    d.setPublishingOrganizationKey(UUID.randomUUID());
+    d.setInstallationKey(UUID.randomUUID());
+    return d;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013 Global Biodiversity Information Facility (GBIF)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.registry.events.outbox;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.registry.events.CreateEvent;
+import org.gbif.registry.persistence.mapper.EventOutboxMapper;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.eventbus.SubscriberExceptionHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class OutboxEventDispatcherTest {
+
+  private static final long KEY = 42;
+
+  private EventOutboxMapper mapper;
+  private SubscriberExceptionHandler exceptionHandler;
+  private OutboxEventBus eventBus;
+  private OutboxEventDispatcher dispatcher;
+  private CountingSubscriber counting;
+  private OutboxEvent event;
+
+  @Before
+  public void setup() throws Exception {
+    mapper = mock(EventOutboxMapper.class);
+    exceptionHandler = mock(SubscriberExceptionHandler.class);
+    eventBus = new OutboxEventBus(mapper, exceptionHandler);
+    counting = new CountingSubscriber();
+    eventBus.register(counting);
+
+    Dataset d = new Dataset();
+    d.setKey(UUID.randomUUID());
+    d.setTitle("Pontaurus");
+    event = eventBus.getCodec().encode(CreateEvent.newInstance(d, Dataset.class));
+    event.setKey(KEY);
+    event.setAttempts(1);
+    event.setCreated(new Date());
+    when(mapper.claim(any(UUID.class), anyInt(), anyInt(), anyInt())).thenReturn(1);
+    when(mapper.listClaimed(any(UUID.class))).thenReturn(Lists.newArrayList(event));
+
+    // only poll when called by the test
+    dispatcher = new OutboxEventDispatcher(mapper, eventBus, 2, Integer.MAX_VALUE, 100, 10, 7);
+  }
+
+  @After
+  public void tearDown() {
+    dispatcher.close();
+  }
+
+  @Test
+  public void testDelivered() throws Exception {
+    dispatcher.poll();
+    assertEquals(1, counting.received);
+    verify(mapper).markDelivered(KEY);
+    verify(mapper, never()).markFailed(anyLong(), anyString(), anyString(), anyInt());
+  }
+
+  @Test
+  public void testFailingSubscriberKeepsEventUndelivered() throws Exception {
+    eventBus.register(new FailingSubscriber());
+
+    dispatcher.poll();
+    // the other subscriber still got the event, but the event stays in the outbox to be delivered again
+    assertEquals(1, counting.received);
+    verify(mapper, never()).markDelivered(anyLong());
+    verify(mapper).markFailed(eq(KEY), contains("1 subscribers failed to handle CreateEvent"),
+                              eq(CountingSubscriber.class.getName()), eq(10));
+    // not retried in memory
+    verifyZeroInteractions(exceptionHandler);
+  }
+
+  @Test
+  public void testRetryOnlyFailedSubscribers() throws Exception {
+    FailingSubscriber failing = new FailingSubscriber();
+    eventBus.register(failing);
+    event.setAttempts(2);
+    event.setDeliveredTo(CountingSubscriber.class.getName());
+
+    dispatcher.poll();
+    // the subscriber that handled the event before is skipped
+    assertEquals(0, counting.received);
+    assertEquals(1, failing.received);
+    verify(mapper).markFailed(eq(KEY), anyString(), eq(CountingSubscriber.class.getName()), eq(10));
+
+    failing.down = false;
+    dispatcher.poll();
+    assertEquals(0, counting.received);
+    assertEquals(2, failing.received);
+    verify(mapper).markDelivered(KEY);
+  }
+
+  @Test
+  public void testDeadLetteredOnLastAttempt() throws Exception {
+    eventBus.register(new FailingSubscriber());
+    event.setAttempts(10);
+
+    dispatcher.poll();
+    // the mapper dead letters the event once the attempts reached the maximum
+    verify(mapper).markFailed(eq(KEY), anyString(), eq(CountingSubscriber.class.getName()), eq(10));
+    verify(mapper).deadLetterAbandoned(10);
+    verify(mapper, never()).markDelivered(anyLong());
+  }
+
+  public static class CountingSubscriber {
+    private int received;
+
+    @Subscribe
+    public void onCreate(CreateEvent<?> event) {
+      received++;
+    }
+  }
+
+  public static class FailingSubscriber {
+    private boolean down = true;
+    private int received;
+
+    @Subscribe
+    public void onCreate(CreateEvent<?> event) {
+      received++;
+      if (down) {
+        throw new IllegalStateException("Subscriber is down");
+      }
+    }
+  }
+}
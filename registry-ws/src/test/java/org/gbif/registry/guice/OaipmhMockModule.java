@@ -25,7 +25,9 @@ public class OaipmhMockModule extends AbstractModule {
   @Override
   protected void configure() {
     bind(RepositoryConfiguration.class).toInstance(repositoryConfiguration);
-    bind(ItemRepository.class).to(OaipmhItemRepository.class).in(Scopes.SINGLETON);
+    // the endpoint streams lists from the repository directly, so both keys share one instance
+    bind(OaipmhItemRepository.class).in(Scopes.SINGLETON);
+    bind(ItemRepository.class).to(OaipmhItemRepository.class);
     bind(SetRepository.class).to(OaipmhSetRepository.class).in(Scopes.SINGLETON);
     bind(OccurrenceMetricsClient.class).to(MockOccurrenceMetricsClient.class).in(Scopes.SINGLETON);
   }
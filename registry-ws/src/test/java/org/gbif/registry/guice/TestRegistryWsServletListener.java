@@ -29,6 +29,7 @@ import org.gbif.registry.ws.security.jwt.JwtRequestFilter;
 import org.gbif.registry.ws.security.jwt.JwtResponseFilter;
 import org.gbif.registry.ws.surety.OrganizationSuretyModule;
 import org.gbif.utils.file.properties.PropertiesUtil;
+import org.gbif.ws.mixin.Mixins;
 import org.gbif.ws.server.filter.AppIdentityFilter;
 import org.gbif.ws.server.filter.IdentityFilter;
 import org.gbif.ws.server.guice.GbifServletListener;
@@ -36,6 +37,7 @@ import org.gbif.ws.server.guice.WsJerseyModuleConfiguration;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import javax.servlet.ServletContextEvent;
 
@@ -109,6 +111,12 @@ public class TestRegistryWsServletListener extends GbifServletListener {
     return new SecurityModule(TestConstants.getIntegrationTestAppKeys(), props);
   }
 
+  @Override
+  protected Map<Class<?>, Class<?>> getMixIns() {
+    // serialize JSON like the registry webapp does
+    return Mixins.getPredefinedMixins();
+  }
+
   @Override
   protected List<Module> getModules(Properties props) {
     return Lists.newArrayList(
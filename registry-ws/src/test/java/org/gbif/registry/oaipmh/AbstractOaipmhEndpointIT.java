@@ -22,6 +22,7 @@ import org.gbif.registry.utils.Organizations;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.util.Date;
 import java.util.UUID;
 
@@ -193,6 +194,32 @@ public abstract class AbstractOaipmhEndpointIT {
     return datasetService.insertMetadata(key, document);
   }
 
+  /**
+   * Changes the created date of a dataset, which is the paging order of the list verbs.
+   *
+   * @param key dataset key
+   * @param created new created date, including the microseconds
+   */
+  void changeDatasetCreatedDate(UUID key, Timestamp created) throws Exception {
+    Connection connection = null;
+    try {
+      connection = LiquibaseModules.database().getConnection();
+      connection.setAutoCommit(false);
+
+      PreparedStatement p = connection.prepareStatement("UPDATE dataset SET created = ? WHERE key = ?");
+
+      p.setTimestamp(1, created);
+      p.setObject(2, key);
+
+      p.execute();
+      connection.commit();
+    } finally {
+      if (connection != null) {
+        connection.close();
+      }
+    }
+  }
+
   /**
    * This method is used to change the modified date of a dataset in order to test date queries.
    *
@@ -0,0 +1,44 @@
+package org.gbif.registry.oaipmh;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeysetResumptionTokenTest {
+
+  @Test
+  public void testRoundTrip() {
+    Timestamp created = new Timestamp(1450000000123L);
+    // microseconds as stored by postgres
+    created.setNanos(123456000);
+    KeysetResumptionToken token = new KeysetResumptionToken(created, UUID.randomUUID(), 200, "eml",
+                                                            "dataset_type:OCCURRENCE", new Date(1400000000000L), null);
+
+    String formatted = token.format();
+    assertTrue(KeysetResumptionToken.isKeysetToken(formatted));
+
+    KeysetResumptionToken parsed = KeysetResumptionToken.parse(formatted);
+    assertEquals(token, parsed);
+    assertEquals(123456000, parsed.getCreated().getNanos());
+    assertEquals(200, parsed.getCursor());
+    assertNull(parsed.getUntil());
+  }
+
+  @Test
+  public void testOffsetTokensAreNotKeysetTokens() {
+    assertFalse(KeysetResumptionToken.isKeysetToken("MTAwfHx8fG9haV9kYw=="));
+    assertFalse(KeysetResumptionToken.isKeysetToken(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedToken() {
+    KeysetResumptionToken.parse("k" + "not a token");
+  }
+}
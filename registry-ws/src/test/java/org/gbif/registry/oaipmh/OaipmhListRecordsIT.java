@@ -13,12 +13,15 @@ import org.gbif.registry.utils.OaipmhTestConfiguration;
 import org.gbif.utils.file.FileUtils;
 
 import java.net.URI;
+import java.sql.Timestamp;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.apache.commons.io.IOUtils;
 import org.dspace.xoai.model.oaipmh.Record;
 import org.dspace.xoai.serviceprovider.parameters.GetRecordParameters;
@@ -134,6 +137,36 @@ public class OaipmhListRecordsIT extends AbstractOaipmhEndpointIT {
     assertEquals("ListRecords verb return all records when the number of records is higher than 'MaxListRecords'", numberOfDataset, recordList.size());
   }
 
+  /**
+   * Test that ListRecords verb returns every record exactly once when the pages end in between datasets created at
+   * the same time, as the resumption token has to carry the microseconds of the created date.
+   */
+  @Test
+  public void testListRecordsPagingSameCreated() throws Exception {
+    int numberOfDataset = 5;
+    Organization org = createOrganization(Country.ICELAND);
+    Installation installation = createInstallation(org.getKey());
+
+    Timestamp created = new Timestamp(1450000000123L);
+    created.setNanos(123456000);
+    Set<String> keys = Sets.newHashSet();
+    for (int i = 0; i < numberOfDataset; i++) {
+      Dataset d = createDataset(org.getKey(), installation.getKey(), DatasetType.OCCURRENCE, new Date());
+      changeDatasetCreatedDate(d.getKey(), created);
+      keys.add(d.getKey().toString());
+    }
+
+    Iterator<Record> records = serviceProvider.listRecords(
+            ListRecordsParameters.request()
+                    .withMetadataPrefix(EML_FORMAT.getMetadataPrefix()));
+    List<String> identifiers = Lists.newArrayList();
+    while (records.hasNext()) {
+      identifiers.add(records.next().getHeader().getIdentifier());
+    }
+    assertEquals("ListRecords verb returns every record once", numberOfDataset, identifiers.size());
+    assertEquals(keys, Sets.newHashSet(identifiers));
+  }
+
   @Test
   public void getListRecordsWithAugmentedMetadata() throws Exception {
     Organization org1 = createOrganization(Country.ZAMBIA);
@@ -0,0 +1,67 @@
+package org.gbif.registry.oaipmh;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TemplatesTransformerTest {
+
+  private static final String DC = "<oai_dc:dc xmlns:oai_dc=\"http://www.openarchives.org/OAI/2.0/oai_dc/\" "
+                                   + "xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>%s</dc:title></oai_dc:dc>";
+
+  @Test
+  public void testConcurrentTransformations() throws Exception {
+    Transformer transformer;
+    try (InputStream xslt = getClass().getClassLoader().getResourceAsStream("org/gbif/registry/oaipmh/dc.xslt")) {
+      transformer = new TemplatesTransformer(TransformerFactory.newInstance().newTemplates(new StreamSource(xslt)));
+    }
+    final Transformer shared = transformer;
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = Lists.newArrayList();
+      for (int i = 0; i < 400; i++) {
+        final String title = "Dataset " + i;
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            StringWriter out = new StringWriter();
+            shared.transform(new StreamSource(new StringReader(String.format(DC, title))), new StreamResult(out));
+            return out.toString().contains("<dc:title>" + title + "</dc:title>");
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testDocumentIsCopied() throws Exception {
+    Transformer transformer;
+    try (InputStream xslt = getClass().getClassLoader().getResourceAsStream("org/gbif/registry/oaipmh/eml.xslt")) {
+      transformer = new TemplatesTransformer(TransformerFactory.newInstance().newTemplates(new StreamSource(xslt)));
+    }
+    StringWriter out = new StringWriter();
+    transformer.transform(new StreamSource(new StringReader("<eml><dataset>x</dataset></eml>")), new StreamResult(out));
+    assertEquals("<eml><dataset>x</dataset></eml>", out.toString().replaceAll("<\\?xml.*\\?>|\\s", ""));
+  }
+}
@@ -0,0 +1,133 @@
+package org.gbif.registry.persistence;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Tag;
+import org.gbif.registry.persistence.mapper.DatasetMapper;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StaticSqlSource;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ComponentBatchLoaderTest {
+
+  private static final String DATASET_NS = DatasetMapper.class.getName() + ".";
+  private static final String[] COMPONENT_STATEMENTS = {"countConstituentsByKeys", "listContactsByKeys",
+    "listEndpointsByKeys", "listMachineTagsByKeys", "listTagsByKeys", "listIdentifiersByKeys", "listCommentsByKeys"};
+
+  private final ComponentBatchLoader loader = new ComponentBatchLoader();
+  private final Configuration configuration = new Configuration();
+  private Executor executor;
+  private Method query;
+
+  @Before
+  public void setup() throws Exception {
+    executor = mock(Executor.class);
+    query = Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class);
+    for (String id : COMPONENT_STATEMENTS) {
+      configuration.addMappedStatement(statement(DATASET_NS + id));
+    }
+    configuration.addMappedStatement(statement(DATASET_NS + "list"));
+    configuration.addMappedStatement(statement(DATASET_NS + "get"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testComponentsAreAttachedPerEntity() throws Throwable {
+    Dataset d1 = dataset();
+    Dataset d2 = dataset();
+    MappedStatement list = configuration.getMappedStatement(DATASET_NS + "list");
+    when(executor.query(eq(list), any(), any(RowBounds.class), any(ResultHandler.class)))
+      .thenReturn((List) Lists.newArrayList(d1, d2));
+    for (String id : COMPONENT_STATEMENTS) {
+      when(executor.query(eq(configuration.getMappedStatement(DATASET_NS + id)), any(), any(RowBounds.class),
+                          any(ResultHandler.class))).thenReturn(Collections.emptyList());
+    }
+    Tag t1 = tag("first");
+    Tag t2 = tag("second");
+    when(executor.query(eq(configuration.getMappedStatement(DATASET_NS + "listTagsByKeys")), any(),
+                        any(RowBounds.class), any(ResultHandler.class)))
+      .thenReturn((List) Lists.newArrayList(keyed(d1.getKey(), t1), keyed(d1.getKey(), t2)));
+    when(executor.query(eq(configuration.getMappedStatement(DATASET_NS + "countConstituentsByKeys")), any(),
+                        any(RowBounds.class), any(ResultHandler.class)))
+      .thenReturn((List) Lists.newArrayList(keyed(d2.getKey(), 3)));
+
+    Object result = loader.intercept(new Invocation(executor, query, new Object[] {list, null, RowBounds.DEFAULT,
+      Executor.NO_RESULT_HANDLER}));
+
+    assertEquals(2, ((List<?>) result).size());
+    assertEquals(2, d1.getTags().size());
+    assertSame(t1, d1.getTags().get(0));
+    assertSame(t2, d1.getTags().get(1));
+    assertTrue(d2.getTags().isEmpty());
+    assertEquals(0, d1.getNumConstituents());
+    assertEquals(3, d2.getNumConstituents());
+    // one query per component type, regardless of the number of datasets
+    verify(executor, times(1 + COMPONENT_STATEMENTS.length))
+      .query(any(MappedStatement.class), any(), any(RowBounds.class), any(ResultHandler.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testOtherStatementsAreUntouched() throws Throwable {
+    MappedStatement get = configuration.getMappedStatement(DATASET_NS + "get");
+    when(executor.query(eq(get), any(), any(RowBounds.class), any(ResultHandler.class)))
+      .thenReturn((List) Lists.newArrayList(dataset()));
+
+    loader.intercept(new Invocation(executor, query, new Object[] {get, null, RowBounds.DEFAULT,
+      Executor.NO_RESULT_HANDLER}));
+
+    verify(executor, never()).query(eq(configuration.getMappedStatement(DATASET_NS + "listTagsByKeys")), any(),
+                                    any(RowBounds.class), any(ResultHandler.class));
+  }
+
+  private MappedStatement statement(String id) {
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "SELECT 1"),
+                                       SqlCommandType.SELECT)
+      .resultMaps(Collections.<ResultMap>emptyList())
+      .build();
+  }
+
+  private static <T> KeyedComponent<T> keyed(UUID key, T component) {
+    KeyedComponent<T> keyed = new KeyedComponent<T>();
+    keyed.setTargetKey(key);
+    keyed.setComponent(component);
+    return keyed;
+  }
+
+  private static Tag tag(String value) {
+    Tag tag = new Tag();
+    tag.setValue(value);
+    return tag;
+  }
+
+  private static Dataset dataset() {
+    Dataset d = new Dataset();
+    d.setKey(UUID.randomUUID());
+    return d;
+  }
+}
@@ -0,0 +1,89 @@
+package org.gbif.registry.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.postgresql.copy.CopyIn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class DatasetUsageCopierTest {
+
+  @Test
+  public void testWriteRows() throws Exception {
+    UUID d1 = UUID.fromString("38b4c89f-584c-41bb-bd8f-cd1def33e92f");
+    UUID d2 = UUID.fromString("7ddf754f-d193-4cc9-b351-99906754a03b");
+    Map<UUID, Long> usages = Maps.newLinkedHashMap();
+    usages.put(d1, 10L);
+    usages.put(d2, 3_000_000_000L);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DatasetUsageCopier.write(usages, recording(out));
+    assertEquals(d1 + "\t10\n" + d2 + "\t3000000000\n", new String(out.toByteArray(), Charsets.UTF_8));
+  }
+
+  @Test
+  public void testWriteInChunks() throws Exception {
+    Map<UUID, Long> usages = Maps.newLinkedHashMap();
+    for (int i = 0; i < 100_000; i++) {
+      usages.put(UUID.randomUUID(), (long) i);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CountingCopyIn copyIn = new CountingCopyIn(out);
+    DatasetUsageCopier.write(usages, copyIn.mock);
+
+    String rows = new String(out.toByteArray(), Charsets.UTF_8);
+    assertEquals(usages.size(), rows.split("\n").length);
+    // written in many small chunks instead of a single large string
+    assertTrue(copyIn.writes > 1);
+    assertTrue(copyIn.maxWrite < 128 * 1024);
+  }
+
+  @Test
+  public void testWriteNothing() throws Exception {
+    CopyIn copyIn = mock(CopyIn.class);
+    DatasetUsageCopier.write(Maps.<UUID, Long>newHashMap(), copyIn);
+    verify(copyIn, never()).writeToCopy(any(byte[].class), anyInt(), anyInt());
+  }
+
+  private static CopyIn recording(ByteArrayOutputStream out) throws Exception {
+    return new CountingCopyIn(out).mock;
+  }
+
+  /**
+   * Records the bytes written to a mocked COPY.
+   */
+  private static class CountingCopyIn {
+    private final CopyIn mock = mock(CopyIn.class);
+    private int writes;
+    private int maxWrite;
+
+    private CountingCopyIn(final ByteArrayOutputStream out) throws Exception {
+      doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) {
+          Object[] args = invocation.getArguments();
+          int len = (Integer) args[2];
+          out.write((byte[]) args[0], (Integer) args[1], len);
+          writes++;
+          maxWrite = Math.max(maxWrite, len);
+          return null;
+        }
+      }).when(mock).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    }
+  }
+}
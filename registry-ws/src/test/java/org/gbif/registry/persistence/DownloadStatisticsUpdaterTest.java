@@ -0,0 +1,102 @@
+package org.gbif.registry.persistence;
+
+import org.gbif.registry.persistence.mapper.DownloadStatisticsMapper;
+
+import java.util.Date;
+
+import com.google.common.collect.Lists;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DownloadStatisticsUpdaterTest {
+
+  private static final Date NOW = new Date(1546300800000L);
+  private static final Date JAN = new Date(1543622400000L);
+  private static final Date FEB = new Date(1546300800000L);
+
+  private SqlSessionManager sessionManager;
+  private DownloadStatisticsMapper mapper;
+  private DownloadStatisticsUpdater updater;
+
+  @Before
+  public void setup() {
+    sessionManager = mock(SqlSessionManager.class);
+    mapper = mock(DownloadStatisticsMapper.class);
+    when(mapper.tryLock()).thenReturn(true);
+    when(mapper.now()).thenReturn(NOW);
+    updater = new DownloadStatisticsUpdater(sessionManager, mapper, 0);
+  }
+
+  @Test
+  public void testFirstUpdateAggregatesAllMonths() {
+    when(mapper.listModifiedMonths(null, NOW)).thenReturn(Lists.newArrayList(JAN, FEB));
+
+    assertEquals(2, updater.update());
+    InOrder order = inOrder(mapper, sessionManager);
+    order.verify(mapper).updateDatasetStatistics(JAN);
+    order.verify(mapper).updateUserStatistics(JAN);
+    order.verify(sessionManager).commit(true);
+    order.verify(mapper).updateDatasetStatistics(FEB);
+    order.verify(mapper).updateUserStatistics(FEB);
+    order.verify(sessionManager).commit(true);
+    order.verify(mapper).updateProgress(NOW, 2);
+    order.verify(mapper).unlock();
+    order.verify(sessionManager).close();
+    assertEquals(NOW, updater.getWatermark());
+  }
+
+  @Test
+  public void testUpdateSinceWatermark() {
+    Date previous = new Date(NOW.getTime() - 3600000);
+    when(mapper.getWatermark()).thenReturn(previous);
+    Date since = new Date(previous.getTime() - DownloadStatisticsUpdater.OVERLAP_MSECS);
+    when(mapper.listModifiedMonths(since, NOW)).thenReturn(Lists.newArrayList(FEB));
+
+    assertEquals(1, updater.update());
+    verify(mapper).updateDatasetStatistics(FEB);
+    verify(mapper, never()).updateDatasetStatistics(JAN);
+    verify(mapper).updateProgress(NOW, 1);
+  }
+
+  @Test
+  public void testSkipWhenLockedElsewhere() {
+    when(mapper.tryLock()).thenReturn(false);
+    when(mapper.getWatermark()).thenReturn(JAN);
+
+    assertEquals(-1, updater.update());
+    verify(mapper, never()).listModifiedMonths(any(Date.class), any(Date.class));
+    verify(mapper, never()).updateProgress(any(Date.class), anyInt());
+    verify(mapper, never()).unlock();
+    verify(sessionManager).close();
+    assertEquals(JAN, updater.getWatermark());
+  }
+
+  @Test
+  public void testWatermarkKeptOnFailure() {
+    when(mapper.listModifiedMonths((Date) isNull(), any(Date.class))).thenReturn(Lists.newArrayList(JAN, FEB));
+    doThrow(new IllegalStateException("boom")).when(mapper).updateUserStatistics(FEB);
+
+    try {
+      updater.update();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    verify(mapper, never()).updateProgress(any(Date.class), anyInt());
+    verify(sessionManager).rollback(true);
+    verify(mapper).unlock();
+    verify(sessionManager).close();
+  }
+}
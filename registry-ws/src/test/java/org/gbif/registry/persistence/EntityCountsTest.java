@@ -0,0 +1,72 @@
+package org.gbif.registry.persistence;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.api.vocabulary.Country;
+import org.gbif.registry.persistence.mapper.DatasetMapper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EntityCountsTest {
+
+  private DatasetMapper mapper;
+
+  @Before
+  public void setup() {
+    mapper = mock(DatasetMapper.class);
+    when(mapper.count()).thenReturn(10);
+    when(mapper.count("pontaurus")).thenReturn(3);
+  }
+
+  @Test
+  public void testExactCounts() {
+    EntityCounts counts = EntityCounts.EXACT;
+    assertEquals(10, counts.countAll(Dataset.class, mapper));
+    assertEquals(10, counts.countAll(Dataset.class, mapper));
+    verify(mapper, times(2)).count();
+    verify(mapper, never()).estimateCount();
+  }
+
+  @Test
+  public void testCachedCounts() {
+    EntityCounts counts = new EntityCounts(EntityCounts.Mode.CACHED, 60);
+    assertEquals(10, counts.countAll(Dataset.class, mapper));
+    assertEquals(10, counts.countAll(Dataset.class, mapper));
+    verify(mapper, times(1)).count();
+
+    String filter = EntityCounts.filter("q", "pontaurus");
+    assertEquals(3, counts.count(Dataset.class, filter, () -> (long) mapper.count("pontaurus")));
+    assertEquals(3, counts.count(Dataset.class, filter, () -> (long) mapper.count("pontaurus")));
+    verify(mapper, times(1)).count("pontaurus");
+    // counts of other entities with the same filter are kept apart
+    assertEquals(7, counts.count(Organization.class, filter, () -> 7L));
+  }
+
+  @Test
+  public void testEstimatedCounts() {
+    EntityCounts counts = new EntityCounts(EntityCounts.Mode.ESTIMATED, 60);
+    when(mapper.estimateCount()).thenReturn(12L);
+    assertEquals(12, counts.countAll(Dataset.class, mapper));
+    verify(mapper, never()).count();
+
+    // without statistics the exact count is used
+    when(mapper.estimateCount()).thenReturn(-1L);
+    assertEquals(10, counts.countAll(Dataset.class, mapper));
+  }
+
+  @Test
+  public void testFilterSignature() {
+    assertEquals(EntityCounts.filter(Country.DENMARK, null), EntityCounts.filter(Country.DENMARK, null));
+    assertNotEquals(EntityCounts.filter(null, "x"), EntityCounts.filter("null", "x"));
+    assertNotEquals(EntityCounts.filter("a|", "b"), EntityCounts.filter("a", "|b"));
+  }
+}
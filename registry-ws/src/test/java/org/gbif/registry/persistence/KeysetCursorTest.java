@@ -0,0 +1,40 @@
+package org.gbif.registry.persistence;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeysetCursorTest {
+
+  @Test
+  public void testRoundTrip() {
+    Timestamp created = new Timestamp(1450000000123L);
+    // microseconds as stored by postgres
+    created.setNanos(123456000);
+    KeysetCursor cursor = new KeysetCursor(created, UUID.randomUUID());
+
+    KeysetCursor parsed = KeysetCursor.parse(cursor.format());
+    assertEquals(cursor, parsed);
+    assertEquals(123456000, parsed.getCreated().getNanos());
+  }
+
+  @Test
+  public void testPlainDate() {
+    KeysetCursor cursor = new KeysetCursor(new Date(1450000000123L), UUID.randomUUID());
+    assertEquals(1450000000123L, KeysetCursor.parse(cursor.format()).getCreated().getTime());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedCursor() {
+    KeysetCursor.parse("not a cursor");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIncompleteCursor() {
+    KeysetCursor.parse("MTQ1MDAwMDAwMDEyMw");
+  }
+}
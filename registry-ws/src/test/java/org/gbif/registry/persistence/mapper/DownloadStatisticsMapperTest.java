@@ -0,0 +1,244 @@
+package org.gbif.registry.persistence.mapper;
+
+import org.gbif.api.model.registry.Installation;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.registry.database.DatabaseInitializer;
+import org.gbif.registry.database.LiquibaseInitializer;
+import org.gbif.registry.database.LiquibaseModules;
+import org.gbif.registry.guice.RegistryTestModules;
+import org.gbif.registry.utils.Datasets;
+import org.gbif.registry.utils.Installations;
+import org.gbif.registry.utils.Organizations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Injector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the aggregation of the monthly download statistics, whose months are UTC months whatever the time zone of
+ * the registry.
+ */
+public class DownloadStatisticsMapperTest {
+
+  private static final Date MARCH = utc("2018-03-01T00:00:00Z");
+
+  private DownloadStatisticsMapper mapper;
+  private TimeZone defaultTimeZone;
+  private UUID dataset1;
+  private UUID dataset2;
+
+  @ClassRule
+  public static LiquibaseInitializer liquibase = new LiquibaseInitializer(LiquibaseModules.database());
+
+  @Rule
+  public final DatabaseInitializer databaseRule = new DatabaseInitializer(LiquibaseModules.database());
+
+  @Before
+  public void setup() throws Exception {
+    // months must not follow the local time zone
+    defaultTimeZone = TimeZone.getDefault();
+    TimeZone.setDefault(TimeZone.getTimeZone("Europe/Copenhagen"));
+
+    Injector inj = RegistryTestModules.mybatis();
+    mapper = inj.getInstance(DownloadStatisticsMapper.class);
+
+    // the organization is in DE
+    Organization organization = Organizations.newPersistedInstance();
+    Installation installation = Installations.newPersistedInstance(organization.getKey());
+    dataset1 = Datasets.newPersistedInstance(organization.getKey(), installation.getKey()).getKey();
+    dataset2 = Datasets.newPersistedInstance(organization.getKey(), installation.getKey()).getKey();
+
+    createUser("alice", "DK");
+    createUser("bob", null);
+
+    // first and last instant of the UTC month, the last one is already April in Copenhagen
+    createDownload("d1", "SUCCEEDED", "2018-03-01 00:00:00+00", "alice", 150);
+    addUsage("d1", dataset1, 100);
+    addUsage("d1", dataset2, 50);
+    createDownload("d2", "FILE_ERASED", "2018-03-31 23:59:59.999+00", "bob", 10);
+    addUsage("d2", dataset1, 10);
+    createDownload("d3", "SUCCEEDED", "2018-03-15 12:00:00+00", "alice", 7);
+    addUsage("d3", dataset1, 7);
+
+    // not counted for March: failed, or in the neighbouring UTC months although the first one is March in Copenhagen
+    createDownload("d4", "FAILED", "2018-03-15 12:00:00+00", "alice", 1000);
+    addUsage("d4", dataset1, 1000);
+    createDownload("d5", "SUCCEEDED", "2018-02-28 23:30:00+00", "alice", 1000);
+    addUsage("d5", dataset1, 1000);
+    createDownload("d6", "SUCCEEDED", "2018-04-01 00:00:00+00", "bob", 1000);
+    addUsage("d6", dataset2, 1000);
+  }
+
+  @After
+  public void resetTimeZone() {
+    TimeZone.setDefault(defaultTimeZone);
+  }
+
+  @Test
+  public void testListModifiedMonths() {
+    List<Date> months = mapper.listModifiedMonths(null, mapper.now());
+    assertEquals(ImmutableList.of(utc("2018-02-01T00:00:00Z"), MARCH, utc("2018-04-01T00:00:00Z")),
+      ImmutableList.copyOf(months));
+
+    assertEquals(0, mapper.listModifiedMonths(mapper.now(), mapper.now()).size());
+  }
+
+  @Test
+  public void testUpdateDatasetStatistics() throws Exception {
+    mapper.updateDatasetStatistics(MARCH);
+    Map<UUID, List<Long>> expected = ImmutableMap.<UUID, List<Long>>of(
+      dataset1, ImmutableList.of(117L, 3L),
+      dataset2, ImmutableList.of(50L, 1L));
+    assertEquals(expected, datasetStatistics());
+
+    // updating again replaces the rows of the month
+    execute("DELETE FROM occurrence_download WHERE key = 'd3'");
+    mapper.updateDatasetStatistics(MARCH);
+    expected = ImmutableMap.<UUID, List<Long>>of(
+      dataset1, ImmutableList.of(110L, 2L),
+      dataset2, ImmutableList.of(50L, 1L));
+    assertEquals(expected, datasetStatistics());
+  }
+
+  @Test
+  public void testUpdateUserStatistics() throws Exception {
+    mapper.updateUserStatistics(MARCH);
+    // bob has no country
+    Map<String, List<Long>> expected = ImmutableMap.<String, List<Long>>of(
+      "DK", ImmutableList.of(157L, 2L),
+      "ZZ", ImmutableList.of(10L, 1L));
+    assertEquals(expected, userStatistics());
+
+    // updating again replaces the rows of the month
+    execute("DELETE FROM occurrence_download WHERE key = 'd2'");
+    mapper.updateUserStatistics(MARCH);
+    expected = ImmutableMap.<String, List<Long>>of("DK", ImmutableList.of(157L, 2L));
+    assertEquals(expected, userStatistics());
+  }
+
+  /**
+   * @return the total records and number of downloads of March per dataset, all published from DE
+   */
+  private static Map<UUID, List<Long>> datasetStatistics() throws Exception {
+    Map<UUID, List<Long>> statistics = Maps.newHashMap();
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      ResultSet rs = connection.prepareStatement(
+        "SELECT year_month, publishing_organization_country, dataset_key, total_records, number_downloads "
+        + "FROM download_statistics").executeQuery();
+      while (rs.next()) {
+        assertEquals(MARCH.getTime(), rs.getTimestamp("year_month").getTime());
+        assertEquals("DE", rs.getString("publishing_organization_country"));
+        statistics.put((UUID) rs.getObject("dataset_key"),
+          ImmutableList.of(rs.getLong("total_records"), rs.getLong("number_downloads")));
+      }
+    } finally {
+      connection.close();
+    }
+    return statistics;
+  }
+
+  /**
+   * @return the total records and number of downloads of March per user country
+   */
+  private static Map<String, List<Long>> userStatistics() throws Exception {
+    Map<String, List<Long>> statistics = Maps.newHashMap();
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      ResultSet rs = connection.prepareStatement(
+        "SELECT year_month, user_country, total_records, number_downloads FROM download_user_statistics")
+        .executeQuery();
+      while (rs.next()) {
+        assertEquals(MARCH.getTime(), rs.getTimestamp("year_month").getTime());
+        statistics.put(rs.getString("user_country"),
+          ImmutableList.of(rs.getLong("total_records"), rs.getLong("number_downloads")));
+      }
+    } finally {
+      connection.close();
+    }
+    return statistics;
+  }
+
+  private static void createUser(String username, String country) throws Exception {
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      PreparedStatement ps = connection.prepareStatement(
+        "INSERT INTO public.user (username, email, password, settings) VALUES (?, ?, ?, "
+        + (country == null ? "''::hstore" : "hstore('country', ?)") + ")");
+      ps.setString(1, username);
+      ps.setString(2, username + "@gbif.org");
+      ps.setString(3, "$S$DxC5Vj8VYmKqpY8H7gJZ5fRcVZ3Y6T9e4dWbN1");
+      if (country != null) {
+        ps.setString(4, country);
+      }
+      ps.execute();
+    } finally {
+      connection.close();
+    }
+  }
+
+  private static void createDownload(String key, String status, String created, String createdBy, int totalRecords)
+    throws Exception {
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      PreparedStatement ps = connection.prepareStatement(
+        "INSERT INTO occurrence_download (key, status, download_link, created_by, created, total_records, format) "
+        + "VALUES (?, CAST(? AS enum_downlad_status), 'http://download.gbif.org/' || ?, ?, CAST(? AS timestamptz), ?, "
+        + "'DWCA')");
+      ps.setString(1, key);
+      ps.setString(2, status);
+      ps.setString(3, key);
+      ps.setString(4, createdBy);
+      ps.setString(5, created);
+      ps.setInt(6, totalRecords);
+      ps.execute();
+    } finally {
+      connection.close();
+    }
+  }
+
+  private static void addUsage(String downloadKey, UUID datasetKey, int records) throws Exception {
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      PreparedStatement ps = connection.prepareStatement(
+        "INSERT INTO dataset_occurrence_download (download_key, dataset_key, number_records) VALUES (?, ?, ?)");
+      ps.setString(1, downloadKey);
+      ps.setObject(2, datasetKey);
+      ps.setInt(3, records);
+      ps.execute();
+    } finally {
+      connection.close();
+    }
+  }
+
+  private static void execute(String sql) throws Exception {
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      connection.prepareStatement(sql).execute();
+    } finally {
+      connection.close();
+    }
+  }
+
+  private static Date utc(String instant) {
+    return Date.from(Instant.parse(instant));
+  }
+}
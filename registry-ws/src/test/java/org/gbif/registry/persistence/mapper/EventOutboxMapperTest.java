@@ -0,0 +1,141 @@
+package org.gbif.registry.persistence.mapper;
+
+import org.gbif.registry.database.DatabaseInitializer;
+import org.gbif.registry.database.LiquibaseInitializer;
+import org.gbif.registry.database.LiquibaseModules;
+import org.gbif.registry.events.outbox.OutboxEvent;
+import org.gbif.registry.guice.RegistryTestModules;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the claiming of outbox events, which keeps the order of the events of an entity and skips dead lettered ones.
+ */
+public class EventOutboxMapperTest {
+
+  private static final int LEASE_SECONDS = 300;
+  private static final int MAX_ATTEMPTS = 2;
+
+  private EventOutboxMapper mapper;
+
+  @ClassRule
+  public static LiquibaseInitializer liquibase = new LiquibaseInitializer(LiquibaseModules.database());
+
+  @Rule
+  public final DatabaseInitializer databaseRule = new DatabaseInitializer(LiquibaseModules.database());
+
+  @Before
+  public void setup() throws Exception {
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      connection.prepareStatement("DELETE FROM event_outbox").execute();
+    } finally {
+      connection.close();
+    }
+    Injector inj = RegistryTestModules.mybatis();
+    mapper = inj.getInstance(EventOutboxMapper.class);
+  }
+
+  @Test
+  public void testClaimKeepsEntityOrder() {
+    UUID entity = UUID.randomUUID();
+    long first = create(entity);
+    long second = create(entity);
+    long other = create(UUID.randomUUID());
+
+    // the second event of the entity waits for the first one
+    List<OutboxEvent> claimed = claim();
+    assertEquals(2, claimed.size());
+    assertEquals(first, (long) claimed.get(0).getKey());
+    assertEquals(other, (long) claimed.get(1).getKey());
+
+    // still waiting while the first one backs off for a retry
+    mapper.markFailed(first, "Subscriber is down", "org.gbif.registry.events.VarnishPurgeListener", MAX_ATTEMPTS);
+    mapper.markDelivered(other);
+    assertEquals(0, claim().size());
+    assertEquals(2, mapper.countPending());
+
+    mapper.markDelivered(first);
+    claimed = claim();
+    assertEquals(1, claimed.size());
+    assertEquals(second, (long) claimed.get(0).getKey());
+  }
+
+  @Test
+  public void testDeadLettered() {
+    UUID entity = UUID.randomUUID();
+    long first = create(entity);
+    long second = create(entity);
+
+    claim();
+    mapper.markFailed(first, "Subscriber is down", null, MAX_ATTEMPTS);
+    assertEquals(2, mapper.countPending());
+
+    // retried once the backoff passed, reaching the maximum number of attempts
+    expireClaims();
+    assertEquals(1, claim().size());
+    mapper.markFailed(first, "Subscriber is down", null, MAX_ATTEMPTS);
+
+    // dead lettered, so it is no longer pending and the next event of the entity is delivered
+    assertEquals(1, mapper.countPending());
+    expireClaims();
+    List<OutboxEvent> claimed = claim();
+    assertEquals(1, claimed.size());
+    assertEquals(second, (long) claimed.get(0).getKey());
+  }
+
+  @Test
+  public void testDeadLetterAbandoned() {
+    create(UUID.randomUUID());
+    mapper.claim(UUID.randomUUID(), 10, LEASE_SECONDS, 1);
+    // claimed, but not yet abandoned
+    assertEquals(0, mapper.deadLetterAbandoned(1));
+
+    expireClaims();
+    assertEquals(1, mapper.deadLetterAbandoned(1));
+    assertEquals(0, mapper.countPending());
+  }
+
+  private List<OutboxEvent> claim() {
+    UUID token = UUID.randomUUID();
+    mapper.claim(token, 10, LEASE_SECONDS, MAX_ATTEMPTS);
+    return mapper.listClaimed(token);
+  }
+
+  private long create(UUID entityKey) {
+    OutboxEvent e = new OutboxEvent();
+    e.setEventType(OutboxEvent.Type.UPDATE);
+    e.setObjectClass("org.gbif.api.model.registry.Dataset");
+    e.setEntityKey(entityKey);
+    e.setNewObject("{}");
+    e.setOldObject("{}");
+    mapper.create(e);
+    return e.getKey();
+  }
+
+  /**
+   * Ends all leases and backoffs, as if their time had passed.
+   */
+  private static void expireClaims() {
+    try {
+      Connection connection = LiquibaseModules.database().getConnection();
+      try {
+        connection.prepareStatement("UPDATE event_outbox SET claimed_until = now() - interval '1 second'").execute();
+      } finally {
+        connection.close();
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -10,11 +10,14 @@ import org.gbif.api.model.registry.Identifier;
 import org.gbif.api.model.registry.Installation;
 import org.gbif.api.model.registry.MachineTag;
 import org.gbif.api.model.registry.Tag;
+import org.gbif.api.model.registry.search.KeyTitleResult;
 import org.gbif.api.vocabulary.ContactType;
 import org.gbif.api.vocabulary.Country;
 import org.gbif.api.vocabulary.DatasetType;
 import org.gbif.api.vocabulary.IdentifierType;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -104,6 +107,18 @@ public class MockDatasetMapper implements DatasetMapper {
     return null;
   }
 
+  @Override
+  public List<Dataset> listWithFilterAfter(@Nullable @Param("country") Country country, @Nullable @Param("type") DatasetType type, @Nullable @Param("installationKey") UUID installationKey, @Nullable @Param("dateFrom") Date from, @Nullable @Param("dateTo") Date to, @Nullable @Param("afterCreated") Timestamp afterCreated, @Nullable @Param("afterKey") UUID afterKey, @Param("limit") int limit) {
+    return null;
+  }
+
+  @Override
+  public List<Dataset> listByKeyRange(@Nullable @Param("fromKey") UUID fromKey, @Nullable @Param("toKey") UUID toKey,
+    @Nullable @Param("afterKey") UUID afterKey, @Nullable @Param("changedFrom") Date changedFrom,
+    @Param("limit") int limit) {
+    return null;
+  }
+
   @Override
   public List<Dataset> listByDOI(@Param("doi") String doi, @Nullable @Param("page") Pageable page) {
     return null;
@@ -324,6 +339,11 @@ public class MockDatasetMapper implements DatasetMapper {
     return null;
   }
 
+  @Override
+  public List<KeyTitleResult> titles(@Param("keys") Collection<UUID> keys) {
+    return null;
+  }
+
   @Override
   public void create(Dataset entity) {
 
@@ -344,6 +364,11 @@ public class MockDatasetMapper implements DatasetMapper {
     return null;
   }
 
+  @Override
+  public List<Dataset> listAfter(@Nullable @Param("afterCreated") Timestamp afterCreated, @Nullable @Param("afterKey") UUID afterKey, @Param("limit") int limit) {
+    return null;
+  }
+
   @Override
   public List<Dataset> search(@Nullable @Param("query") String query, @Nullable @Param("page") Pageable page) {
     return null;
@@ -354,6 +379,11 @@ public class MockDatasetMapper implements DatasetMapper {
     return 0;
   }
 
+  @Override
+  public Long estimateCount() {
+    return null;
+  }
+
   @Override
   public int count(@Nullable @Param("query") String query) {
     return 0;
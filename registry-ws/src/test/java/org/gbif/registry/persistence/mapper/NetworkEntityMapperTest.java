@@ -0,0 +1,138 @@
+package org.gbif.registry.persistence.mapper;
+
+import org.gbif.api.model.common.paging.CursorPagingResponse;
+import org.gbif.api.model.registry.Node;
+import org.gbif.registry.database.DatabaseInitializer;
+import org.gbif.registry.database.LiquibaseInitializer;
+import org.gbif.registry.database.LiquibaseModules;
+import org.gbif.registry.guice.RegistryTestModules;
+import org.gbif.registry.persistence.KeysetCursor;
+import org.gbif.registry.persistence.WithMyBatis;
+import org.gbif.registry.utils.Nodes;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the keyset paging shared by all network entity mappers, using nodes.
+ */
+public class NetworkEntityMapperTest {
+
+  // 2015-12-13 09:46:40.123456 UTC, postgres stores microseconds
+  private static final Timestamp CREATED = timestamp(1450000000123L, 123456000);
+
+  private NodeMapper mapper;
+
+  @ClassRule
+  public static LiquibaseInitializer liquibase = new LiquibaseInitializer(LiquibaseModules.database());
+
+  @Rule
+  public final DatabaseInitializer databaseRule = new DatabaseInitializer(LiquibaseModules.database());
+
+  @Before
+  public void setup() {
+    Injector inj = RegistryTestModules.mybatis();
+    mapper = inj.getInstance(NodeMapper.class);
+  }
+
+  @Test
+  public void testListAfterSameCreated() throws Exception {
+    Set<UUID> keys = Sets.newHashSet();
+    for (int i = 0; i < 5; i++) {
+      keys.add(createNode(CREATED));
+    }
+    // one microsecond apart, which a millisecond position can't tell apart
+    UUID newest = createNode(timestamp(1450000000123L, 123457000));
+    UUID oldest = createNode(timestamp(1450000000123L, 123455000));
+    keys.add(newest);
+    keys.add(oldest);
+
+    // pages of 2 end in between the nodes created at the same time
+    List<UUID> listed = Lists.newArrayList();
+    String cursor = null;
+    int pages = 0;
+    do {
+      CursorPagingResponse<Node> page = WithMyBatis.listAfter(mapper, cursor, 2, null);
+      for (Node n : page.getResults()) {
+        listed.add(n.getKey());
+      }
+      cursor = page.getNextCursor();
+      if (pages == 1) {
+        assertNotNull(cursor);
+        assertEquals(CREATED, KeysetCursor.parse(cursor).getCreated());
+      }
+      pages++;
+    } while (cursor != null);
+
+    assertEquals(4, pages);
+    assertEquals("Nodes are listed exactly once", keys.size(), listed.size());
+    assertEquals(keys, Sets.newHashSet(listed));
+    assertEquals(newest, listed.get(0));
+    assertEquals(oldest, listed.get(listed.size() - 1));
+  }
+
+  @Test
+  public void testListAfterLastPage() throws Exception {
+    UUID key = createNode(CREATED);
+    List<Node> nodes = mapper.listAfter(null, null, 10);
+    assertEquals(1, nodes.size());
+    assertEquals(CREATED, nodes.get(0).getCreated());
+
+    assertEquals(0, mapper.listAfter(CREATED, key, 10).size());
+    assertNull(WithMyBatis.listAfter(mapper, null, 1, null).getNextCursor());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedCursor() {
+    WithMyBatis.listAfter(mapper, "not a cursor", 10, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testListAfterZeroLimit() throws Exception {
+    createNode(CREATED);
+    WithMyBatis.listAfter(mapper, null, 0, null);
+  }
+
+  private UUID createNode(Timestamp created) throws Exception {
+    Node node = Nodes.newInstance();
+    node.setCreatedBy("NetworkEntityMapperTest");
+    node.setModifiedBy("NetworkEntityMapperTest");
+    UUID key = WithMyBatis.create(mapper, node);
+
+    Connection connection = LiquibaseModules.database().getConnection();
+    try {
+      connection.setAutoCommit(false);
+      PreparedStatement ps = connection.prepareStatement("UPDATE node SET created = ? WHERE key = ?");
+      ps.setTimestamp(1, created);
+      ps.setObject(2, key);
+      ps.execute();
+      ps.close();
+      connection.commit();
+    } finally {
+      connection.close();
+    }
+    return key;
+  }
+
+  private static Timestamp timestamp(long millis, int nanos) {
+    Timestamp ts = new Timestamp(millis);
+    ts.setNanos(nanos);
+    return ts;
+  }
+}
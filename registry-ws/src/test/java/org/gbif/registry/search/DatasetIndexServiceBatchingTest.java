@@ -0,0 +1,128 @@
+package org.gbif.registry.search;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.service.registry.DatasetService;
+import org.gbif.api.service.registry.InstallationService;
+import org.gbif.api.service.registry.OrganizationService;
+import org.gbif.api.vocabulary.DatasetType;
+import org.gbif.registry.persistence.mapper.DatasetIndexRetryMapper;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the batching and debouncing of the index service against a mocked solr client.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DatasetIndexServiceBatchingTest {
+
+  @Mock
+  private SolrClient solrClient;
+  @Mock
+  private DatasetService datasetService;
+  @Mock
+  private InstallationService installationService;
+  @Mock
+  private OrganizationService organizationService;
+  @Mock
+  private DatasetIndexRetryMapper retryMapper;
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRepeatedUpdatesAreDebounced() throws Exception {
+    DatasetIndexService service = new DatasetIndexService(solrClient, 2, 100, 1000, 1000,
+                                                          datasetService, installationService, organizationService,
+                                                          retryMapper);
+    Dataset d = dataset();
+    for (int i = 0; i < 10; i++) {
+      d.setTitle("Title " + i);
+      service.add(d);
+    }
+    service.closeAndAwaitTermination();
+
+    ArgumentCaptor<Collection> docs = ArgumentCaptor.forClass(Collection.class);
+    verify(solrClient, times(1)).add(docs.capture(), eq(1000));
+    assertEquals(1, docs.getValue().size());
+    SolrInputDocument doc = (SolrInputDocument) docs.getValue().iterator().next();
+    assertEquals("Title 9", doc.getFieldValue("title"));
+  }
+
+  @Test
+  public void testDeleteReplacesPendingAdd() throws Exception {
+    DatasetIndexService service = new DatasetIndexService(solrClient, 2, 100, 1000, 1000,
+                                                          datasetService, installationService, organizationService,
+                                                          retryMapper);
+    Dataset d = dataset();
+    service.add(d);
+    service.delete(d.getKey());
+    service.closeAndAwaitTermination();
+
+    verify(solrClient, never()).add(anyListOf(SolrInputDocument.class), anyInt());
+    verify(solrClient, times(1)).deleteById(anyListOf(String.class), eq(1000));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFailedAddIsScheduledForRetry() throws Exception {
+    when(solrClient.add(anyCollectionOf(SolrInputDocument.class), anyInt())).thenThrow(new SolrServerException("down"));
+    DatasetIndexService service = new DatasetIndexService(solrClient, 2, 100, 1000, 1000,
+                                                          datasetService, installationService, organizationService,
+                                                          retryMapper);
+    Dataset d = dataset();
+    service.add(d);
+    service.closeAndAwaitTermination();
+
+    verify(retryMapper).upsert(eq(d.getKey()), eq(DatasetIndexRetry.Operation.INDEX), anyString());
+  }
+
+  @Test
+  public void testRetryOfDeletedDatasetBecomesDelete() throws Exception {
+    Dataset d = dataset();
+    d.setDeleted(new Date());
+    DatasetIndexRetry retry = new DatasetIndexRetry();
+    retry.setDatasetKey(d.getKey());
+    retry.setOperation(DatasetIndexRetry.Operation.INDEX);
+    when(retryMapper.listDue(anyInt())).thenReturn(Lists.newArrayList(retry));
+    when(datasetService.get(d.getKey())).thenReturn(d);
+
+    DatasetIndexService service = new DatasetIndexService(solrClient, 2, 100, 1000, 1000,
+                                                          datasetService, installationService, organizationService,
+                                                          retryMapper);
+    service.replayRetries();
+    service.closeAndAwaitTermination();
+
+    verify(solrClient, never()).add(anyListOf(SolrInputDocument.class), anyInt());
+    verify(solrClient, times(1)).deleteById(anyListOf(String.class), eq(1000));
+    verify(retryMapper).delete(Lists.newArrayList(d.getKey()));
+  }
+
+  private static Dataset dataset() {
+    Dataset d = new Dataset();
+    d.setKey(UUID.randomUUID());
+    d.setType(DatasetType.CHECKLIST);
+    d.setTitle("Title");
+    return d;
+  }
+}
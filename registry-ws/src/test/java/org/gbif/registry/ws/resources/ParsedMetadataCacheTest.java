@@ -0,0 +1,101 @@
+package org.gbif.registry.ws.resources;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Metadata;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.persistence.mapper.MetadataMapper;
+import org.gbif.registry.persistence.mapper.handler.ByteArrayWrapper;
+import org.gbif.utils.file.FileUtils;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.EventBus;
+import com.google.common.io.ByteStreams;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ParsedMetadataCacheTest {
+
+  private final UUID datasetKey = UUID.randomUUID();
+  private final EventBus eventBus = new EventBus();
+  private MetadataMapper metadataMapper;
+  private ParsedMetadataCache cache;
+
+  @Before
+  public void setup() throws Exception {
+    metadataMapper = mock(MetadataMapper.class);
+    cache = new ParsedMetadataCache(metadataMapper, eventBus);
+
+    Metadata metadata = new Metadata();
+    metadata.setKey(1);
+    metadata.setDatasetKey(datasetKey);
+    metadata.setModified(new Date());
+    when(metadataMapper.list(datasetKey, null)).thenReturn(Lists.newArrayList(metadata));
+    ByteArrayWrapper document = new ByteArrayWrapper();
+    document.setData(ByteStreams.toByteArray(FileUtils.classpathStream("metadata/sample.xml")));
+    when(metadataMapper.getDocument(1)).thenReturn(document);
+  }
+
+  @Test
+  public void testDocumentIsParsedOnce() {
+    Dataset d1 = cache.get(datasetKey);
+    Dataset d2 = cache.get(datasetKey);
+
+    assertEquals("Tanzanian Entomological Collection", d1.getTitle());
+    assertEquals(d1.getTitle(), d2.getTitle());
+    // callers get their own copies
+    assertNotSame(d1, d2);
+    d1.setTitle("Changed");
+    assertEquals("Tanzanian Entomological Collection", cache.get(datasetKey).getTitle());
+    verify(metadataMapper, times(1)).getDocument(anyInt());
+  }
+
+  @Test
+  public void testCopiesAreDeep() {
+    Dataset d1 = cache.get(datasetKey);
+    int contacts = d1.getContacts().size();
+    String firstName = d1.getContacts().get(0).getFirstName();
+    int identifiers = d1.getIdentifiers().size();
+    int tags = d1.getTags().size();
+    assertTrue(contacts > 0);
+
+    // what DatasetResource.updateFromPreferredMetadata does with the parsed dataset
+    d1.getContacts().get(0).setFirstName("Changed");
+    d1.getContacts().clear();
+    d1.getIdentifiers().clear();
+    d1.getTags().clear();
+    d1.getMachineTags().clear();
+
+    Dataset d2 = cache.get(datasetKey);
+    assertEquals(contacts, d2.getContacts().size());
+    assertEquals(firstName, d2.getContacts().get(0).getFirstName());
+    assertEquals(identifiers, d2.getIdentifiers().size());
+    assertEquals(tags, d2.getTags().size());
+    verify(metadataMapper, times(1)).getDocument(anyInt());
+  }
+
+  @Test
+  public void testDatasetUpdateInvalidates() {
+    cache.get(datasetKey);
+    assertEquals(1, cache.size());
+
+    Dataset d = new Dataset();
+    d.setKey(datasetKey);
+    eventBus.post(UpdateEvent.newInstance(d, d, Dataset.class));
+    assertEquals(0, cache.size());
+
+    cache.get(datasetKey);
+    verify(metadataMapper, times(2)).getDocument(anyInt());
+  }
+}
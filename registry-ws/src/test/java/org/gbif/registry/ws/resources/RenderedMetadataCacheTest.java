@@ -0,0 +1,144 @@
+package org.gbif.registry.ws.resources;
+
+import org.gbif.api.model.registry.Contact;
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.Organization;
+import org.gbif.registry.events.ChangedComponentEvent;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.ws.util.PrerenderedResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.base.Charsets;
+import com.google.common.eventbus.EventBus;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RenderedMetadataCacheTest {
+
+  // the dataset modification, in seconds as HTTP dates
+  private static final Date MODIFIED = new Date(1450000000000L);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final UUID datasetKey = UUID.randomUUID();
+  private final EventBus eventBus = new EventBus();
+  private final AtomicInteger renders = new AtomicInteger();
+
+  @Test
+  public void testRenderOnce() throws IOException {
+    RenderedMetadataCache cache = new RenderedMetadataCache(eventBus);
+    PrerenderedResponse eml = cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    assertEquals("<eml/>", eml.asString());
+    cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    assertEquals(1, renders.get());
+
+    // formats are kept apart
+    cache.get(datasetKey, RenderedMetadataCache.Format.OAI_DC, this::render);
+    assertEquals(2, renders.get());
+
+    // missing documents are not cached
+    assertNull(cache.get(UUID.randomUUID(), RenderedMetadataCache.Format.EML, () -> null));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testInvalidation() throws IOException {
+    RenderedMetadataCache cache = new RenderedMetadataCache(eventBus);
+    cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    cache.get(datasetKey, RenderedMetadataCache.Format.OAI_EML, this::render);
+
+    eventBus.post(ChangedComponentEvent.newInstance(datasetKey, Dataset.class, Contact.class));
+    assertEquals(0, cache.size());
+
+    cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    Dataset dataset = new Dataset();
+    dataset.setKey(datasetKey);
+    eventBus.post(UpdateEvent.newInstance(dataset, dataset, Dataset.class));
+    assertEquals(0, cache.size());
+
+    cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    Organization org = new Organization();
+    org.setKey(UUID.randomUUID());
+    eventBus.post(UpdateEvent.newInstance(org, org, Organization.class));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testChangedWhileRendering() throws IOException {
+    RenderedMetadataCache cache = new RenderedMetadataCache(eventBus);
+    PrerenderedResponse eml = cache.get(datasetKey, RenderedMetadataCache.Format.EML, () -> {
+      cache.invalidate(datasetKey);
+      return render();
+    });
+    // the outdated document is returned once, but not kept
+    assertEquals("<eml/>", eml.asString());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testDiskTier() throws IOException {
+    File dir = folder.newFolder();
+    // nothing fits into memory
+    RenderedMetadataCache cache = new RenderedMetadataCache(eventBus, 1, dir, 60);
+    cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    PrerenderedResponse eml = cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    assertEquals("<eml/>", eml.asString());
+    assertEquals(1, renders.get());
+
+    cache.invalidate(datasetKey);
+    assertEquals(0, dir.listFiles().length);
+
+    // a new cache never uses documents of a previous run
+    cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    new RenderedMetadataCache(eventBus, 1, dir, 60);
+    assertEquals(0, dir.listFiles().length);
+  }
+
+  @Test
+  public void testLastModified() throws IOException {
+    // nothing fits into memory, so the second document is read from disk
+    RenderedMetadataCache cache = new RenderedMetadataCache(eventBus, 1, folder.newFolder(), 60);
+    assertEquals(MODIFIED, cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render).getLastModified());
+    PrerenderedResponse eml = cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    assertEquals(1, renders.get());
+    assertEquals(MODIFIED, eml.getLastModified());
+    assertEquals("<eml/>", eml.asString());
+  }
+
+  @Test
+  public void testOtherFilesKept() throws IOException {
+    File dir = folder.newFolder();
+    File other = new File(dir, "other.xml");
+    assertTrue(other.createNewFile());
+    RenderedMetadataCache cache = new RenderedMetadataCache(eventBus, 1, dir, 60);
+    cache.get(datasetKey, RenderedMetadataCache.Format.EML, this::render);
+    assertEquals(2, dir.listFiles().length);
+
+    // an organization change drops the documents of all datasets
+    Organization org = new Organization();
+    org.setKey(UUID.randomUUID());
+    eventBus.post(UpdateEvent.newInstance(org, org, Organization.class));
+    assertEquals(1, dir.listFiles().length);
+    assertTrue(other.exists());
+
+    new RenderedMetadataCache(eventBus, 1, dir, 60);
+    assertTrue(other.exists());
+  }
+
+  private PrerenderedResponse render() {
+    renders.incrementAndGet();
+    return PrerenderedResponse.of("<eml/>".getBytes(Charsets.UTF_8), MediaType.APPLICATION_XML_TYPE, MODIFIED);
+  }
+}
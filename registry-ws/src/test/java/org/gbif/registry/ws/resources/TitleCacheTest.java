@@ -0,0 +1,81 @@
+package org.gbif.registry.ws.resources;
+
+import org.gbif.api.model.registry.Dataset;
+import org.gbif.api.model.registry.search.KeyTitleResult;
+import org.gbif.registry.events.UpdateEvent;
+import org.gbif.registry.persistence.mapper.DatasetMapper;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.EventBus;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TitleCacheTest {
+
+  private final UUID key1 = UUID.randomUUID();
+  private final UUID key2 = UUID.randomUUID();
+  private final UUID unknown = UUID.randomUUID();
+  private final EventBus eventBus = new EventBus();
+  private DatasetMapper mapper;
+  private TitleCache<Dataset> cache;
+
+  @Before
+  public void setup() {
+    mapper = mock(DatasetMapper.class);
+    cache = new TitleCache<Dataset>(mapper, Dataset.class, eventBus);
+    when(mapper.titles(anyCollectionOf(UUID.class)))
+      .thenReturn(Lists.newArrayList(keyTitle(key1, "First"), keyTitle(key2, "Second")));
+  }
+
+  @Test
+  public void testTitlesAreReadOnce() {
+    Collection<UUID> keys = Lists.newArrayList(key1, key2, unknown);
+    Map<UUID, String> titles = cache.get(keys);
+
+    assertEquals(3, titles.size());
+    assertEquals("First", titles.get(key1));
+    assertEquals("Second", titles.get(key2));
+    assertTrue(titles.containsKey(unknown));
+    assertNull(titles.get(unknown));
+    assertEquals(2, cache.size());
+
+    // only the unknown key is read again, and all keys are read in a single query each time
+    when(mapper.titles(ImmutableSet.of(unknown))).thenReturn(Lists.<KeyTitleResult>newArrayList());
+    titles = cache.get(keys);
+    assertEquals("First", titles.get(key1));
+    verify(mapper, times(1)).titles(ImmutableSet.of(key1, key2, unknown));
+    verify(mapper, times(1)).titles(ImmutableSet.of(unknown));
+  }
+
+  @Test
+  public void testUpdateInvalidatesTitle() {
+    cache.get(Lists.newArrayList(key1, key2));
+    assertEquals(2, cache.size());
+
+    Dataset dataset = new Dataset();
+    dataset.setKey(key1);
+    eventBus.post(UpdateEvent.newInstance(dataset, dataset, Dataset.class));
+    assertEquals(1, cache.size());
+  }
+
+  private static KeyTitleResult keyTitle(UUID key, String title) {
+    KeyTitleResult result = new KeyTitleResult();
+    result.setKey(key);
+    result.setTitle(title);
+    return result;
+  }
+}
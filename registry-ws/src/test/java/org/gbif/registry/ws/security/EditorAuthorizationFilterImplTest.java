@@ -5,10 +5,8 @@ import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.model.registry.Installation;
 import org.gbif.api.model.registry.Node;
 import org.gbif.api.model.registry.Organization;
-import org.gbif.api.service.registry.DatasetService;
-import org.gbif.api.service.registry.InstallationService;
-import org.gbif.api.service.registry.OrganizationService;
 import org.gbif.common.shaded.com.google.common.collect.ImmutableMap;
+import org.gbif.common.shaded.com.google.common.collect.ImmutableSet;
 import org.gbif.registry.persistence.mapper.UserRightsMapper;
 import org.junit.Assert;
 import org.junit.Before;
@@ -19,14 +17,19 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import com.google.common.eventbus.EventBus;
+
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.SecurityContext;
 import java.security.Principal;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -44,18 +47,14 @@ public class EditorAuthorizationFilterImplTest {
   private final String nodeEditor = "nodeEditor";
 
   private Map<String, UUID> editorRights;
+  // the entity and its owners
+  private Map<UUID, Set<UUID>> ownershipGraph;
 
   @Mock
   SecurityContext secContext;
   @Mock
   ContainerRequest mockRequest;
   @Mock
-  DatasetService datasetService;
-  @Mock
-  InstallationService installationService;
-  @Mock
-  OrganizationService organizationService;
-  @Mock
   UserRightsMapper userRightsMapper;
 
   private EditorAuthorizationFilter filter;
@@ -83,7 +82,15 @@ public class EditorAuthorizationFilterImplTest {
       nodeEditor, denmarkNode.getKey()
     );
 
-    editorAuthorizationService = new EditorAuthorizationServiceImpl(datasetService, installationService, organizationService, userRightsMapper);
+    ownershipGraph = ImmutableMap.of(
+      denmarkDataset.getKey(), ImmutableSet.of(denmarkDataset.getKey(), denmarkInstallation.getKey(),
+                                               denmarkOrganization.getKey(), denmarkNode.getKey()),
+      denmarkInstallation.getKey(), ImmutableSet.of(denmarkInstallation.getKey(), denmarkOrganization.getKey(),
+                                                    denmarkNode.getKey()),
+      denmarkOrganization.getKey(), ImmutableSet.of(denmarkOrganization.getKey(), denmarkNode.getKey())
+    );
+
+    editorAuthorizationService = new EditorAuthorizationServiceImpl(userRightsMapper, new EventBus());
 
     // setup filter with mocks
     filter = new EditorAuthorizationFilter(editorAuthorizationService);
@@ -97,10 +104,11 @@ public class EditorAuthorizationFilterImplTest {
       return editorRights.containsKey(args[0]) && editorRights.get(args[0]).equals(args[1]);
     });
 
-    when(datasetService.get(denmarkDataset.getKey())).thenReturn(denmarkDataset);
-
-    when(installationService.get(denmarkInstallation.getKey())).thenReturn(denmarkInstallation);
-    when(organizationService.get(denmarkOrganization.getKey())).thenReturn(denmarkOrganization);
+    when(userRightsMapper.keyOrOwnerExistsForUser(Matchers.any(), Matchers.any())).thenAnswer((Answer<Boolean>) invocation -> {
+      Object[] args = invocation.getArguments();
+      return editorRights.containsKey(args[0]) && ownershipGraph.containsKey(args[1])
+             && ownershipGraph.get(args[1]).contains(editorRights.get(args[0]));
+    });
   }
 
   /**
@@ -166,6 +174,17 @@ public class EditorAuthorizationFilterImplTest {
     filter.filter(mockRequest);
   }
 
+  @Test
+  public void testCachedDecisions() throws Exception {
+    Assert.assertTrue(editorAuthorizationService.allowedToModifyDataset(principal(nodeEditor), denmarkDataset.getKey()));
+    Assert.assertTrue(editorAuthorizationService.allowedToModifyDataset(principal(nodeEditor), denmarkDataset.getKey()));
+    verify(userRightsMapper, times(1)).keyOrOwnerExistsForUser(nodeEditor, denmarkDataset.getKey());
+
+    editorAuthorizationService.editorRightsChanged(nodeEditor);
+    Assert.assertTrue(editorAuthorizationService.allowedToModifyDataset(principal(nodeEditor), denmarkDataset.getKey()));
+    verify(userRightsMapper, times(2)).keyOrOwnerExistsForUser(nodeEditor, denmarkDataset.getKey());
+  }
+
   /* Entity creation */
 
   @Test
@@ -110,6 +110,33 @@ public class JwtAuthenticatorTest {
     jwtAuthenticator.authenticate(token);
   }
 
+  @Test
+  public void cachedPrincipalTest() throws GbifJwtException {
+    IdentityService countingIdentityService = Mockito.mock(IdentityService.class);
+    Mockito.when(countingIdentityService.get(USER_TEST)).thenReturn(user);
+    JwtConfiguration config = JwtConfiguration.newBuilder()
+      .signingKey(signingKey)
+      .expiryTimeInMs(EXPIRY_TIME)
+      .issuer(ISSUER)
+      .principalCacheTimeInMs(EXPIRY_TIME)
+      .build();
+    String token = JwtUtils.generateJwt(user.getUserName(), config);
+
+    JwtAuthenticator jwtAuthenticator = new JwtAuthenticator(config, countingIdentityService);
+    jwtAuthenticator.authenticate(token);
+    jwtAuthenticator.authenticate(token);
+    Mockito.verify(countingIdentityService, Mockito.times(1)).get(USER_TEST);
+
+    // a different token of the same user is looked up again
+    jwtAuthenticator.authenticate(JwtUtils.generateJwt(user.getUserName(), config));
+    Mockito.verify(countingIdentityService, Mockito.times(2)).get(USER_TEST);
+
+    jwtAuthenticator.invalidate(USER_TEST);
+    JwtAuthenticator.Authentication authentication = jwtAuthenticator.authenticateToken(token);
+    Mockito.verify(countingIdentityService, Mockito.times(3)).get(USER_TEST);
+    Assert.assertTrue(authentication.getExpiration().getTime() > System.currentTimeMillis());
+  }
+
   private static String generateTestSigningKey(String string) {
     return Hashing.sha256().hashString(string, StandardCharsets.UTF_8).toString();
   }
@@ -0,0 +1,100 @@
+package org.gbif.registry.ws.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.core.HttpRequestContext;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PrerenderedResponseTest {
+
+  private static final String JSON = "{\"key\":\"value\"}";
+
+  private HttpContext context;
+  private HttpRequestContext request;
+  private MultivaluedMapImpl headers;
+  private MultivaluedMapImpl queryParams;
+
+  @Before
+  public void setup() {
+    context = mock(HttpContext.class);
+    request = mock(HttpRequestContext.class);
+    headers = new MultivaluedMapImpl();
+    queryParams = new MultivaluedMapImpl();
+    when(context.getRequest()).thenReturn(request);
+    when(request.getRequestHeaders()).thenReturn(headers);
+    when(request.getQueryParameters()).thenReturn(queryParams);
+  }
+
+  @Test
+  public void testRender() throws IOException {
+    PrerenderedResponse rendered = PrerenderedResponse.of(new ObjectMapper(), ImmutableMap.of("key", "value"));
+    Response response = rendered.respond(context);
+
+    assertEquals(200, response.getStatus());
+    assertArrayEquals(JSON.getBytes(Charsets.UTF_8), (byte[]) response.getEntity());
+    assertEquals(rendered.getEtag(), response.getMetadata().getFirst(HttpHeaders.ETAG));
+    assertNull(response.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+    // the same content has the same tag
+    assertEquals(rendered.getEtag(), PrerenderedResponse.ofJson(JSON).getEtag());
+  }
+
+  @Test
+  public void testGzip() throws IOException {
+    headers.add(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip");
+    PrerenderedResponse rendered = PrerenderedResponse.ofJson(JSON);
+    Response response = rendered.respond(context);
+
+    assertEquals("gzip", response.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertNotEquals(rendered.getEtag(), response.getMetadata().getFirst(HttpHeaders.ETAG));
+    byte[] unzipped = ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream((byte[]) response.getEntity())));
+    assertEquals(JSON, new String(unzipped, Charsets.UTF_8));
+  }
+
+  @Test
+  public void testNotModified() {
+    when(request.evaluatePreconditions(any(EntityTag.class))).thenReturn(Response.notModified());
+    Response response = PrerenderedResponse.ofJson(JSON).respond(context);
+
+    assertEquals(304, response.getStatus());
+    assertNull(response.getEntity());
+  }
+
+  @Test
+  public void testJsonp() {
+    queryParams.add("callback", "cb");
+    Response response = PrerenderedResponse.ofJson(JSON).respond(context);
+    assertEquals(JSON, response.getEntity());
+  }
+
+  @Test
+  public void testAcceptsGzip() {
+    assertTrue(PrerenderedResponse.acceptsGzip(ImmutableList.of("gzip")));
+    assertTrue(PrerenderedResponse.acceptsGzip(ImmutableList.of("br", "GZIP;q=0.5")));
+    assertFalse(PrerenderedResponse.acceptsGzip(ImmutableList.of("gzip;q=0")));
+    assertFalse(PrerenderedResponse.acceptsGzip(ImmutableList.of("identity, deflate")));
+    assertFalse(PrerenderedResponse.acceptsGzip(null));
+  }
+}